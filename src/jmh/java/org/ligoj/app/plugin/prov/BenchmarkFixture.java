@@ -0,0 +1,110 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Function;
+
+import org.ligoj.app.plugin.prov.model.ProvQuote;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Embedded database fixture of the benchmarks. The test Spring context is started with its in-memory database, the
+ * test data set is loaded, then a seeded synthetic catalog and quote resources are generated.
+ */
+public class BenchmarkFixture extends AbstractProvResourceTest {
+
+	/**
+	 * Seed of the data generator.
+	 */
+	public static final long SEED = 42L;
+
+	/**
+	 * Node owning the generated catalog.
+	 */
+	private static final String NODE = "service:prov:test";
+
+	@Autowired
+	protected ProvBudgetResource bResource;
+
+	@Autowired
+	protected ProvLookupCache lookupCache;
+
+	private ClassPathXmlApplicationContext context;
+
+	private TransactionTemplate transaction;
+
+	private CatalogGenerator generator;
+
+	/**
+	 * Start the Spring context and generate the data.
+	 *
+	 * @param prices    The amount of generated instance prices.
+	 * @param instances The amount of generated quote instances.
+	 * @return The started fixture.
+	 */
+	public static BenchmarkFixture start(final int prices, final int instances) {
+		final var fixture = new BenchmarkFixture();
+		fixture.context = new ClassPathXmlApplicationContext("classpath:/META-INF/spring/application-context-test.xml");
+		fixture.context.getAutowireCapableBeanFactory().autowireBean(fixture);
+		fixture.transaction = new TransactionTemplate(fixture.context.getBean(PlatformTransactionManager.class));
+		fixture.generator = new CatalogGenerator(SEED);
+		fixture.transaction.executeWithoutResult(s -> {
+			try {
+				fixture.prepareData();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			fixture.generator.generatePrices(fixture.em, NODE, prices);
+			final var quote = fixture.getQuote();
+			fixture.generator.generateInstances(fixture.em, quote.getId(),
+					fixture.ipRepository.findByExpected("code", "C1").getId(), instances);
+		});
+		fixture.clearAllCache();
+		return fixture;
+	}
+
+	/**
+	 * Stop the Spring context.
+	 */
+	public void stop() {
+		context.close();
+	}
+
+	/**
+	 * Execute a task within a transaction always rolled back, so the data stays the same between two invocations.
+	 *
+	 * @param <T>  The result type.
+	 * @param task The task to execute with the quote of the subscription.
+	 * @return The task result.
+	 */
+	public <T> T rollback(final Function<ProvQuote, T> task) {
+		return transaction.execute(s -> {
+			s.setRollbackOnly();
+			return task.apply(getQuote());
+		});
+	}
+
+	/**
+	 * Return the seeded data generator.
+	 *
+	 * @return The seeded data generator.
+	 */
+	public CatalogGenerator getGenerator() {
+		return generator;
+	}
+
+	/**
+	 * Return the subscription owning the generated quote.
+	 *
+	 * @return The subscription identifier.
+	 */
+	public int getSubscription() {
+		return subscription;
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.ligoj.app.model.Node;
+import org.ligoj.app.plugin.prov.model.ProvInstancePrice;
+import org.ligoj.app.plugin.prov.model.ProvInstancePriceTerm;
+import org.ligoj.app.plugin.prov.model.ProvInstanceType;
+import org.ligoj.app.plugin.prov.model.ProvLocation;
+import org.ligoj.app.plugin.prov.model.ProvQuote;
+import org.ligoj.app.plugin.prov.model.ProvQuoteInstance;
+import org.ligoj.app.plugin.prov.model.VmOs;
+import org.ligoj.app.plugin.prov.quote.instance.QuoteInstanceQuery;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Seeded generator of a synthetic instance catalog and of the related quote resources. The same seed always produces
+ * the same catalog, so the benchmark results are comparable between runs.
+ */
+public class CatalogGenerator {
+
+	private static final double[] CPUS = { 0.5, 1, 2, 4, 8, 16, 32, 64, 96 };
+
+	private static final VmOs[] OS = { VmOs.LINUX, VmOs.WINDOWS, VmOs.RHEL, VmOs.SUSE };
+
+	/**
+	 * Amount of persisted entities between two flushes.
+	 */
+	private static final int FLUSH_SIZE = 1000;
+
+	private final Random random;
+
+	/**
+	 * Create a generator from a seed.
+	 *
+	 * @param seed The random seed.
+	 */
+	public CatalogGenerator(final long seed) {
+		this.random = new Random(seed);
+	}
+
+	private void flush(final EntityManager em, final int count) {
+		if (count % FLUSH_SIZE == 0) {
+			em.flush();
+			em.clear();
+		}
+	}
+
+	/**
+	 * Generate the instance types and prices of a node. The terms and the locations of the node must already exist.
+	 *
+	 * @param em     The entity manager used to persist the catalog.
+	 * @param node   The node identifier owning the catalog.
+	 * @param prices The amount of prices to generate.
+	 */
+	public void generatePrices(final EntityManager em, final String node, final int prices) {
+		final var terms = em
+				.createQuery("FROM ProvInstancePriceTerm WHERE node.id = :node", ProvInstancePriceTerm.class)
+				.setParameter("node", node).getResultList().stream().map(ProvInstancePriceTerm::getId).toList();
+		final var locations = em.createQuery("FROM ProvLocation", ProvLocation.class).getResultList().stream()
+				.map(ProvLocation::getId).toList();
+
+		// Around 100 prices per type
+		final var types = new Integer[Math.max(1, prices / 100)];
+		for (var i = 0; i < types.length; i++) {
+			final var type = new ProvInstanceType();
+			type.setNode(em.getReference(Node.class, node));
+			type.setCode("bench-" + i);
+			type.setName("bench-" + i);
+			type.setCpu(CPUS[random.nextInt(CPUS.length)]);
+			type.setRam(type.getCpu() * 1024 * (1 + random.nextInt(8)));
+			em.persist(type);
+			types[i] = type.getId();
+			flush(em, i + 1);
+		}
+		for (var i = 0; i < prices; i++) {
+			final var type = em.getReference(ProvInstanceType.class, types[random.nextInt(types.length)]);
+			final var term = em.find(ProvInstancePriceTerm.class, terms.get(random.nextInt(terms.size())));
+			final var price = new ProvInstancePrice();
+			price.setCode("bench-" + i);
+			price.setType(type);
+			price.setTerm(term);
+			price.setLocation(em.getReference(ProvLocation.class, locations.get(random.nextInt(locations.size()))));
+			price.setOs(OS[random.nextInt(OS.length)]);
+			price.setPeriod(term.getPeriod());
+			price.setCost(Math.round((5 + random.nextDouble() * 2000) * 100) / 100d);
+			price.setCostPeriod(price.getCost() * Math.max(1, term.getPeriod()));
+			price.setCo2(random.nextDouble() * 100);
+			price.setCo2Period(price.getCo2() * Math.max(1, term.getPeriod()));
+			if (Boolean.TRUE.equals(term.getInitialCost())) {
+				price.setInitialCost(Math.round(price.getCostPeriod() * random.nextDouble() * 100) / 100d);
+			}
+			em.persist(price);
+			flush(em, i + 1);
+		}
+		em.flush();
+		em.clear();
+	}
+
+	/**
+	 * Generate the instances of a quote. Their price is set to a fixed one, a refresh is needed to get the actual best
+	 * price.
+	 *
+	 * @param em        The entity manager used to persist the resources.
+	 * @param quote     The quote identifier.
+	 * @param price     The identifier of the initial price of the resources.
+	 * @param instances The amount of instances to generate.
+	 */
+	public void generateInstances(final EntityManager em, final int quote, final int price, final int instances) {
+		for (var i = 0; i < instances; i++) {
+			final var query = newQuery();
+			final var qi = new ProvQuoteInstance();
+			qi.setConfiguration(em.getReference(ProvQuote.class, quote));
+			qi.setPrice(em.getReference(ProvInstancePrice.class, price));
+			qi.setName("bench-" + i);
+			qi.setCpu(query.getCpu());
+			qi.setRam(query.getRam());
+			qi.setOs(query.getOs());
+			qi.setMinQuantity(1 + random.nextInt(3));
+			qi.setMaxQuantity(qi.getMinQuantity() + random.nextInt(3));
+			em.persist(qi);
+			flush(em, i + 1);
+		}
+		em.flush();
+		em.clear();
+	}
+
+	/**
+	 * Return a random lookup query.
+	 *
+	 * @return A random lookup query.
+	 */
+	public QuoteInstanceQuery newQuery() {
+		return QuoteInstanceQuery.builder().cpu(CPUS[random.nextInt(CPUS.length - 2)] * (0.5 + random.nextDouble()))
+				.ram(512 * (1 + random.nextInt(32))).os(OS[random.nextInt(OS.length)]).build();
+	}
+
+	/**
+	 * Return random lookup queries.
+	 *
+	 * @param size The amount of queries.
+	 * @return Random lookup queries.
+	 */
+	public List<QuoteInstanceQuery> newQueries(final int size) {
+		return IntStream.range(0, size).mapToObj(i -> newQuery()).toList();
+	}
+}
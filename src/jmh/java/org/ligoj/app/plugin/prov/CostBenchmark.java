@@ -0,0 +1,100 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.ligoj.app.plugin.prov.model.ProvQuoteInstance;
+import org.ligoj.app.plugin.prov.quote.support.ProvQuoteSupportResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the cost computations not involving the database: {@link Floating#add(Floating)},
+ * {@link AbstractProvQuoteVmResource#computeFloat(double, double, Double, org.ligoj.app.plugin.prov.model.AbstractQuoteVm)}
+ * and {@link ProvQuoteSupportResource#computeRates(double, int, int[], int[])}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CostBenchmark {
+
+	private static final int SIZE = 1024;
+
+	private static final int[] RATES = { 10, 7, 5, 3 };
+
+	private static final int[] LIMITS = { 10000, 80000, 250000 };
+
+	private final Floating[] costs = new Floating[SIZE];
+
+	private final double[] bases = new double[SIZE];
+
+	private final ProvQuoteInstance qi = new ProvQuoteInstance();
+
+	private final ProvQuoteSupportResource support = new ProvQuoteSupportResource();
+
+	private int next;
+
+	/**
+	 * Generate the seeded costs.
+	 */
+	@Setup
+	public void setup() {
+		final var random = new Random(BenchmarkFixture.SEED);
+		for (var i = 0; i < SIZE; i++) {
+			bases[i] = random.nextDouble() * 500000;
+			costs[i] = new Floating(bases[i], bases[i] * 2, random.nextDouble() * 100, random.nextDouble() * 200,
+					random.nextInt(10) == 0, random.nextDouble(), random.nextDouble() * 2);
+		}
+		qi.setMinQuantity(2);
+		qi.setMaxQuantity(10);
+	}
+
+	/**
+	 * Sum of {@value #SIZE} costs.
+	 *
+	 * @return The total cost.
+	 */
+	@Benchmark
+	public Floating floatingAdd() {
+		final var total = new Floating();
+		for (final var cost : costs) {
+			total.add(cost);
+		}
+		return total;
+	}
+
+	/**
+	 * Cost of a resource from the unit cost of its price.
+	 *
+	 * @return The resource cost.
+	 */
+	@Benchmark
+	public Floating computeFloat() {
+		final var base = bases[next++ & (SIZE - 1)];
+		return AbstractProvQuoteVmResource.computeFloat(base, base / 10, base * 12, qi);
+	}
+
+	/**
+	 * Support cost from the segmented rates.
+	 *
+	 * @return The support cost.
+	 */
+	@Benchmark
+	public double computeRates() {
+		return support.computeRates(bases[next++ & (SIZE - 1)], 100, RATES, LIMITS);
+	}
+}
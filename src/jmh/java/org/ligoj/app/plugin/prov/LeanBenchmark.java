@@ -0,0 +1,103 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.ligoj.app.plugin.prov.model.ResourceType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the budget lean of a quote: lookups with the remaining budget, packing and cost updates. Each
+ * invocation is rolled back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LeanBenchmark {
+
+	/**
+	 * Amount of generated prices.
+	 */
+	@Param({ "10000" })
+	public int prices;
+
+	/**
+	 * Amount of generated quote instances.
+	 */
+	@Param({ "200" })
+	public int instances;
+
+	/**
+	 * Initial cost of the budget.
+	 */
+	@Param({ "0", "5000", "1000000" })
+	public double budget;
+
+	/**
+	 * Pack strategy.
+	 */
+	@Param({ BudgetPacker.FIRST_FIT, BudgetPacker.GREEDY, BudgetPacker.KNAPSACK, BudgetPacker.BRANCH_AND_BOUND })
+	public String strategy;
+
+	/**
+	 * When <code>false</code>, the memoized lookups are invalidated before each lean.
+	 */
+	@Param({ "true", "false" })
+	public boolean cached;
+
+	private BenchmarkFixture fixture;
+
+	/**
+	 * Start the fixture.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		fixture = BenchmarkFixture.start(prices, instances);
+		fixture.configuration.put(ProvBudgetResource.PACK_STRATEGY, strategy);
+	}
+
+	/**
+	 * Stop the fixture.
+	 */
+	@TearDown(Level.Trial)
+	public void stop() {
+		fixture.stop();
+	}
+
+	/**
+	 * Lean of the default budget of the quote.
+	 *
+	 * @return The updated costs.
+	 */
+	@Benchmark
+	public Map<ResourceType, Map<Integer, Floating>> lean() {
+		return fixture.rollback(q -> {
+			if (!cached) {
+				fixture.lookupCache.invalidate(q.getId());
+			}
+			final var costs = new EnumMap<ResourceType, Map<Integer, Floating>>(ResourceType.class);
+			q.getBudget().setInitialCost(budget);
+			fixture.bResource.lean(q.getBudget(), costs);
+			return costs;
+		});
+	}
+}
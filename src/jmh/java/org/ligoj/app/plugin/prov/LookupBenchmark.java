@@ -0,0 +1,123 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Hibernate;
+import org.ligoj.app.plugin.prov.model.ProvQuoteInstance;
+import org.ligoj.app.plugin.prov.quote.instance.QuoteInstanceLookup;
+import org.ligoj.app.plugin.prov.quote.instance.QuoteInstanceQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the instance lookup on a synthetic catalog, and of the cost computation of a resolved price.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupBenchmark {
+
+	private static final int QUERIES = 1024;
+
+	/**
+	 * Amount of generated prices.
+	 */
+	@Param({ "100000" })
+	public int prices;
+
+	/**
+	 * When <code>1</code>, the lookups use the in-memory price index.
+	 */
+	@Param({ "1", "0" })
+	public String index;
+
+	/**
+	 * When <code>false</code>, the memoized lookups are invalidated before each lookup.
+	 */
+	@Param({ "true", "false" })
+	public boolean cached;
+
+	private BenchmarkFixture fixture;
+
+	private List<QuoteInstanceQuery> queries;
+
+	private List<ProvQuoteInstance> instances;
+
+	private int quote;
+
+	private int next;
+
+	/**
+	 * Start the fixture and prepare the seeded queries and the detached resources.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		fixture = BenchmarkFixture.start(prices, QUERIES);
+		fixture.configuration.put(ProvPriceIndex.USE_INDEX, index);
+		queries = fixture.getGenerator().newQueries(QUERIES);
+		quote = fixture.rollback(q -> q.getId());
+
+		// Detached resources with their resolved price, as prepared by a refresh
+		instances = fixture.rollback(q -> {
+			final var entities = fixture.qiRepository.findAll(q);
+			final var prices = fixture.qiResource.validateLookupAll(entities);
+			for (var i = 0; i < entities.size(); i++) {
+				Hibernate.initialize(prices.get(i).getType());
+				Hibernate.initialize(prices.get(i).getTerm());
+				entities.get(i).setPrice(prices.get(i));
+				Hibernate.initialize(entities.get(i).getResolvedUsage());
+			}
+			return entities;
+		});
+	}
+
+	/**
+	 * Stop the fixture.
+	 */
+	@TearDown(Level.Trial)
+	public void stop() {
+		fixture.stop();
+	}
+
+	/**
+	 * Lookup of the best instance price.
+	 *
+	 * @return The lookup result.
+	 */
+	@Benchmark
+	public QuoteInstanceLookup lookup() {
+		if (!cached) {
+			fixture.lookupCache.invalidate(quote);
+		}
+		return fixture.qiResource.lookup(fixture.getSubscription(), queries.get(next++ & (QUERIES - 1)));
+	}
+
+	/**
+	 * Cost of a resource from its resolved price.
+	 *
+	 * @return The resource cost.
+	 */
+	@Benchmark
+	public Floating getCost() {
+		final var qi = instances.get(next++ % instances.size());
+		return fixture.qiResource.getCost(qi, qi.getPrice());
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scaling benchmark of the budget packing strategies, without database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PackBenchmark {
+
+	/**
+	 * Amount of pieces to pack.
+	 */
+	@Param({ "100", "1000", "10000", "50000" })
+	public int size;
+
+	/**
+	 * Pack strategy.
+	 */
+	@Param({ BudgetPacker.FIRST_FIT, BudgetPacker.GREEDY, BudgetPacker.KNAPSACK, BudgetPacker.BRANCH_AND_BOUND })
+	public String strategy;
+
+	private double[] weights;
+
+	private double[] values;
+
+	private double capacity;
+
+	private BudgetPacker.Strategy packer;
+
+	/**
+	 * Generate the seeded pieces.
+	 */
+	@Setup
+	public void setup() {
+		final var random = new Random(BenchmarkFixture.SEED);
+		weights = random.doubles(size, 100, 5000).toArray();
+		values = random.doubles(size, 10, 500).toArray();
+		capacity = Arrays.stream(weights).sum() / 3;
+		packer = BudgetPacker.get(strategy, 200);
+	}
+
+	/**
+	 * Pack the pieces within a third of their total weight.
+	 *
+	 * @return The selected pieces.
+	 */
+	@Benchmark
+	public int[] pack() {
+		return packer.pack(weights, values, capacity);
+	}
+}
@@ -39,6 +39,10 @@ public abstract class AbstractCostedResource<T extends AbstractCodedEntity, P ex
 	@Autowired
 	protected ProvResource resource;
 
+	@Autowired
+	@Getter
+	private ProvQuoteLock quoteLock;
+
 	/**
 	 * Check the lookup succeed.
 	 *
@@ -67,6 +71,7 @@ public abstract class AbstractCostedResource<T extends AbstractCodedEntity, P ex
 			final Integer id, final Consumer<Q> callback) {
 		// Check the entity exists and is visible
 		final var entity = resource.findConfigured(repository, id);
+		quoteLock.lock(entity.getConfiguration());
 
 		// Remove the cost of this entity
 		addCost(entity, e -> {
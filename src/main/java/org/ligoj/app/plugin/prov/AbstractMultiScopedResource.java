@@ -7,6 +7,7 @@ import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -25,6 +26,7 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.UriInfo;
 
 import org.hibernate.Hibernate;
+import org.ligoj.app.plugin.prov.ProvChangeImpactAnalyzer.Impact;
 import org.ligoj.app.plugin.prov.dao.BaseMultiScopedRepository;
 import org.ligoj.app.plugin.prov.dao.ProvQuoteContainerRepository;
 import org.ligoj.app.plugin.prov.dao.ProvQuoteDatabaseRepository;
@@ -35,6 +37,7 @@ import org.ligoj.app.plugin.prov.model.AbstractInstanceType;
 import org.ligoj.app.plugin.prov.model.AbstractMultiScoped;
 import org.ligoj.app.plugin.prov.model.AbstractQuoteVm;
 import org.ligoj.app.plugin.prov.model.AbstractTermPriceVm;
+import org.ligoj.app.plugin.prov.model.ProvBudget;
 import org.ligoj.app.plugin.prov.model.ProvQuote;
 import org.ligoj.app.plugin.prov.model.ResourceScope;
 import org.ligoj.app.plugin.prov.model.ResourceType;
@@ -102,6 +105,12 @@ public abstract class AbstractMultiScopedResource<S extends AbstractMultiScoped,
 	@Autowired
 	protected ProvBudgetResource bResource;
 
+	@Autowired
+	protected ProvLookupCache lookupCache;
+
+	@Autowired
+	protected ProvChangeImpactAnalyzer impactAnalyzer;
+
 	/**
 	 * Quote data getter.
 	 */
@@ -173,6 +182,7 @@ public abstract class AbstractMultiScopedResource<S extends AbstractMultiScoped,
 	public UpdatedCost delete(@PathParam("subscription") final int subscription, @PathParam("id") final int id) {
 		final var entity = resource.findConfigured(getRepository(), id, subscription);
 		final var quote = entity.getConfiguration();
+		resource.getQuoteLock().lock(quote);
 		final var cost = new UpdatedCost(entity.getId());
 
 		// Get the related resources
@@ -181,6 +191,7 @@ public abstract class AbstractMultiScopedResource<S extends AbstractMultiScoped,
 		final var containers = getRelated(getRepository()::findRelatedContainers, entity);
 		final var functions = getRelated(getRepository()::findRelatedFunctions, entity);
 
+		lookupCache.invalidate(quote.getId());
 		if (entity.equals(quoteGetter.apply(quote))) {
 			// Update cost of all instances without explicit resource
 			quoteSetter.accept(quote, null);
@@ -238,6 +249,7 @@ public abstract class AbstractMultiScopedResource<S extends AbstractMultiScoped,
 	public int create(@PathParam("subscription") final int subscription, final V vo) {
 		final var entity = newEntity.get();
 		entity.setConfiguration(resource.getQuoteFromSubscription(subscription));
+		resource.getQuoteLock().lock(entity.getConfiguration());
 		return saveOrUpdate(entity, vo).getId();
 	}
 
@@ -256,7 +268,9 @@ public abstract class AbstractMultiScopedResource<S extends AbstractMultiScoped,
 	@PUT
 	@Consumes(MediaType.APPLICATION_JSON)
 	public UpdatedCost update(@PathParam("subscription") final int subscription, final V vo) {
-		return saveOrUpdate(resource.findConfigured(getRepository(), vo.getId(), subscription), vo);
+		final var entity = resource.findConfigured(getRepository(), vo.getId(), subscription);
+		resource.getQuoteLock().lock(entity.getConfiguration());
+		return saveOrUpdate(entity, vo);
 	}
 
 	/**
@@ -272,7 +286,38 @@ public abstract class AbstractMultiScopedResource<S extends AbstractMultiScoped,
 	 */
 	protected abstract UpdatedCost saveOrUpdate(final S entity, final V vo);
 
+	/**
+	 * Return the resources having the given impact. The cost of the resources related to a budget having an initial
+	 * cost cannot be recomputed alone, since the packing of this budget depends on these costs.
+	 */
+	private <C extends AbstractQuoteVm<?>> List<C> filter(final List<C> resources,
+			final Function<AbstractQuoteVm<?>, Impact> impacts, final Impact impact) {
+		return resources.stream().filter(r -> {
+			final var rImpact = impacts.apply(r);
+			if (rImpact == Impact.COST && Optional.ofNullable(r.getResolvedBudget()).map(ProvBudget::getInitialCost)
+					.orElse(0d) > 0) {
+				return impact == Impact.LOOKUP;
+			}
+			return rImpact == impact;
+		}).toList();
+	}
+
 	protected UpdatedCost saveOrUpdateInternal(final S entity, final V vo) {
+		return saveOrUpdateInternal(entity, vo, r -> Impact.LOOKUP);
+	}
+
+	/**
+	 * Save or update the given resource entity already updated from the VO. Only the related resources impacted by the
+	 * change are refreshed: a full lookup when their best price may change, a cost computation from the resolved price
+	 * when only their cost changes, and nothing otherwise.
+	 *
+	 * @param entity  The target entity to update.
+	 * @param vo      The new quote resource data.
+	 * @param impacts The impact of this change on a given related resource.
+	 * @return The updated cost data.
+	 */
+	protected UpdatedCost saveOrUpdateInternal(final S entity, final V vo,
+			final Function<AbstractQuoteVm<?>, Impact> impacts) {
 		entity.setName(vo.getName());
 
 		// Fetch the optimizer of this quotes
@@ -286,12 +331,19 @@ public abstract class AbstractMultiScopedResource<S extends AbstractMultiScoped,
 				.synchronizedMap(new EnumMap<ResourceType, Map<Integer, Floating>>(ResourceType.class));
 		// Prevent useless computation, check the relations
 		if (entity.getId() != null) {
-			// This is an update, update the cost of all related instances
+			// This is an update, the cached data may rely on the profile name
+			lookupCache.invalidate(quote.getId());
+			// Update the cost of the impacted related instances
 			final var instances = getRelated(getRepository()::findRelatedInstances, entity);
 			final var databases = getRelated(getRepository()::findRelatedDatabases, entity);
 			final var containers = getRelated(getRepository()::findRelatedContainers, entity);
 			final var functions = getRelated(getRepository()::findRelatedFunctions, entity);
-			bResource.lean(quote, instances, databases, containers, functions, List.of(), relatedCosts);
+			bResource.lean(quote, filter(instances, impacts, Impact.LOOKUP), filter(databases, impacts, Impact.LOOKUP),
+					filter(containers, impacts, Impact.LOOKUP), filter(functions, impacts, Impact.LOOKUP), List.of(),
+					relatedCosts);
+			bResource.refreshCost(quote, filter(instances, impacts, Impact.COST),
+					filter(databases, impacts, Impact.COST), filter(containers, impacts, Impact.COST),
+					filter(functions, impacts, Impact.COST), relatedCosts);
 		}
 
 		getRepository().saveAndFlush(entity);
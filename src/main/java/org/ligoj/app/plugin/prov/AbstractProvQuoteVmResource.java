@@ -6,6 +6,7 @@ package org.ligoj.app.plugin.prov;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.UriInfo;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.ArrayUtils;
@@ -26,8 +27,10 @@ import org.ligoj.bootstrap.core.validation.ValidationJsonException;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 /**
  * The resource part of the provisioning of a VM like type.
@@ -70,12 +73,27 @@ public abstract class AbstractProvQuoteVmResource<T extends AbstractInstanceType
 	@Autowired
 	protected ProvQuoteStorageRepository qsRepository;
 
+	@Autowired
+	private ProvQuoteChanges changes;
+
 	@Autowired
 	protected ProvBudgetResource budgetResource;
 
 	@Autowired
 	protected ServicePluginLocator locator;
 
+	@Autowired
+	protected ProvPriceIndex priceIndex;
+
+	@Autowired
+	protected ProvLookupCache lookupCache;
+
+	@Autowired
+	protected ProvRefreshEngine refreshEngine;
+
+	@Autowired
+	protected ProvMetrics metrics;
+
 	@Override
 	public abstract BaseProvTermPriceRepository<T, P> getIpRepository();
 
@@ -152,6 +170,7 @@ public abstract class AbstractProvQuoteVmResource<T extends AbstractInstanceType
 		saveOrUpdateSpec(entity, vo);
 
 		// Update the unbound increment of the global quote
+		getQuoteLock().lock(quote);
 		quote.setUnboundCostCounter(quote.getUnboundCostCounter() + deltaUnbound);
 
 		// Save and update the costs
@@ -202,6 +221,7 @@ public abstract class AbstractProvQuoteVmResource<T extends AbstractInstanceType
 		// Delete all resources with cascaded delete for storages
 		final var sIds = ((BasePovInstanceBehavior) getQiRepository()).findAllStorageIdentifiers(quote);
 		((BasePovInstanceBehavior) getQiRepository()).deleteAllStorages(quote);
+		changes.deleted(quote, ResourceType.STORAGE, sIds);
 		tagResource.onDelete(ResourceType.STORAGE, sIds.toArray(new Integer[0]));
 		networkResource.onDelete(ResourceType.STORAGE, sIds.toArray(new Integer[0]));
 		qsRepository.flush();
@@ -430,19 +450,21 @@ public abstract class AbstractProvQuoteVmResource<T extends AbstractInstanceType
 		return 1d;
 	}
 
-	private double getCo2Base10(final double co2b100, final String co2b10, final Workload workload) {
+	private double getCo2Base10(final double co2b100, final double[] co2b10, final Workload workload) {
 		final var baseline = workload.getBaseline();
-		if (baseline < 100 && StringUtils.isNotEmpty(co2b10)) {
-			final var co2Values = StringUtils.split(co2b10, ',');
+		if (baseline < 100 && co2b10.length > 0) {
 			// At least one CO2 profile in addition of the full one
-			final var step = 100d / co2Values.length;
-			return workload.getPeriods().stream().mapToDouble(p -> {
-				final var index = (int) (p.value / step);
+			final var step = 100d / co2b10.length;
+			var co2 = 0d;
+			for (var i = 0; i < workload.size(); i++) {
+				final var value = workload.getValue(i);
+				final var index = (int) (value / step);
 				final var baselineMin = index * step;
-				final var co2Min = index >= co2Values.length - 1 ? co2b100 : Double.parseDouble(co2Values[index]);
-				final var co2Max = index >= co2Values.length - 2 ? co2b100 : Double.parseDouble(co2Values[index + 1]);
-				return p.duration * (co2Min + (co2Max - co2Min) * ((p.value - baselineMin) / step)) / 100d;
-			}).sum();
+				final var co2Min = index >= co2b10.length - 1 ? co2b100 : co2b10[index];
+				final var co2Max = index >= co2b10.length - 2 ? co2b100 : co2b10[index + 1];
+				co2 += workload.getDuration(i) * (co2Min + (co2Max - co2Min) * ((value - baselineMin) / step)) / 100d;
+			}
+			return co2;
 		}
 		return co2b100;
 	}
@@ -452,14 +474,14 @@ public abstract class AbstractProvQuoteVmResource<T extends AbstractInstanceType
 	 */
 	protected double getCo2(final C qi, final P ip, final Workload workload) {
 		var co2 = 0d;
-		co2 += getCo2Base10(ip.getCo2(), ip.getCo210(), workload);
+		co2 += getCo2Base10(ip.getCo2(), ip.getCo210Values(), workload);
 		if (ip.getType().isCustom()) {
 			final var qCpu = getQuantity(qi.getCpu(), ip.getMinCpu(), ip.getIncrementCpu(), 1);
 			final var qRam = getQuantity(qi.getRam(), ip.getMinRam(), ip.getIncrementRam(), 1024);
 			final var qGpu = getQuantity(qi.getGpu(), ip.getMinGpu(), ip.getIncrementGpu(), 1);
-			co2 += getCo2Base10(ip.getCo2Cpu(), ip.getCo2Cpu10(), workload) * qCpu;
-			co2 += getCo2Base10(ip.getCo2Ram(), ip.getCo2Ram10(), workload) * qRam;
-			co2 += getCo2Base10(ip.getCo2Gpu(), ip.getCo2Gpu10(), workload) * qGpu;
+			co2 += getCo2Base10(ip.getCo2Cpu(), ip.getCo2Cpu10Values(), workload) * qCpu;
+			co2 += getCo2Base10(ip.getCo2Ram(), ip.getCo2Ram10Values(), workload) * qRam;
+			co2 += getCo2Base10(ip.getCo2Gpu(), ip.getCo2Gpu10Values(), workload) * qGpu;
 		}
 		return co2;
 	}
@@ -593,6 +615,218 @@ public abstract class AbstractProvQuoteVmResource<T extends AbstractInstanceType
 		return result;
 	}
 
+	/**
+	 * Resolved profiles and catalog capabilities shared by the lookups having the same location, usage, budget and
+	 * optimizer. The context is resolved within the calling transaction and only holds detached values, so it can be
+	 * read by any thread.
+	 */
+	@Getter
+	protected static class LookupContext {
+		/**
+		 * Detached snapshot of the settings of the quote.
+		 */
+		private ProvQuote quote;
+		private String node;
+		private int subscription;
+		private int location;
+		private double rate;
+		private int duration;
+		private double initialCost;
+		private Optimizer optimizer;
+		private boolean convOs;
+		private boolean convEngine;
+		private boolean convType;
+		private boolean convFamily;
+		private boolean convLocation;
+		private boolean reservation;
+	}
+
+	/**
+	 * Resolve the profiles and the catalog capabilities of a lookup.
+	 *
+	 * @param configuration The subscription configuration.
+	 * @param query         The query parameters.
+	 * @return The resolved lookup context.
+	 */
+	private LookupContext newContext(final ProvQuote configuration, final Q query) {
+		final var context = new LookupContext();
+		context.quote = toSnapshot(configuration);
+		context.node = configuration.getSubscription().getNode().getTool().getId();
+		context.subscription = configuration.getSubscription().getId();
+
+		// Resolve the location to use
+		context.location = getLocation(configuration, query.getLocationName());
+
+		// Compute the rate to use
+		final var usage = getUsage(configuration, query.getUsageName());
+		context.rate = usage.getRate() / 100d;
+		context.duration = usage.getDuration();
+		context.convOs = BooleanUtils.toBoolean(usage.getConvertibleOs());
+		context.convEngine = BooleanUtils.toBoolean(usage.getConvertibleEngine());
+		context.convType = BooleanUtils.toBoolean(usage.getConvertibleType());
+		context.convFamily = BooleanUtils.toBoolean(usage.getConvertibleFamily());
+		context.convLocation = BooleanUtils.toBoolean(usage.getConvertibleLocation());
+		context.reservation = BooleanUtils.toBoolean(usage.getReservation());
+		final var budget = getBudget(configuration, query.getBudgetName());
+		context.initialCost = Objects.requireNonNullElse(budget.getRemainingBudget(), budget.getInitialCost());
+
+		// Override the optimizer depending on the capabilities of the catalog
+		final var optimizer = getOptimizer(configuration, query.getOptimizerName()).getMode();
+		context.optimizer = (optimizer == Optimizer.CO2 && getItRepository().hasCo2Data(context.node)) ? optimizer
+				: Optimizer.COST;
+		return context;
+	}
+
+	/**
+	 * Return a detached snapshot of the quote settings involved in the lookups. The provisioning service is resolved.
+	 *
+	 * @param configuration The subscription configuration attached to the calling transaction.
+	 * @return The detached settings.
+	 */
+	private ProvQuote toSnapshot(final ProvQuote configuration) {
+		final var snapshot = new ProvQuote();
+		snapshot.setId(configuration.getId());
+		snapshot.setLicense(configuration.getLicense());
+		snapshot.setProcessor(configuration.getProcessor());
+		snapshot.setPhysical(configuration.getPhysical());
+		snapshot.setRamAdjustedRate(configuration.getRamAdjustedRate());
+		snapshot.setReservationMode(configuration.getReservationMode());
+		snapshot.setService(getService(configuration));
+		return snapshot;
+	}
+
+	/**
+	 * Return the key of the profiles involved in the lookup context.
+	 *
+	 * @param query The query parameters.
+	 * @return The context key.
+	 */
+	private List<Object> toContextKey(final Q query) {
+		return Arrays.asList(query.getLocationName(), query.getUsageName(), query.getBudgetName(),
+				query.getOptimizerName());
+	}
+
+	/**
+	 * Return the canonical signature of the requirements of the given query. Two queries having the same signature
+	 * within the same quote have the same lookup result.
+	 *
+	 * @param query The query parameters.
+	 * @return The signature of the requirements.
+	 */
+	protected List<Object> toSignature(final Q query) {
+		return new ArrayList<>(Arrays.asList(query.getCpu(), query.getCpuMax(), query.getGpu(), query.getGpuMax(),
+				query.getRam(), query.getRamMax(), query.getWorkload(), query.getProcessor(), query.getPhysical(),
+				query.getEdge(), query.getType(), query.getLocationName(), query.getUsageName(), query.getBudgetName(),
+				query.getOptimizerName(), query.getLicense(), query.isEphemeral(), query.isAutoScale(),
+				query.getCpuRate(), query.getGpuRate(), query.getNetworkRate(), query.getStorageRate(),
+				query.getRamRate()));
+	}
+
+	/**
+	 * Return a detached snapshot of the requirements of the given resource. The snapshot can be read by any thread.
+	 *
+	 * @param entity The resource entity attached to the calling transaction.
+	 * @return The detached requirements.
+	 */
+	protected abstract Q toQuery(final C entity);
+
+	/**
+	 * Copy the common requirements of the given resource to a query builder. The profile names are resolved.
+	 *
+	 * @param builder The target query builder.
+	 * @param entity  The resource entity attached to the calling transaction.
+	 */
+	protected void toQuery(final AbstractQuoteInstanceQuery.AbstractQuoteInstanceQueryBuilder<?, ?> builder,
+			final C entity) {
+		builder.cpu(entity.getCpu());
+		builder.cpuMax(entity.getCpuMax());
+		builder.gpu(entity.getGpu());
+		builder.gpuMax(entity.getGpuMax());
+		builder.ram(entity.getRam());
+		builder.ramMax(entity.getRamMax());
+		builder.workload(entity.getWorkload());
+		builder.processor(entity.getProcessor());
+		builder.physical(entity.getPhysical());
+		builder.edge(entity.getEdge());
+		builder.type(entity.getType());
+		builder.location(entity.getLocationName());
+		builder.usage(entity.getUsageName());
+		builder.budget(entity.getBudgetName());
+		builder.optimizer(entity.getOptimizerName());
+		builder.license(entity.getLicense());
+		builder.ephemeral(entity.isEphemeral());
+		builder.autoScale(entity.isAutoScale());
+		builder.cpuRate(entity.getCpuRate());
+		builder.gpuRate(entity.getGpuRate());
+		builder.networkRate(entity.getNetworkRate());
+		builder.storageRate(entity.getStorageRate());
+		builder.ramRate(entity.getRamRate());
+	}
+
+	/**
+	 * Return the lookup results of several queries. The profiles are resolved once per location, usage, budget and
+	 * optimizer, and the queries sharing the same requirements are resolved once. The lookups are executed by the
+	 * refresh engine, and the matching prices are then loaded at once within the calling transaction. The given
+	 * queries must be detached snapshots.
+	 *
+	 * @param configuration The subscription configuration.
+	 * @param queries       The queries parameters.
+	 * @return The lowest prices matching to the required parameters, in the same order than the queries. Items may be
+	 *         <code>null</code>.
+	 */
+	public List<L> lookupAll(final ProvQuote configuration, final List<? extends Q> queries) {
+		final var start = System.nanoTime();
+		final var signatures = queries.stream().map(this::toSignature).toList();
+		final var distinct = new LinkedHashMap<List<Object>, Q>();
+		for (var i = 0; i < queries.size(); i++) {
+			distinct.putIfAbsent(signatures.get(i), queries.get(i));
+		}
+		final var contexts = new HashMap<List<Object>, LookupContext>();
+		distinct.values().forEach(q -> contexts.computeIfAbsent(toContextKey(q), k -> newContext(configuration, q)));
+
+		// The index is built on the calling thread, the lookups only read it
+		getPriceIndex(configuration.getSubscription().getNode().getTool().getId());
+		final var keys = new ArrayList<>(distinct.keySet());
+		final var raws = refreshEngine.map(new ArrayList<>(distinct.values()),
+				q -> lookupCached(contexts.get(toContextKey(q)), q));
+
+		// Load the matching prices at once
+		getIpRepository().findAllById(raws.stream().filter(Objects::nonNull).map(rs -> (Integer) rs[0]).distinct()
+				.toList());
+		final var results = new HashMap<List<Object>, L>();
+		for (var i = 0; i < keys.size(); i++) {
+			final var query = distinct.get(keys.get(i));
+			results.put(keys.get(i), toLookup(contexts.get(toContextKey(query)), query, raws.get(i)));
+		}
+		final var type = getType().name();
+		metrics.since("prov.lookup.all", start, "type", type);
+		metrics.summary("prov.lookup.all.queries", queries.size(), "type", type);
+		metrics.summary("prov.lookup.all.distinct", distinct.size(), "type", type);
+		log.debug("lookup all {}: {} queries, {} distinct, {} contexts, {}ms", configuration.getSubscription().getId(),
+				queries.size(), distinct.size(), contexts.size(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		return signatures.stream().map(results::get).toList();
+	}
+
+	/**
+	 * Return the lookup results of several queries of a subscription.
+	 *
+	 * @param subscription The subscription identifier, will be used to filter the instances from the associated
+	 *                     provider.
+	 * @param queries      The queries parameters.
+	 * @return The lowest prices matching to the required parameters, in the same order than the queries. Items may be
+	 *         <code>null</code>.
+	 */
+	public List<L> lookupAllInternal(final int subscription, final List<? extends Q> queries) {
+		final var results = lookupAll(getQuoteFromSubscription(subscription), queries);
+		results.stream().filter(Objects::nonNull).distinct().forEach(r -> {
+			// Fetch term and the type for serialization
+			Hibernate.initialize(r.getPrice().getTerm());
+			Hibernate.initialize(r.getPrice().getType());
+		});
+		return results;
+	}
+
 	/**
 	 * Return a lookup research corresponding to the best price.
 	 *
@@ -601,67 +835,142 @@ public abstract class AbstractProvQuoteVmResource<T extends AbstractInstanceType
 	 * @return The lowest price matching to the required parameters. May be <code>null</code>.
 	 */
 	public L lookup(final ProvQuote configuration, final Q query) {
+		return lookup(newContext(configuration, query), query);
+	}
 
-		// Compute the rate to use
-		final var usage = getUsage(configuration, query.getUsageName());
-		final var rate = usage.getRate() / 100d;
-		final var duration = usage.getDuration();
-		final var maxPeriod = (int) Math.ceil(duration * rate) + 12;
-		final var start = System.currentTimeMillis();
+	/**
+	 * Return a lookup research corresponding to the best price within a resolved context. The result is memoized.
+	 */
+	private L lookup(final LookupContext context, final Q query) {
+		return toLookup(context, query, lookupCached(context, query));
+	}
+
+	/**
+	 * Return the memoized raw lookup result within a resolved context. The first item is the price identifier, so
+	 * this result does not depend on the calling transaction.
+	 */
+	private Object[] lookupCached(final LookupContext context, final Q query) {
+		lookupCache.request();
+		return lookupCache.lookup(toLookupKey(context, query), () -> lookupRaw(context, query));
+	}
+
+	/**
+	 * Build the lookup result from a raw lookup result, within the calling transaction.
+	 */
+	private L toLookup(final LookupContext context, final Q query, final Object[] raw) {
+		final var rs = toPrice(raw);
+		if (raw != null && rs == null) {
+			// Price has been deleted since the lookup has been cached or the index has been built
+			return newLookup(toPrice(lookupRaw(context, query)));
+		}
+		return newLookup(rs);
+	}
+
+	/**
+	 * Replace the price identifier of a raw lookup result by the price entity of the calling transaction.
+	 *
+	 * @param raw The raw lookup result. May be <code>null</code>.
+	 * @return The lookup result with the price entity, or <code>null</code> when there is no match or when the price
+	 *         no longer exists.
+	 */
+	private Object[] toPrice(final Object[] raw) {
+		if (raw == null) {
+			return null;
+		}
+		final var price = getIpRepository().findOne((Integer) raw[0]);
+		if (price == null) {
+			return null;
+		}
+		final var rs = raw.clone();
+		rs[0] = price;
+		return rs;
+	}
+
+	private L newLookup(final Object[] rs) {
+		return rs == null ? null : newPrice(rs);
+	}
+
+	/**
+	 * Return the key of the memoized lookup: the resolved profiles, the catalog and quote stamps, and the signature
+	 * of the requirements.
+	 */
+	private List<Object> toLookupKey(final LookupContext context, final Q query) {
+		final var key = new ArrayList<>(Arrays.asList(getType(), context.node, priceIndex.getStamp(context.node),
+				context.quote.getId(), lookupCache.getStamp(context.quote.getId()), context.location,
+				context.rate, context.duration, context.initialCost, context.optimizer));
+		key.addAll(toSignature(query));
+		return key;
+	}
+
+	/**
+	 * Return the maximal period of the terms accepted for a usage: the used months plus one year.
+	 *
+	 * @param rate     The usage rate, from <code>0</code> to <code>1</code>.
+	 * @param duration The usage duration in months.
+	 * @return The maximal period in months of the accepted terms.
+	 */
+	public static int getMaxPeriod(final double rate, final int duration) {
+		return (int) Math.ceil(duration * rate) + 12;
+	}
+
+	/**
+	 * Return the raw lookup result corresponding to the best price within a resolved context. The first item is the
+	 * price identifier.
+	 */
+	private Object[] lookupRaw(final LookupContext context, final Q query) {
+		final var maxPeriod = getMaxPeriod(context.rate, context.duration);
+		final var start = System.nanoTime();
+		final var type = getType().name();
 		var moreExecution = false;
 
-		var lookup = this.lookup(configuration, query, maxPeriod, 10);
+		var lookup = this.lookup(context, query, maxPeriod, 10);
 		if (lookup == null) {
 			// Another wider lookup
 			moreExecution = true;
-			lookup = this.lookup(configuration, query, 10000, 10000);
+			metrics.counter("prov.lookup.wider", 1, "type", type);
+			lookup = this.lookup(context, query, 10000, 10000);
+		}
+		if (lookup != null && lookup[0] instanceof AbstractPrice<?> price) {
+			// Only the identifier of the price is kept
+			lookup = lookup.clone();
+			lookup[0] = price.getId();
 		}
+
 		// Return the match
-		log.debug("lookup {} (ext={}): {}ms - {}", configuration.getSubscription().getId(), moreExecution,
-				System.currentTimeMillis() - start, query);
+		final var elapsed = System.nanoTime() - start;
+		metrics.timer("prov.lookup", elapsed, "type", type, "optimizer", context.optimizer.name());
+		log.debug("lookup {} (ext={}): {}ms - {}", context.subscription, moreExecution,
+				TimeUnit.NANOSECONDS.toMillis(elapsed), query);
 		return lookup;
 	}
 
 	/**
 	 * Return a lookup research corresponding to the best price.
 	 *
-	 * @param configuration The subscription configuration.
-	 * @param query         The query parameters.
-	 * @param maxPeriod     The maximal period to be queried in the valid terms.
-	 * @param maxFactor     The maximal CPU and RAM factor to be queried in the valid instance types.
-	 * @return The lowest price matching to the required parameters. May be <code>null</code>.
+	 * @param context   The resolved lookup context.
+	 * @param query     The query parameters.
+	 * @param maxPeriod The maximal period to be queried in the valid terms.
+	 * @param maxFactor The maximal CPU and RAM factor to be queried in the valid instance types.
+	 * @return The raw lookup result of the lowest price matching to the required parameters. May be
+	 *         <code>null</code>.
 	 */
-	private L lookup(final ProvQuote configuration, final Q query, final int maxPeriod, final double maxFactor) {
-		final var node = configuration.getSubscription().getNode().getTool().getId();
-		final int subscription = configuration.getSubscription().getId();
+	private Object[] lookup(final LookupContext context, final Q query, final int maxPeriod, final double maxFactor) {
+		final var configuration = context.quote;
+		final var node = context.node;
+		final var subscription = context.subscription;
 		final var ramR = getRam(configuration, query);
 		final var cpuR = getCpu(configuration, query);
 		final var gpuR = getGpu(configuration, query);
 		final var procR = getProcessor(configuration, query.getProcessor());
 		final var physR = normalize(configuration.getPhysical(), query.getPhysical());
-
-		// Resolve the location to use
-		final var locationR = getLocation(configuration, query.getLocationName());
-
-		// Compute the rate to use
-		final var usage = getUsage(configuration, query.getUsageName());
-		final var budget = getBudget(configuration, query.getBudgetName());
-		final var convOs = BooleanUtils.toBoolean(usage.getConvertibleOs());
-		final var convEngine = BooleanUtils.toBoolean(usage.getConvertibleEngine());
-		final var convType = BooleanUtils.toBoolean(usage.getConvertibleType());
-		final var convFamily = BooleanUtils.toBoolean(usage.getConvertibleFamily());
-		final var convLocation = BooleanUtils.toBoolean(usage.getConvertibleLocation());
-		final var reservation = BooleanUtils.toBoolean(usage.getReservation());
-		final var rate = usage.getRate() / 100d;
+		final var locationR = context.location;
+		final var rate = context.rate;
 		final var workload = Workload.from(query.getWorkload());
-		final var duration = usage.getDuration();
-		final double initialCost = Objects.requireNonNullElse(budget.getRemainingBudget(), budget.getInitialCost());
+		final var duration = context.duration;
+		final var initialCost = context.initialCost;
 		final var baseline = workload.getBaseline();
 		final var baselineR = (double) Math.round(baseline / 5d) * 5; // Round for cache hit improvement
-
-		// Override the optimizer depending on the capabilities of the catalog
-		var optimizer = getOptimizer(configuration, query.getOptimizerName()).getMode();
-		optimizer = (optimizer == Optimizer.CO2 && getItRepository().hasCo2Data(node)) ? optimizer : Optimizer.COST;
+		final var optimizer = context.optimizer;
 
 		// Resolve the required instance type
 		final var typeId = getType(subscription, query.getType());
@@ -673,16 +982,16 @@ public abstract class AbstractProvQuoteVmResource<T extends AbstractInstanceType
 		// Resolve the valid terms
 		final var terms = iptRepository.findValidTerms(node,
 				(getType() == ResourceType.INSTANCE || getType() == ResourceType.CONTAINER
-						|| getType() == ResourceType.FUNCTION) && convOs,
-				getType() == ResourceType.DATABASE && convEngine, convType, convFamily, convLocation, reservation,
-				maxPeriod, query.isEphemeral(), initialCost > 0);
+						|| getType() == ResourceType.FUNCTION) && context.convOs,
+				getType() == ResourceType.DATABASE && context.convEngine, context.convType, context.convFamily,
+				context.convLocation, context.reservation, maxPeriod, query.isEphemeral(), initialCost > 0);
 		Object[] lookup = null;
 
 		// Find the best price
 		if (!types.isEmpty()) {
 			// Get the best template instance price
-			lookup = findLowestPrice(configuration, query, types, terms, locationR, rate, duration, initialCost,
-					optimizer).stream().findFirst().orElse(null);
+			lookup = findLowestPrice(context, query, types, terms, locationR, rate, duration, initialCost, optimizer)
+					.stream().findFirst().orElse(null);
 		}
 
 		// Dynamic type lookup
@@ -693,7 +1002,7 @@ public abstract class AbstractProvQuoteVmResource<T extends AbstractInstanceType
 					normalize(query.getEdge()), optimizer == Optimizer.CO2);
 			if (!dTypes.isEmpty()) {
 				// Get the best dynamic instance price
-				var dLookup = findLowestDynamicPrice(configuration, query, dTypes, terms, cpuR, gpuR, ramR, locationR,
+				var dLookup = findLowestDynamicPrice(context, query, dTypes, terms, cpuR, gpuR, ramR, locationR,
 						rate, duration, initialCost, optimizer).stream().findFirst().orElse(null);
 				if (dLookup != null && lookup == null || (dLookup != null
 						&& ((optimizer == Optimizer.COST && toTotalCost(dLookup) < toTotalCost(lookup))
@@ -704,13 +1013,8 @@ public abstract class AbstractProvQuoteVmResource<T extends AbstractInstanceType
 			}
 		}
 
-		// No result
-		if (lookup == null) {
-			return null;
-		}
-
 		// Return the best match
-		return newPrice(lookup);
+		return lookup;
 	}
 
 	/**
@@ -724,42 +1028,129 @@ public abstract class AbstractProvQuoteVmResource<T extends AbstractInstanceType
 	/**
 	 * Return the lowest price matching all requirements.
 	 *
-	 * @param configuration The subscription configuration.
-	 * @param query         The query parameters.
-	 * @param types         The valid types matching to the requirements.
-	 * @param terms         The valid terms matching to the requirements.
-	 * @param location      The required location.
-	 * @param rate          Usage rate within the duration, from 0 (stopped) to 1 (full time).
-	 * @param duration      The committed duration.
-	 * @param initialCost   The maximal initial cost.
-	 * @param optimizer     The optimizer mode.
+	 * @param context     The resolved lookup context.
+	 * @param query       The query parameters.
+	 * @param types       The valid types matching to the requirements.
+	 * @param terms       The valid terms matching to the requirements.
+	 * @param location    The required location.
+	 * @param rate        Usage rate within the duration, from 0 (stopped) to 1 (full time).
+	 * @param duration    The committed duration.
+	 * @param initialCost The maximal initial cost.
+	 * @param optimizer   The optimizer mode.
 	 * @return The valid prices result.
 	 */
-	protected abstract List<Object[]> findLowestPrice(ProvQuote configuration, Q query, List<Integer> types,
+	protected abstract List<Object[]> findLowestPrice(LookupContext context, Q query, List<Integer> types,
 			List<Integer> terms, int location, double rate, double duration, final double initialCost,
 			final Optimizer optimizer);
 
 	/**
 	 * Return the lowest price matching all requirements for dynamic types.
 	 *
-	 * @param configuration The subscription configuration.
-	 * @param query         The query parameters.
-	 * @param types         The valid dynamic types matching to the requirements.
-	 * @param terms         The valid terms matching to the requirements.
-	 * @param cpu           The required CPU.
-	 * @param gpu           The required GPU.
-	 * @param ram           The required RAM.
-	 * @param location      The required location.
-	 * @param rate          Usage rate within the duration, from 0 (stopped) to 1 (full time).
-	 * @param duration      Committed duration.
-	 * @param initialCost   The maximal initial cost.
-	 * @param optimizer     The optimizer mode.
+	 * @param context     The resolved lookup context.
+	 * @param query       The query parameters.
+	 * @param types       The valid dynamic types matching to the requirements.
+	 * @param terms       The valid terms matching to the requirements.
+	 * @param cpu         The required CPU.
+	 * @param gpu         The required GPU.
+	 * @param ram         The required RAM.
+	 * @param location    The required location.
+	 * @param rate        Usage rate within the duration, from 0 (stopped) to 1 (full time).
+	 * @param duration    Committed duration.
+	 * @param initialCost The maximal initial cost.
+	 * @param optimizer   The optimizer mode.
 	 * @return The valid prices result.
 	 */
-	protected abstract List<Object[]> findLowestDynamicPrice(ProvQuote configuration, Q query, List<Integer> types,
+	protected abstract List<Object[]> findLowestDynamicPrice(LookupContext context, Q query, List<Integer> types,
 			List<Integer> terms, double cpu, double gpu, double ram, int location, double rate, int duration,
 			double initialCost, final Optimizer optimizer);
 
+	/**
+	 * Return the in-memory price index of the given node, or <code>null</code> when this feature is disabled.
+	 *
+	 * @param node The tool node identifier.
+	 * @return The up-to-date price index or <code>null</code>.
+	 * @see ProvPriceIndex#USE_INDEX
+	 */
+	protected PriceIndex getPriceIndex(final String node) {
+		if (!priceIndex.isEnabled()) {
+			return null;
+		}
+		return priceIndex.get(node, getType());
+	}
+
+	/**
+	 * Return the lowest price from the in-memory index matching all requirements.
+	 *
+	 * @param index       The price index.
+	 * @param types       The valid types matching to the requirements.
+	 * @param terms       The valid terms matching to the requirements.
+	 * @param location    The required location.
+	 * @param rate        Usage rate within the duration, from 0 (stopped) to 1 (full time).
+	 * @param duration    The committed duration.
+	 * @param initialCost The maximal initial cost.
+	 * @param optimizer   The optimizer mode.
+	 * @param filter      The resource specific filter.
+	 * @return The valid prices result, with the same layout as the repository lookups.
+	 */
+	protected List<Object[]> findLowestPrice(final PriceIndex index, final List<Integer> types,
+			final List<Integer> terms, final int location, final double rate, final double duration,
+			final double initialCost, final Optimizer optimizer, final PriceIndex.Filter filter) {
+		final var result = new double[4];
+		final var row = index.findLowest(location, PriceIndex.toSorted(types), PriceIndex.toSorted(terms), rate,
+				duration, initialCost, optimizer == Optimizer.CO2, filter, result);
+		return toLookup(index, row, result);
+	}
+
+	/**
+	 * Return the lowest dynamic price from the in-memory index matching all requirements.
+	 *
+	 * @param index       The price index.
+	 * @param types       The valid dynamic types matching to the requirements.
+	 * @param terms       The valid terms matching to the requirements.
+	 * @param cpu         The required CPU.
+	 * @param gpu         The required GPU.
+	 * @param ram         The required RAM in GiB.
+	 * @param location    The required location.
+	 * @param rate        Usage rate within the duration, from 0 (stopped) to 1 (full time).
+	 * @param globalRate  Usage rate multiplied by the duration.
+	 * @param duration    Committed duration.
+	 * @param initialCost The maximal initial cost.
+	 * @param optimizer   The optimizer mode.
+	 * @param filter      The resource specific filter.
+	 * @return The valid prices result, with the same layout as the repository lookups.
+	 */
+	protected List<Object[]> findLowestDynamicPrice(final PriceIndex index, final List<Integer> types,
+			final List<Integer> terms, final double cpu, final double gpu, final double ram, final int location,
+			final double rate, final double globalRate, final double duration, final double initialCost,
+			final Optimizer optimizer, final PriceIndex.Filter filter) {
+		final var result = new double[4];
+		final var row = index.findLowestDynamic(location, PriceIndex.toSorted(types), PriceIndex.toSorted(terms), cpu,
+				gpu, ram, rate, globalRate, duration, initialCost, optimizer == Optimizer.CO2, filter, result);
+		return toLookup(index, row, result);
+	}
+
+	/**
+	 * Build the lookup result from an index search: the price identifier and the computed costs. The price entity is
+	 * only loaded within the calling transaction, at once for all the results of a batch.
+	 *
+	 * @param index  The price index.
+	 * @param row    The found row or <code>-1</code>.
+	 * @param result The computed totalCost, monthlyCost, totalCo2 and monthlyCo2 of the found row. A
+	 *               <code>NaN</code> value stands for a <code>null</code> one.
+	 * @return The valid prices result, with the same layout as the repository lookups, but the price identifier.
+	 */
+	protected List<Object[]> toLookup(final PriceIndex index, final int row, final double[] result) {
+		if (row == -1) {
+			return Collections.emptyList();
+		}
+		return Collections.singletonList(new Object[] { index.getIds()[row], toNullable(result[0]),
+				toNullable(result[1]), toNullable(result[2]), toNullable(result[3]) });
+	}
+
+	private static Double toNullable(final double value) {
+		return Double.isNaN(value) ? null : value;
+	}
+
 	@Override
 	public Floating refresh(final C qi) {
 		// Find the lowest price
@@ -779,6 +1170,20 @@ public abstract class AbstractProvQuoteVmResource<T extends AbstractInstanceType
 		return new FloatingPrice<>(getCost(qi, price), price);
 	}
 
+	/**
+	 * Return the new costs corresponding to the criteria of several resources of the same quote. No changes are made
+	 * to the entities.
+	 *
+	 * @param entities The resources to validate. All of them must belong to the same quote.
+	 * @return The new costs, in the same order than the given resources.
+	 */
+	public List<FloatingPrice<P>> getNewPriceAll(final List<C> entities) {
+		final var prices = validateLookupAll(entities);
+		final var costs = getCostAll(entities, prices);
+		return IntStream.range(0, entities.size()).mapToObj(n -> new FloatingPrice<>(costs.get(n), prices.get(n)))
+				.toList();
+	}
+
 	/**
 	 * Return a computed price. Never <code>null</code> because of the validation.
 	 */
@@ -787,24 +1192,105 @@ public abstract class AbstractProvQuoteVmResource<T extends AbstractInstanceType
 		return validateLookup(getType().name().toLowerCase(), lookup(qi.getConfiguration(), (Q) qi), qi.getName());
 	}
 
+	/**
+	 * Return the computed prices of several resources of the same quote. Never <code>null</code> because of the
+	 * validation.
+	 *
+	 * @param entities The resources to validate. All of them must belong to the same quote.
+	 * @return The computed prices, in the same order than the given resources.
+	 */
+	public List<P> validateLookupAll(final List<C> entities) {
+		if (entities.isEmpty()) {
+			return Collections.emptyList();
+		}
+		// Snapshot the requirements on the calling thread
+		final var queries = entities.stream().map(this::toQuery).toList();
+		final var lookups = lookupAll(entities.get(0).getConfiguration(), queries);
+		final var prices = new ArrayList<P>(entities.size());
+		for (var i = 0; i < entities.size(); i++) {
+			prices.add(validateLookup(getType().name().toLowerCase(), lookups.get(i), entities.get(i).getName()));
+		}
+		return prices;
+	}
+
+	/**
+	 * Lookup and apply the best prices of several resources of the same quote. The new costs are reported to the quote.
+	 *
+	 * @param entities The resources to refresh. All of them must belong to the same quote.
+	 * @return The new costs by resource identifier.
+	 */
+	public Map<Integer, Floating> refreshAll(final List<C> entities) {
+		final var prices = validateLookupAll(entities);
+		final var costs = getCostAll(entities, prices);
+		final var result = new HashMap<Integer, Floating>();
+		refreshEngine.write(IntStream.range(0, entities.size()).boxed().toList(), n -> {
+			final var entity = entities.get(n);
+			result.put(entity.getId(), addCost(entity, qi -> {
+				qi.setPrice(prices.get(n));
+				return updateCost(qi, q -> costs.get(n));
+			}));
+		});
+		return result;
+	}
+
+	/**
+	 * Update the costs of several resources of the same quote from their current price, without lookup. The new costs
+	 * are reported to the quote.
+	 *
+	 * @param entities The resources to update. All of them must belong to the same quote.
+	 * @return The new costs by resource identifier.
+	 */
+	public Map<Integer, Floating> refreshCostAll(final List<C> entities) {
+		final var costs = getCostAll(entities, entities.stream().map(AbstractQuoteVm::getPrice).toList());
+		final var result = new HashMap<Integer, Floating>();
+		refreshEngine.write(IntStream.range(0, entities.size()).boxed().toList(), n -> {
+			final var entity = entities.get(n);
+			result.put(entity.getId(), addCost(entity, qi -> updateCost(qi, q -> costs.get(n))));
+		});
+		return result;
+	}
+
+	/**
+	 * Update the costs of several resources of the same quote from their current price. The new costs are not
+	 * reported to the quote.
+	 *
+	 * @param entities The resources to update. All of them must belong to the same quote.
+	 * @return The new costs, in the same order than the given resources.
+	 */
+	public List<Floating> updateCostAll(final List<C> entities) {
+		final var costs = getCostAll(entities, entities.stream().map(AbstractQuoteVm::getPrice).toList());
+		final var result = new ArrayList<Floating>(entities.size());
+		refreshEngine.write(IntStream.range(0, entities.size()).boxed().toList(),
+				n -> result.add(updateCost(entities.get(n), q -> costs.get(n))));
+		return result;
+	}
+
+	/**
+	 * Compute the costs of several resources on the calling thread. The computation reads the entities attached to the
+	 * calling transaction, and is cheap compared to the lookups.
+	 */
+	private List<Floating> getCostAll(final List<C> entities, final List<P> prices) {
+		return IntStream.range(0, entities.size()).mapToObj(n -> getCost(entities.get(n), prices.get(n))).toList();
+	}
+
 	/**
 	 * Return the total cost from the query result.
 	 *
 	 * @param lookup The lookup result set.
-	 * @return The cost value.
+	 * @return The cost value. A <code>null</code> cost is ranked last.
 	 */
 	protected double toTotalCost(final Object[] lookup) {
-		return ((Double) lookup[1]);
+		return Objects.requireNonNullElse((Double) lookup[1], Double.MAX_VALUE);
 	}
 
 	/**
 	 * Return the total co2 from the query result.
 	 *
 	 * @param lookup The lookup result set.
-	 * @return The co2 value.
+	 * @return The co2 value. A <code>null</code> co2 is ranked last.
 	 */
 	protected double toTotalCo2(final Object[] lookup) {
-		return ((Double) lookup[3]);
+		return Objects.requireNonNullElse((Double) lookup[3], Double.MAX_VALUE);
 	}
 
 	/**
@@ -0,0 +1,325 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Budget packing engine working on primitive arrays. The pieces are identified by their index: the weight of a piece
+ * is its initial cost, its value is the priority to give to this piece. The pieces are given in the caller priority
+ * order, used to break the ties.
+ * <p>
+ * The budget lean gives the monthly cost of the price having an initial cost as value. The resources left out of the
+ * bin are looked up again with the remaining budget, and fall back to a price with a lower or no initial cost and a
+ * higher monthly cost. The saving of a committed price is roughly proportional to its monthly cost, so maximizing the
+ * packed monthly cost approximates maximizing the monthly savings bought by the budget. This is also the priority of
+ * the former packing: the most expensive prices first.
+ */
+public final class BudgetPacker {
+
+	/**
+	 * Default strategy name, reproducing the former "first fit decreasing" packing.
+	 */
+	public static final String FIRST_FIT = "first-fit";
+
+	/**
+	 * Strategy name of the greedy packing by value/weight ratio.
+	 */
+	public static final String GREEDY = "greedy";
+
+	/**
+	 * Strategy name of the dynamic programming knapsack, used for small sets.
+	 */
+	public static final String KNAPSACK = "knapsack";
+
+	/**
+	 * Strategy name of the branch and bound knapsack, limited in time.
+	 */
+	public static final String BRANCH_AND_BOUND = "branch-and-bound";
+
+	/**
+	 * Maximal amount of pieces handled by the dynamic programming knapsack. Above, the greedy strategy is used.
+	 */
+	public static final int KNAPSACK_MAX_PIECES = 64;
+
+	/**
+	 * Maximal amount of capacity units of the dynamic programming knapsack. The weights are scaled down accordingly.
+	 */
+	public static final int KNAPSACK_MAX_UNITS = 10000;
+
+	/**
+	 * Pack strategy.
+	 */
+	@FunctionalInterface
+	public interface Strategy {
+
+		/**
+		 * Select the pieces to put in the bin.
+		 *
+		 * @param weights  The weights of the pieces, all strictly positive.
+		 * @param values   The values of the pieces.
+		 * @param capacity The capacity of the bin.
+		 * @return The selected piece indexes, in ascending order. The total weight never exceeds the capacity.
+		 */
+		int[] pack(double[] weights, double[] values, double capacity);
+	}
+
+	private static final Map<String, Strategy> STRATEGIES = Map.of(FIRST_FIT, BudgetPacker::firstFit, GREEDY,
+			BudgetPacker::greedy, KNAPSACK, BudgetPacker::knapsack);
+
+	private BudgetPacker() {
+		// Factory class
+	}
+
+	/**
+	 * Return the strategy from its name.
+	 *
+	 * @param name      The strategy name. When unknown, {@link #FIRST_FIT} is used.
+	 * @param timeLimit The time limit in milliseconds of the strategies supporting it.
+	 * @return The strategy.
+	 */
+	public static Strategy get(final String name, final long timeLimit) {
+		if (BRANCH_AND_BOUND.equals(name)) {
+			return branchAndBound(timeLimit);
+		}
+		return STRATEGIES.getOrDefault(name, BudgetPacker::firstFit);
+	}
+
+	/**
+	 * Return the piece indexes ordered by the given key, descending. Ties keep the caller order.
+	 */
+	private static int[] sortDesc(final int size, final IntToDoubleFunction key) {
+		return IntStream.range(0, size).boxed()
+				.sorted(Comparator.<Integer>comparingDouble(key::applyAsDouble).reversed()).mapToInt(Integer::intValue)
+				.toArray();
+	}
+
+	/**
+	 * Take the pieces in the given order as long as they fit.
+	 */
+	private static int[] take(final int[] order, final double[] weights, final double capacity) {
+		final var selected = new boolean[weights.length];
+		var total = 0d;
+		for (final var i : order) {
+			if (total + weights[i] <= capacity) {
+				selected[i] = true;
+				total += weights[i];
+			}
+		}
+		return toIndexes(selected);
+	}
+
+	private static int[] toIndexes(final boolean[] selected) {
+		return IntStream.range(0, selected.length).filter(i -> selected[i]).toArray();
+	}
+
+	/**
+	 * Return all the pieces when they all fit, <code>null</code> otherwise.
+	 */
+	private static int[] fitAll(final double[] weights, final double capacity) {
+		return Arrays.stream(weights).sum() <= capacity ? IntStream.range(0, weights.length).toArray() : null;
+	}
+
+	/**
+	 * First fit decreasing: the heaviest pieces first.
+	 *
+	 * @param weights  The weights of the pieces.
+	 * @param values   The values of the pieces, ignored.
+	 * @param capacity The capacity of the bin.
+	 * @return The selected piece indexes.
+	 */
+	public static int[] firstFit(final double[] weights, final double[] values, final double capacity) {
+		return take(sortDesc(weights.length, i -> weights[i]), weights, capacity);
+	}
+
+	/**
+	 * Greedy by ratio: the pieces having the best value per weight unit first.
+	 *
+	 * @param weights  The weights of the pieces.
+	 * @param values   The values of the pieces.
+	 * @param capacity The capacity of the bin.
+	 * @return The selected piece indexes.
+	 */
+	public static int[] greedy(final double[] weights, final double[] values, final double capacity) {
+		return take(sortDesc(weights.length, i -> values[i] / weights[i]), weights, capacity);
+	}
+
+	/**
+	 * Dynamic programming knapsack maximizing the total value. The weights are rounded up to capacity units, so the
+	 * result always fits. Above {@link #KNAPSACK_MAX_PIECES} pieces, the greedy strategy is used.
+	 *
+	 * @param weights  The weights of the pieces.
+	 * @param values   The values of the pieces.
+	 * @param capacity The capacity of the bin.
+	 * @return The selected piece indexes.
+	 */
+	public static int[] knapsack(final double[] weights, final double[] values, final double capacity) {
+		final var all = fitAll(weights, capacity);
+		if (all != null) {
+			return all;
+		}
+		if (weights.length > KNAPSACK_MAX_PIECES) {
+			return greedy(weights, values, capacity);
+		}
+
+		// Scale the weights to at most KNAPSACK_MAX_UNITS units, 1 unit is at least a cent
+		final var scale = Math.min(100d, KNAPSACK_MAX_UNITS / capacity);
+		final var units = (int) Math.floor(capacity * scale);
+		final var n = weights.length;
+		final var best = new double[units + 1];
+		final var keep = new boolean[n][units + 1];
+		for (var i = 0; i < n; i++) {
+			final var w = (int) Math.ceil(weights[i] * scale);
+			for (var c = units; c >= w; c--) {
+				final var candidate = best[c - w] + values[i];
+				if (candidate > best[c]) {
+					best[c] = candidate;
+					keep[i][c] = true;
+				}
+			}
+		}
+
+		// Rebuild the selection
+		final var selected = new boolean[n];
+		var c = units;
+		for (var i = n - 1; i >= 0; i--) {
+			if (keep[i][c]) {
+				selected[i] = true;
+				c -= (int) Math.ceil(weights[i] * scale);
+			}
+		}
+		final var result = toIndexes(selected);
+		if (result.length == 0) {
+			// Rounding excluded all the pieces, keep the progress
+			return greedy(weights, values, capacity);
+		}
+		return result;
+	}
+
+	/**
+	 * Return a branch and bound knapsack maximizing the total value. The search starts from the greedy solution and
+	 * returns the best solution found within the time limit.
+	 *
+	 * @param timeLimit The time limit in milliseconds.
+	 * @return The strategy.
+	 */
+	public static Strategy branchAndBound(final long timeLimit) {
+		return (weights, values, capacity) -> {
+			final var all = fitAll(weights, capacity);
+			if (all != null) {
+				return all;
+			}
+			return new BranchAndBound(weights, values, capacity, System.nanoTime() + timeLimit * 1_000_000L).solve();
+		};
+	}
+
+	/**
+	 * Depth first search ordered by value/weight ratio, pruned by the fractional relaxation bound.
+	 */
+	private static class BranchAndBound {
+		private final double[] weights;
+		private final double[] values;
+		private final double capacity;
+		private final long deadline;
+		private final int[] order;
+		private final boolean[] current;
+		private boolean[] best;
+		private double bestValue;
+		private long nodes;
+
+		private BranchAndBound(final double[] weights, final double[] values, final double capacity,
+				final long deadline) {
+			this.weights = weights;
+			this.values = values;
+			this.capacity = capacity;
+			this.deadline = deadline;
+			this.order = sortDesc(weights.length, i -> values[i] / weights[i]);
+			this.current = new boolean[weights.length];
+			this.best = new boolean[weights.length];
+			for (final var i : greedy(weights, values, capacity)) {
+				best[i] = true;
+				bestValue += values[i];
+			}
+		}
+
+		/**
+		 * Iterative search, the state of each depth is: 0 when entered, 1 when the inclusion branch is explored, 2 when
+		 * both branches are explored.
+		 */
+		private int[] solve() {
+			final var n = order.length;
+			final var state = new byte[n + 1];
+			var depth = 0;
+			var weight = 0d;
+			var value = 0d;
+			while (depth >= 0) {
+				if (state[depth] == 0) {
+					if (value > bestValue) {
+						bestValue = value;
+						best = current.clone();
+					}
+					if (depth == n || bound(depth, weight, value) <= bestValue) {
+						// Leaf or pruned node
+						depth--;
+						continue;
+					}
+					if (isExpired()) {
+						break;
+					}
+					state[depth] = 1;
+					final var i = order[depth];
+					if (weight + weights[i] <= capacity) {
+						// Include this piece
+						current[i] = true;
+						weight += weights[i];
+						value += values[i];
+						state[++depth] = 0;
+						continue;
+					}
+				}
+				if (state[depth] == 1) {
+					// Exclude this piece
+					final var i = order[depth];
+					if (current[i]) {
+						current[i] = false;
+						weight -= weights[i];
+						value -= values[i];
+					}
+					state[depth] = 2;
+					state[++depth] = 0;
+					continue;
+				}
+				depth--;
+			}
+			return toIndexes(best);
+		}
+
+		/**
+		 * Return the upper bound of the value reachable from the given depth.
+		 */
+		private double bound(final int depth, final double weight, final double value) {
+			var w = weight;
+			var v = value;
+			for (var d = depth; d < order.length; d++) {
+				final var i = order[d];
+				if (w + weights[i] <= capacity) {
+					w += weights[i];
+					v += values[i];
+				} else {
+					return v + values[i] * (capacity - w) / weights[i];
+				}
+			}
+			return v;
+		}
+
+		private boolean isExpired() {
+			// Check the clock every 1024 nodes only
+			return (++nodes & 1023) == 0 && System.nanoTime() > deadline;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The current state of a provisioning meter.
+ */
+@Getter
+@Setter
+public class MeterVo {
+
+	/**
+	 * The meter name.
+	 */
+	private String name;
+
+	/**
+	 * The meter tags.
+	 */
+	private Map<String, String> tags;
+
+	/**
+	 * The meter type: <code>timer</code>, <code>summary</code>, <code>counter</code> or <code>gauge</code>.
+	 */
+	private String type;
+
+	/**
+	 * The amount of recorded measures. Not relevant for a gauge.
+	 */
+	private long count;
+
+	/**
+	 * The sum of the recorded measures. Durations are in milliseconds. For a counter, this is the counted amount.
+	 */
+	private double total;
+
+	/**
+	 * The maximal recorded measure. Durations are in milliseconds.
+	 */
+	private double max;
+
+	/**
+	 * The current value of a gauge.
+	 */
+	private Double value;
+
+	/**
+	 * The cumulative amount of measures by upper bound. Only for timers, the bounds are in milliseconds.
+	 */
+	private Map<String, Long> histogram;
+}
@@ -0,0 +1,586 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.ligoj.app.plugin.prov.model.ProvTenancy;
+import org.ligoj.app.plugin.prov.model.ResourceType;
+import org.ligoj.app.plugin.prov.model.VmOs;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Read-only columnar in-memory index of the term prices of one resource type within a node. Rows are grouped by
+ * location and each attribute is stored in a primitive array where <code>NaN</code> stands for a <code>null</code>
+ * value. The lowest cost and lowest CO2 searches follow the same model as the <code>LOWEST_QUERY_*</code> and
+ * <code>DYNAMIC_QUERY_*</code> repository queries, including their <code>null</code> semantics: a <code>null</code>
+ * operand gives a <code>null</code> cost, only the <code>COALESCE</code> operands of the queries default to
+ * <code>0</code>, a <code>null</code> comparison rejects the row, and the <code>null</code> costs are ranked last as
+ * the <code>NULLS LAST</code> ordering of the queries.
+ */
+@Getter
+public class PriceIndex {
+
+	/**
+	 * Resource specific row filter.
+	 */
+	@FunctionalInterface
+	public interface Filter {
+
+		/**
+		 * Indicate the given row is accepted.
+		 *
+		 * @param index The index holding the columns.
+		 * @param row   The row to test.
+		 * @return <code>true</code> when the row matches the resource specific requirements.
+		 */
+		boolean test(PriceIndex index, int row);
+	}
+
+	/**
+	 * Accept all rows.
+	 */
+	public static final Filter ALL = (index, row) -> true;
+
+	/**
+	 * The indexed resource type.
+	 */
+	private final ResourceType type;
+
+	/**
+	 * The catalog stamp this index has been built with.
+	 */
+	private final long stamp;
+
+	/**
+	 * The amount of valid rows.
+	 */
+	private int size;
+
+	private final int[] ids;
+	private final int[] types;
+	private final int[] terms;
+	private final int[] locations;
+	private final double[] period;
+	private final double[] cost;
+	private final double[] costPeriod;
+	private final double[] co2;
+	private final double[] co2Period;
+	private final double[] initialCost;
+	private final String[] license;
+
+	// Dynamic part
+	private final double[] incrementCpu;
+	private final double[] incrementGpu;
+	private final double[] incrementRam;
+	private final double[] costCpu;
+	private final double[] costGpu;
+	private final double[] costRam;
+	private final double[] co2Cpu;
+	private final double[] co2Gpu;
+	private final double[] co2Ram;
+	private final double[] minCpu;
+	private final double[] maxCpu;
+	private final double[] minGpu;
+	private final double[] maxGpu;
+	private final double[] maxRam;
+	private final double[] minRamRatio;
+	private final double[] maxRamRatio;
+
+	// Resource specific part, may be null depending on the resource type
+	private final VmOs[] os;
+	private final ProvTenancy[] tenancy;
+	private final String[] software;
+	private final String[] engine;
+	private final String[] edition;
+	private final double[] maxDuration;
+	private final double[] minDuration;
+	private final double[] incrementDuration;
+	private final double[] costRequests;
+	private final double[] costRamRequest;
+	private final double[] costRamRequestConcurrency;
+	private final double[] co2Requests;
+	private final double[] co2RamRequest;
+	private final double[] co2RamRequestConcurrency;
+
+	/**
+	 * Sorted distinct location identifiers.
+	 */
+	private int[] locationIds = new int[0];
+
+	/**
+	 * Location boundaries: rows of the location at position <code>i</code> in {@link #locationIds} are within
+	 * <code>[locationStarts[i], locationStarts[i + 1])</code>.
+	 */
+	private int[] locationStarts = new int[] { 0 };
+
+	/**
+	 * Shared string values while loading.
+	 */
+	@Getter(AccessLevel.NONE)
+	private Map<String, String> strings = new HashMap<>();
+
+	/**
+	 * Create an empty index with the given capacity.
+	 *
+	 * @param type     The indexed resource type.
+	 * @param stamp    The catalog stamp this index is built with.
+	 * @param capacity The maximal amount of rows.
+	 */
+	public PriceIndex(final ResourceType type, final long stamp, final int capacity) {
+		this.type = type;
+		this.stamp = stamp;
+		ids = new int[capacity];
+		types = new int[capacity];
+		terms = new int[capacity];
+		locations = new int[capacity];
+		period = new double[capacity];
+		cost = new double[capacity];
+		costPeriod = new double[capacity];
+		co2 = new double[capacity];
+		co2Period = new double[capacity];
+		initialCost = new double[capacity];
+		license = new String[capacity];
+		incrementCpu = new double[capacity];
+		incrementGpu = new double[capacity];
+		incrementRam = new double[capacity];
+		costCpu = new double[capacity];
+		costGpu = new double[capacity];
+		costRam = new double[capacity];
+		co2Cpu = new double[capacity];
+		co2Gpu = new double[capacity];
+		co2Ram = new double[capacity];
+		minCpu = new double[capacity];
+		maxCpu = new double[capacity];
+		minGpu = new double[capacity];
+		maxGpu = new double[capacity];
+		maxRam = new double[capacity];
+		minRamRatio = new double[capacity];
+		maxRamRatio = new double[capacity];
+		final var osBased = type == ResourceType.INSTANCE || type == ResourceType.CONTAINER;
+		os = osBased ? new VmOs[capacity] : null;
+		tenancy = type == ResourceType.INSTANCE ? new ProvTenancy[capacity] : null;
+		software = type == ResourceType.INSTANCE ? new String[capacity] : null;
+		engine = type == ResourceType.DATABASE ? new String[capacity] : null;
+		edition = type == ResourceType.DATABASE ? new String[capacity] : null;
+		final var function = type == ResourceType.FUNCTION;
+		maxDuration = function ? new double[capacity] : null;
+		minDuration = function ? new double[capacity] : null;
+		incrementDuration = function ? new double[capacity] : null;
+		costRequests = function ? new double[capacity] : null;
+		costRamRequest = function ? new double[capacity] : null;
+		costRamRequestConcurrency = function ? new double[capacity] : null;
+		co2Requests = function ? new double[capacity] : null;
+		co2RamRequest = function ? new double[capacity] : null;
+		co2RamRequestConcurrency = function ? new double[capacity] : null;
+	}
+
+	/**
+	 * Column order of the raw rows given to {@link #set(int, Object[])}. The resource specific columns follow.
+	 */
+	public static final String COLUMNS = """
+			ip.id, ip.type.id, ip.term.id, ip.location.id, ip.period, ip.cost, ip.costPeriod, ip.co2, ip.co2Period,
+			ip.initialCost, ip.license, ip.incrementCpu, ip.incrementGpu, ip.incrementRam, ip.costCpu, ip.costGpu,
+			ip.costRam, ip.co2Cpu, ip.co2Gpu, ip.co2Ram, ip.minCpu, ip.maxCpu, ip.minGpu, ip.maxGpu, ip.maxRam,
+			ip.minRamRatio, ip.maxRamRatio""";
+
+	private static final int SPECIFIC = 27;
+
+	/**
+	 * Fill a row from a raw result ordered as {@link #COLUMNS}.
+	 *
+	 * @param row The row to fill.
+	 * @param rs  The raw values.
+	 */
+	public void set(final int row, final Object[] rs) {
+		ids[row] = (Integer) rs[0];
+		types[row] = (Integer) rs[1];
+		terms[row] = (Integer) rs[2];
+		locations[row] = (Integer) rs[3];
+		period[row] = toDouble(rs[4]);
+		cost[row] = toDouble(rs[5]);
+		costPeriod[row] = toDouble(rs[6]);
+		co2[row] = toDouble(rs[7]);
+		co2Period[row] = toDouble(rs[8]);
+		initialCost[row] = toDouble(rs[9]);
+		license[row] = share((String) rs[10]);
+		incrementCpu[row] = toDouble(rs[11]);
+		incrementGpu[row] = toDouble(rs[12]);
+		incrementRam[row] = toDouble(rs[13]);
+		costCpu[row] = toDouble(rs[14]);
+		costGpu[row] = toDouble(rs[15]);
+		costRam[row] = toDouble(rs[16]);
+		co2Cpu[row] = toDouble(rs[17]);
+		co2Gpu[row] = toDouble(rs[18]);
+		co2Ram[row] = toDouble(rs[19]);
+		minCpu[row] = toDouble(rs[20]);
+		maxCpu[row] = toDouble(rs[21]);
+		minGpu[row] = toDouble(rs[22]);
+		maxGpu[row] = toDouble(rs[23]);
+		maxRam[row] = toDouble(rs[24]);
+		minRamRatio[row] = toDouble(rs[25]);
+		maxRamRatio[row] = toDouble(rs[26]);
+		if (os != null) {
+			os[row] = (VmOs) rs[SPECIFIC];
+		}
+		if (tenancy != null) {
+			tenancy[row] = (ProvTenancy) rs[SPECIFIC + 1];
+			software[row] = share((String) rs[SPECIFIC + 2]);
+		}
+		if (engine != null) {
+			engine[row] = share((String) rs[SPECIFIC]);
+			edition[row] = share((String) rs[SPECIFIC + 1]);
+		}
+		if (maxDuration != null) {
+			maxDuration[row] = toDouble(rs[SPECIFIC]);
+			minDuration[row] = toDouble(rs[SPECIFIC + 1]);
+			incrementDuration[row] = toDouble(rs[SPECIFIC + 2]);
+			costRequests[row] = toDouble(rs[SPECIFIC + 3]);
+			costRamRequest[row] = toDouble(rs[SPECIFIC + 4]);
+			costRamRequestConcurrency[row] = toDouble(rs[SPECIFIC + 5]);
+			co2Requests[row] = toDouble(rs[SPECIFIC + 6]);
+			co2RamRequest[row] = toDouble(rs[SPECIFIC + 7]);
+			co2RamRequestConcurrency[row] = toDouble(rs[SPECIFIC + 8]);
+		}
+	}
+
+	/**
+	 * Complete the loading: compute the location boundaries. The rows must have been filled ordered by location.
+	 *
+	 * @param size The amount of filled rows.
+	 * @return This index.
+	 */
+	public PriceIndex seal(final int size) {
+		this.size = size;
+		this.strings = null;
+		final var ids = new int[size];
+		final var starts = new int[size + 1];
+		var nb = 0;
+		for (var row = 0; row < size; row++) {
+			if (row == 0 || locations[row] != locations[row - 1]) {
+				ids[nb] = locations[row];
+				starts[nb++] = row;
+			}
+		}
+		starts[nb] = size;
+		locationIds = Arrays.copyOf(ids, nb);
+		locationStarts = Arrays.copyOf(starts, nb + 1);
+		return this;
+	}
+
+	private String share(final String value) {
+		return value == null ? null : strings.computeIfAbsent(value, v -> v);
+	}
+
+	private static double toDouble(final Object value) {
+		return value == null ? Double.NaN : ((Number) value).doubleValue();
+	}
+
+	/**
+	 * Return the lowest price among the non-dynamic prices, following the <code>LOWEST_QUERY_TERM</code> model.
+	 *
+	 * @param location     The required location identifier.
+	 * @param validTypes   The sorted valid type identifiers.
+	 * @param validTerms   The sorted valid term identifiers.
+	 * @param rate         Usage rate within the duration, from 0 (stopped) to 1 (full time).
+	 * @param duration     The committed duration.
+	 * @param initialCost  The maximal initial cost.
+	 * @param co2Optimized When <code>true</code>, the lowest CO2 is searched, otherwise the lowest cost.
+	 * @param filter       The resource specific filter.
+	 * @param result       The computed totalCost, monthlyCost, totalCo2 and monthlyCo2 of the returned row.
+	 * @return The best row or <code>-1</code>.
+	 */
+	public int findLowest(final int location, final int[] validTypes, final int[] validTerms, final double rate,
+			final double duration, final double initialCost, final boolean co2Optimized, final Filter filter,
+			final double[] result) {
+		final var l = Arrays.binarySearch(locationIds, location);
+		if (l < 0) {
+			return -1;
+		}
+		var best = -1;
+		var bestCost = 0d;
+		var bestCo2 = 0d;
+		for (var row = locationStarts[l]; row < locationStarts[l + 1]; row++) {
+			if (!Double.isNaN(incrementCpu[row]) || !accept(row, validTypes, validTerms, initialCost)
+					|| !filter.test(this, row)) {
+				continue;
+			}
+			final var p = period[row];
+			final var totalCost = p == 0 ? cost[row] * rate * duration : costPeriod[row] * Math.ceil(duration / p);
+			final var totalCo2 = p == 0 ? co2[row] * rate * duration : co2Period[row] * Math.ceil(duration / p);
+			if (best == -1 || isBetter(row, totalCost, totalCo2, best, bestCost, bestCo2, co2Optimized)) {
+				best = row;
+				bestCost = totalCost;
+				bestCo2 = totalCo2;
+			}
+		}
+		if (best != -1) {
+			final var monthlyRate = period[best] == 0 ? rate : 1d;
+			setResult(result, bestCost, cost[best] * monthlyRate, bestCo2, co2[best] * monthlyRate);
+		}
+		return best;
+	}
+
+	/**
+	 * Return the lowest price among the dynamic prices, following the <code>DYNAMIC_QUERY_VM</code> model.
+	 *
+	 * @param location     The required location identifier.
+	 * @param validTypes   The sorted valid type identifiers.
+	 * @param validTerms   The sorted valid term identifiers.
+	 * @param cpu          The required CPU.
+	 * @param gpu          The required GPU.
+	 * @param ram          The required RAM in GiB.
+	 * @param rate         Usage rate within the duration, from 0 (stopped) to 1 (full time).
+	 * @param globalRate   Usage rate multiplied by the duration.
+	 * @param duration     The committed duration.
+	 * @param initialCost  The maximal initial cost.
+	 * @param co2Optimized When <code>true</code>, the lowest CO2 is searched, otherwise the lowest cost.
+	 * @param filter       The resource specific filter.
+	 * @param result       The computed totalCost, monthlyCost, totalCo2 and monthlyCo2 of the returned row.
+	 * @return The best row or <code>-1</code>.
+	 */
+	public int findLowestDynamic(final int location, final int[] validTypes, final int[] validTerms, final double cpu,
+			final double gpu, final double ram, final double rate, final double globalRate, final double duration,
+			final double initialCost, final boolean co2Optimized, final Filter filter, final double[] result) {
+		final var l = Arrays.binarySearch(locationIds, location);
+		if (l < 0) {
+			return -1;
+		}
+		var best = -1;
+		var bestCost = 0d;
+		var bestCo2 = 0d;
+		var bestBaseCost = 0d;
+		var bestBaseCo2 = 0d;
+		for (var row = locationStarts[l]; row < locationStarts[l + 1]; row++) {
+			if (Double.isNaN(incrementCpu[row]) || !accept(row, validTypes, validTerms, initialCost)
+					|| !acceptDynamic(row, cpu, gpu, ram) || !filter.test(this, row)) {
+				continue;
+			}
+			final var cpuR = greatest(minCpu[row], cpu);
+			final var qCpu = ceilStep(cpuR, incrementCpu[row]);
+			final var qRam = ceilStep(Math.max(cpuR * nvl(minRamRatio[row]), ram), incrementRam[row]);
+			final var noGpu = isNullOrZero(incrementGpu[row]);
+			final var gpuCost = noGpu ? 0d : ceilStep(greatest(minGpu[row], gpu), incrementGpu[row]) * costGpu[row];
+			final var gpuCo2 = noGpu ? 0d : ceilStep(greatest(minGpu[row], gpu), incrementGpu[row]) * co2Gpu[row];
+			final var baseCost = cost[row] + qCpu * costCpu[row] + gpuCost + qRam * costRam[row];
+			final var baseCo2 = co2[row] + qCpu * co2Cpu[row] + gpuCo2 + qRam * co2Ram[row];
+			final var p = period[row];
+			final var factor = p == 0 ? globalRate : p * Math.ceil(duration / p);
+			final var totalCost = baseCost * factor;
+			final var totalCo2 = baseCo2 * factor;
+			if (best == -1 || isBetter(row, totalCost, totalCo2, best, bestCost, bestCo2, co2Optimized)) {
+				best = row;
+				bestCost = totalCost;
+				bestCo2 = totalCo2;
+				bestBaseCost = baseCost;
+				bestBaseCo2 = baseCo2;
+			}
+		}
+		if (best != -1) {
+			final var monthlyRate = period[best] == 0 ? rate : 1d;
+			setResult(result, bestCost, bestBaseCost * monthlyRate, bestCo2, bestBaseCo2 * monthlyRate);
+		}
+		return best;
+	}
+
+	/**
+	 * Return the lowest function price among the dynamic prices, following the function <code>DYNAMIC_QUERY</code>
+	 * model. The concurrency options are explored in a single pass: the floor of the concurrency for both the real and
+	 * the reserved concurrency, and when the concurrency is fractional, the real concurrency with its ceiling as
+	 * reserved concurrency. The second option is kept only when its total cost is lower.
+	 *
+	 * @param location         The required location identifier.
+	 * @param validTypes       The sorted valid type identifiers.
+	 * @param validTerms       The sorted valid term identifiers.
+	 * @param cpu              The required CPU.
+	 * @param ram              The required RAM in GiB.
+	 * @param rate             Usage rate within the duration, from 0 (stopped) to 1 (full time).
+	 * @param globalRate       Usage rate multiplied by the duration.
+	 * @param duration         The committed duration.
+	 * @param initialCost      The maximal initial cost.
+	 * @param co2Optimized     When <code>true</code>, the lowest CO2 is searched, otherwise the lowest cost.
+	 * @param nbRequests       The monthly amount of executions, in million.
+	 * @param requestDuration  Average duration of a single request in milliseconds.
+	 * @param concurrency      The requested concurrency.
+	 * @param concurrencyMonth Milliseconds per month per million requests.
+	 * @param result           The computed totalCost, monthlyCost, totalCo2 and monthlyCo2 of the returned row.
+	 * @return The best row or <code>-1</code>.
+	 */
+	public int findLowestFunction(final int location, final int[] validTypes, final int[] validTerms,
+			final double cpu, final double ram, final double rate, final double globalRate, final double duration,
+			final double initialCost, final boolean co2Optimized, final double nbRequests,
+			final double requestDuration, final double concurrency, final double concurrencyMonth,
+			final double[] result) {
+		final var l = Arrays.binarySearch(locationIds, location);
+		if (l < 0) {
+			return -1;
+		}
+		// Real and reserved concurrency of each option
+		final var floor = Math.floor(concurrency);
+		final var options = floor == concurrency ? 1 : 2;
+		final var reals = new double[] { floor, concurrency };
+		final var reserved = new double[] { floor, Math.ceil(concurrency) };
+		final var best = new int[] { -1, -1 };
+		final var bestResults = new double[2][4];
+		final var values = new double[4];
+		for (var row = locationStarts[l]; row < locationStarts[l + 1]; row++) {
+			if (Double.isNaN(incrementCpu[row]) || Double.isNaN(incrementRam[row])
+					|| !accept(row, validTypes, validTerms, initialCost) || !acceptDynamic(row, cpu, 0, ram)
+					|| !Double.isNaN(maxDuration[row]) && maxDuration[row] < requestDuration) {
+				continue;
+			}
+			// Option independent part
+			final var cpuR = greatest(minCpu[row], cpu);
+			final var qCpu = ceilStep(cpuR, incrementCpu[row]);
+			final var qRam = ceilStep(Math.max(cpuR * nvl(minRamRatio[row]), ram), incrementRam[row]);
+			final var p = period[row];
+			final var factor = p == 0 ? globalRate : p * Math.ceil(duration / p);
+			final var durationFactor = p == 0 ? duration : p * Math.ceil(duration / p);
+			final var monthlyRate = p == 0 ? rate : 1d;
+			final var requests = ceilStep(greatest(minDuration[row], requestDuration), incrementDuration[row])
+					* nbRequests / concurrencyMonth;
+			for (var o = 0; o < options; o++) {
+				final var concurrencyCost = costRamRequestConcurrency[row];
+				if (!(concurrencyCost == 0d && reserved[o] == 0d || concurrencyCost > 0d && reserved[o] > 0d)) {
+					// A null concurrency cost matches none of the options
+					continue;
+				}
+				final var concurrent = Math.min(requests, reals[o] * monthlyRate);
+				final var overflow = Math.max(requests - reals[o] * monthlyRate, 0d);
+				final var requestCost = concurrent * costRamRequestConcurrency[row] + overflow * costRamRequest[row];
+				final var requestCo2 = concurrent * co2RamRequestConcurrency[row] + overflow * co2RamRequest[row];
+				final var baseCost = cost[row] + qCpu * costCpu[row] * reserved[o];
+				final var baseCo2 = co2[row] + qCpu * co2Cpu[row] * reserved[o];
+				final var ramCost = qRam * costRam[row] * reserved[o];
+				final var ramCo2 = qRam * co2Ram[row] * reserved[o];
+				values[0] = getFunctionValue(factor, durationFactor, baseCost, ramCost, qRam * requestCost,
+						nbRequests * costRequests[row]);
+				values[2] = getFunctionValue(factor, durationFactor, baseCo2, ramCo2, qRam * requestCo2,
+						nbRequests * co2Requests[row]);
+				if (best[o] == -1 || isBetter(row, values[0], values[2], best[o], bestResults[o][0],
+						bestResults[o][2], co2Optimized)) {
+					best[o] = row;
+					values[1] = getFunctionValue(monthlyRate, 1d, baseCost, ramCost, qRam * requestCost,
+							nbRequests * costRequests[row]);
+					values[3] = getFunctionValue(monthlyRate, 1d, baseCo2, ramCo2, qRam * requestCo2,
+							nbRequests * co2Requests[row]);
+					System.arraycopy(values, 0, bestResults[o], 0, 4);
+				}
+			}
+		}
+		// The greater concurrency level is kept only when cheaper
+		final var o = best[0] != -1 && best[1] != -1 && bestResults[0][0] > bestResults[1][0] ? 1 : 0;
+		if (best[o] != -1) {
+			System.arraycopy(bestResults[o], 0, result, 0, 4);
+		}
+		return best[o];
+	}
+
+	/**
+	 * Return a function cost or CO2 value from its monthly parts: the reserved resources are multiplied by the usage
+	 * factor, the requests by the duration factor.
+	 */
+	private static double getFunctionValue(final double factor, final double durationFactor, final double base,
+			final double ram, final double requestRam, final double requests) {
+		return (base + ram) * factor + (requestRam + requests) * durationFactor;
+	}
+
+	/**
+	 * Common criteria of all lookups.
+	 */
+	private boolean accept(final int row, final int[] validTypes, final int[] validTerms,
+			final double maxInitialCost) {
+		return (Double.isNaN(initialCost[row]) || maxInitialCost >= initialCost[row])
+				&& Arrays.binarySearch(validTypes, types[row]) >= 0 && Arrays.binarySearch(validTerms, terms[row]) >= 0;
+	}
+
+	/**
+	 * Indicate the license of the given row is compatible with the required one: only prices without license or with
+	 * this exact license are accepted.
+	 *
+	 * @param row             The row to test.
+	 * @param requiredLicense The required license. May be <code>null</code>.
+	 * @return <code>true</code> when the license is compatible.
+	 */
+	public boolean isLicensed(final int row, final String requiredLicense) {
+		return license[row] == null || license[row].equals(requiredLicense);
+	}
+
+	/**
+	 * Dynamic capacity criteria.
+	 */
+	private boolean acceptDynamic(final int row, final double cpu, final double gpu, final double ram) {
+		return (Double.isNaN(maxCpu[row]) || maxCpu[row] >= cpu) && (Double.isNaN(maxGpu[row]) || maxGpu[row] >= gpu)
+				&& (Double.isNaN(maxRam[row]) || maxRam[row] >= ram)
+				&& (Double.isNaN(maxRamRatio[row]) || greatest(minCpu[row], cpu) * maxRamRatio[row] <= ram);
+	}
+
+	/**
+	 * Ordering of the lookup queries: "totalCost, totalCo2" or "totalCo2, totalCost" depending on the optimizer, then
+	 * "type DESC, maxCpu ASC".
+	 */
+	private boolean isBetter(final int row, final double totalCost, final double totalCo2, final int best,
+			final double bestCost, final double bestCo2, final boolean co2Optimized) {
+		final var first = co2Optimized ? Double.compare(totalCo2, bestCo2) : Double.compare(totalCost, bestCost);
+		if (first != 0) {
+			return first < 0;
+		}
+		final var second = co2Optimized ? Double.compare(totalCost, bestCost) : Double.compare(totalCo2, bestCo2);
+		if (second != 0) {
+			return second < 0;
+		}
+		if (types[row] != types[best]) {
+			return types[row] > types[best];
+		}
+		return Double.compare(maxCpu[row], maxCpu[best]) < 0;
+	}
+
+	private static void setResult(final double[] result, final double totalCost, final double monthlyCost,
+			final double totalCo2, final double monthlyCo2) {
+		result[0] = totalCost;
+		result[1] = monthlyCost;
+		result[2] = totalCo2;
+		result[3] = monthlyCo2;
+	}
+
+	/**
+	 * Return <code>GREATEST(value, requested)</code> where a <code>null</code> value is ignored.
+	 */
+	private static double greatest(final double value, final double requested) {
+		return Double.isNaN(value) ? requested : Math.max(value, requested);
+	}
+
+	/**
+	 * Return <code>CEIL(value / step) * step</code>. As in SQL, a <code>null</code> step gives a <code>null</code>
+	 * result. A zero step keeps the value.
+	 */
+	private static double ceilStep(final double value, final double step) {
+		return step == 0d ? value : Math.ceil(value / step) * step;
+	}
+
+	private static boolean isNullOrZero(final double value) {
+		return Double.isNaN(value) || value == 0d;
+	}
+
+	private static double nvl(final double value) {
+		return Double.isNaN(value) ? 0d : value;
+	}
+
+	/**
+	 * Return the sorted primitive array of the given identifiers.
+	 *
+	 * @param identifiers The identifiers.
+	 * @return The sorted primitive array.
+	 */
+	public static int[] toSorted(final Collection<Integer> identifiers) {
+		final var result = identifiers.stream().mapToInt(Integer::intValue).toArray();
+		Arrays.sort(result);
+		return result;
+	}
+}
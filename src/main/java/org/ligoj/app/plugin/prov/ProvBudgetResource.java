@@ -5,21 +5,21 @@ package org.ligoj.app.plugin.prov;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import jakarta.transaction.Transactional;
@@ -29,6 +29,7 @@ import jakarta.ws.rs.core.MediaType;
 
 import org.apache.commons.lang3.BooleanUtils;
 import org.hibernate.Hibernate;
+import org.ligoj.app.plugin.prov.ProvChangeImpactAnalyzer.Impact;
 import org.ligoj.app.plugin.prov.dao.ProvBudgetRepository;
 import org.ligoj.app.plugin.prov.model.AbstractInstanceType;
 import org.ligoj.app.plugin.prov.model.AbstractQuoteVm;
@@ -48,8 +49,6 @@ import org.springframework.stereotype.Service;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import net.jnellis.binpack.LinearBin;
-import net.jnellis.binpack.LinearBinPacker;
 
 /**
  * Budget part of provisioning.
@@ -61,6 +60,16 @@ import net.jnellis.binpack.LinearBinPacker;
 @Slf4j
 public class ProvBudgetResource extends AbstractMultiScopedResource<ProvBudget, ProvBudgetRepository, BudgetEditionVo> {
 
+	/**
+	 * Configuration key of the pack strategy name. See {@link BudgetPacker} for the available strategies.
+	 */
+	public static final String PACK_STRATEGY = ProvResource.SERVICE_KEY + ":pack-strategy";
+
+	/**
+	 * Configuration key of the time limit in milliseconds of a pack, for the strategies supporting it.
+	 */
+	public static final String PACK_TIME_LIMIT = ProvResource.SERVICE_KEY + ":pack-time-limit";
+
 	@Autowired
 	@Getter
 	private ProvBudgetRepository repository;
@@ -68,6 +77,12 @@ public class ProvBudgetResource extends AbstractMultiScopedResource<ProvBudget,
 	@Autowired
 	private ConfigurationResource configuration;
 
+	@Autowired
+	private ProvQuoteLock quoteLock;
+
+	@Autowired
+	private ProvMetrics metrics;
+
 	/**
 	 * Create a budget initiated without any cost.
 	 */
@@ -77,6 +92,8 @@ public class ProvBudgetResource extends AbstractMultiScopedResource<ProvBudget,
 
 	@Override
 	protected UpdatedCost saveOrUpdate(final ProvBudget entity, final BudgetEditionVo vo) {
+		final var impact = impactAnalyzer.getImpact(entity, vo);
+
 		// Check the associations and copy attributes to the entity
 		entity.setName(vo.getName());
 		entity.setInitialCost(vo.getInitialCost());
@@ -90,8 +107,12 @@ public class ProvBudgetResource extends AbstractMultiScopedResource<ProvBudget,
 				.synchronizedMap(new EnumMap<ResourceType, Map<Integer, Floating>>(ResourceType.class));
 		// Prevent useless computation, check the relations
 		if (entity.getId() != null) {
-			// This is an update, update the cost of all related instances
-			lean(entity, relatedCosts);
+			// This is an update, the cached data may rely on the budget name
+			lookupCache.invalidate(quote.getId());
+			if (impact != Impact.NONE) {
+				// Update the cost of all related instances
+				lean(entity, relatedCosts);
+			}
 		}
 
 		repository.saveAndFlush(entity);
@@ -153,33 +174,63 @@ public class ProvBudgetResource extends AbstractMultiScopedResource<ProvBudget,
 	                 final List<ProvQuoteDatabase> databases, final List<ProvQuoteContainer> containers,
 	                 final List<ProvQuoteFunction> functions, final List<ProvQuoteStorage> storages,
 	                 final Map<ResourceType, Map<Integer, Floating>> costs) {
-		synchronized (quote.getLeanLock()) {
-			// Lean all relevant budgets
-			final var budgets = Stream.of(instances, databases, containers, functions).flatMap(Collection::stream)
-					.map(AbstractQuoteVm::getResolvedBudget).filter(Objects::nonNull)
-					.filter(b -> b.getInitialCost() > 0).distinct().toList();
-			budgets.forEach(b -> lean(b, costs));
-
-			// Refresh also all remaining resources unrelated to the updated budgets
-			refreshNoBudget(instances, ResourceType.INSTANCE, costs, qiResource);
-			refreshNoBudget(databases, ResourceType.DATABASE, costs, qbResource);
-			refreshNoBudget(containers, ResourceType.CONTAINER, costs, qcResource);
-			refreshNoBudget(functions, ResourceType.FUNCTION, costs, qfResource);
-
-			// Refresh also storages resources, not yet related to budgets
-			this.resource.newStream(storages)
-					.forEach(i -> costs.computeIfAbsent(ResourceType.STORAGE, k -> new ConcurrentHashMap<>())
-							.put(i.getId(), qsResource.addCost(i, qsResource::refresh)));
-		}
+		final var start = System.nanoTime();
+		quoteLock.lock(quote);
+
+		// Lean all relevant budgets
+		final var budgets = Stream.of(instances, databases, containers, functions).flatMap(Collection::stream)
+				.map(AbstractQuoteVm::getResolvedBudget).filter(Objects::nonNull).filter(b -> b.getInitialCost() > 0)
+				.distinct().toList();
+		budgets.forEach(b -> lean(b, costs));
+
+		// Refresh also all remaining resources unrelated to the updated budgets
+		refreshNoBudget(instances, ResourceType.INSTANCE, costs, qiResource);
+		refreshNoBudget(databases, ResourceType.DATABASE, costs, qbResource);
+		refreshNoBudget(containers, ResourceType.CONTAINER, costs, qcResource);
+		refreshNoBudget(functions, ResourceType.FUNCTION, costs, qfResource);
+
+		// Refresh also storages resources, not yet related to budgets
+		storages.forEach(i -> costs.computeIfAbsent(ResourceType.STORAGE, k -> new ConcurrentHashMap<>())
+				.put(i.getId(), qsResource.addCost(i, qsResource::refresh)));
+		metrics.since("prov.lean", start);
+	}
+
+	/**
+	 * Update the costs of the given resources from their resolved prices, without lookup. These resources must not be
+	 * related to a budget having an initial cost.
+	 *
+	 * @param quote      The quote owning the resources.
+	 * @param instances  The instances implied in the current change.
+	 * @param databases  The databases implied in the current change.
+	 * @param containers The containers implied in the current change.
+	 * @param functions  The functions implied in the current change.
+	 * @param costs      The updated costs and resources.
+	 */
+	public void refreshCost(final ProvQuote quote, final List<ProvQuoteInstance> instances,
+	                        final List<ProvQuoteDatabase> databases, final List<ProvQuoteContainer> containers,
+	                        final List<ProvQuoteFunction> functions, final Map<ResourceType, Map<Integer, Floating>> costs) {
+		quoteLock.lock(quote);
+		refreshCost(instances, ResourceType.INSTANCE, costs, qiResource);
+		refreshCost(databases, ResourceType.DATABASE, costs, qbResource);
+		refreshCost(containers, ResourceType.CONTAINER, costs, qcResource);
+		refreshCost(functions, ResourceType.FUNCTION, costs, qfResource);
+	}
+
+	private <T extends AbstractInstanceType, P extends AbstractTermPriceVm<T>, C extends AbstractQuoteVm<P>> void refreshCost(
+			final List<C> entities, final ResourceType type, final Map<ResourceType, Map<Integer, Floating>> costs,
+			final AbstractProvQuoteVmResource<T, P, C, ?, ?, ?> resource) {
+		costs.computeIfAbsent(type, k -> new ConcurrentHashMap<>()).putAll(resource.refreshCostAll(entities));
 	}
 
 	private <T extends AbstractInstanceType, P extends AbstractTermPriceVm<T>, C extends AbstractQuoteVm<P>> void refreshNoBudget(
 			final List<C> entities, final ResourceType type, final Map<ResourceType, Map<Integer, Floating>> costs,
 			final AbstractProvQuoteVmResource<T, P, C, ?, ?, ?> resource) {
-		this.resource.newStream(entities)
+		final var noBudget = entities.stream()
 				.filter(i -> Optional.ofNullable(i.getResolvedBudget()).map(ProvBudget::getInitialCost).orElse(0d) == 0)
-				.forEach(i -> costs.computeIfAbsent(type, k -> new ConcurrentHashMap<>()).put(i.getId(),
-						resource.addCost(i, resource::refresh)));
+				.toList();
+
+		// Resolve the prices at once, the resources sharing the same requirements share the same lookup
+		costs.computeIfAbsent(type, k -> new ConcurrentHashMap<>()).putAll(resource.refreshAll(noBudget));
 	}
 
 	/**
@@ -207,7 +258,8 @@ public class ProvBudgetResource extends AbstractMultiScopedResource<ProvBudget,
 
 		// Reset the remaining initial cost
 		budget.setRemainingBudget(budget.getInitialCost());
-		budget.setRequiredInitialCost(leanRecursive(budget, instances, databases, containers, functions, costs));
+		budget.setRequiredInitialCost(
+				leanRecursive(budget, instances, databases, containers, functions, costs, new HashMap<>()));
 		budget.setRemainingBudget(null);
 		logLean(c -> {
 			log.info("Monthly costs:{}", c.stream().map(i -> i.getPrice().getCost()).toList());
@@ -236,42 +288,46 @@ public class ProvBudgetResource extends AbstractMultiScopedResource<ProvBudget,
 	/**
 	 * Price priority for packing.
 	 */
-	private Comparator<? super Entry<Double, AbstractQuoteVm<?>>> priceOrder(
-			final Map<AbstractQuoteVm<?>, FloatingPrice<?>> prices) {
+	private Comparator<AbstractQuoteVm<?>> priceOrder(final Map<AbstractQuoteVm<?>, FloatingPrice<?>> prices) {
 		return (e1, e2) -> {
 			// Priority to the most expensive price
-			final var c1 = prices.get(e1.getValue()).getPrice().getCost();
-			final var c2 = prices.get(e2.getValue()).getPrice().getCost();
+			final var c1 = prices.get(e1).getPrice().getCost();
+			final var c2 = prices.get(e2).getPrice().getCost();
 			var compare = (int) (c2 - c1);
 			if (compare == 0) {
 				// Then natural naming order
-				compare = e1.getValue().getName().compareTo(e2.getValue().getName());
+				compare = e1.getName().compareTo(e2.getName());
 			}
 			return compare;
 		};
 	}
 
+	/**
+	 * Return the configured pack strategy.
+	 */
+	private BudgetPacker.Strategy getPackStrategy() {
+		return BudgetPacker.get(configuration.get(PACK_STRATEGY, BudgetPacker.FIRST_FIT),
+				configuration.get(PACK_TIME_LIMIT, 1000));
+	}
+
 	private double leanRecursive(final ProvBudget budget, final List<ProvQuoteInstance> instances,
 	                             final List<ProvQuoteDatabase> databases, final List<ProvQuoteContainer> containers,
-	                             final List<ProvQuoteFunction> functions, final Map<ResourceType, Map<Integer, Floating>> costs) {
+	                             final List<ProvQuoteFunction> functions, final Map<ResourceType, Map<Integer, Floating>> costs,
+	                             final Map<AbstractQuoteVm<?>, FloatingPrice<?>> prices) {
 		logLean(c -> log.info("Start lean: {}",
 						c.stream().map(i -> i.getName() + "(" + i.getPrice().getCode() + ")").toList()), instances, databases,
 				containers, functions);
 
 		// Lookup the best prices
 		// And build the pack candidates
-		final var initialCosts = new ConcurrentHashMap<AbstractQuoteVm<?>, Double>();
-		final var prices = new ConcurrentHashMap<AbstractQuoteVm<?>, FloatingPrice<?>>();
-		final var validatedQi = lookup(instances, prices, qiResource, initialCosts);
-		final var validatedQb = lookup(databases, prices, qbResource, initialCosts);
-		final var validatedQc = lookup(containers, prices, qcResource, initialCosts);
-		final var validatedQf = lookup(functions, prices, qfResource, initialCosts);
-
-		// Reverse the cost map fot the packer
-		final var packToQrRev = initialCosts.entrySet().stream().collect(Collectors.toMap(Entry::getValue, Entry::getKey, (a, b) -> b, (Supplier<IdentityHashMap<Double, AbstractQuoteVm<?>>>) IdentityHashMap::new));
+		final var candidates = new ArrayList<AbstractQuoteVm<?>>();
+		final var validatedQi = lookup(budget, instances, prices, qiResource, candidates);
+		final var validatedQb = lookup(budget, databases, prices, qbResource, candidates);
+		final var validatedQc = lookup(budget, containers, prices, qcResource, candidates);
+		final var validatedQf = lookup(budget, functions, prices, qfResource, candidates);
 
 		// Pack the prices having an initial cost
-		var init = pack(budget, packToQrRev, prices, validatedQi, validatedQb, validatedQc, validatedQf, costs);
+		var init = pack(budget, candidates, prices, validatedQi, validatedQb, validatedQc, validatedQf, costs);
 		// Commit this pack
 		commitPrices(validatedQi, prices, ResourceType.INSTANCE, costs, qiResource);
 		commitPrices(validatedQb, prices, ResourceType.DATABASE, costs, qbResource);
@@ -288,23 +344,32 @@ public class ProvBudgetResource extends AbstractMultiScopedResource<ProvBudget,
 		return Floating.round(init);
 	}
 
-	private double pack(final ProvBudget budget, final Map<Double, AbstractQuoteVm<?>> packToQr,
+	private double pack(final ProvBudget budget, final List<AbstractQuoteVm<?>> candidates,
 	                    final Map<AbstractQuoteVm<?>, FloatingPrice<?>> prices, final List<ProvQuoteInstance> validatedQi,
 	                    final List<ProvQuoteDatabase> validatedQb, final List<ProvQuoteContainer> validatedQc,
 	                    final List<ProvQuoteFunction> validatedQf, final Map<ResourceType, Map<Integer, Floating>> costs) {
-		if (packToQr.isEmpty()) {
+		if (candidates.isEmpty()) {
 			return 0d;
 		}
 		// At least one initial cost is implied, use bin packing strategy
 		final var packStart = System.currentTimeMillis();
-		final var packer = new LinearBinPacker();
-		final var entries = new ArrayList<>(packToQr.entrySet());
-		final var bins = packer.packAll(
-				new ArrayList<>(entries.stream().sorted(priceOrder(prices)).map(Entry::getKey).toList()),
-				new ArrayList<>(List.of(new LinearBin(budget.getRemainingBudget()))),
-				new ArrayList<>(List.of(Double.MAX_VALUE)));
-		final var bin = bins.get(0);
-		bin.getPieces().stream().map(packToQr::get).forEach(i -> {
+		candidates.sort(priceOrder(prices));
+		final var size = candidates.size();
+		final var weights = new double[size];
+		final var values = new double[size];
+		for (var i = 0; i < size; i++) {
+			final var cost = prices.get(candidates.get(i)).getCost();
+			weights[i] = cost.getInitial();
+			// The monthly cost stands for the saving of the committed price, see BudgetPacker
+			values[i] = cost.getMin();
+		}
+		final var selected = getPackStrategy().pack(weights, values, budget.getRemainingBudget());
+		final var packed = new boolean[size];
+		var init = 0d;
+		for (final var n : selected) {
+			packed[n] = true;
+			init += weights[n];
+			final var i = candidates.get(n);
 			if (i.getResourceType() == ResourceType.INSTANCE) {
 				validatedQi.add((ProvQuoteInstance) i);
 			} else if (i.getResourceType() == ResourceType.DATABASE) {
@@ -314,23 +379,20 @@ public class ProvBudgetResource extends AbstractMultiScopedResource<ProvBudget,
 			} else {
 				validatedQf.add((ProvQuoteFunction) i);
 			}
-		});
-		logLean(b -> {
-			log.info("Packing result: {}", b.get(0).getPieces().stream().map(packToQr::get)
-					.map(i -> i.getName() + "(" + i.getPrice().getCode() + ")").toList());
-			log.info("Packing result: {}", b);
-		}, bins);
-		logPack(packStart, packToQr, budget);
-
-		var init = (double) bin.getTotal();
-		if (bins.size() > 1) {
-			// Extra bin needs to make a new pass
-			budget.setRemainingBudget(Floating.round(budget.getRemainingBudget() - bin.getTotal()));
-			final List<ProvQuoteInstance> subQi = newSubPack(packToQr, bins, ResourceType.INSTANCE);
-			final List<ProvQuoteDatabase> subQb = newSubPack(packToQr, bins, ResourceType.DATABASE);
-			final List<ProvQuoteContainer> subQc = newSubPack(packToQr, bins, ResourceType.CONTAINER);
-			final List<ProvQuoteFunction> subQf = newSubPack(packToQr, bins, ResourceType.FUNCTION);
-			init += leanRecursive(budget, subQi, subQb, subQc, subQf, costs);
+		}
+		logLean(p -> log.info("Packing result: {}", Arrays.stream(p).mapToObj(candidates::get)
+				.map(i -> i.getName() + "(" + prices.get(i).getPrice().getCode() + ")").toList()), selected);
+		logPack(packStart, size, budget);
+
+		if (selected.length < size) {
+			// Remaining resources need to make a new pass
+			budget.setRemainingBudget(Floating.round(budget.getRemainingBudget() - init));
+			final var remaining = IntStream.range(0, size).filter(n -> !packed[n]).mapToObj(candidates::get).toList();
+			final List<ProvQuoteInstance> subQi = newSubPack(remaining, ResourceType.INSTANCE);
+			final List<ProvQuoteDatabase> subQb = newSubPack(remaining, ResourceType.DATABASE);
+			final List<ProvQuoteContainer> subQc = newSubPack(remaining, ResourceType.CONTAINER);
+			final List<ProvQuoteFunction> subQf = newSubPack(remaining, ResourceType.FUNCTION);
+			init += leanRecursive(budget, subQi, subQb, subQc, subQf, costs, prices);
 		}
 		// ... else pack is completed
 		return init;
@@ -340,25 +402,25 @@ public class ProvBudgetResource extends AbstractMultiScopedResource<ProvBudget,
 	 * Log packing statistics.
 	 *
 	 * @param packStart Starting timestamp.
-	 * @param packToQr  The packed resources.
+	 * @param size      The amount of packed resources.
 	 * @param budget    The related budget.
 	 */
-	protected void logPack(final long packStart, final Map<Double, AbstractQuoteVm<?>> packToQr,
-	                       final ProvBudget budget) {
+	protected void logPack(final long packStart, final int size, final ProvBudget budget) {
 		// Log packing statistic
 		final var packTime = System.currentTimeMillis() - packStart;
+		metrics.timer("prov.pack", TimeUnit.MILLISECONDS.toNanos(packTime));
+		metrics.summary("prov.pack.size", size);
 		if (packTime > 500) {
 			// Enough duration to be logged
-			log.info("Packing of {} resources for subscription {} took {}", packToQr.size(),
+			log.info("Packing of {} resources for subscription {} took {}", size,
 					budget.getConfiguration().getSubscription().getId(), Duration.ofMillis(packTime));
 		}
 	}
 
 	@SuppressWarnings({"unchecked", "rawtypes"})
 	private <T extends AbstractInstanceType, P extends AbstractTermPriceVm<T>, C extends AbstractQuoteVm<P>> List<C> newSubPack(
-			final Map<Double, AbstractQuoteVm<?>> packToQr, final List<LinearBin> bins, final ResourceType type) {
-		return (List) bins.get(1).getPieces().stream().map(packToQr::get).filter(i -> i.getResourceType() == type)
-				.toList();
+			final List<AbstractQuoteVm<?>> remaining, final ResourceType type) {
+		return (List) remaining.stream().filter(i -> i.getResourceType() == type).toList();
 	}
 
 	private <T extends AbstractInstanceType, P extends AbstractTermPriceVm<T>, C extends AbstractQuoteVm<P>> void commitPrices(
@@ -376,27 +438,33 @@ public class ProvBudgetResource extends AbstractMultiScopedResource<ProvBudget,
 
 	/**
 	 * Execute a lookup for each resource, and store the resolved price in the "prices" parameter. Then separate the
-	 * resolved prices having an initial cost from the one without. These excluded resources are returned. The prices
-	 * having an initial cost are put in the given identity map where the key corresponds to this cost, and the value
-	 * corresponds to the resource.
+	 * resolved prices having an initial cost from the one without. These excluded resources are returned. The
+	 * resources having a price with an initial cost are added to the pack candidates.
+	 * <p>
+	 * The prices resolved by a previous pass are remembered: the remaining budget only decreases, so a previous best
+	 * price still fitting in the remaining budget is still the best one and is not looked up again.
 	 */
 	private <T extends AbstractInstanceType, P extends AbstractTermPriceVm<T>, C extends AbstractQuoteVm<P>> List<C> lookup(
-			final List<C> nodes, final Map<AbstractQuoteVm<?>, FloatingPrice<?>> prices,
-			final AbstractProvQuoteVmResource<T, P, C, ?, ?, ?> resource,
-			final Map<AbstractQuoteVm<?>, Double> initialCosts) {
+			final ProvBudget budget, final List<C> nodes, final Map<AbstractQuoteVm<?>, FloatingPrice<?>> prices,
+			final AbstractProvQuoteVmResource<T, P, C, ?, ?, ?> resource, final List<AbstractQuoteVm<?>> candidates) {
+		final var remaining = budget.getRemainingBudget();
+		final var toLookup = nodes.stream()
+				.filter(i -> !prices.containsKey(i) || prices.get(i).getCost().getInitial() > remaining).toList();
+		final var newPrices = resource.getNewPriceAll(toLookup);
+		for (var n = 0; n < toLookup.size(); n++) {
+			prices.put(toLookup.get(n), newPrices.get(n));
+		}
+
 		final var validatedQi = new ArrayList<C>();
-		this.resource.newStream(nodes).forEach(i -> {
-			final var price = resource.getNewPrice(i);
-			prices.put(i, price);
-			if (price.getCost().getInitial() > 0) {
+		nodes.forEach(i -> {
+			if (prices.get(i).getCost().getInitial() > 0) {
 				// Add this price to the pack
-				initialCosts.put(i, price.getCost().getInitial());
+				candidates.add(i);
 			} else {
 				// Add this price to the commit stage
 				validatedQi.add(i);
 			}
 		});
-
 		return validatedQi;
 	}
 
@@ -0,0 +1,128 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.BooleanUtils;
+import org.ligoj.app.plugin.prov.model.AbstractQuoteVm;
+import org.ligoj.app.plugin.prov.model.ProvBudget;
+import org.ligoj.app.plugin.prov.model.ProvOptimizer;
+import org.ligoj.app.plugin.prov.model.ProvUsage;
+import org.ligoj.app.plugin.prov.model.ResourceType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compare the current state of a usage, budget or optimizer profile with its new state, and determine how the related
+ * resources are impacted. Only the fields involved in the lookups or in the cost computation are considered.
+ */
+@Component
+public class ProvChangeImpactAnalyzer {
+
+	/**
+	 * The impact of a profile change on the related resources.
+	 */
+	public enum Impact {
+		/**
+		 * Neither the resolved prices nor the costs change, for sample a renaming.
+		 */
+		NONE,
+
+		/**
+		 * The resolved prices are still the best ones, only the costs need to be recomputed from them.
+		 */
+		COST,
+
+		/**
+		 * The lookup inputs have changed, the best prices need to be resolved again.
+		 */
+		LOOKUP
+	}
+
+	/**
+	 * Return the impact of a usage change for each related resource. The start of the usage is neither a lookup input
+	 * nor a cost input, so changing it alone has no impact.
+	 *
+	 * @param entity The current usage, not yet updated.
+	 * @param vo     The new usage data.
+	 * @return The impact on a given related resource.
+	 */
+	public Function<AbstractQuoteVm<?>, Impact> getImpact(final ProvUsage entity, final UsageEditionVo vo) {
+		if (entity.getDuration() != vo.getDuration()
+				|| isChanged(entity.getConvertibleOs(), vo.getConvertibleOs())
+				|| isChanged(entity.getConvertibleEngine(), vo.getConvertibleEngine())
+				|| isChanged(entity.getConvertibleLocation(), vo.getConvertibleLocation())
+				|| isChanged(entity.getConvertibleFamily(), vo.getConvertibleFamily())
+				|| isChanged(entity.getConvertibleType(), vo.getConvertibleType())
+				|| isChanged(entity.getReservation(), vo.getReservation())) {
+			return r -> Impact.LOOKUP;
+		}
+		if (Objects.equals(entity.getRate(), vo.getRate())) {
+			return r -> Impact.NONE;
+		}
+		// The accepted terms depend on the rate through the maximal period
+		final var duration = entity.getDuration();
+		if (getMaxPeriod(entity.getRate(), duration) != getMaxPeriod(vo.getRate(), duration)) {
+			return r -> Impact.LOOKUP;
+		}
+
+		// The function prices also depend on the rate through the concurrency
+		final var decrease = vo.getRate() < entity.getRate();
+		return r -> r.getResourceType() == ResourceType.FUNCTION ? Impact.LOOKUP
+				: getRateImpact(decrease, r.getPrice().getTerm().getPeriod() == 0);
+	}
+
+	/**
+	 * Return the maximal period of the terms accepted by the lookups for a usage rate.
+	 */
+	private int getMaxPeriod(final int rate, final int duration) {
+		return AbstractProvQuoteVmResource.getMaxPeriod(rate / 100d, duration);
+	}
+
+	/**
+	 * Return the impact of a rate change on a resource keeping the same accepted terms. The rate scales the cost of all
+	 * the prices having a term without period, and does not apply to the other ones. So a decrease keeps the best prices
+	 * having a term without period, and an increase keeps the best prices having a period.
+	 *
+	 * @param decrease When <code>true</code>, the rate decreases.
+	 * @param onDemand When <code>true</code>, the resolved price has a term without period.
+	 * @return The impact on the resource.
+	 */
+	private Impact getRateImpact(final boolean decrease, final boolean onDemand) {
+		if (onDemand) {
+			return decrease ? Impact.COST : Impact.LOOKUP;
+		}
+		return decrease ? Impact.LOOKUP : Impact.NONE;
+	}
+
+	/**
+	 * Return the impact of a budget change.
+	 *
+	 * @param entity The current budget, not yet updated.
+	 * @param vo     The new budget data.
+	 * @return The impact on the related resources.
+	 */
+	public Impact getImpact(final ProvBudget entity, final BudgetEditionVo vo) {
+		return Double.compare(entity.getInitialCost(), vo.getInitialCost()) == 0 ? Impact.NONE : Impact.LOOKUP;
+	}
+
+	/**
+	 * Return the impact of an optimizer change.
+	 *
+	 * @param entity The current optimizer, not yet updated.
+	 * @param vo     The new optimizer data.
+	 * @return The impact on the related resources.
+	 */
+	public Impact getImpact(final ProvOptimizer entity, final OptimizerEditionVo vo) {
+		return entity.getMode() == vo.getMode() ? Impact.NONE : Impact.LOOKUP;
+	}
+
+	/**
+	 * Return <code>true</code> when the flags differ. A <code>null</code> flag is <code>false</code> for the lookups.
+	 */
+	private boolean isChanged(final Boolean current, final Boolean value) {
+		return BooleanUtils.toBoolean(current) != BooleanUtils.toBoolean(value);
+	}
+}
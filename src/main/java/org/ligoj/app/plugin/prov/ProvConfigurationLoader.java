@@ -0,0 +1,240 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PreDestroy;
+
+import org.ligoj.bootstrap.resource.system.configuration.ConfigurationResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loader of the independent fragments of a quote configuration. When enabled, the fragments are loaded concurrently by
+ * a bounded pool, each one in its own read-only transaction: the loaded entities are not tracked for the dirty
+ * checking and the connections can be routed to a read replica. Otherwise, the fragments are loaded by the calling
+ * thread within its transaction.
+ * <p>
+ * The size and the load time of each fragment are logged, at <code>INFO</code> level when the whole load exceeds the
+ * configured threshold, at <code>DEBUG</code> level otherwise.
+ */
+@Component
+@Slf4j
+public class ProvConfigurationLoader {
+
+	/**
+	 * Configuration key enabling the concurrent load of the fragments. When value is <code>1</code>, the fragments are
+	 * loaded concurrently in read-only transactions. Disabled by default: these transactions do not see the changes not
+	 * yet committed by the calling transaction, such as a configuration exported within the transaction editing it, and
+	 * each load holds up to {@link #CONF_THREADS} more database connections.
+	 */
+	public static final String CONF_PARALLEL = ProvResource.SERVICE_KEY + ":configuration-parallel";
+
+	/**
+	 * Configuration key of the amount of threads loading the fragments.
+	 */
+	public static final String CONF_THREADS = ProvResource.SERVICE_KEY + ":configuration-threads";
+
+	/**
+	 * Default amount of threads loading the fragments.
+	 */
+	public static final int DEFAULT_THREADS = 4;
+
+	/**
+	 * Configuration key of the load time in milliseconds above which the fragments are reported at <code>INFO</code>
+	 * level.
+	 */
+	public static final String CONF_SLOW = ProvResource.SERVICE_KEY + ":configuration-slow";
+
+	/**
+	 * Default load time in milliseconds above which the fragments are reported at <code>INFO</code> level.
+	 */
+	public static final int DEFAULT_SLOW = 1000;
+
+	@Autowired
+	protected ConfigurationResource configuration;
+
+	@Autowired
+	protected PlatformTransactionManager transactionManager;
+
+	private ExecutorService executor;
+
+	/**
+	 * A loaded fragment.
+	 *
+	 * @param name     The fragment name.
+	 * @param size     The amount of loaded items.
+	 * @param duration The load time in milliseconds.
+	 */
+	public record Fragment(String name, int size, long duration) {
+		@Override
+		public String toString() {
+			return name + "=" + size + " (" + duration + "ms)";
+		}
+	}
+
+	/**
+	 * The fragments of a single configuration load.
+	 */
+	public class Fragments {
+
+		private final long start = System.currentTimeMillis();
+
+		private final boolean parallel;
+
+		private final TransactionTemplate template;
+
+		private final List<Fragment> loaded = new ArrayList<>();
+
+		private Fragments(final boolean parallel) {
+			this.parallel = parallel;
+			this.template = parallel ? newReadOnlyTemplate() : null;
+		}
+
+		/**
+		 * Start the load of a fragment.
+		 *
+		 * @param <T>    The fragment type.
+		 * @param name   The fragment name used in the report.
+		 * @param loader The fragment loader. When executed concurrently, it must not use the entities attached to the
+		 *               calling transaction, but their identifiers. Its transaction is closed once the fragment is
+		 *               loaded: the lazy associations used afterward must be fetched by the loader.
+		 * @return The supplier of the loaded fragment, waiting for the load as needed.
+		 */
+		public <T> Supplier<T> add(final String name, final Supplier<T> loader) {
+			final Supplier<T> timed = () -> {
+				final var fStart = System.currentTimeMillis();
+				final var result = loader.get();
+				final var fragment = new Fragment(name, sizeOf(result), System.currentTimeMillis() - fStart);
+				synchronized (loaded) {
+					loaded.add(fragment);
+				}
+				return result;
+			};
+			if (!parallel) {
+				final var result = timed.get();
+				return () -> result;
+			}
+			final var future = CompletableFuture.supplyAsync(() -> template.execute(s -> timed.get()), getExecutor());
+			return () -> join(future);
+		}
+
+		/**
+		 * Return the loaded fragments.
+		 *
+		 * @return The loaded fragments, in completion order.
+		 */
+		public List<Fragment> getLoaded() {
+			synchronized (loaded) {
+				return List.copyOf(loaded);
+			}
+		}
+
+		/**
+		 * Log the loaded fragments.
+		 *
+		 * @param subscription The subscription identifier of the loaded quote.
+		 */
+		public void report(final int subscription) {
+			final var duration = System.currentTimeMillis() - start;
+			final var fragments = getLoaded().stream().map(Fragment::toString).collect(Collectors.joining(", "));
+			if (duration >= configuration.get(CONF_SLOW, DEFAULT_SLOW)) {
+				log.info("Slow configuration load of subscription {} in {}ms: {}", subscription, duration, fragments);
+			} else {
+				log.debug("Configuration of subscription {} loaded in {}ms: {}", subscription, duration, fragments);
+			}
+		}
+	}
+
+	/**
+	 * Start a new configuration load.
+	 *
+	 * @return The new fragments holder.
+	 */
+	public Fragments newFragments() {
+		return new Fragments(configuration.get(CONF_PARALLEL, 0) == 1);
+	}
+
+	private TransactionTemplate newReadOnlyTemplate() {
+		final var template = new TransactionTemplate(transactionManager);
+		template.setReadOnly(true);
+		template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		return template;
+	}
+
+	private static int sizeOf(final Object result) {
+		if (result instanceof Collection<?> c) {
+			return c.size();
+		}
+		if (result instanceof Map<?, ?> m) {
+			return m.values().stream().mapToInt(ProvConfigurationLoader::sizeOf).sum();
+		}
+		return result == null ? 0 : 1;
+	}
+
+	private static <T> T join(final CompletableFuture<T> future) {
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Configuration load has been interrupted", e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException re) {
+				// Keep the business exceptions as is
+				throw re;
+			}
+			throw new IllegalStateException("Configuration load failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Return the shared executor of the fragment loads. The idle threads are released.
+	 *
+	 * @return The shared executor of the fragment loads.
+	 */
+	protected synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			final var counter = new AtomicInteger();
+			final var threads = Math.max(1, configuration.get(CONF_THREADS, DEFAULT_THREADS));
+			final var pool = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+					r -> {
+						final var thread = new Thread(r, "prov-configuration-" + counter.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					});
+			pool.allowCoreThreadTimeOut(true);
+			executor = pool;
+		}
+		return executor;
+	}
+
+	/**
+	 * Stop the shared executor.
+	 */
+	@PreDestroy
+	public synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.cache.annotation.CacheKey;
+import javax.cache.annotation.CacheRemove;
+import javax.cache.annotation.CacheResult;
+
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Memoized lookup results. The cached entries are keyed by the canonical signature of the requirements, the resolved
+ * profiles and the stamps of the catalog and of the quote. Only the price identifier and the computed costs are
+ * stored, never the price entity.
+ */
+@Component
+@Slf4j
+public class ProvLookupCache {
+
+	/**
+	 * Amount of lookups requested to this cache.
+	 */
+	private final AtomicLong requests = new AtomicLong();
+
+	/**
+	 * Amount of lookups not found in this cache.
+	 */
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Return the lookup result from the cache or compute it.
+	 *
+	 * @param key    The canonical key of the lookup.
+	 * @param lookup The actual lookup, called on cache miss.
+	 * @return The raw lookup result where the first item is the price identifier. May be <code>null</code>.
+	 */
+	@CacheResult(cacheName = "prov-lookup")
+	public Object[] lookup(@CacheKey final List<Object> key, final Supplier<Object[]> lookup) {
+		misses.incrementAndGet();
+		return lookup.get();
+	}
+
+	/**
+	 * Count a lookup request before calling the cache.
+	 */
+	public void request() {
+		requests.incrementAndGet();
+	}
+
+	/**
+	 * Return the stamp of the profiles of the given quote. This stamp changes each time the cached entry is evicted.
+	 *
+	 * @param quote The quote identifier.
+	 * @return The current stamp of the quote.
+	 */
+	@CacheResult(cacheName = "prov-lookup-quote")
+	public long getStamp(@CacheKey final int quote) {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Invalidate the lookups of the given quote.
+	 *
+	 * @param quote The quote identifier.
+	 */
+	@CacheRemove(cacheName = "prov-lookup-quote")
+	public void invalidate(@CacheKey final int quote) {
+		log.debug("Invalidate lookups of quote {}", quote);
+	}
+
+	/**
+	 * Return the hit and miss counters of this cache.
+	 *
+	 * @return The counters: <code>requests</code>, <code>hits</code> and <code>misses</code>.
+	 */
+	public Map<String, Long> getStatistics() {
+		final var missed = misses.get();
+		final var requested = Math.max(requests.get(), missed);
+		return Map.of("requests", requested, "hits", requested - missed, "misses", missed);
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A destination of the provisioning metrics. Every bean implementing this interface receives the measures recorded by
+ * {@link ProvMetrics}, so a host application can bridge them to its own monitoring system. The tags are given as
+ * key/value pairs.
+ */
+public interface ProvMeterRegistry {
+
+	/**
+	 * Record a duration.
+	 *
+	 * @param name  The meter name.
+	 * @param nanos The elapsed time in nanoseconds.
+	 * @param tags  The key/value pairs of tags.
+	 */
+	void timer(String name, long nanos, String... tags);
+
+	/**
+	 * Record an amount in a distribution.
+	 *
+	 * @param name   The meter name.
+	 * @param amount The recorded amount.
+	 * @param tags   The key/value pairs of tags.
+	 */
+	void summary(String name, double amount, String... tags);
+
+	/**
+	 * Increment a counter.
+	 *
+	 * @param name   The meter name.
+	 * @param amount The increment.
+	 * @param tags   The key/value pairs of tags.
+	 */
+	void counter(String name, double amount, String... tags);
+
+	/**
+	 * Register a value evaluated on each read.
+	 *
+	 * @param name  The meter name.
+	 * @param value The value supplier.
+	 * @param tags  The key/value pairs of tags.
+	 */
+	void gauge(String name, DoubleSupplier value, String... tags);
+}
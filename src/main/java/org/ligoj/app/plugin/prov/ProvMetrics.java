@@ -0,0 +1,98 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Metrics of the provisioning hot paths: lookups, budget packing, catalog imports, uploads and caches. The measures
+ * are forwarded to all available {@link ProvMeterRegistry} beans.
+ */
+@Service
+@Path(ProvResource.SERVICE_URL)
+@Produces(MediaType.APPLICATION_JSON)
+public class ProvMetrics {
+
+	@Autowired(required = false)
+	private List<ProvMeterRegistry> registries = Collections.emptyList();
+
+	@Autowired(required = false)
+	private ProvSimpleMeterRegistry simple;
+
+	/**
+	 * Return the current state of the in-memory meters.
+	 *
+	 * @return The current state of the in-memory meters, ordered by name.
+	 */
+	@GET
+	@Path("metrics")
+	public List<MeterVo> findAll() {
+		return simple == null ? Collections.emptyList() : simple.snapshot();
+	}
+
+	/**
+	 * Record the elapsed time since the given start.
+	 *
+	 * @param name  The meter name.
+	 * @param start The start time given by {@link System#nanoTime()}.
+	 * @param tags  The key/value pairs of tags.
+	 */
+	public void since(final String name, final long start, final String... tags) {
+		timer(name, System.nanoTime() - start, tags);
+	}
+
+	/**
+	 * Record a duration.
+	 *
+	 * @param name  The meter name.
+	 * @param nanos The elapsed time in nanoseconds.
+	 * @param tags  The key/value pairs of tags.
+	 */
+	public void timer(final String name, final long nanos, final String... tags) {
+		registries.forEach(r -> r.timer(name, nanos, tags));
+	}
+
+	/**
+	 * Record an amount in a distribution.
+	 *
+	 * @param name   The meter name.
+	 * @param amount The recorded amount.
+	 * @param tags   The key/value pairs of tags.
+	 */
+	public void summary(final String name, final double amount, final String... tags) {
+		registries.forEach(r -> r.summary(name, amount, tags));
+	}
+
+	/**
+	 * Increment a counter.
+	 *
+	 * @param name   The meter name.
+	 * @param amount The increment.
+	 * @param tags   The key/value pairs of tags.
+	 */
+	public void counter(final String name, final double amount, final String... tags) {
+		registries.forEach(r -> r.counter(name, amount, tags));
+	}
+
+	/**
+	 * Register a value evaluated on each read.
+	 *
+	 * @param name  The meter name.
+	 * @param value The value supplier.
+	 * @param tags  The key/value pairs of tags.
+	 */
+	public void gauge(final String name, final DoubleSupplier value, final String... tags) {
+		registries.forEach(r -> r.gauge(name, value, tags));
+	}
+}
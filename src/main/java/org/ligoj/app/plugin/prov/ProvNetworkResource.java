@@ -47,6 +47,12 @@ public class ProvNetworkResource extends AbstractLazyResource {
 	@Autowired
 	private ProvNetworkRepository repository;
 
+	@Autowired
+	private ProvQuoteLock quoteLock;
+
+	@Autowired
+	private ProvQuoteChanges changes;
+
 	/**
 	 * Return the network relationships available for a subscription.
 	 *
@@ -184,7 +190,9 @@ public class ProvNetworkResource extends AbstractLazyResource {
 	private ProvQuote deleteAll(final int subscription) {
 		// First delete all IO of this subscription
 		final var quote = resource.getQuoteFromSubscription(subscription);
+		quoteLock.lock(quote);
 		repository.deleteAll(quote.getId());
+		changes.changed(quote);
 		return quote;
 	}
 
@@ -205,6 +213,7 @@ public class ProvNetworkResource extends AbstractLazyResource {
 			@PathParam("id") final int id, final List<NetworkVo> io) {
 		// Check the associations and copy attributes to the entity
 		var related = resource.findConfigured(getRepository(type), id, subscription);
+		quoteLock.lock(related.getConfiguration());
 
 		onDelete(type, id);
 		io.stream().map(t -> {
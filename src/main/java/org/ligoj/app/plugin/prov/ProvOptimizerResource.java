@@ -39,9 +39,11 @@ public class ProvOptimizerResource extends AbstractMultiScopedResource<ProvOptim
 
 	@Override
 	protected UpdatedCost saveOrUpdate(final ProvOptimizer entity, final OptimizerEditionVo vo) {
+		final var impact = impactAnalyzer.getImpact(entity, vo);
+
 		// Check the associations and copy attributes to the entity
 		entity.setMode(vo.getMode());
-		return super.saveOrUpdateInternal(entity, vo);
+		return super.saveOrUpdateInternal(entity, vo, r -> impact);
 
 	}
 
@@ -0,0 +1,216 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.cache.annotation.CacheKey;
+import javax.cache.annotation.CacheRemove;
+import javax.cache.annotation.CacheResult;
+
+import org.ligoj.app.plugin.prov.model.ResourceType;
+import org.ligoj.bootstrap.resource.system.configuration.ConfigurationResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceContextType;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory price indexes, one per node and resource type, and one storage index per node. An index is built on the
+ * first lookup and rebuilt when the catalog stamp of its node changes, either after a catalog update or a cache
+ * eviction.
+ */
+@Component
+@Slf4j
+public class ProvPriceIndex {
+
+	/**
+	 * Configuration key used to enable the in-memory price lookups. When value is <code>0</code>, the lookups are
+	 * performed by the database.
+	 */
+	public static final String USE_INDEX = ProvResource.SERVICE_KEY + ":use-index";
+
+	@PersistenceContext(type = PersistenceContextType.TRANSACTION, unitName = "pu")
+	protected EntityManager em;
+
+	@Autowired
+	protected ConfigurationResource configuration;
+
+	@Autowired
+	private ProvPriceIndex self;
+
+	/**
+	 * Built indexes by node and resource type.
+	 */
+	private final Map<String, PriceIndex> indexes = new ConcurrentHashMap<>();
+
+	/**
+	 * Built storage indexes by refined node.
+	 */
+	private final Map<String, StoragePriceIndex> storages = new ConcurrentHashMap<>();
+
+	/**
+	 * Indicate the in-memory price lookups are enabled.
+	 *
+	 * @return <code>true</code> when the in-memory price lookups are enabled.
+	 * @see #USE_INDEX
+	 */
+	public boolean isEnabled() {
+		return configuration.get(USE_INDEX, 1) == 1;
+	}
+
+	/**
+	 * Return the catalog stamp of the given node. This stamp is shared by all the cluster members and changes each
+	 * time the cached entry is evicted.
+	 *
+	 * @param node The node identifier.
+	 * @return The current catalog stamp.
+	 */
+	@CacheResult(cacheName = "prov-price-index")
+	public long getStamp(@CacheKey final String node) {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Invalidate the catalog stamp of the given node.
+	 *
+	 * @param node The node identifier.
+	 */
+	@CacheRemove(cacheName = "prov-price-index")
+	public void invalidate(@CacheKey final String node) {
+		log.info("Invalidate price indexes of {}", node);
+	}
+
+	/**
+	 * Invalidate and rebuild the already built indexes of the given node.
+	 *
+	 * @param node The node identifier.
+	 */
+	public void refresh(final String node) {
+		self.invalidate(node);
+		final var stamp = self.getStamp(node);
+		for (final var type : ResourceType.values()) {
+			if (indexes.containsKey(toKey(node, type))) {
+				build(node, type, stamp);
+			}
+		}
+		storages.keySet().stream().filter(n -> n.startsWith(node)).toList().forEach(n -> buildStorage(n, stamp));
+	}
+
+	/**
+	 * Return the up-to-date index of the given node and resource type.
+	 *
+	 * @param node The node identifier.
+	 * @param type The resource type.
+	 * @return The up-to-date index.
+	 */
+	public PriceIndex get(final String node, final ResourceType type) {
+		final var stamp = self.getStamp(node);
+		final var index = indexes.get(toKey(node, type));
+		if (index != null && index.getStamp() == stamp) {
+			return index;
+		}
+		synchronized (this) {
+			final var current = indexes.get(toKey(node, type));
+			if (current != null && current.getStamp() == stamp) {
+				return current;
+			}
+			return build(node, type, stamp);
+		}
+	}
+
+	/**
+	 * Return the up-to-date storage index of the given node. The storage types of this node and of its parents are
+	 * included.
+	 *
+	 * @param node The refined node identifier of the quote.
+	 * @param tool The tool node identifier holding the catalog stamp.
+	 * @return The up-to-date storage index.
+	 */
+	public StoragePriceIndex getStorage(final String node, final String tool) {
+		final var stamp = self.getStamp(tool);
+		final var index = storages.get(node);
+		if (index != null && index.getStamp() == stamp) {
+			return index;
+		}
+		synchronized (this) {
+			final var current = storages.get(node);
+			if (current != null && current.getStamp() == stamp) {
+				return current;
+			}
+			return buildStorage(node, stamp);
+		}
+	}
+
+	private String toKey(final String node, final ResourceType type) {
+		return node + "/" + type.name();
+	}
+
+	/**
+	 * Load the prices of a node and a resource type.
+	 */
+	private synchronized PriceIndex build(final String node, final ResourceType type, final long stamp) {
+		final var start = System.currentTimeMillis();
+		final var entity = switch (type) {
+		case DATABASE -> "ProvDatabasePrice";
+		case CONTAINER -> "ProvContainerPrice";
+		case FUNCTION -> "ProvFunctionPrice";
+		default -> "ProvInstancePrice";
+		};
+		final var specific = switch (type) {
+		case INSTANCE -> ", ip.os, ip.tenancy, ip.software";
+		case CONTAINER -> ", ip.os";
+		case DATABASE -> ", ip.engine, ip.edition";
+		case FUNCTION -> """
+				, ip.maxDuration, ip.minDuration, ip.incrementDuration, ip.costRequests, ip.costRamRequest,
+				ip.costRamRequestConcurrency, ip.co2Requests, ip.co2RamRequest, ip.co2RamRequestConcurrency""";
+		default -> "";
+		};
+		final var from = " FROM " + entity + " ip WHERE ip.type.node.id = :node AND ip.location IS NOT NULL";
+		final var count = em.createQuery("SELECT COUNT(ip.id)" + from, Long.class).setParameter("node", node)
+				.getSingleResult().intValue();
+		final var index = new PriceIndex(type, stamp, count);
+		final var rows = new int[1];
+		try (var stream = em
+				.createQuery("SELECT " + PriceIndex.COLUMNS + specific + from + " ORDER BY ip.location.id, ip.id",
+						Object[].class)
+				.setParameter("node", node).getResultStream()) {
+			stream.limit(count).forEach(rs -> index.set(rows[0]++, rs));
+		}
+		index.seal(rows[0]);
+		indexes.put(toKey(node, type), index);
+		log.info("Price index of {}/{} built with {} prices in {}ms", node, type, rows[0],
+				System.currentTimeMillis() - start);
+		return index;
+	}
+
+	/**
+	 * Load the storage prices of a node.
+	 */
+	private synchronized StoragePriceIndex buildStorage(final String node, final long stamp) {
+		final var start = System.currentTimeMillis();
+		final var from = """
+				 FROM ProvStoragePrice sp INNER JOIN sp.type st
+				 WHERE (:node = st.node.id OR :node LIKE CONCAT(st.node.id, '%')) AND sp.location IS NOT NULL""";
+		final var count = em.createQuery("SELECT COUNT(sp.id)" + from, Long.class).setParameter("node", node)
+				.getSingleResult().intValue();
+		final var index = new StoragePriceIndex(stamp, count);
+		final var rows = new int[1];
+		try (var stream = em
+				.createQuery("SELECT " + StoragePriceIndex.COLUMNS + from + " ORDER BY sp.location.id, sp.id",
+						Object[].class)
+				.setParameter("node", node).getResultStream()) {
+			stream.limit(count).forEach(rs -> index.set(rows[0]++, rs));
+		}
+		index.seal(rows[0]);
+		storages.put(node, index);
+		log.info("Storage price index of {} built with {} prices in {}ms", node, rows[0],
+				System.currentTimeMillis() - start);
+		return index;
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceContextType;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+
+import org.apache.commons.collections4.ListUtils;
+import org.ligoj.app.plugin.prov.dao.ProvQuoteChangeRepository;
+import org.ligoj.app.plugin.prov.model.ProvQuote;
+import org.ligoj.app.plugin.prov.model.ProvQuoteChange;
+import org.ligoj.app.plugin.prov.model.ProvQuoteChangeListener;
+import org.ligoj.app.plugin.prov.model.ProvQuoteJournal;
+import org.ligoj.app.plugin.prov.model.ResourceType;
+import org.ligoj.bootstrap.resource.system.configuration.ConfigurationResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Change feed of the quotes. The resources saved or deleted by a transaction holding the {@link ProvQuoteLock} of a
+ * quote are journaled by the {@link ProvQuoteChangeListener}, and written before the commit with the new revision of
+ * the quote. Only the last change of each resource is kept, and the deletions are kept for the configured amount of
+ * revisions.
+ */
+@Service
+@Path(ProvResource.SERVICE_URL)
+@Produces(MediaType.APPLICATION_JSON)
+@Transactional
+public class ProvQuoteChanges {
+
+	/**
+	 * Configuration key of the amount of revisions the deletions are kept.
+	 */
+	public static final String RETENTION = ProvResource.SERVICE_KEY + ":changes-retention";
+
+	/**
+	 * Default amount of revisions the deletions are kept.
+	 */
+	public static final int DEFAULT_RETENTION = 100;
+
+	/**
+	 * Maximal amount of resources in a single delete query.
+	 */
+	private static final int CHUNK = 1000;
+
+	@Autowired
+	private ProvResource resource;
+
+	@Autowired
+	private ProvQuoteChangeRepository repository;
+
+	@Autowired
+	private ProvTagResource tagResource;
+
+	@Autowired
+	private ProvRefreshEngine refreshEngine;
+
+	@Autowired
+	private ProvQuoteSummaryResource summaries;
+
+	@Autowired
+	protected ConfigurationResource configuration;
+
+	@PersistenceContext(type = PersistenceContextType.TRANSACTION, unitName = "pu")
+	protected EntityManager em;
+
+	/**
+	 * Start the journaling of the given quote until the end of the current transaction. Called once the edition lock
+	 * of the quote is held. The changes journaled before are kept.
+	 *
+	 * @param quote The edited quote.
+	 */
+	public void open(final ProvQuote quote) {
+		final var journals = ProvQuoteJournal.getJournals();
+		if (journals == null) {
+			return;
+		}
+		journals.computeIfAbsent(quote.getId(), q -> new ProvQuoteJournal()).setQuote(quote);
+		if (!journals.isWriting()) {
+			journals.setWriting(true);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void beforeCommit(final boolean readOnly) {
+					write(journals);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Journal the deletion of resources not notified to the entity listeners, such as bulk deletions.
+	 *
+	 * @param quote     The quote owning the resources.
+	 * @param type      The resource type.
+	 * @param resources The deleted resource identifiers.
+	 */
+	public void deleted(final ProvQuote quote, final ResourceType type, final Collection<Integer> resources) {
+		Optional.ofNullable(ProvQuoteJournal.get(quote.getId()))
+				.ifPresent(j -> resources.forEach(r -> j.record(type, r, true)));
+	}
+
+	/**
+	 * Journal a change of the quote's profiles or networks not notified to the entity listeners, such as bulk
+	 * deletions.
+	 *
+	 * @param quote The changed quote.
+	 */
+	public void changed(final ProvQuote quote) {
+		Optional.ofNullable(ProvQuoteJournal.get(quote.getId())).ifPresent(j -> j.setGlobal(true));
+	}
+
+	/**
+	 * Write the journaled changes of the locked quotes with their new revision. The summary of the edited quotes is
+	 * created as needed, and computed on the next read.
+	 */
+	private void write(final ProvQuoteJournal.Journals journals) {
+		// Journal the pending changes
+		em.flush();
+		final var retention = configuration.get(RETENTION, DEFAULT_RETENTION);
+		journals.values().stream().filter(j -> j.getQuote() != null).forEach(j -> {
+			// The quote may have been detached by a cleared persistence context, such as by a chunked upload
+			final var quote = em.contains(j.getQuote()) ? j.getQuote() : em.find(ProvQuote.class, j.getQuote().getId());
+			if (quote == null) {
+				// Deleted quote
+				return;
+			}
+			final var changes = new ArrayList<ProvQuoteChange>();
+			j.getResources().forEach((type, resources) -> {
+				ListUtils.partition(new ArrayList<>(resources.keySet()), CHUNK)
+						.forEach(ids -> repository.deleteAll(quote, type, ids));
+				resources.forEach((id, deleted) -> changes.add(newChange(quote, type, id, deleted)));
+			});
+			if (j.isGlobal()) {
+				repository.deleteAllGlobal(quote);
+				changes.add(newChange(quote, null, null, false));
+			}
+			repository.purge(quote, quote.getRevision() - retention);
+			refreshEngine.persist(changes, c -> {
+				em.persist(c);
+				return c;
+			});
+			summaries.create(quote);
+		});
+		journals.clear();
+	}
+
+	private ProvQuoteChange newChange(final ProvQuote quote, final ResourceType type, final Integer resource,
+			final boolean deleted) {
+		final var change = new ProvQuoteChange();
+		change.setConfiguration(quote);
+		change.setRevision(quote.getRevision());
+		change.setType(type);
+		change.setResource(resource);
+		change.setDeleted(deleted);
+		return change;
+	}
+
+	/**
+	 * Return the resources added, updated or deleted after the given revision, the tags of the updated resources and
+	 * the new total cost. When the changes cannot be described by the resources, such as a change of the profiles, the
+	 * tags or the networks, or when the revision is older than the retention, only the reload flag is returned and the
+	 * whole configuration has to be loaded.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param since        The revision held by the client.
+	 * @return The changes after the given revision.
+	 */
+	@GET
+	@Path("{subscription:\\d+}/changes")
+	public QuoteChangesVo findChanges(@PathParam("subscription") final int subscription,
+			@QueryParam("since") final long since) {
+		final var quote = resource.getQuoteFromSubscription(subscription);
+		final var vo = new QuoteChangesVo();
+		vo.setRevision(quote.getRevision());
+		vo.setTotal(quote.toFloating());
+		if (since >= quote.getRevision()) {
+			// Up to date
+			return vo;
+		}
+		final var changes = repository.findAllSince(quote, since);
+		if (since < quote.getRevision() - configuration.get(RETENTION, DEFAULT_RETENTION)
+				|| changes.stream().anyMatch(c -> c.getType() == null)) {
+			vo.setReload(true);
+			return vo;
+		}
+		final var updated = new EnumMap<ResourceType, List<Integer>>(ResourceType.class);
+		changes.forEach(c -> (c.isDeleted() ? vo.getDeleted() : updated)
+				.computeIfAbsent(c.getType(), t -> new ArrayList<>()).add(c.getResource()));
+		updated.forEach((type, ids) -> vo.getUpdated().put(type,
+				new ArrayList<>(resource.getResource(type).getQiRepository().findAllById(ids))));
+		if (!updated.isEmpty()) {
+			// Tags of the updated resources
+			tagResource.findAll(quote).forEach((type, tags) -> {
+				final var ids = new HashSet<>(updated.getOrDefault(type, List.of()));
+				tags.keySet().retainAll(ids);
+				if (!tags.isEmpty()) {
+					vo.getTags().put(type, tags);
+				}
+			});
+		}
+		return vo;
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceContextType;
+
+import org.ligoj.app.plugin.prov.model.ProvQuote;
+import org.ligoj.bootstrap.core.resource.BusinessException;
+import org.ligoj.bootstrap.resource.system.cache.CacheManagerAware;
+import org.ligoj.bootstrap.resource.system.configuration.ConfigurationResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.hazelcast.cache.HazelcastCacheManager;
+import com.hazelcast.config.CacheConfig;
+import com.hazelcast.map.IMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serialize the edits of a quote, so of a subscription, across the cluster. The lock of a quote is taken before the
+ * first change of its running totals and held until the end of the transaction, so two concurrent edits of the same
+ * quote apply their deltas one after the other, while the edits of distinct quotes never wait for each other.
+ * <p>
+ * The locks are held by a distributed map of the Hazelcast instance of the cache manager, partitioned by quote. Without
+ * this instance, local fair locks striped by quote are used. The distributed locks are not fair: a waiting edition may
+ * be overtaken by a later one, so only the timeout bounds its wait. The counters are exposed by
+ * {@link ProvResource#getLockStatistics()}.
+ */
+@Component
+@Slf4j
+public class ProvQuoteLock implements CacheManagerAware {
+
+	/**
+	 * Configuration key of the maximal time in milliseconds to wait for the lock of a quote.
+	 */
+	public static final String TIMEOUT = ProvResource.SERVICE_KEY + ":lock-timeout";
+
+	/**
+	 * Default maximal time in milliseconds to wait for the lock of a quote.
+	 */
+	public static final int DEFAULT_TIMEOUT = 30000;
+
+	/**
+	 * Amount of local locks.
+	 */
+	private static final int STRIPES = 64;
+
+	/**
+	 * Local fair locks, used without Hazelcast instance.
+	 */
+	private final Lock[] stripes = IntStream.range(0, STRIPES).mapToObj(i -> new ReentrantLock(true))
+			.toArray(Lock[]::new);
+
+	/**
+	 * Distributed locks by quote identifier. <code>null</code> until the cache manager is created.
+	 */
+	private volatile IMap<Integer, Boolean> locks;
+
+	/**
+	 * Amount of acquired locks.
+	 */
+	private final AtomicLong acquisitions = new AtomicLong();
+
+	/**
+	 * Amount of acquisitions having waited for another edition.
+	 */
+	private final AtomicLong contentions = new AtomicLong();
+
+	/**
+	 * Amount of acquisitions given up after the timeout.
+	 */
+	private final AtomicLong timeouts = new AtomicLong();
+
+	/**
+	 * Cumulated wait time in nanoseconds.
+	 */
+	private final AtomicLong waitTime = new AtomicLong();
+
+	@Autowired
+	protected ConfigurationResource configuration;
+
+	@Autowired
+	private ProvQuoteChanges changes;
+
+	@PersistenceContext(type = PersistenceContextType.TRANSACTION, unitName = "pu")
+	protected EntityManager em;
+
+	@Override
+	public void onCreate(final HazelcastCacheManager cacheManager, final Function<String, CacheConfig<?, ?>> provider) {
+		locks = cacheManager.getHazelcastInstance().getMap("prov-quote-lock");
+	}
+
+	/**
+	 * Lock the given quote until the end of the current transaction, reload its running totals from the database and
+	 * increment its revision. The changes of the quote made by this transaction are journaled by
+	 * {@link ProvQuoteChanges}.
+	 * Nothing is done when the lock is already held by the current transaction, or outside a transaction such as in
+	 * the worker threads of a parallel refresh: their caller holds the lock.
+	 *
+	 * @param quote The quote to lock.
+	 */
+	public void lock(final ProvQuote quote) {
+		if (quote.getId() == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+			return;
+		}
+		final var key = "prov-quote-lock:" + quote.getId();
+		if (TransactionSynchronizationManager.hasResource(key)) {
+			return;
+		}
+		final var unlock = acquire(quote.getId());
+		TransactionSynchronizationManager.bindResource(key, unlock);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(final int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(key);
+				unlock.run();
+			}
+		});
+
+		// Journal the changes, including the ones flushed by the reload
+		changes.open(quote);
+		reload(quote);
+	}
+
+	/**
+	 * Acquire the lock of the given quote, waiting at most the configured timeout.
+	 *
+	 * @param quote The quote identifier.
+	 * @return The action releasing the acquired lock. Must be called by the same thread.
+	 */
+	Runnable acquire(final int quote) {
+		final var start = System.nanoTime();
+		final var map = locks;
+		final Runnable unlock;
+		boolean acquired;
+		try {
+			if (map == null) {
+				final var lock = stripes[Math.floorMod(quote, STRIPES)];
+				acquired = lock.tryLock(0, TimeUnit.MILLISECONDS) || await(lock::tryLock);
+				unlock = lock::unlock;
+			} else {
+				acquired = map.tryLock(quote) || await((t, u) -> map.tryLock(quote, t, u));
+				unlock = () -> map.unlock(quote);
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw timeout(quote);
+		} finally {
+			waitTime.addAndGet(System.nanoTime() - start);
+		}
+		if (!acquired) {
+			throw timeout(quote);
+		}
+		acquisitions.incrementAndGet();
+		return unlock;
+	}
+
+	/**
+	 * A timed lock acquisition.
+	 */
+	@FunctionalInterface
+	private interface TimedLock {
+		boolean tryLock(long time, TimeUnit unit) throws InterruptedException;
+	}
+
+	/**
+	 * Wait for a lock held by another edition.
+	 */
+	private boolean await(final TimedLock lock) throws InterruptedException {
+		contentions.incrementAndGet();
+		return lock.tryLock(configuration.get(TIMEOUT, DEFAULT_TIMEOUT), TimeUnit.MILLISECONDS);
+	}
+
+	private BusinessException timeout(final int quote) {
+		timeouts.incrementAndGet();
+		log.warn("Timeout while waiting for the edition lock of quote {}", quote);
+		return new BusinessException("concurrent-edition", quote);
+	}
+
+	/**
+	 * Reload the running totals of the quote, they may have been updated by the previous lock owner. The revision is
+	 * incremented from the reloaded one.
+	 */
+	private void reload(final ProvQuote quote) {
+		final var totals = em.createQuery("SELECT q.cost, q.maxCost, q.costNoSupport, q.maxCostNoSupport,"
+				+ " q.costSupport, q.maxCostSupport, q.initialCost, q.maxInitialCost, q.co2, q.maxCo2,"
+				+ " q.unboundCostCounter, q.revision FROM ProvQuote q WHERE q.id = :id", Object[].class)
+				.setParameter("id", quote.getId()).setLockMode(LockModeType.PESSIMISTIC_WRITE).getSingleResult();
+		quote.setCost((Double) totals[0]);
+		quote.setMaxCost((Double) totals[1]);
+		quote.setCostNoSupport((Double) totals[2]);
+		quote.setMaxCostNoSupport((Double) totals[3]);
+		quote.setCostSupport((Double) totals[4]);
+		quote.setMaxCostSupport((Double) totals[5]);
+		quote.setInitialCost((Double) totals[6]);
+		quote.setMaxInitialCost((Double) totals[7]);
+		quote.setCo2((Double) totals[8]);
+		quote.setMaxCo2((Double) totals[9]);
+		quote.setUnboundCostCounter((Integer) totals[10]);
+		quote.setRevision((Long) totals[11] + 1);
+	}
+
+	/**
+	 * Return the lock counters of this node.
+	 *
+	 * @return The counters: <code>acquisitions</code>, <code>contentions</code>, <code>timeouts</code> and
+	 *         <code>wait</code>, the cumulated wait time in milliseconds.
+	 */
+	public Map<String, Long> getStatistics() {
+		return Map.of("acquisitions", acquisitions.get(), "contentions", contentions.get(), "timeouts", timeouts.get(),
+				"wait", TimeUnit.NANOSECONDS.toMillis(waitTime.get()));
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+
+import org.apache.commons.collections4.ListUtils;
+import org.ligoj.app.plugin.prov.dao.ProvQuoteChangeRepository;
+import org.ligoj.app.plugin.prov.dao.ProvQuoteRepository;
+import org.ligoj.app.plugin.prov.dao.ProvQuoteSummaryRepository;
+import org.ligoj.app.plugin.prov.model.ProvCurrency;
+import org.ligoj.app.plugin.prov.model.ProvLocation;
+import org.ligoj.app.plugin.prov.model.ProvQuote;
+import org.ligoj.app.plugin.prov.model.ProvQuoteSummary;
+import org.ligoj.app.plugin.prov.model.ResourceType;
+import org.ligoj.app.resource.subscription.SubscriptionResource;
+import org.ligoj.bootstrap.resource.system.configuration.ConfigurationResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Materialized resource summary of the quotes. The summary of a quote is created by the first transaction editing it,
+ * without any computation on the commit path. A summary not matching the current revision of its quote is computed on
+ * read: only the parts related to the resource types journaled by {@link ProvQuoteChanges} since its revision are
+ * computed again.
+ */
+@Service
+@Path(ProvResource.SERVICE_URL)
+@Produces(MediaType.APPLICATION_JSON)
+@Transactional
+public class ProvQuoteSummaryResource {
+
+	/**
+	 * Maximal amount of subscriptions in a single query.
+	 */
+	private static final int CHUNK = 1000;
+
+	@Autowired
+	private ProvQuoteSummaryRepository repository;
+
+	@Autowired
+	private ProvQuoteRepository quoteRepository;
+
+	@Autowired
+	private ProvQuoteChangeRepository changeRepository;
+
+	@Autowired
+	private ConfigurationResource configuration;
+
+	@Autowired
+	private SubscriptionResource subscriptionResource;
+
+	/**
+	 * Return the quote status (summary only) of each given subscription.
+	 *
+	 * @param subscriptions The subscription identifiers.
+	 * @return The quote status by subscription identifier. The subscriptions without quote are not returned.
+	 */
+	@GET
+	@Path("summary")
+	public Map<Integer, QuoteLightVo> findAll(@QueryParam("subscription") final List<Integer> subscriptions) {
+		final var ids = subscriptions.stream().distinct().toList();
+		ids.forEach(subscriptionResource::checkVisible);
+		return findAllInternal(ids);
+	}
+
+	/**
+	 * Return the quote status (summary only) of each given subscription. Visibility of the subscriptions is not
+	 * checked.
+	 *
+	 * @param subscriptions The subscription identifiers.
+	 * @return The quote status by subscription identifier. The subscriptions without quote are not returned.
+	 */
+	public Map<Integer, QuoteLightVo> findAllInternal(final List<Integer> subscriptions) {
+		final var result = new LinkedHashMap<Integer, QuoteLightVo>();
+		ListUtils.partition(subscriptions, CHUNK).forEach(ids -> repository.findAllBySubscription(ids).forEach(rs -> {
+			final var subscription = (Integer) rs[0];
+			final var vo = new QuoteLightVo();
+			vo.setId((Integer) rs[1]);
+			vo.setName((String) rs[2]);
+			vo.setDescription((String) rs[3]);
+			vo.setCost(new Floating((Double) rs[4], (Double) rs[5], (Double) rs[6], (Double) rs[7], (Integer) rs[8] > 0,
+					(Double) rs[9], (Double) rs[10]));
+			vo.setLocation((ProvLocation) rs[11]);
+			vo.setCurrency((ProvCurrency) rs[12]);
+			toVo(Optional.ofNullable((ProvQuoteSummary) rs[13])
+					.orElseGet(() -> refresh((Integer) rs[1], subscription, (Long) rs[14])), vo);
+			result.put(subscription, vo);
+		}));
+		return result;
+	}
+
+	/**
+	 * Copy the summary to the quote status.
+	 */
+	private void toVo(final ProvQuoteSummary summary, final QuoteLightVo vo) {
+		vo.setNbInstances(summary.getNbInstances());
+		vo.setNbDatabases(summary.getNbDatabases());
+		vo.setNbContainers(summary.getNbContainers());
+		vo.setNbFunctions(summary.getNbFunctions());
+		vo.setNbStorages(summary.getNbStorages());
+		vo.setTotalCpu(summary.getInstanceCpu() + summary.getDatabaseCpu() + summary.getContainerCpu());
+		vo.setTotalGpu(summary.getInstanceGpu() + summary.getDatabaseGpu() + summary.getContainerGpu());
+		vo.setTotalRam(summary.getInstanceRam() + summary.getDatabaseRam() + summary.getContainerRam());
+		vo.setNbPublicAccess(summary.getInstancePublicAccess() + summary.getDatabasePublicAccess()
+				+ summary.getContainerPublicAccess());
+		vo.setTotalStorage(summary.getTotalStorage());
+	}
+
+	/**
+	 * Compute the whole summary of the quote of a subscription from its resources. The result is not persisted.
+	 */
+	private ProvQuoteSummary compute(final int subscription) {
+		final var summary = new ProvQuoteSummary();
+		compute(summary, subscription, EnumSet.allOf(ResourceType.class));
+		return summary;
+	}
+
+	/**
+	 * Compute the summary of a quote for its current revision. When the summary exists, only the parts impacted by the
+	 * resource types changed since its revision are computed again, and the result is persisted.
+	 */
+	private ProvQuoteSummary refresh(final int quote, final int subscription, final long revision) {
+		final var summary = repository.findBy("configuration.id", quote);
+		if (summary == null) {
+			// Not yet edited quote
+			return compute(subscription);
+		}
+		compute(summary, subscription, getChangedTypes(quote, summary.getRevision(), revision));
+		summary.setRevision(revision);
+		return summary;
+	}
+
+	/**
+	 * Return the resource types changed since the given revision. All types are returned when the journal does not
+	 * cover this revision or when the changes are global.
+	 */
+	private Collection<ResourceType> getChangedTypes(final int quote, final long since, final long revision) {
+		final var retention = configuration.get(ProvQuoteChanges.RETENTION, ProvQuoteChanges.DEFAULT_RETENTION);
+		if (since < 0 || since < revision - retention) {
+			// Never computed or no more covered by the journal
+			return EnumSet.allOf(ResourceType.class);
+		}
+		final var types = changeRepository.findAllTypesSince(quote, since);
+		return types.contains(null) ? EnumSet.allOf(ResourceType.class) : types;
+	}
+
+	/**
+	 * Compute the parts of a summary impacted by the changes of the given resource types.
+	 */
+	private void compute(final ProvQuoteSummary summary, final int subscription, final Collection<ResourceType> types) {
+		if (types.contains(ResourceType.INSTANCE)) {
+			final var compute = quoteRepository.getComputeSummary(subscription).get(0);
+			summary.setNbInstances(((Long) compute[1]).intValue());
+			summary.setInstanceCpu((Double) compute[2]);
+			summary.setInstanceGpu((Double) compute[3]);
+			summary.setInstanceRam(((Long) compute[4]).intValue());
+			summary.setInstancePublicAccess(((Long) compute[5]).intValue());
+		}
+		if (types.contains(ResourceType.DATABASE)) {
+			final var database = quoteRepository.getDatabaseSummary(subscription).get(0);
+			summary.setNbDatabases(((Long) database[1]).intValue());
+			summary.setDatabaseCpu((Double) database[2]);
+			summary.setDatabaseGpu((Double) database[3]);
+			summary.setDatabaseRam(((Long) database[4]).intValue());
+			summary.setDatabasePublicAccess(((Long) database[5]).intValue());
+		}
+		if (types.contains(ResourceType.CONTAINER)) {
+			final var container = quoteRepository.getContainerSummary(subscription).get(0);
+			summary.setNbContainers(((Long) container[1]).intValue());
+			summary.setContainerCpu((Double) container[2]);
+			summary.setContainerGpu((Double) container[3]);
+			summary.setContainerRam(((Long) container[4]).intValue());
+			summary.setContainerPublicAccess(((Long) container[5]).intValue());
+		}
+		if (types.contains(ResourceType.FUNCTION)) {
+			summary.setNbFunctions(((Long) quoteRepository.getFunctionSummary(subscription).get(0)[1]).intValue());
+		}
+		if (types.contains(ResourceType.STORAGE) || types.contains(ResourceType.INSTANCE)) {
+			// The storages attached to an instance follow its quantity
+			final var storage = quoteRepository.getStorageSummary(subscription).get(0);
+			summary.setNbStorages(((Long) storage[1]).intValue());
+			summary.setTotalStorage(((Long) storage[2]).intValue());
+		}
+	}
+
+	/**
+	 * Create the summary of a quote edited by the current transaction, holding its lock. The summary is not computed
+	 * here, but on the next read.
+	 *
+	 * @param quote The edited quote.
+	 */
+	public void create(final ProvQuote quote) {
+		if (repository.findBy("configuration", quote) == null) {
+			final var summary = new ProvQuoteSummary();
+			summary.setConfiguration(quote);
+			summary.setRevision(-1);
+			repository.save(summary);
+		}
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.commons.collections4.ListUtils;
+import org.hibernate.Session;
+import org.ligoj.bootstrap.resource.system.configuration.ConfigurationResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceContextType;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Refresh engine of the quote resources. A refresh runs in three phases:
+ * <ul>
+ * <li>The requirements are read on the calling thread into detached snapshots.</li>
+ * <li>The lookups are executed by a bounded pool shared by all the refreshes. The tasks never use the Hibernate
+ * session of the calling transaction: each worker runs its share of the tasks within its own read-only
+ * transaction.</li>
+ * <li>The new prices and costs are written back on the calling thread, within the calling transaction, using JDBC
+ * batches.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class ProvRefreshEngine {
+
+	/**
+	 * Configuration key used to bound the amount of threads shared by all the refreshes. When undefined, the amount of
+	 * available processors is used. Each thread holds its own database connection while the calling thread keeps its
+	 * one, so this amount must stay well below the size of the connection pool.
+	 */
+	public static final String PARALLELISM = ProvResource.SERVICE_KEY + ":refresh-parallelism";
+
+	/**
+	 * Size of the JDBC batches used to write back the refreshed resources.
+	 */
+	public static final int BATCH_SIZE = 100;
+
+	@PersistenceContext(type = PersistenceContextType.TRANSACTION, unitName = "pu")
+	protected EntityManager em;
+
+	@Autowired
+	protected ConfigurationResource configuration;
+
+	@Autowired
+	protected PlatformTransactionManager transactionManager;
+
+	/**
+	 * Shared executor of the refreshes. Created on the first use.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * Indicate the current thread is a worker of the shared executor.
+	 */
+	private static final ThreadLocal<Boolean> WORKER = ThreadLocal.withInitial(() -> false);
+
+	/**
+	 * Indicate the tasks can be executed by a pool. Disabled by default: the workers do not see the changes not yet
+	 * committed by the calling transaction, and each concurrent refresh waits for connections while holding its own
+	 * one.
+	 *
+	 * @return <code>true</code> when the tasks can be executed by a pool.
+	 * @see ProvResource#USE_PARALLEL
+	 */
+	public boolean isParallel() {
+		return configuration.get(ProvResource.USE_PARALLEL, 0) == 1;
+	}
+
+	/**
+	 * Return the maximal amount of threads of a refresh.
+	 *
+	 * @return The maximal amount of threads of a refresh.
+	 */
+	private int getParallelism() {
+		return Math.max(1, configuration.get(PARALLELISM, Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Return the shared executor of the refreshes. Its size is the configured parallelism read on the first use. The
+	 * idle threads are released.
+	 *
+	 * @return The shared executor of the refreshes.
+	 */
+	protected synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			final var counter = new AtomicInteger();
+			final var threads = getParallelism();
+			final var pool = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+					r -> {
+						final var thread = new Thread(() -> {
+							WORKER.set(true);
+							r.run();
+						}, "prov-refresh-" + counter.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					});
+			pool.allowCoreThreadTimeOut(true);
+			executor = pool;
+		}
+		return executor;
+	}
+
+	/**
+	 * Stop the shared executor.
+	 */
+	@PreDestroy
+	public synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	/**
+	 * Execute a task for each snapshot. When allowed, the snapshots are split in as many chunks as threads, and each
+	 * chunk is executed by the shared executor within its own read-only transaction. Otherwise, and when called from a
+	 * worker, the tasks are executed by the calling thread. The given task must not use the entities attached to the
+	 * calling transaction.
+	 *
+	 * @param <T>       The snapshot type.
+	 * @param <R>       The task result type.
+	 * @param snapshots The detached snapshots to process.
+	 * @param task      The task to execute on each snapshot.
+	 * @return The results, in the same order than the snapshots.
+	 */
+	public <T, R> List<R> map(final List<T> snapshots, final Function<T, R> task) {
+		if (snapshots.size() < 2 || !isParallel() || WORKER.get()) {
+			return snapshots.stream().map(task).toList();
+		}
+		final var threads = Math.min(getParallelism(), snapshots.size());
+		final var template = new TransactionTemplate(transactionManager);
+		template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		template.setReadOnly(true);
+		final var futures = new ArrayList<Future<List<R>>>(threads);
+		ListUtils.partition(snapshots, (snapshots.size() + threads - 1) / threads).forEach(chunk -> futures
+				.add(getExecutor().submit(() -> template.execute(s -> chunk.stream().map(task).toList()))));
+		final var results = new ArrayList<R>(snapshots.size());
+		try {
+			for (final var future : futures) {
+				results.addAll(future.get());
+			}
+			return results;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Refresh has been interrupted", e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException re) {
+				// Keep the business exceptions as is
+				throw re;
+			}
+			throw new IllegalStateException("Refresh failed", e.getCause());
+		} finally {
+			// Release the pending chunks on failure
+			futures.forEach(f -> f.cancel(true));
+		}
+	}
+
+	/**
+	 * Write back the refreshed entities on the calling thread. The pending changes are flushed using JDBC batches. The
+	 * changed entities stay attached to the calling transaction.
+	 *
+	 * @param <T>    The item type.
+	 * @param items  The items to write back.
+	 * @param writer The function applying the changes of one item to the attached entities.
+	 */
+	public <T> void write(final List<T> items, final Consumer<T> writer) {
+		write(items, item -> {
+			writer.accept(item);
+			return null;
+		});
+	}
+
+	/**
+	 * Persist new entities on the calling thread. The pending changes are flushed using JDBC batches, and the entities
+	 * returned by the writer are detached after each batch to keep the persistence context small. The persistence
+	 * context is not cleared, so the entities attached before the call, such as the locked quote, are still managed.
+	 *
+	 * @param <T>    The item type.
+	 * @param items  The items to persist.
+	 * @param writer The function persisting one item and returning the entity to detach once flushed. May return
+	 *               <code>null</code>.
+	 */
+	public <T> void persist(final List<T> items, final Function<T, ?> writer) {
+		write(items, writer);
+	}
+
+	private <T> void write(final List<T> items, final Function<T, ?> writer) {
+		final var start = System.currentTimeMillis();
+		final var session = em.unwrap(Session.class);
+		final var batchSize = session.getJdbcBatchSize();
+		session.setJdbcBatchSize(BATCH_SIZE);
+		try {
+			for (final var batch : ListUtils.partition(items, BATCH_SIZE)) {
+				final var written = new ArrayList<>(batch.size());
+				batch.forEach(item -> written.add(writer.apply(item)));
+				em.flush();
+				written.stream().filter(Objects::nonNull).forEach(em::detach);
+			}
+		} finally {
+			session.setJdbcBatchSize(batchSize);
+		}
+		log.debug("Write back {} items in {}ms", items.size(), System.currentTimeMillis() - start);
+	}
+}
@@ -6,8 +6,8 @@ package org.ligoj.app.plugin.prov;
 
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
@@ -15,7 +15,6 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
-import java.util.stream.Stream;
 
 import javax.cache.annotation.CacheKey;
 import javax.cache.annotation.CacheResult;
@@ -27,7 +26,12 @@ import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
 
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.ObjectUtils;
@@ -45,6 +49,7 @@ import org.ligoj.app.plugin.prov.dao.ProvCurrencyRepository;
 import org.ligoj.app.plugin.prov.dao.ProvDatabaseTypeRepository;
 import org.ligoj.app.plugin.prov.dao.ProvFunctionTypeRepository;
 import org.ligoj.app.plugin.prov.dao.ProvInstanceTypeRepository;
+import org.ligoj.app.plugin.prov.dao.ProvLocationAvailabilityRepository;
 import org.ligoj.app.plugin.prov.dao.ProvLocationRepository;
 import org.ligoj.app.plugin.prov.dao.ProvOptimizerRepository;
 import org.ligoj.app.plugin.prov.dao.ProvQuoteContainerRepository;
@@ -56,11 +61,13 @@ import org.ligoj.app.plugin.prov.dao.ProvQuoteStorageRepository;
 import org.ligoj.app.plugin.prov.dao.ProvQuoteSupportRepository;
 import org.ligoj.app.plugin.prov.dao.ProvUsageRepository;
 import org.ligoj.app.plugin.prov.model.AbstractQuote;
-import org.ligoj.app.plugin.prov.model.AbstractTermPrice;
+import org.ligoj.app.plugin.prov.model.AbstractQuoteVm;
+import org.ligoj.app.plugin.prov.model.AbstractTermPriceVm;
 import org.ligoj.app.plugin.prov.model.ProvLocation;
 import org.ligoj.app.plugin.prov.model.ProvQuote;
 import org.ligoj.app.plugin.prov.model.ReservationMode;
 import org.ligoj.app.plugin.prov.model.ResourceType;
+import org.ligoj.app.plugin.prov.model.TerraformStatus;
 import org.ligoj.app.plugin.prov.quote.container.ProvQuoteContainerResource;
 import org.ligoj.app.plugin.prov.quote.database.ProvQuoteDatabaseResource;
 import org.ligoj.app.plugin.prov.quote.function.ProvQuoteFunctionResource;
@@ -115,8 +122,8 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 	public static final Map<String, String> ORM_COLUMNS = new HashMap<>();
 
 	/**
-	 * Parallel configuration. When value is <code>1</code>, parallel stream will be used as often as possible.
-	 * Otherwise, sequential will be used.
+	 * Parallel configuration. When value is <code>1</code>, the lookups of a refresh are executed by a pool of
+	 * {@link ProvRefreshEngine}. Otherwise, and by default, sequential will be used.
 	 */
 	public static final String USE_PARALLEL = SERVICE_KEY + ":use-parallel";
 
@@ -150,6 +157,9 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 	@Autowired
 	private ProvLocationRepository locationRepository;
 
+	@Autowired
+	private ProvLocationAvailabilityRepository availabilityRepository;
+
 	@Autowired
 	private ProvTagResource tagResource;
 
@@ -236,6 +246,22 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 	@Autowired
 	protected NodeResource nodeResource;
 
+	@Autowired
+	private ProvLookupCache lookupCache;
+
+	@Autowired
+	@Getter
+	private ProvQuoteLock quoteLock;
+
+	@Autowired
+	private ProvConfigurationLoader configurationLoader;
+
+	@Autowired
+	private ProvPriceIndex priceIndex;
+
+	@Autowired
+	private ProvQuoteSummaryResource summaries;
+
 	static {
 		ORM_COLUMNS.put("name", "name");
 		ORM_COLUMNS.put("description", "description");
@@ -265,7 +291,19 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 	@Consumes(MediaType.APPLICATION_JSON)
 	public List<ProvLocation> findLocations(@PathParam("subscription") final int subscription) {
 		final var node = subscriptionResource.checkVisible(subscription).getNode().getId();
-		return locationRepository.findAll(node);
+		return findAvailableLocations(node);
+	}
+
+	/**
+	 * Return the locations of a node having instance prices. The availability computed with the catalog statistics is
+	 * used when present, otherwise the prices are checked.
+	 *
+	 * @param node The node identifier, will be used to filter the locations from the associated provider.
+	 * @return The all available locations for the given node.
+	 */
+	private List<ProvLocation> findAvailableLocations(final String node) {
+		final var locations = availabilityRepository.findAllLocations(node);
+		return locations.isEmpty() ? locationRepository.findAll(node) : locations;
 	}
 
 	/**
@@ -302,14 +340,62 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 		return assertFound(locationRepository.findByName(node, name), name);
 	}
 
-	@GET
-	@Path("{subscription:\\d+}")
 	@Override
-	public QuoteVo getConfiguration(@PathParam("subscription") final int subscription) {
+	public QuoteVo getConfiguration(final int subscription) {
 		// Check the visibility
 		return getConfiguration(subscriptionResource.checkVisible(subscription));
 	}
 
+	/**
+	 * Return the quote configuration, unless the client already holds its current revision. The revision is checked
+	 * with a single indexed read before loading the configuration. The ETag also holds the catalog stamp of the node,
+	 * since the configuration includes catalog data such as the available locations, and the state of the Terraform
+	 * task.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param request      The current request, holding the optional <code>If-None-Match</code> header.
+	 * @return The configuration with computed data and its revision as ETag, or a <code>304</code> response without
+	 *         body when the given ETag matches the current revision and catalog.
+	 */
+	@GET
+	@Path("{subscription:\\d+}")
+	public Response getConfiguration(@PathParam("subscription") final int subscription,
+			@Context final Request request) {
+		// Check the visibility
+		final var entity = subscriptionResource.checkVisible(subscription);
+		final var revision = repository.getRevision(subscription);
+		final var cache = new CacheControl();
+		cache.setNoCache(true);
+		cache.setPrivate(true);
+		if (revision == null) {
+			// No revision to compare
+			return Response.ok(getConfiguration(entity)).cacheControl(cache).build();
+		}
+		final var tag = new EntityTag(revision + "-" + priceIndex.getStamp(entity.getNode().getTool().getId())
+				+ toTag(runner.getTaskInternal(entity)));
+		return Optional.ofNullable(request.evaluatePreconditions(tag))
+				.orElseGet(() -> Response.ok(getConfiguration(entity))).tag(tag).cacheControl(cache).build();
+	}
+
+	/**
+	 * Return the ETag part of the Terraform task state included in the configuration: its progress changes without
+	 * incrementing the revision.
+	 */
+	private String toTag(final TerraformStatus status) {
+		if (status == null) {
+			return "";
+		}
+		return "-" + status.getId() + "-" + Optional.ofNullable(status.getEnd()).map(Date::getTime).orElse(0L) + "-"
+				+ status.isFinished() + "-" + status.getCompleting() + "-" + status.getCompleted();
+	}
+
+	/**
+	 * Return a reference to the quote within the current transaction.
+	 */
+	private ProvQuote getQuote(final int id) {
+		return repository.getReferenceById(id);
+	}
+
 	/**
 	 * Return the quote configuration from a validated subscription. The subscription's visibility must have been
 	 * previously checked.
@@ -320,14 +406,29 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 	public QuoteVo getConfiguration(final Subscription subscription) {
 		final var vo = new QuoteVo();
 		final var quote = repository.getCompute(subscription.getId());
+		final var node = subscription.getNode().getId();
+
+		// Independent fragments, possibly loaded concurrently: the quote is referenced by its identifier within the
+		// transaction of each fragment, not as the entity attached to this one, and the lazy associations used after
+		// the load, such as the resource attached to a storage, are fetched by the queries
+		final var fragments = configurationLoader.newFragments();
+		final int id = quote.getId();
+		final var databases = fragments.add("databases", () -> qbRepository.findAll(getQuote(id)));
+		final var containers = fragments.add("containers", () -> qcRepository.findAll(getQuote(id)));
+		final var functions = fragments.add("functions", () -> qfRepository.findAll(getQuote(id)));
+		final var storages = fragments.add("storages", () -> qsRepository.findAll(getQuote(id)));
+		final var supports = fragments.add("supports", () -> qs2Repository.findAll(getQuote(id)));
+		final var locations = fragments.add("locations", () -> findAvailableLocations(node));
+		final var tags = fragments.add("tags", () -> tagResource.findAll(getQuote(id)));
+		final var networks = fragments.add("networks", () -> networkResource.findAll(subscription.getId()));
+		final var usages = fragments.add("usages", () -> usageRepository.findAll(getQuote(id)));
+		final var budgets = fragments.add("budgets", () -> budgetRepository.findAll(getQuote(id)));
+		final var optimizers = fragments.add("optimizers", () -> optimizerRepository.findAll(getQuote(id)));
+
 		DescribedBean.copy(quote, vo);
 		vo.copyAuditData(quote, toUser());
 		vo.setLocation(quote.getLocation());
 		vo.setInstances(quote.getInstances());
-		vo.setDatabases(qbRepository.findAll(quote));
-		vo.setContainers(qcRepository.findAll(quote));
-		vo.setFunctions(qfRepository.findAll(quote));
-		vo.setStorages(qsRepository.findAll(quote));
 		vo.setUsage(quote.getUsage());
 		vo.setBudget(quote.getBudget());
 		vo.setOptimizer(quote.getOptimizer());
@@ -338,14 +439,19 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 		vo.setProcessor(quote.getProcessor());
 		vo.setPhysical(quote.getPhysical());
 		vo.setTerraformStatus(runner.getTaskInternal(subscription));
-		vo.setSupports(qs2Repository.findAll(quote));
-		vo.setLocations(locationRepository.findAll(subscription.getNode().getId()));
-		vo.setTags(tagResource.findAll(quote));
-		vo.setNetworks(networkResource.findAll(subscription.getId()));
-		vo.setUsages(usageRepository.findAll(quote));
-		vo.setBudgets(budgetRepository.findAll(quote));
-		vo.setOptimizers(optimizerRepository.findAll(quote));
 		vo.setProcessors(self.findProcessors(subscription.getNode().getTool().getId()));
+		vo.setDatabases(databases.get());
+		vo.setContainers(containers.get());
+		vo.setFunctions(functions.get());
+		vo.setStorages(storages.get());
+		vo.setSupports(supports.get());
+		vo.setLocations(locations.get());
+		vo.setTags(tags.get());
+		vo.setNetworks(networks.get());
+		vo.setUsages(usages.get());
+		vo.setBudgets(budgets.get());
+		vo.setOptimizers(optimizers.get());
+		fragments.report(subscription.getId());
 
 		// Also copy the costs
 		final var unbound = quote.isUnboundCost();
@@ -355,6 +461,7 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 				quote.getMaxCo2()));
 		vo.setCost(quote.toFloating());
 		vo.setCurrency(quote.getCurrency());
+		vo.setRevision(quote.getRevision());
 		return vo;
 	}
 
@@ -365,33 +472,7 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 	 * @return The quote status (summary only) linked to given subscription.
 	 */
 	public QuoteLightVo getSubscriptionStatus(final int subscription) {
-		final var vo = new QuoteLightVo();
-		final var compute = repository.getComputeSummary(subscription).get(0);
-		final var database = repository.getDatabaseSummary(subscription).get(0);
-		final var container = repository.getContainerSummary(subscription).get(0);
-		final var function = repository.getFunctionSummary(subscription).get(0);
-		final var storage = repository.getStorageSummary(subscription).get(0);
-		final var entity = (ProvQuote) compute[0];
-		DescribedBean.copy(entity, vo);
-		vo.setCost(entity.toFloating());
-		vo.setLocation(entity.getLocation());
-		vo.setCurrency(entity.getCurrency());
-
-		// Count resources types
-		vo.setNbInstances(((Long) compute[1]).intValue());
-		vo.setNbDatabases(((Long) database[1]).intValue());
-		vo.setNbContainers(((Long) container[1]).intValue());
-		vo.setNbFunctions(((Long) function[1]).intValue());
-		vo.setNbStorages(((Long) storage[1]).intValue());
-
-		// Sum up resources
-		vo.setTotalCpu(Stream.of(compute, database, container).mapToDouble(r -> ((Double) r[2])).sum());
-		vo.setTotalGpu(Stream.of(compute, database, container).mapToDouble(r -> ((Double) r[3])).sum());
-		vo.setTotalRam(Stream.of(compute, database, container).mapToInt(r -> ((Long) r[4]).intValue()).sum());
-		vo.setNbPublicAccess(Stream.of(compute, database, container).mapToInt(r -> ((Long) r[5]).intValue()).sum());
-		vo.setTotalStorage(((Long) storage[2]).intValue());
-
-		return vo;
+		return summaries.findAllInternal(List.of(subscription)).get(subscription);
 	}
 
 	/**
@@ -406,6 +487,7 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 	@Consumes(MediaType.APPLICATION_JSON)
 	public Floating update(@PathParam("subscription") final int subscription, final QuoteEditionVo vo) {
 		final var entity = getQuoteFromSubscription(subscription);
+		quoteLock.lock(entity);
 		entity.setName(vo.getName());
 		entity.setDescription(vo.getDescription());
 		entity.setUiSettings(vo.getUiSettings());
@@ -437,6 +519,7 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 				|| oldReservationMode != entity.getReservationMode() || !Objects.equals(oldLicense, entity.getLicense())
 				|| !Objects.equals(oldProcessor, entity.getProcessor())
 				|| !Objects.equals(oldPhysical, entity.getPhysical())) {
+			lookupCache.invalidate(entity.getId());
 			return refresh(entity);
 		}
 
@@ -471,21 +554,6 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 		return processCost(quote, BooleanUtils.isTrue(quote.getLeanOnChange())).getTotal();
 	}
 
-	/**
-	 * Return a parallel stream if allowed.
-	 *
-	 * @param <T>        The stream item type.
-	 * @param collection The collection to stream.
-	 * @return The parallel or sequential stream.
-	 * @see #USE_PARALLEL
-	 */
-	public <T> Stream<T> newStream(final Collection<T> collection) {
-		if (configuration.get(USE_PARALLEL, 1) == 1) {
-			return collection.parallelStream();
-		}
-		return collection.stream();
-	}
-
 	/**
 	 * For each resource, execute the given cost function.
 	 */
@@ -507,6 +575,7 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 		log.info("Refresh cost started for subscription {}", entity.getSubscription().getId());
 
 		// Reset the costs to 0, will be updated further in this process
+		quoteLock.lock(entity);
 		entity.setCostNoSupport(0d);
 		entity.setMaxCostNoSupport(0d);
 		entity.setCost(0d);
@@ -531,7 +600,7 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 
 		// Add the storage cost
 		log.info("Refresh cost started for subscription {} / storages ... ", entity.getSubscription().getId());
-		newStream(qsRepository.findAll(entity)).map(qsResource::updateCost).forEach(fc -> addCost(entity, fc));
+		qsRepository.findAll(entity).stream().map(qsResource::updateCost).forEach(fc -> addCost(entity, fc));
 
 		// Return the rounded computation
 		log.info("Refresh cost started for subscription {} / support ... ", entity.getSubscription().getId());
@@ -541,15 +610,16 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 		return refreshSupportCost(cost, entity);
 	}
 
-	private <P extends AbstractTermPrice<?>, C extends AbstractQuote<P>> long addCost(final ProvQuote entity,
-			final BaseProvQuoteRepository<C> repository, final AbstractProvQuoteResource<?, P, C, ?> resource,
+	private <P extends AbstractTermPriceVm<?>, C extends AbstractQuoteVm<P>> long addCost(final ProvQuote entity,
+			final BaseProvQuoteRepository<C> repository, final AbstractProvQuoteVmResource<?, P, C, ?, ?, ?> resource,
 			final String type) {
 		log.info("Refresh cost started for subscription {} / {} ... ", entity.getSubscription().getId(), type);
-		return newStream(repository.findAll(entity)).map(resource::updateCost).map(fc -> addCost(entity, fc))
+		return resource.updateCostAll(repository.findAll(entity)).stream().map(fc -> addCost(entity, fc))
 				.filter(Floating::isUnbound).count();
 	}
 
 	private Floating refreshSupportCost(final ProvQuote entity) {
+		quoteLock.lock(entity);
 		final var support = qs2Repository.findAll(entity).stream().map(qspResource::refresh)
 				.reduce(new Floating(0, 0, 0, 0, entity.isUnboundCost(), 0, 0), Floating::add);
 		entity.setCostSupport(round(support.getMin()));
@@ -604,6 +674,28 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 		return processCost(entity, true).getTotal();
 	}
 
+	/**
+	 * Return the hit and miss counters of the memoized lookups.
+	 *
+	 * @return The lookup cache counters.
+	 */
+	@GET
+	@Path("lookup-cache")
+	public Map<String, Long> getLookupStatistics() {
+		return lookupCache.getStatistics();
+	}
+
+	/**
+	 * Return the acquisition, contention and timeout counters of the quote edition locks of this node.
+	 *
+	 * @return The quote edition lock counters.
+	 */
+	@GET
+	@Path("quote-lock")
+	public Map<String, Long> getLockStatistics() {
+		return quoteLock.getStatistics();
+	}
+
 	/**
 	 * Update the currency from the parameter.
 	 */
@@ -662,7 +754,7 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 	@Override
 	public void delete(final int subscription, final boolean remoteData) {
 		// Delete the configuration if available
-		Optional.ofNullable(repository.findBy("subscription.id", subscription)).ifPresent(c -> repository.delete(c));
+		Optional.ofNullable(repository.findBy("subscription.id", subscription)).ifPresent(repository::delete);
 	}
 
 	@Override
@@ -681,7 +773,7 @@ public class ProvResource extends AbstractConfiguredServicePlugin<ProvQuote> imp
 	@Consumes(MediaType.APPLICATION_JSON)
 	public List<ProvLocation> findLocations(@PathParam("node") final String node) {
 		nodeResource.checkVisible(node);
-		return locationRepository.findAll(node);
+		return findAvailableLocations(node);
 	}
 
 	@Override
@@ -0,0 +1,140 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory registry of the provisioning metrics, always available and exposed by {@link ProvMetrics}. The timers are
+ * recorded in milliseconds with a fixed histogram.
+ */
+@Component
+public class ProvSimpleMeterRegistry implements ProvMeterRegistry {
+
+	/**
+	 * The upper bounds in milliseconds of the timer histograms.
+	 */
+	private static final long[] BUCKETS = { 1, 5, 10, 50, 100, 500, 1000, 5000, 10000 };
+
+	/**
+	 * Registered meters. Key is the name followed by the tags.
+	 */
+	private final Map<List<String>, Meter> meters = new ConcurrentHashMap<>();
+
+	/**
+	 * A registered meter.
+	 */
+	private static class Meter {
+		private final String type;
+		private final String name;
+		private final String[] tags;
+		private final LongAdder count = new LongAdder();
+		private final DoubleAdder total = new DoubleAdder();
+		private final DoubleAccumulator max = new DoubleAccumulator(Math::max, 0);
+		private final LongAdder[] buckets;
+		private DoubleSupplier value;
+
+		private Meter(final String type, final String name, final String[] tags) {
+			this.type = type;
+			this.name = name;
+			this.tags = tags;
+			this.buckets = new LongAdder[type.equals("timer") ? BUCKETS.length + 1 : 0];
+			Arrays.setAll(buckets, i -> new LongAdder());
+		}
+
+		private void record(final double amount) {
+			count.increment();
+			total.add(amount);
+			max.accumulate(amount);
+		}
+	}
+
+	private Meter get(final String type, final String name, final String... tags) {
+		final var key = new ArrayList<String>(tags.length + 2);
+		key.add(type);
+		key.add(name);
+		key.addAll(Arrays.asList(tags));
+		return meters.computeIfAbsent(key, k -> new Meter(type, name, tags));
+	}
+
+	@Override
+	public void timer(final String name, final long nanos, final String... tags) {
+		final var meter = get("timer", name, tags);
+		final var millis = (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+		meter.record(millis);
+		var bucket = 0;
+		while (bucket < BUCKETS.length && millis > BUCKETS[bucket]) {
+			bucket++;
+		}
+		meter.buckets[bucket].increment();
+	}
+
+	@Override
+	public void summary(final String name, final double amount, final String... tags) {
+		get("summary", name, tags).record(amount);
+	}
+
+	@Override
+	public void counter(final String name, final double amount, final String... tags) {
+		final var meter = get("counter", name, tags);
+		meter.count.increment();
+		meter.total.add(amount);
+	}
+
+	@Override
+	public void gauge(final String name, final DoubleSupplier value, final String... tags) {
+		get("gauge", name, tags).value = value;
+	}
+
+	/**
+	 * Return the current state of all meters.
+	 *
+	 * @return The current state of all meters, ordered by name.
+	 */
+	public List<MeterVo> snapshot() {
+		return meters.values().stream().map(this::toVo)
+				.sorted((a, b) -> a.getName().compareTo(b.getName())).toList();
+	}
+
+	private MeterVo toVo(final Meter meter) {
+		final var vo = new MeterVo();
+		vo.setName(meter.name);
+		vo.setType(meter.type);
+		final var tags = new LinkedHashMap<String, String>();
+		for (var i = 0; i + 1 < meter.tags.length; i += 2) {
+			tags.put(meter.tags[i], meter.tags[i + 1]);
+		}
+		vo.setTags(tags);
+		vo.setCount(meter.count.sum());
+		vo.setTotal(meter.total.sum());
+		vo.setMax(meter.max.get());
+		if (meter.value != null) {
+			vo.setValue(meter.value.getAsDouble());
+		}
+		if (meter.buckets.length > 0) {
+			// Cumulative histogram
+			final var histogram = new LinkedHashMap<String, Long>();
+			var cumulated = 0L;
+			for (var i = 0; i < BUCKETS.length; i++) {
+				cumulated += meter.buckets[i].sum();
+				histogram.put(String.valueOf(BUCKETS[i]), cumulated);
+			}
+			histogram.put("+Inf", cumulated + meter.buckets[BUCKETS.length].sum());
+			vo.setHistogram(histogram);
+		}
+		return vo;
+	}
+}
@@ -6,12 +6,19 @@ package org.ligoj.app.plugin.prov;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
+import jakarta.validation.Valid;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.POST;
@@ -22,6 +29,7 @@ import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 
 import org.ligoj.app.plugin.prov.dao.ProvTagRepository;
+import org.ligoj.app.plugin.prov.model.AbstractProvTag;
 import org.ligoj.app.plugin.prov.model.AbstractQuote;
 import org.ligoj.app.plugin.prov.model.ProvQuote;
 import org.ligoj.app.plugin.prov.model.ProvTag;
@@ -44,6 +52,12 @@ public class ProvTagResource extends AbstractLazyResource {
 	@Autowired
 	private ProvTagRepository repository;
 
+	@Autowired
+	private ProvRefreshEngine refreshEngine;
+
+	@Autowired
+	private ProvQuoteLock quoteLock;
+
 	/**
 	 * Return the tags available for a subscription.
 	 *
@@ -89,6 +103,74 @@ public class ProvTagResource extends AbstractLazyResource {
 		return saveOrUpdate(subscription, new ProvTag(), vo);
 	}
 
+	/**
+	 * Create several tags inside a quote. The subscription is checked once, and the related resources with one query
+	 * per resource type. The duplicate tags are ignored.
+	 *
+	 * @param subscription The subscription identifier, will be used to filter the tags from the associated provider.
+	 * @param tags         The quote tags.
+	 * @return The created tag identifiers, in the order of the first occurrence of each distinct tag.
+	 */
+	@POST
+	@Path("{subscription:\\d+}/tag/bulk")
+	@Consumes(MediaType.APPLICATION_JSON)
+	public List<Integer> createAll(@PathParam("subscription") final int subscription,
+			@Valid final List<TagEditionVo> tags) {
+		return createAll(resource.getQuoteFromSubscription(subscription), tags);
+	}
+
+	/**
+	 * Create several tags inside a quote. The visibility of the quote must have been previously checked. The related
+	 * resources are checked with one query per resource type. The duplicate tags are ignored.
+	 *
+	 * @param quote The quote owning the tagged resources.
+	 * @param tags  The quote tags.
+	 * @return The created tag identifiers, in the order of the first occurrence of each distinct tag.
+	 */
+	public List<Integer> createAll(final ProvQuote quote, final Collection<? extends AbstractProvTag> tags) {
+		final var distinct = new LinkedHashMap<List<Object>, AbstractProvTag>();
+		tags.forEach(t -> distinct.putIfAbsent(Arrays.asList(t.getType(), t.getResource(), t.getName(), t.getValue()),
+				t));
+
+		if (distinct.isEmpty()) {
+			return Collections.emptyList();
+		}
+		quoteLock.lock(quote);
+
+		// Check the associations
+		final var resources = new EnumMap<ResourceType, Set<Integer>>(ResourceType.class);
+		distinct.values().forEach(t -> resources.computeIfAbsent(t.getType(), k -> new HashSet<>()).add(t.getResource()));
+		resources.forEach((type, ids) -> checkResources(quote, type, ids));
+
+		final var entities = distinct.values().stream()
+				.map(t -> newTag(quote, t.getType(), t.getResource(), t.getName(), t.getValue())).toList();
+		refreshEngine.persist(entities, repository::save);
+		return entities.stream().map(ProvTag::getId).toList();
+	}
+
+	/**
+	 * Check all the given resources exist and belong to the given quote.
+	 */
+	private void checkResources(final ProvQuote quote, final ResourceType type, final Set<Integer> ids) {
+		final var found = getRepository(type).findAllById(ids).stream()
+				.filter(r -> r.getConfiguration().getId().equals(quote.getId())).map(AbstractQuote::getId)
+				.collect(Collectors.toSet());
+		ids.stream().filter(id -> !found.contains(id)).findFirst().ifPresent(id -> {
+			throw new EntityNotFoundException(String.valueOf(id));
+		});
+	}
+
+	private ProvTag newTag(final ProvQuote quote, final ResourceType type, final Integer resource, final String name,
+			final String value) {
+		final var entity = new ProvTag();
+		entity.setName(name);
+		entity.setValue(value);
+		entity.setResource(resource);
+		entity.setType(type);
+		entity.setConfiguration(quote);
+		return entity;
+	}
+
 	/**
 	 * Update the tag inside a quote.
 	 *
@@ -119,6 +201,7 @@ public class ProvTagResource extends AbstractLazyResource {
 		entity.setResource(vo.getResource());
 		entity.setType(vo.getType());
 		entity.setConfiguration(res.getConfiguration());
+		quoteLock.lock(res.getConfiguration());
 		return repository.saveAndFlush(entity).getId();
 	}
 
@@ -132,7 +215,9 @@ public class ProvTagResource extends AbstractLazyResource {
 	@Consumes(MediaType.APPLICATION_JSON)
 	@Path("{subscription:\\d+}/tag/{id}")
 	public void delete(@PathParam("subscription") final int subscription, @PathParam("id") final int id) {
-		repository.delete(resource.findConfigured(repository, id, subscription));
+		final var entity = resource.findConfigured(repository, id, subscription);
+		quoteLock.lock(entity.getConfiguration());
+		repository.delete(entity);
 	}
 
 	/**
@@ -146,15 +231,8 @@ public class ProvTagResource extends AbstractLazyResource {
 		if (tags != null) {
 			// Redefine tags for this entity
 			onDelete(resource.getResourceType(), resource.getId());
-			tags.stream().map(t -> {
-				final var entity = new ProvTag();
-				entity.setName(t.getName());
-				entity.setValue(t.getValue());
-				entity.setResource(resource.getId());
-				entity.setType(resource.getResourceType());
-				entity.setConfiguration(resource.getConfiguration());
-				return entity;
-			}).forEach(repository::save);
+			refreshEngine.write(tags.stream().map(t -> newTag(resource.getConfiguration(), resource.getResourceType(),
+					resource.getId(), t.getName(), t.getValue())).toList(), repository::save);
 		}
 	}
 
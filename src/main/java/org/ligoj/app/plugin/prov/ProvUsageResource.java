@@ -39,12 +39,14 @@ public class ProvUsageResource extends AbstractMultiScopedResource<ProvUsage, Pr
 
 	@Override
 	protected UpdatedCost saveOrUpdate(final ProvUsage entity, final UsageEditionVo vo) {
+		final var impact = impactAnalyzer.getImpact(entity, vo);
+
 		// Check the associations and copy attributes to the entity
 		entity.setRate(vo.getRate()).setDuration(vo.getDuration()).setStart(vo.getStart());
 		entity.setConvertibleEngine(vo.getConvertibleEngine()).setConvertibleOs(vo.getConvertibleOs())
 				.setConvertibleType(vo.getConvertibleType()).setConvertibleFamily(vo.getConvertibleFamily())
 				.setConvertibleLocation(vo.getConvertibleLocation()).setReservation(vo.getReservation());
-		return super.saveOrUpdateInternal(entity, vo);
+		return super.saveOrUpdateInternal(entity, vo, impact);
 	}
 
 }
@@ -0,0 +1,54 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ligoj.app.plugin.prov.model.AbstractQuote;
+import org.ligoj.app.plugin.prov.model.ResourceType;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The changes of a quote after a given revision.
+ */
+@Getter
+@Setter
+public class QuoteChangesVo {
+
+	/**
+	 * The current revision of the quote.
+	 */
+	private long revision;
+
+	/**
+	 * When <code>true</code>, the changes cannot be described by the resources and the whole configuration has to be
+	 * reloaded. The resources are then not provided.
+	 */
+	private boolean reload;
+
+	/**
+	 * The new total quote cost.
+	 */
+	private Floating total;
+
+	/**
+	 * The added or updated resources. The key is the resource type.
+	 */
+	private Map<ResourceType, List<AbstractQuote<?>>> updated = new EnumMap<>(ResourceType.class);
+
+	/**
+	 * The deleted resource identifiers. The key is the resource type.
+	 */
+	private Map<ResourceType, List<Integer>> deleted = new EnumMap<>(ResourceType.class);
+
+	/**
+	 * The tags of the updated resources. The primary key is the resource type, the secondary key is the resource
+	 * identifier.
+	 */
+	private Map<ResourceType, Map<Integer, List<TagVo>>> tags = new EnumMap<>(ResourceType.class);
+}
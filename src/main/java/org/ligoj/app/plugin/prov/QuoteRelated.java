@@ -44,6 +44,13 @@ public interface QuoteRelated<C extends Costed> {
 	 */
 	ProvQuoteRepository getRepository();
 
+	/**
+	 * Return the {@link ProvQuoteLock} instance. Used to serialize the updates of the quote's costs.
+	 *
+	 * @return The {@link ProvQuoteLock} instance.
+	 */
+	ProvQuoteLock getQuoteLock();
+
 	/**
 	 * Return the quote associated to the given subscription. The visibility is checked.
 	 *
@@ -130,6 +137,7 @@ public interface QuoteRelated<C extends Costed> {
 		if ((Math.abs(delta) + Math.abs(maxDelta) + Math.abs(deltaI) + Math.abs(maxDeltaI)) + Math.abs(deltaCo2)
 				+ Math.abs(maxDeltaCo2) != 0) {
 			// Report the delta to the quote
+			getQuoteLock().lock(quote);
 			synchronized (quote) {
 				// Recurring part
 				quote.setCostNoSupport(round(quote.getCostNoSupport() + delta));
@@ -152,6 +160,7 @@ public interface QuoteRelated<C extends Costed> {
 	 * @return The formal {@code fc} parameter.
 	 */
 	default Floating addCost(final ProvQuote quote, final Floating fc) {
+		getQuoteLock().lock(quote);
 		synchronized (quote) {
 			// Recurring part
 			quote.setCostNoSupport(round(quote.getCostNoSupport() + fc.getMin()));
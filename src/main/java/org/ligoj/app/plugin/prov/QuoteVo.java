@@ -54,6 +54,13 @@ public class QuoteVo extends DescribedAuditedBean<SimpleUserOrg, Integer> {
 	 */
 	private Floating costSupport;
 
+	/**
+	 * Version stamp of the quote content.
+	 *
+	 * @see org.ligoj.app.plugin.prov.model.ProvQuote#getRevision()
+	 */
+	private long revision;
+
 	/**
 	 * The optional Terraform status.
 	 */
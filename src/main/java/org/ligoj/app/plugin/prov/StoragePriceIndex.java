@@ -0,0 +1,304 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.ligoj.app.plugin.prov.model.ProvStorageOptimized;
+import org.ligoj.app.plugin.prov.model.Rate;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Read-only columnar in-memory index of the storage prices within a node, with the constraints of their type. Rows are
+ * grouped by location and each numeric attribute is stored in a primitive array where <code>NaN</code> stands for a
+ * <code>null</code> value. The lowest price search follows the <code>findLowestPrice</code> repository query.
+ */
+@Getter
+public class StoragePriceIndex {
+
+	/**
+	 * Column order of the raw rows given to {@link #set(int, Object[])}.
+	 */
+	public static final String COLUMNS = """
+			sp.id, sp.location.id, sp.cost, sp.costGb, st.code, st.latency, st.optimized, st.minimal, st.maximal,
+			st.increment, st.instanceType, st.notInstanceType, st.databaseType, st.notDatabaseType, st.containerType,
+			st.notContainerType, st.functionType, st.notFunctionType, st.engine""";
+
+	/**
+	 * The catalog stamp this index has been built with.
+	 */
+	private final long stamp;
+
+	/**
+	 * The amount of valid rows.
+	 */
+	private int size;
+
+	private final int[] ids;
+	private final int[] locations;
+	private final double[] cost;
+	private final double[] costGb;
+	private final String[] code;
+	private final int[] latency;
+	private final ProvStorageOptimized[] optimized;
+	private final double[] minimal;
+	private final double[] maximal;
+	private final double[] increment;
+	private final String[] engine;
+
+	// Compatibility part, LIKE patterns where null stands for a null pattern
+	private final Pattern[] instanceType;
+	private final Pattern[] notInstanceType;
+	private final Pattern[] databaseType;
+	private final Pattern[] notDatabaseType;
+	private final Pattern[] containerType;
+	private final Pattern[] notContainerType;
+	private final Pattern[] functionType;
+	private final Pattern[] notFunctionType;
+
+	/**
+	 * Sorted distinct location identifiers.
+	 */
+	private int[] locationIds = new int[0];
+
+	/**
+	 * Location boundaries: rows of the location at position <code>i</code> in {@link #locationIds} are within
+	 * <code>[locationStarts[i], locationStarts[i + 1])</code>.
+	 */
+	private int[] locationStarts = new int[] { 0 };
+
+	/**
+	 * Shared compiled patterns while loading.
+	 */
+	@Getter(AccessLevel.NONE)
+	private Map<String, Pattern> patterns = new HashMap<>();
+
+	/**
+	 * Create an empty index with the given capacity.
+	 *
+	 * @param stamp    The catalog stamp this index is built with.
+	 * @param capacity The maximal amount of rows.
+	 */
+	public StoragePriceIndex(final long stamp, final int capacity) {
+		this.stamp = stamp;
+		ids = new int[capacity];
+		locations = new int[capacity];
+		cost = new double[capacity];
+		costGb = new double[capacity];
+		code = new String[capacity];
+		latency = new int[capacity];
+		optimized = new ProvStorageOptimized[capacity];
+		minimal = new double[capacity];
+		maximal = new double[capacity];
+		increment = new double[capacity];
+		engine = new String[capacity];
+		instanceType = new Pattern[capacity];
+		notInstanceType = new Pattern[capacity];
+		databaseType = new Pattern[capacity];
+		notDatabaseType = new Pattern[capacity];
+		containerType = new Pattern[capacity];
+		notContainerType = new Pattern[capacity];
+		functionType = new Pattern[capacity];
+		notFunctionType = new Pattern[capacity];
+	}
+
+	/**
+	 * Fill a row from a raw result ordered as {@link #COLUMNS}.
+	 *
+	 * @param row The row to fill.
+	 * @param rs  The raw values.
+	 */
+	public void set(final int row, final Object[] rs) {
+		ids[row] = (Integer) rs[0];
+		locations[row] = (Integer) rs[1];
+		cost[row] = toDouble(rs[2]);
+		costGb[row] = toDouble(rs[3]);
+		code[row] = (String) rs[4];
+		latency[row] = ((Rate) rs[5]).ordinal();
+		optimized[row] = (ProvStorageOptimized) rs[6];
+		minimal[row] = toDouble(rs[7]);
+		maximal[row] = toDouble(rs[8]);
+		increment[row] = toDouble(rs[9]);
+		instanceType[row] = compile((String) rs[10]);
+		notInstanceType[row] = compile((String) rs[11]);
+		databaseType[row] = compile((String) rs[12]);
+		notDatabaseType[row] = compile((String) rs[13]);
+		containerType[row] = compile((String) rs[14]);
+		notContainerType[row] = compile((String) rs[15]);
+		functionType[row] = compile((String) rs[16]);
+		notFunctionType[row] = compile((String) rs[17]);
+		engine[row] = (String) rs[18];
+	}
+
+	/**
+	 * Complete the loading: compute the location boundaries. The rows must have been filled ordered by location.
+	 *
+	 * @param size The amount of filled rows.
+	 * @return This index.
+	 */
+	public StoragePriceIndex seal(final int size) {
+		this.size = size;
+		this.patterns = null;
+		final var ids = new int[size];
+		final var starts = new int[size + 1];
+		var nb = 0;
+		for (var row = 0; row < size; row++) {
+			if (row == 0 || locations[row] != locations[row - 1]) {
+				ids[nb] = locations[row];
+				starts[nb++] = row;
+			}
+		}
+		starts[nb] = size;
+		locationIds = Arrays.copyOf(ids, nb);
+		locationStarts = Arrays.copyOf(starts, nb + 1);
+		return this;
+	}
+
+	/**
+	 * Compile a SQL <code>LIKE</code> pattern, where <code>%</code> matches any sequence and <code>_</code> any
+	 * character. The compiled patterns are shared.
+	 */
+	private Pattern compile(final String like) {
+		return like == null ? null : patterns.computeIfAbsent(like, StoragePriceIndex::toPattern);
+	}
+
+	/**
+	 * Return the regular expression equivalent to a SQL <code>LIKE</code> pattern.
+	 *
+	 * @param like The SQL <code>LIKE</code> pattern.
+	 * @return The compiled pattern.
+	 */
+	public static Pattern toPattern(final String like) {
+		final var regex = new StringBuilder();
+		final var literal = new StringBuilder();
+		for (final var c : like.toCharArray()) {
+			if (c == '%' || c == '_') {
+				if (!literal.isEmpty()) {
+					regex.append(Pattern.quote(literal.toString()));
+					literal.setLength(0);
+				}
+				regex.append(c == '%' ? ".*" : ".");
+			} else {
+				literal.append(c);
+			}
+		}
+		if (!literal.isEmpty()) {
+			regex.append(Pattern.quote(literal.toString()));
+		}
+		return Pattern.compile(regex.toString(), Pattern.DOTALL);
+	}
+
+	private static double toDouble(final Object value) {
+		return value == null ? Double.NaN : ((Number) value).doubleValue();
+	}
+
+	/**
+	 * Return the cheapest prices matching all requirements, following the <code>findLowestPrice</code> model: ordered
+	 * by cost, then by latency from the best one, then by type code.
+	 *
+	 * @param location      The required location identifier.
+	 * @param size          The requested size in GiB.
+	 * @param latency       The minimal latency.
+	 * @param optimized     The optional optimization. May be <code>null</code>.
+	 * @param instanceType  The attached instance type's code or an empty string.
+	 * @param databaseType  The attached database type's code or an empty string.
+	 * @param engine        The storage engine of the attached database or an empty string.
+	 * @param containerType The attached container type's code or an empty string.
+	 * @param functionType  The attached function type's code or an empty string.
+	 * @param limit         The maximal amount of returned rows.
+	 * @return The best rows, may be empty.
+	 */
+	public int[] findLowest(final int location, final double size, final Rate latency,
+			final ProvStorageOptimized optimized, final String instanceType, final String databaseType,
+			final String engine, final String containerType, final String functionType, final int limit) {
+		final var l = Arrays.binarySearch(locationIds, location);
+		if (l < 0) {
+			return new int[0];
+		}
+		final var best = new int[limit];
+		final var bestCost = new double[limit];
+		var nb = 0;
+		for (var row = locationStarts[l]; row < locationStarts[l + 1]; row++) {
+			if (this.latency[row] < latency.ordinal() || optimized != null && optimized != this.optimized[row]
+					|| !Double.isNaN(maximal[row]) && maximal[row] < size
+					|| !isCompatible(instanceType, this.instanceType[row], notInstanceType[row])
+					|| !isCompatible(containerType, this.containerType[row], notContainerType[row])
+					|| !isCompatible(functionType, this.functionType[row], notFunctionType[row])
+					|| !isCompatibleDatabase(row, databaseType, engine)) {
+				continue;
+			}
+			final var rowCost = getCost(row, size);
+			if (nb == limit && !isBetter(row, rowCost, best[nb - 1], bestCost[nb - 1])) {
+				continue;
+			}
+
+			// Insert this row within the sorted best rows
+			var i = Math.min(nb, limit - 1);
+			while (i > 0 && isBetter(row, rowCost, best[i - 1], bestCost[i - 1])) {
+				best[i] = best[i - 1];
+				bestCost[i] = bestCost[i - 1];
+				i--;
+			}
+			best[i] = row;
+			bestCost[i] = rowCost;
+			nb = Math.min(nb + 1, limit);
+		}
+		return Arrays.copyOf(best, nb);
+	}
+
+	/**
+	 * Return the cost of a price for the given size, following the <code>findLowestPrice</code> model.
+	 *
+	 * @param row  The price row.
+	 * @param size The requested size in GiB.
+	 * @return The computed cost.
+	 */
+	public double getCost(final int row, final double size) {
+		final double quantity;
+		if (size < minimal[row]) {
+			quantity = minimal[row];
+		} else if (Double.isNaN(increment[row])) {
+			quantity = size;
+		} else {
+			quantity = Math.ceil(size / increment[row]) * increment[row];
+		}
+		return cost[row] + quantity * costGb[row];
+	}
+
+	/**
+	 * Ordering of the <code>findLowestPrice</code> query: "cost ASC, latency DESC, code".
+	 */
+	private boolean isBetter(final int row, final double rowCost, final int other, final double otherCost) {
+		final var byCost = Double.compare(rowCost, otherCost);
+		if (byCost != 0) {
+			return byCost < 0;
+		}
+		if (latency[row] != latency[other]) {
+			return latency[row] > latency[other];
+		}
+		return code[row].compareTo(code[other]) < 0;
+	}
+
+	/**
+	 * Indicate the attached resource type is accepted: no attachment, or a type matching the pattern and not matching
+	 * the excluding one.
+	 */
+	private static boolean isCompatible(final String type, final Pattern pattern, final Pattern notPattern) {
+		return type.isEmpty() || (notPattern == null || !notPattern.matcher(type).matches()) && pattern != null
+				&& pattern.matcher(type).matches();
+	}
+
+	/**
+	 * Indicate the attached database type and its storage engine are accepted.
+	 */
+	private boolean isCompatibleDatabase(final int row, final String type, final String engine) {
+		return type.isEmpty() || isCompatible(type, databaseType[row], notDatabaseType[row])
+				&& (this.engine[row] == null ? engine.isEmpty() : this.engine[row].equals(engine));
+	}
+}
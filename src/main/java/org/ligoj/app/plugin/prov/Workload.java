@@ -3,22 +3,37 @@
  */
 package org.ligoj.app.plugin.prov;
 
-import java.util.List;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Getter;
 
 /**
- * Efficient baseline with detailed CPU workload.
+ * Efficient baseline with detailed CPU workload. The instances are immutable and shared by the identical raw values.
  */
 @Getter
 public class Workload {
 
+	/**
+	 * Maximal amount of cached workloads. Beyond, the cache is cleared.
+	 */
+	private static final int MAX_CACHED = 10000;
+
+	/**
+	 * Parsed workloads by raw value.
+	 */
+	private static final Map<String, Workload> CACHE = new ConcurrentHashMap<>();
+
 	private final double baseline;
-	private final List<WorkloadPeriod> periods;
+
+	@Getter(AccessLevel.NONE)
+	private final double[] durations;
+
+	@Getter(AccessLevel.NONE)
+	private final double[] values;
 
 	/**
 	 * Default baseline value.
@@ -39,19 +54,46 @@ public class Workload {
 	private Workload(double baseline, String[] parts) {
 		this.baseline = baseline;
 		if (parts.length == 1) {
-			this.periods = List.of(new WorkloadPeriod(100, baseline));
+			this.durations = new double[] { 100 };
+			this.values = new double[] { baseline };
 		} else {
-			this.periods = Stream.of(parts).skip(1).map(p -> {
-				final var periodParts = StringUtils.split(p, '@');
-				return new WorkloadPeriod(Double.parseDouble(periodParts[0]), Double.parseDouble(periodParts[1]));
-			}).toList();
+			this.durations = new double[parts.length - 1];
+			this.values = new double[parts.length - 1];
+			for (var i = 1; i < parts.length; i++) {
+				final var periodParts = StringUtils.split(parts[i], '@');
+				durations[i - 1] = Double.parseDouble(periodParts[0]);
+				values[i - 1] = Double.parseDouble(periodParts[1]);
+			}
 		}
 	}
 
-	@AllArgsConstructor
-	static class WorkloadPeriod {
-		double duration;
-		double value;
+	/**
+	 * Return the amount of periods.
+	 *
+	 * @return The amount of periods. At least one.
+	 */
+	public int size() {
+		return durations.length;
+	}
+
+	/**
+	 * Return the duration of a period.
+	 *
+	 * @param index The period index.
+	 * @return The duration of this period, in percent.
+	 */
+	public double getDuration(final int index) {
+		return durations[index];
+	}
+
+	/**
+	 * Return the CPU workload of a period.
+	 *
+	 * @param index The period index.
+	 * @return The CPU workload of this period, in percent.
+	 */
+	public double getValue(final int index) {
+		return values[index];
 	}
 
 	/**
@@ -77,6 +119,17 @@ public class Workload {
 		if (rawData == null) {
 			return DEFAULT_WORKLOAD;
 		}
+		final var workload = CACHE.get(rawData);
+		if (workload != null) {
+			return workload;
+		}
+		if (CACHE.size() >= MAX_CACHED) {
+			CACHE.clear();
+		}
+		return CACHE.computeIfAbsent(rawData, Workload::parse);
+	}
+
+	private static Workload parse(final String rawData) {
 		final var parts = StringUtils.split(rawData, ',');
 		final var baseline = Double.parseDouble(parts[0]);
 		if (baseline == 100d) {
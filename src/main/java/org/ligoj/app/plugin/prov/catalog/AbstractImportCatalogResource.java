@@ -11,13 +11,15 @@ import jakarta.persistence.PersistenceContextType;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.EnumUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.Session;
 import org.ligoj.app.dao.NodeRepository;
-import org.ligoj.app.model.Node;
 import org.ligoj.app.plugin.prov.Floating;
+import org.ligoj.app.plugin.prov.ProvMetrics;
 import org.ligoj.app.plugin.prov.ProvResource;
 import org.ligoj.app.plugin.prov.dao.*;
 import org.ligoj.app.plugin.prov.model.*;
@@ -31,9 +33,13 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.repository.CrudRepository;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
@@ -67,6 +73,40 @@ public abstract class AbstractImportCatalogResource {
 	 */
 	public static final String CONF_HOURS_MONTH = ProvResource.SERVICE_KEY + ":hours-month";
 
+	/**
+	 * Configuration key of the amount of pending entities written at once during a regional import.
+	 */
+	public static final String CONF_BATCH_SIZE = ProvResource.SERVICE_KEY + ":catalog-batch-size";
+
+	/**
+	 * Default amount of pending entities written at once during a regional import.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+
+	/**
+	 * Maximal amount of price codes in a single purge query.
+	 */
+	private static final int PURGE_CHUNK = 1000;
+
+	/**
+	 * Parse the catalog of a region. Called outside the import transaction, so the persistence must not be used.
+	 *
+	 * @param <R> The region type.
+	 * @param <D> The parsed data type.
+	 */
+	@FunctionalInterface
+	public interface RegionParser<R, D> {
+
+		/**
+		 * Parse the catalog of a region.
+		 *
+		 * @param region The region to parse.
+		 * @return The parsed data.
+		 * @throws IOException When the catalog cannot be read.
+		 */
+		D parse(R region) throws IOException;
+	}
+
 	@PersistenceContext(type = PersistenceContextType.TRANSACTION, unitName = "pu")
 	protected EntityManager em;
 
@@ -76,6 +116,9 @@ public abstract class AbstractImportCatalogResource {
 	@Autowired
 	protected ConfigurationResource configuration;
 
+	@Autowired
+	protected ProvMetrics metrics;
+
 	@Autowired
 	protected NodeRepository nodeRepository;
 
@@ -152,6 +195,11 @@ public abstract class AbstractImportCatalogResource {
 	@Autowired
 	protected CsvForJpa csvForBean;
 
+	/**
+	 * The pending writes of the regional import running in the current thread.
+	 */
+	private final ThreadLocal<CatalogBatch> batch = new ThreadLocal<>();
+
 	/**
 	 * Mapping from instance type name to the rating performance.
 	 */
@@ -170,6 +218,7 @@ public abstract class AbstractImportCatalogResource {
 		context.setNode(nodeRepository.findOneExpected(node));
 		context.setHoursMonth(configuration.get(CONF_HOURS_MONTH, ProvResource.DEFAULT_HOURS_MONTH));
 		context.setForce(force);
+		importCatalogResource.collect(node, context.getStats());
 		return context;
 	}
 
@@ -406,7 +455,8 @@ public abstract class AbstractImportCatalogResource {
 	}
 
 	/**
-	 * Update the statistics
+	 * Update the statistics. The elapsed time since the previous step of this context is recorded under the previous
+	 * phase.
 	 *
 	 * @param context  The update context.
 	 * @param phase    The new import phase.
@@ -415,21 +465,15 @@ public abstract class AbstractImportCatalogResource {
 	 */
 	protected void nextStep(final AbstractUpdateContext context, final String phase, final String location,
 			final int step) {
-		nextStep(context.getNode(), phase, location, step);
-	}
-
-	/**
-	 * Update the statistics.
-	 *
-	 * @param node     The node provider.
-	 * @param phase    The new import phase.
-	 * @param location The current region API name.
-	 * @param step     The step counter increment. May be <code>0</code>.
-	 */
-	private void nextStep(final Node node, final String phase, final String location, final int step) {
-		log.info("Next step node={}, phase={}, region={}, step={}", node.getId(), phase, location, step);
-		importCatalogResource.nextStep(node.getId(), t -> {
-			importCatalogResource.updateStats(t);
+		final var node = context.getNode().getId();
+		log.info("Next step node={}, phase={}, region={}, step={}", node, phase, location, step);
+		if (context.getPhase() != null) {
+			metrics.since("prov.catalog.phase", context.getPhaseStart(), "node", node, "phase", context.getPhase());
+		}
+		context.setPhase(phase);
+		context.setPhaseStart(System.nanoTime());
+		importCatalogResource.nextStep(node, t -> {
+			context.getStats().fold(t);
 			t.setWorkload(getWorkload(t));
 			t.setDone(t.getDone() + step);
 			t.setPhase(phase);
@@ -447,6 +491,94 @@ public abstract class AbstractImportCatalogResource {
 		return 0;
 	}
 
+	/**
+	 * Import the regions of a catalog. The regions are parsed in parallel by the shared parse executor, at most
+	 * {@link ImportCatalogResource#getParallelism()} regions at the same time. The parsed regions are installed one
+	 * after the other in the current thread, in the given order, with the current transaction. During the
+	 * installation, the saved prices are written by JDBC batches of {@link #CONF_BATCH_SIZE} entities grouped by
+	 * repository, then detached from the persistence context. A step is counted after each installed region.
+	 *
+	 * @param <R>       The region type.
+	 * @param <D>       The parsed data type.
+	 * @param context   The update context.
+	 * @param phase     The import phase reported for each region.
+	 * @param regions   The regions to import.
+	 * @param name      The function returning the reported name of a region.
+	 * @param parser    The regional parser, called outside the transaction.
+	 * @param installer The regional installer, called with the parsed data in the current thread.
+	 * @throws IOException When a region cannot be parsed.
+	 */
+	protected <R, D> void importRegions(final AbstractUpdateContext context, final String phase,
+			final Collection<R> regions, final Function<R, String> name, final RegionParser<R, D> parser,
+			final BiConsumer<R, D> installer) throws IOException {
+		final var parallel = importCatalogResource.getParallelism();
+		final var executor = importCatalogResource.getParseExecutor();
+		final var batchSize = configuration.get(CONF_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+		final var session = em.unwrap(Session.class);
+		final var previousBatchSize = session.getJdbcBatchSize();
+		final var pending = new ArrayDeque<Map.Entry<R, Future<D>>>();
+		final var iterator = regions.iterator();
+		session.setJdbcBatchSize(batchSize);
+		batch.set(new CatalogBatch(em, batchSize));
+		try {
+			while (iterator.hasNext() || !pending.isEmpty()) {
+				// Keep the parsers busy
+				while (pending.size() < parallel && iterator.hasNext()) {
+					final var region = iterator.next();
+					pending.add(Map.entry(region, executor.submit(() -> parser.parse(region))));
+				}
+
+				// Install the oldest parsed region
+				final var next = pending.poll();
+				installer.accept(next.getKey(), getParsed(next.getValue()));
+				batch.get().flush();
+				nextStep(context, phase, name.apply(next.getKey()), 1);
+			}
+		} finally {
+			pending.forEach(p -> p.getValue().cancel(true));
+			batch.remove();
+			session.setJdbcBatchSize(previousBatchSize);
+		}
+	}
+
+	private <D> D getParsed(final Future<D> future) throws IOException {
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Catalog import interrupted");
+		} catch (final ExecutionException e) {
+			final var cause = e.getCause();
+			if (cause instanceof IOException ioe) {
+				throw ioe;
+			}
+			if (cause instanceof RuntimeException re) {
+				throw re;
+			}
+			if (cause instanceof Error error) {
+				throw error;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Save an entity. Inside {@link #importRegions(AbstractUpdateContext, String, Collection, Function, RegionParser,
+	 * BiConsumer)}, the entity is written with the next batch, otherwise it is saved immediately.
+	 *
+	 * @param <P>        The entity type.
+	 * @param repository The repository used to save the entity.
+	 * @param entity     The entity to save.
+	 */
+	protected <P> void save(final JpaRepository<P, ?> repository, final P entity) {
+		final var current = batch.get();
+		if (current == null) {
+			repository.save(entity);
+		} else {
+			current.add(repository, entity);
+		}
+	}
+
 	/**
 	 * Save a price when the attached cost is different from the old one.
 	 *
@@ -484,13 +616,34 @@ public abstract class AbstractImportCatalogResource {
 			final P price, final double oldCost, final double newCost, final ObjDoubleConsumer<Double> updateCost,
 			final Consumer<P> persister) {
 		final var newCostR = round3Decimals(newCost);
-		if (context.isForce() || (price.isNew() && !em.contains(price)) || oldCost != newCostR) {
+		final var added = price.isNew() && !em.contains(price);
+		final var hash = context.getContentHashes().get(price.getCode());
+		if (context.isForce() || added || oldCost != newCostR || !Objects.equals(hash, price.getContentHash())) {
+			final var co2 = !added && isCo2(price);
 			updateCost.accept(newCostR, newCost);
+			price.setContentHash(hash);
 			persister.accept(price);
+			if (added) {
+				context.getStats().addPrices(1);
+			}
+			context.getStats().addCo2Prices(Boolean.compare(isCo2(price), co2));
 		}
 		return price;
 	}
 
+	/**
+	 * Indicate the given price has CO2 data, following the <code>countCo2DataByNode</code> queries.
+	 *
+	 * @param price The price to check.
+	 * @return <code>true</code> when the price has CO2 data.
+	 */
+	protected boolean isCo2(final AbstractPrice<?> price) {
+		if (price instanceof ProvFunctionPrice p && p.getCo2Requests() > 0) {
+			return true;
+		}
+		return price instanceof AbstractTermPriceVm<?> p && (p.getCo2() > 0 || p.getCo2Cpu() > 0);
+	}
+
 	/**
 	 * Save a price when the attached cost is different from the old one. The price's code is added to the update codes
 	 * set. The cost of the period is also updated accordingly to the attached term.
@@ -510,7 +663,7 @@ public abstract class AbstractImportCatalogResource {
 			price.setCost(cR);
 			price.setCostPeriod(round3Decimals(c * Math.max(1, price.getTerm().getPeriod())));
 			setCo2(context, price);
-		}, repository::save);
+		}, p -> save(repository, p));
 	}
 
 	private String newCarbonData(final DoubleUnaryOperator converter, final double... watt) {
@@ -664,7 +817,7 @@ public abstract class AbstractImportCatalogResource {
 	protected <T extends AbstractCodedEntity, P extends AbstractPrice<T>> P saveAsNeeded(final AbstractUpdateContext context,
 			final P entity, final double newCost, final RestRepository<P, Integer> repository) {
 		return saveAsNeeded(context, entity, entity.getCost(), newCost, (cR, c) -> entity.setCost(cR),
-				repository::save);
+				p -> save(repository, p));
 	}
 
 	/**
@@ -679,7 +832,7 @@ public abstract class AbstractImportCatalogResource {
 	protected ProvStoragePrice saveAsNeeded(final AbstractUpdateContext context, final ProvStoragePrice entity,
 			final double newCostGb, final RestRepository<ProvStoragePrice, Integer> repository) {
 		return saveAsNeededInternal(context, entity, entity.getCostGb(), newCostGb, (cR, c) -> entity.setCostGb(cR),
-				repository::save);
+				p -> save(repository, p));
 	}
 
 	/**
@@ -709,7 +862,12 @@ public abstract class AbstractImportCatalogResource {
 	 */
 	protected <T extends AbstractCodedEntity> T copyAsNeeded(final AbstractUpdateContext context,
 			final T entity, Consumer<T> updater, final BaseProvTypeRepository<T> repository) {
-		return syncAdd(context.getMergedTypes(), entity.getCode(), updater, entity, repository);
+		return syncAdd(context.getMergedTypes(), entity.getCode(), t -> {
+			if (t.isNew()) {
+				context.getStats().addTypes(1);
+			}
+			updater.accept(t);
+		}, entity, repository);
 	}
 
 	/**
@@ -796,7 +954,12 @@ public abstract class AbstractImportCatalogResource {
 	 */
 	protected ProvLocation copyAsNeeded(final AbstractUpdateContext context, final ProvLocation entity,
 			final Consumer<ProvLocation> updater) {
-		return syncAdd(context.getMergedLocations(), entity.getName(), updater, entity, locationRepository);
+		return syncAdd(context.getMergedLocations(), entity.getName(), l -> {
+			if (l.isNew()) {
+				context.getStats().addLocations(1);
+			}
+			updater.accept(l);
+		}, entity, locationRepository);
 	}
 
 	/**
@@ -815,7 +978,7 @@ public abstract class AbstractImportCatalogResource {
 		if (isNeedUpdate(context, entity)) {
 			updater.accept(entity);
 			if (repository != null) {
-				repository.save(entity);
+				save(repository, entity);
 			}
 		}
 		return entity;
@@ -847,9 +1010,97 @@ public abstract class AbstractImportCatalogResource {
 			final var nbRetiredCodes = retiredCodes.size();
 			retiredCodes.removeAll(qRepository.findUsedPrices(context.getNode().getId()));
 			log.info("Purging {} unused of {} retired catalog prices ...", retiredCodes.size(), nbRetiredCodes);
-			retiredCodes.stream().map(storedPrices::get).forEach(pRepository::delete);
+			retiredCodes.stream().map(storedPrices::get).forEach(p -> {
+				pRepository.delete(p);
+				purged(context, p);
+			});
 			log.info("Code purged");
 			storedPrices.keySet().removeAll(retiredCodes);
 		}
 	}
+
+	/**
+	 * Return the content hashes by code from the rows returned by a <code>findAllHashes</code> query.
+	 *
+	 * @param codeHashes The code and content hash rows.
+	 * @return The content hashes by code. A hash may be <code>null</code> when not yet computed.
+	 */
+	protected Map<String, Long> toHashes(final List<Object[]> codeHashes) {
+		final var hashes = new HashMap<String, Long>(codeHashes.size() * 2);
+		codeHashes.forEach(r -> hashes.put((String) r[0], (Long) r[1]));
+		return hashes;
+	}
+
+	/**
+	 * Return the content hash stored with a price: the hash of its catalog entry combined with the import inputs, so a
+	 * change of the hours per month or of the CO2 data sets updates all the prices.
+	 *
+	 * @param context The update context.
+	 * @param hash    The content hash of the catalog entry.
+	 * @return The content hash stored with the price.
+	 */
+	protected long toContentHash(final AbstractUpdateContext context, final long hash) {
+		return new ContentHash().add(hash).add(context.getInputsHash()).get();
+	}
+
+	/**
+	 * Mark the given price code as seen in the new catalog, and indicate whether the stored price needs to be updated.
+	 * When not changed, the stored price does not need to be loaded. Otherwise, the content hash is stored by the next
+	 * <code>saveAsNeeded</code> call for this code.
+	 *
+	 * @param context The update context.
+	 * @param hashes  The stored content hashes by code.
+	 * @param code    The price code.
+	 * @param hash    The content hash of the new catalog entry.
+	 * @return <code>true</code> when the price is new, has changed, or when the update is forced.
+	 */
+	protected boolean isChanged(final AbstractUpdateContext context, final Map<String, Long> hashes, final String code,
+			final long hash) {
+		context.getPrices().add(code);
+		final var content = toContentHash(context, hash);
+		context.getContentHashes().put(code, content);
+		final var stored = hashes.get(code);
+		return context.isForce() || stored == null || stored != content;
+	}
+
+	/**
+	 * Remove the prices that were present in the catalog and not seen in the new catalog with this update. Only the
+	 * codes are compared, and only the retired and unused prices are loaded to be deleted.
+	 *
+	 * @param context     The update context.
+	 * @param hashes      The stored content hashes by code. Some of them have not been seen in the new catalog.
+	 * @param pRepository The price repository used to clean the deprecated and unused prices.
+	 * @param qRepository The quote repository to check for unused prices.
+	 * @param <P>         The price type.
+	 * @param <Q>         The quote type.
+	 */
+	protected <P extends AbstractPrice<?>, Q extends AbstractQuote<P>> void purgeHashedPrices(
+			final AbstractUpdateContext context, final Map<String, Long> hashes,
+			final HashedPriceRepository<P> pRepository, final BaseProvQuoteRepository<Q> qRepository) {
+		final var retiredCodes = new HashSet<>(hashes.keySet());
+		retiredCodes.removeAll(context.getPrices());
+		if (!retiredCodes.isEmpty()) {
+			final var nbRetiredCodes = retiredCodes.size();
+			final var node = context.getNode().getId();
+			retiredCodes.removeAll(qRepository.findUsedPrices(node));
+			log.info("Purging {} unused of {} retired catalog prices ...", retiredCodes.size(), nbRetiredCodes);
+			ListUtils.partition(new ArrayList<>(retiredCodes), PURGE_CHUNK)
+					.map(codes -> pRepository.findAllByCode(node, codes)).forEach(prices -> {
+						pRepository.deleteAll(prices);
+						prices.forEach(p -> purged(context, p));
+					});
+			log.info("Code purged");
+			hashes.keySet().removeAll(retiredCodes);
+		}
+	}
+
+	/**
+	 * Remove a purged price from the collected statistics.
+	 */
+	private void purged(final AbstractUpdateContext context, final AbstractPrice<?> price) {
+		context.getStats().addPrices(-1);
+		if (isCo2(price)) {
+			context.getStats().addCo2Prices(-1);
+		}
+	}
 }
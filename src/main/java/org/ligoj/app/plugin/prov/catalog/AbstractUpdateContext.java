@@ -8,6 +8,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
@@ -113,6 +114,38 @@ public abstract class AbstractUpdateContext {
 	@Getter
 	private final Set<String> prices = new HashSet<>();
 
+	/**
+	 * The content hashes of the catalog entries read with this context, including the import inputs. Key is the price
+	 * code.
+	 */
+	@Getter
+	private final Map<String, Long> contentHashes = new ConcurrentHashMap<>();
+
+	/**
+	 * The hash of the import inputs not read from the catalog entries. <code>null</code> until computed.
+	 */
+	private Long inputsHash;
+
+	/**
+	 * The statistics collected while saving and purging the catalog entities.
+	 */
+	@Getter
+	private final CatalogStats stats = new CatalogStats();
+
+	/**
+	 * The last import phase started with this context.
+	 */
+	@Getter
+	@Setter
+	private String phase;
+
+	/**
+	 * The start time of the last import phase, given by {@link System#nanoTime()}.
+	 */
+	@Getter
+	@Setter
+	private long phaseStart;
+
 	/**
 	 * The previous installed Database prices. Key is the code.
 	 */
@@ -268,6 +301,23 @@ public abstract class AbstractUpdateContext {
 		this.co2RegionDataSet = parent.getCo2RegionDataSet();
 	}
 
+	/**
+	 * Return the hash of the import inputs not read from the catalog entries: the hours per month and the CO2 data
+	 * sets. Computed once, at the first use, so the CO2 data sets must be loaded before.
+	 *
+	 * @return The hash of the import inputs.
+	 */
+	public synchronized long getInputsHash() {
+		if (inputsHash == null) {
+			final var hash = new ContentHash().add(hoursMonth);
+			new TreeMap<>(co2DataSet).forEach((k, v) -> hash.add(k).add(v.getScope3()).add(v.getWatt100())
+					.add(v.getWattArray()).add(v.getPkgWattArray()).add(v.getGpuWattArray()).add(v.getRamWattArray()));
+			new TreeMap<>(co2RegionDataSet).forEach((k, v) -> hash.add(k).add(v.getPue()).add(v.getGPerKWH()));
+			inputsHash = hash.get();
+		}
+		return inputsHash;
+	}
+
 	/**
 	 * Return amount of seconds in a standard month according to {@link #hoursMonth} configuration.
 	 * 
@@ -314,6 +364,7 @@ public abstract class AbstractUpdateContext {
 	 */
 	public void cleanup() {
 		this.prices.clear();
+		this.contentHashes.clear();
 		this.mergedTypes.clear();
 		this.mergedTerms.clear();
 		this.mergedLocations.clear();
@@ -0,0 +1,76 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.catalog;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.persistence.EntityManager;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import lombok.Getter;
+
+/**
+ * Pending catalog writes grouped by repository. The writes of a repository are flushed together, so the JDBC batches
+ * contain a single entity type. The flushed entities are detached to keep the persistence context small.
+ */
+public class CatalogBatch {
+
+	private final EntityManager em;
+
+	private final int size;
+
+	private final Map<JpaRepository<Object, ?>, List<Object>> pending = new LinkedHashMap<>();
+
+	private int count;
+
+	/**
+	 * Amount of flushed entities.
+	 */
+	@Getter
+	private long written;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param em   The entity manager of the import transaction.
+	 * @param size The amount of pending entities triggering a flush.
+	 */
+	public CatalogBatch(final EntityManager em, final int size) {
+		this.em = em;
+		this.size = Math.max(1, size);
+	}
+
+	/**
+	 * Add an entity to save. The batch is flushed when full.
+	 *
+	 * @param <T>        The entity type.
+	 * @param repository The repository used to save the entity.
+	 * @param entity     The entity to save.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> void add(final JpaRepository<T, ?> repository, final T entity) {
+		pending.computeIfAbsent((JpaRepository<Object, ?>) repository, r -> new ArrayList<>()).add(entity);
+		if (++count >= size) {
+			flush();
+		}
+	}
+
+	/**
+	 * Save and flush the pending entities, one repository after the other, and detach them.
+	 */
+	public void flush() {
+		pending.forEach((repository, entities) -> {
+			final var saved = repository.saveAll(entities);
+			em.flush();
+			saved.forEach(em::detach);
+			written += entities.size();
+		});
+		pending.clear();
+		count = 0;
+	}
+}
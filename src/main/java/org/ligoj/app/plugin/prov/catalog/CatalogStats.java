@@ -0,0 +1,95 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.catalog;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ligoj.app.plugin.prov.model.ImportCatalogStatus;
+
+/**
+ * Catalog statistics collected while importing: the amount of added, or removed when negative, locations, types,
+ * prices and prices having CO2 data since the last fold. Shared by the parallel regional parsers of an import.
+ */
+public class CatalogStats {
+
+	private final AtomicInteger locations = new AtomicInteger();
+	private final AtomicInteger types = new AtomicInteger();
+	private final AtomicInteger prices = new AtomicInteger();
+	private final AtomicInteger co2Prices = new AtomicInteger();
+
+	/**
+	 * When <code>true</code>, at least one change has been collected, even if already folded.
+	 */
+	private volatile boolean collected;
+
+	/**
+	 * Add locations.
+	 *
+	 * @param delta The amount of added locations. May be negative.
+	 */
+	public void addLocations(final int delta) {
+		add(locations, delta);
+	}
+
+	/**
+	 * Add types.
+	 *
+	 * @param delta The amount of added types. May be negative.
+	 */
+	public void addTypes(final int delta) {
+		add(types, delta);
+	}
+
+	/**
+	 * Add prices.
+	 *
+	 * @param delta The amount of added prices. May be negative.
+	 */
+	public void addPrices(final int delta) {
+		add(prices, delta);
+	}
+
+	/**
+	 * Add prices having CO2 data.
+	 *
+	 * @param delta The amount of added prices having CO2 data. May be negative.
+	 */
+	public void addCo2Prices(final int delta) {
+		add(co2Prices, delta);
+	}
+
+	private void add(final AtomicInteger counter, final int delta) {
+		if (delta != 0) {
+			collected = true;
+			counter.addAndGet(delta);
+		}
+	}
+
+	/**
+	 * Indicate at least one change has been collected. Without any change, the collector may not be fed by the
+	 * provider, so the statistics cannot be trusted.
+	 *
+	 * @return <code>true</code> when at least one change has been collected.
+	 */
+	public boolean isCollected() {
+		return collected;
+	}
+
+	/**
+	 * Add the collected statistics to the given status, and reset them.
+	 *
+	 * @param status The status to update.
+	 */
+	public void fold(final ImportCatalogStatus status) {
+		status.setNbLocations(add(status.getNbLocations(), locations));
+		status.setNbTypes(add(status.getNbTypes(), types));
+		status.setNbPrices(add(status.getNbPrices(), prices));
+		status.setNbCo2Prices(add(status.getNbCo2Prices(), co2Prices));
+	}
+
+	private int add(final Integer value, final AtomicInteger delta) {
+		return Objects.requireNonNullElse(value, 0) + delta.getAndSet(0);
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.catalog;
+
+/**
+ * Stable 64 bits FNV-1a hash of the catalog values a price or a type has been built from. The hash only depends on the
+ * added values and their order, so it can be stored and compared across the catalog updates and the JVM restarts.
+ */
+public final class ContentHash {
+
+	private static final long OFFSET = 0xcbf29ce484222325L;
+
+	private static final long PRIME = 0x100000001b3L;
+
+	/**
+	 * Marker of a <code>null</code> value, so <code>null</code> and an empty string do not collide.
+	 */
+	private static final long NULL = 0x9e3779b97f4a7c15L;
+
+	private long hash = OFFSET;
+
+	private ContentHash mix(final long value) {
+		for (var i = 0; i < Long.BYTES; i++) {
+			hash ^= (value >>> (i * Byte.SIZE)) & 0xff;
+			hash *= PRIME;
+		}
+		return this;
+	}
+
+	/**
+	 * Add a string value. The length is hashed first, so the adjacent values cannot be shifted.
+	 *
+	 * @param value The value to add. May be <code>null</code>.
+	 * @return This builder.
+	 */
+	public ContentHash add(final String value) {
+		if (value == null) {
+			return mix(NULL);
+		}
+		mix(value.length());
+		for (var i = 0; i < value.length(); i++) {
+			final var c = value.charAt(i);
+			hash ^= c & 0xff;
+			hash *= PRIME;
+			hash ^= c >>> Byte.SIZE;
+			hash *= PRIME;
+		}
+		return this;
+	}
+
+	/**
+	 * Add a numeric value.
+	 *
+	 * @param value The value to add.
+	 * @return This builder.
+	 */
+	public ContentHash add(final double value) {
+		return mix(Double.doubleToLongBits(value));
+	}
+
+	/**
+	 * Add a numeric value.
+	 *
+	 * @param value The value to add. May be <code>null</code>.
+	 * @return This builder.
+	 */
+	public ContentHash add(final Double value) {
+		return value == null ? mix(NULL) : add(value.doubleValue());
+	}
+
+	/**
+	 * Add an integral value.
+	 *
+	 * @param value The value to add.
+	 * @return This builder.
+	 */
+	public ContentHash add(final long value) {
+		return mix(value);
+	}
+
+	/**
+	 * Add numeric values. The length is hashed first, so the adjacent values cannot be shifted.
+	 *
+	 * @param values The values to add. May be <code>null</code>.
+	 * @return This builder.
+	 */
+	public ContentHash add(final double[] values) {
+		if (values == null) {
+			return mix(NULL);
+		}
+		mix(values.length);
+		for (final var value : values) {
+			add(value);
+		}
+		return this;
+	}
+
+	/**
+	 * Add a boolean value.
+	 *
+	 * @param value The value to add. May be <code>null</code>.
+	 * @return This builder.
+	 */
+	public ContentHash add(final Boolean value) {
+		return value == null ? mix(NULL) : mix(value ? 1 : 0);
+	}
+
+	/**
+	 * Add an enumeration value. The name is hashed, not the ordinal, so the hash survives a new enumeration item.
+	 *
+	 * @param value The value to add. May be <code>null</code>.
+	 * @return This builder.
+	 */
+	public ContentHash add(final Enum<?> value) {
+		return add(value == null ? null : value.name());
+	}
+
+	/**
+	 * Return the hash of the added values.
+	 *
+	 * @return The hash of the added values.
+	 */
+	public long get() {
+		return hash;
+	}
+}
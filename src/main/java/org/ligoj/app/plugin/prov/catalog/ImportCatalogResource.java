@@ -4,13 +4,22 @@
 package org.ligoj.app.plugin.prov.catalog;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import jakarta.annotation.PreDestroy;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.DefaultValue;
@@ -25,12 +34,16 @@ import jakarta.ws.rs.core.MediaType;
 
 import org.ligoj.app.dao.NodeRepository;
 import org.ligoj.app.plugin.prov.AbstractProvQuoteResource;
+import org.ligoj.app.plugin.prov.ProvPriceIndex;
 import org.ligoj.app.plugin.prov.ProvResource;
 import org.ligoj.app.plugin.prov.dao.Co2Price;
 import org.ligoj.app.plugin.prov.dao.ImportCatalogStatusRepository;
+import org.ligoj.app.plugin.prov.dao.LocatedPrice;
+import org.ligoj.app.plugin.prov.dao.ProvLocationAvailabilityRepository;
 import org.ligoj.app.plugin.prov.dao.ProvLocationRepository;
 import org.ligoj.app.plugin.prov.dao.ProvQuoteRepository;
 import org.ligoj.app.plugin.prov.model.ImportCatalogStatus;
+import org.ligoj.app.plugin.prov.model.ProvLocationAvailability;
 import org.ligoj.app.plugin.prov.model.ResourceType;
 import org.ligoj.app.resource.ServicePluginLocator;
 import org.ligoj.app.resource.node.LongTaskRunnerNode;
@@ -38,6 +51,7 @@ import org.ligoj.app.resource.node.NodeResource;
 import org.ligoj.bootstrap.core.resource.OnNullReturn404;
 import org.ligoj.bootstrap.core.security.SecurityHelper;
 import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+import org.ligoj.bootstrap.resource.system.configuration.ConfigurationResource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
@@ -57,6 +71,32 @@ public class ImportCatalogResource implements LongTaskRunnerNode<ImportCatalogSt
 
 	private static final String BY_NODE = "node.id";
 
+	/**
+	 * Configuration key of the maximal amount of catalog imports running at the same time.
+	 */
+	public static final String CONF_THREADS = ProvResource.SERVICE_KEY + ":catalog-threads";
+
+	/**
+	 * Default maximal amount of catalog imports running at the same time.
+	 */
+	public static final int DEFAULT_THREADS = 2;
+
+	/**
+	 * Configuration key of the maximal amount of regions parsed at the same time, for all imports.
+	 */
+	public static final String CONF_PARALLEL = ProvResource.SERVICE_KEY + ":catalog-parallel";
+
+	/**
+	 * Default maximal amount of regions parsed at the same time.
+	 */
+	public static final int DEFAULT_PARALLEL = 4;
+
+	/**
+	 * Configuration key enabling the statistics recount from the database at the end of each import. When disabled,
+	 * the statistics collected during the import are added to the previous ones.
+	 */
+	public static final String CONF_RECONCILE = ProvResource.SERVICE_KEY + ":catalog-reconcile";
+
 	@Autowired
 	@Getter
 	private NodeResource nodeResource;
@@ -81,9 +121,33 @@ public class ImportCatalogResource implements LongTaskRunnerNode<ImportCatalogSt
 	@Autowired
 	private ProvLocationRepository locationRepository;
 
+	@Autowired
+	private ProvLocationAvailabilityRepository availabilityRepository;
+
 	@Autowired
 	private ProvQuoteRepository repository;
 
+	@Autowired
+	private ProvPriceIndex priceIndex;
+
+	@Autowired
+	private ConfigurationResource configuration;
+
+	/**
+	 * Shared executor of the catalog imports. Created on the first use.
+	 */
+	private ExecutorService importExecutor;
+
+	/**
+	 * Shared executor of the regional catalog parsers. Created on the first use.
+	 */
+	private ExecutorService parseExecutor;
+
+	/**
+	 * The statistics collectors of the running imports. Key is the node identifier.
+	 */
+	private final Map<String, Set<CatalogStats>> stats = new ConcurrentHashMap<>();
+
 	/**
 	 * Update the catalog prices of related provider. Asynchronous operation.
 	 *
@@ -98,17 +162,15 @@ public class ImportCatalogResource implements LongTaskRunnerNode<ImportCatalogSt
 		final var entity = nodeResource.checkWritableNode(node).getTool();
 		final var catalogService = locator.getResource(entity.getId(), ImportCatalogService.class);
 		final var task = startTask(entity.getId(), t -> {
+			// Keep the statistics of the previous import, the baseline of the collected ones
 			t.setLocation(null);
-			t.setNbPrices(0);
-			t.setNbCo2Prices(0);
-			t.setNbTypes(0);
 			t.setWorkload(0);
 			t.setDone(0);
 			t.setPhase(null);
 		});
 		final var user = securityHelper.getLogin();
 		// The import execution will be done into another thread
-		Executors.newSingleThreadExecutor().submit(() -> {
+		getImportExecutor().submit(() -> {
 			Thread.sleep(50);
 			securityHelper.setUserName(user);
 			updateCatalog(catalogService, entity.getId(), force);
@@ -117,6 +179,65 @@ public class ImportCatalogResource implements LongTaskRunnerNode<ImportCatalogSt
 		return task;
 	}
 
+	/**
+	 * Return a bounded executor with daemon threads. The idle threads are released.
+	 */
+	private ExecutorService newExecutor(final String name, final int threads) {
+		final var counter = new AtomicInteger();
+		final var executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+				r -> {
+					final var thread = new Thread(r, name + "-" + counter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Return the shared executor of the catalog imports.
+	 *
+	 * @return The shared executor of the catalog imports.
+	 */
+	protected synchronized ExecutorService getImportExecutor() {
+		if (importExecutor == null) {
+			importExecutor = newExecutor("catalog-import",
+					Math.max(1, configuration.get(CONF_THREADS, DEFAULT_THREADS)));
+		}
+		return importExecutor;
+	}
+
+	/**
+	 * Return the shared executor of the regional catalog parsers. Its size is the configured regional parallelism.
+	 *
+	 * @return The shared executor of the regional catalog parsers.
+	 */
+	public synchronized ExecutorService getParseExecutor() {
+		if (parseExecutor == null) {
+			parseExecutor = newExecutor("catalog-parse", getParallelism());
+		}
+		return parseExecutor;
+	}
+
+	/**
+	 * Return the maximal amount of regions parsed at the same time.
+	 *
+	 * @return The configured regional parallelism. At least <code>1</code>.
+	 */
+	public int getParallelism() {
+		return Math.max(1, configuration.get(CONF_PARALLEL, DEFAULT_PARALLEL));
+	}
+
+	/**
+	 * Stop the shared executors.
+	 */
+	@PreDestroy
+	public synchronized void shutdown() {
+		Stream.of(importExecutor, parseExecutor).filter(Objects::nonNull).forEach(ExecutorService::shutdownNow);
+		importExecutor = null;
+		parseExecutor = null;
+	}
+
 	/**
 	 * Update the catalog of given node. Synchronous operation.
 	 *
@@ -138,6 +259,7 @@ public class ImportCatalogResource implements LongTaskRunnerNode<ImportCatalogSt
 		// Restore the context
 		log.info("Catalog update for {}", node);
 		var failed = true;
+		stats.remove(node);
 		try {
 			catalogService.updateCatalog(node, force);
 			log.info("Catalog update succeed for {}", node);
@@ -146,15 +268,30 @@ public class ImportCatalogResource implements LongTaskRunnerNode<ImportCatalogSt
 			// Catalog update failed
 			log.error("Catalog update failed for {}", node, e);
 		} finally {
+			final var collected = stats.remove(node);
 			endTask(node, failed, t -> {
-				if (!t.isFailed()) {
-					t.setLastSuccess(t.getEnd());
+				if (t.isFailed()) {
+					// The statistics folded by the steps of a failed import are not reliable
+					updateStats(t);
+					return;
+				}
 
-					// Updated statistics
+				// Add the remaining statistics collected during the import
+				final var trusted = collected != null && collected.stream().anyMatch(CatalogStats::isCollected);
+				Optional.ofNullable(collected).ifPresent(c -> c.forEach(s -> s.fold(t)));
+				if (!trusted || t.getLastSuccess() == null || configuration.get(CONF_RECONCILE, 0) == 1) {
+					// Not collected by this provider or without a reliable baseline, recount the whole catalog
 					updateStats(t);
+				} else {
+					updateAvailability(node);
 				}
+				t.setLastSuccess(t.getEnd());
 			});
 		}
+		if (!failed) {
+			// Swap the in-memory price indexes of this node
+			priceIndex.refresh(node);
+		}
 	}
 
 	@Override
@@ -173,6 +310,44 @@ public class ImportCatalogResource implements LongTaskRunnerNode<ImportCatalogSt
 		return LongTaskRunnerNode.super.getTask(nodeResource.checkWritableNode(node).getTool().getId());
 	}
 
+	/**
+	 * Register a statistics collector of a running import. The remaining collected statistics are added to the status
+	 * at the end of the import.
+	 *
+	 * @param node      The node identifier.
+	 * @param collector The statistics collector of the import.
+	 */
+	public void collect(final String node, final CatalogStats collector) {
+		stats.computeIfAbsent(node, n -> ConcurrentHashMap.newKeySet()).add(collector);
+	}
+
+	/**
+	 * Recount the catalog statistics of a node from the database. Asynchronous operation, ignored when an import of
+	 * this node is running.
+	 *
+	 * @param node The node (provider) to recount.
+	 */
+	@POST
+	@Path("{node:service:prov:.+}/stats")
+	public void reconcile(@PathParam("node") final String node) {
+		final var id = nodeResource.checkWritableNode(node).getTool().getId();
+		getImportExecutor().submit(() -> reconcileStats(id));
+	}
+
+	/**
+	 * Recount the catalog statistics of a node from the database. Synchronous operation, ignored when an import of
+	 * this node is running.
+	 *
+	 * @param node The node identifier.
+	 */
+	protected void reconcileStats(final String node) {
+		final var task = taskRepository.findBy("locked.id", node);
+		if (task != null && task.isFinished()) {
+			updateStats(task);
+			taskRepository.saveAndFlush(task);
+		}
+	}
+
 	/**
 	 * Update the statistics of a catalog update task.
 	 *
@@ -180,10 +355,11 @@ public class ImportCatalogResource implements LongTaskRunnerNode<ImportCatalogSt
 	 */
 	public void updateStats(final ImportCatalogStatus task) {
 		updateStats(task, task.getLocked().getId());
+		updateAvailability(task.getLocked().getId());
 	}
 
 	/**
-	 * Update the statistics of a catalog update task.
+	 * Recount the statistics of a catalog update task from the database.
 	 *
 	 * @param task The task status to update.
 	 * @param node The node identifier.
@@ -209,6 +385,27 @@ public class ImportCatalogResource implements LongTaskRunnerNode<ImportCatalogSt
 		task.setNbTypes(task.getNbTypes() + (int) resource.getItRepository().countBy(BY_NODE, node));
 	}
 
+	/**
+	 * Update the availability of the locations of a node: the amount of prices of each resource type by location.
+	 *
+	 * @param node The node identifier.
+	 */
+	private void updateAvailability(final String node) {
+		final var availabilities = availabilityRepository.findAll(node).stream()
+				.collect(Collectors.toMap(a -> a.getLocation().getId(), Function.identity()));
+		Stream.of(ResourceType.values()).forEach(t -> {
+			availabilities.values().forEach(a -> a.setNbPrices(t, 0));
+			if (this.resource.getResource(t).getIpRepository() instanceof LocatedPrice prices) {
+				prices.countByLocation(node).forEach(rs -> availabilities.computeIfAbsent((Integer) rs[0], l -> {
+					final var availability = new ProvLocationAvailability();
+					availability.setLocation(locationRepository.findOne(l));
+					return availability;
+				}).setNbPrices(t, ((Number) rs[1]).intValue()));
+			}
+		});
+		availabilityRepository.saveAll(availabilities.values());
+	}
+
 	/**
 	 * Return the nodes and their catalog status.
 	 *
@@ -226,13 +423,8 @@ public class ImportCatalogResource implements LongTaskRunnerNode<ImportCatalogSt
 
 		return providers.getContent().stream().sorted().map(n -> {
 			final var vo = new CatalogVo();
-			vo.setStatus(Optional.ofNullable(statuses.get(n.getId())).orElseGet(() -> {
-
-				// Create a mock catalog status
-				final var status = new ImportCatalogStatus();
-				updateStats(status, n.getId());
-				return status;
-			}));
+			// Only the stored statistics, a mock catalog status for the nodes never imported
+			vo.setStatus(Optional.ofNullable(statuses.get(n.getId())).orElseGet(ImportCatalogStatus::new));
 			vo.setNode(NodeResource.toVo(n));
 			vo.setCanImport(locator.getResource(n.getId(), ImportCatalogService.class) != null);
 			vo.setNbQuotes((int) repository.countByNode(n.getId()));
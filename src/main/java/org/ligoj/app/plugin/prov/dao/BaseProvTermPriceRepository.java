@@ -8,7 +8,6 @@ import java.util.List;
 import org.ligoj.app.plugin.prov.model.AbstractInstanceType;
 import org.ligoj.app.plugin.prov.model.AbstractTermPrice;
 import org.ligoj.app.plugin.prov.model.ProvInstancePrice;
-import org.ligoj.bootstrap.core.dao.RestRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.NoRepositoryBean;
 
@@ -21,7 +20,7 @@ import org.springframework.data.repository.NoRepositoryBean;
 @SuppressWarnings("unused")
 @NoRepositoryBean
 public interface BaseProvTermPriceRepository<T extends AbstractInstanceType, P extends AbstractTermPrice<T>>
-		extends RestRepository<P, Integer>, Co2Price {
+		extends HashedPriceRepository<P>, Co2Price, LocatedPrice {
 
 	String LOWEST_QUERY_TERM = """
 			SELECT ip,
@@ -67,4 +66,9 @@ public interface BaseProvTermPriceRepository<T extends AbstractInstanceType, P e
 	@Query("FROM #{#entityName} e INNER JOIN e.term tm WHERE e.location.name = :location AND e.type.node.id = :node"
 			+ " AND (tm.name LIKE CONCAT(:term1, '%') OR tm.name LIKE CONCAT(:term2, '%'))")
 	List<P> findByLocation(String node, String location, final String term1, final String term2);
+
+	@Override
+	@Query("SELECT location.id, COUNT(id) FROM #{#entityName} WHERE type.node.id = :node AND location IS NOT NULL"
+			+ " GROUP BY location.id")
+	List<Object[]> countByLocation(String node);
 }
@@ -3,6 +3,8 @@
  */
 package org.ligoj.app.plugin.prov.dao;
 
+import java.util.List;
+
 import org.ligoj.app.plugin.prov.model.AbstractCodedEntity;
 import org.ligoj.app.plugin.prov.model.ProvInstanceType;
 import org.ligoj.app.plugin.prov.model.ProvType;
@@ -44,4 +46,13 @@ public interface BaseProvTypeRepository<T extends AbstractCodedEntity> extends R
 	@Query("SELECT i FROM #{#entityName} i, Subscription s INNER JOIN s.node AS sn INNER JOIN i.node AS n"
 			+ " WHERE s.id = :subscription AND sn.id LIKE CONCAT(n.id, ':%') AND i.code = :code")
 	T findByCode(int subscription, String code);
+
+	/**
+	 * Return the code and the content hash of all types related to given node.
+	 *
+	 * @param node The node (provider) to match.
+	 * @return The code and the content hash of the types. The hash may be <code>null</code>.
+	 */
+	@Query("SELECT code, contentHash FROM #{#entityName} WHERE node.id = :node")
+	List<Object[]> findAllHashes(String node);
 }
@@ -0,0 +1,40 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.dao;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.ligoj.app.plugin.prov.model.AbstractPrice;
+import org.ligoj.bootstrap.core.dao.RestRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+
+/**
+ * Price repository with content hash, used to detect the changed prices of a catalog without loading them.
+ *
+ * @param <P> The price type.
+ */
+@NoRepositoryBean
+public interface HashedPriceRepository<P extends AbstractPrice<?>> extends RestRepository<P, Integer> {
+
+	/**
+	 * Return the code and the content hash of all prices related to given node.
+	 *
+	 * @param node The node (provider) to match.
+	 * @return The code and the content hash of the prices. The hash may be <code>null</code>.
+	 */
+	@Query("SELECT code, contentHash FROM #{#entityName} WHERE type.node.id = :node")
+	List<Object[]> findAllHashes(String node);
+
+	/**
+	 * Return the prices related to given node and matching the given codes.
+	 *
+	 * @param node  The node (provider) to match.
+	 * @param codes The price codes to match.
+	 * @return The matching prices.
+	 */
+	@Query("FROM #{#entityName} WHERE type.node.id = :node AND code IN :codes")
+	List<P> findAllByCode(String node, Collection<String> codes);
+}
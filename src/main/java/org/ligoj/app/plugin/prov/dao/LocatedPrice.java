@@ -0,0 +1,24 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.dao;
+
+import java.util.List;
+
+import org.springframework.data.repository.NoRepositoryBean;
+
+/**
+ * Flag the price attached to a location.
+ */
+@NoRepositoryBean
+public interface LocatedPrice {
+
+	/**
+	 * Return the amount of prices by location.
+	 *
+	 * @param node The node identifier owning the prices.
+	 * @return The location identifier and the amount of its prices.
+	 */
+	List<Object[]> countByLocation(String node);
+
+}
@@ -48,7 +48,7 @@ public interface ProvContainerPriceRepository
 	 * @return The cheapest container price or empty result.
 	 */
 	@Query(DYNAMIC_QUERY_OS + """
-			  ORDER BY totalCost ASC, totalCo2 ASC, ip.type.id DESC, ip.maxCpu ASC
+			  ORDER BY totalCost ASC NULLS LAST, totalCo2 ASC NULLS LAST, ip.type.id DESC, ip.maxCpu ASC NULLS LAST
 			""")
 	List<Object[]> findLowestDynamicCost(List<Integer> types, List<Integer> terms, double cpu, double gpu, double ram,
 			VmOs os, int location, double rate, double globalRate, double duration, String license, double initialCost,
@@ -74,7 +74,7 @@ public interface ProvContainerPriceRepository
 	 * @return The cheapest container price or empty result.
 	 */
 	@Query(DYNAMIC_QUERY_OS + """
-			  ORDER BY totalCo2 ASC, totalCost ASC, ip.type.id DESC, ip.maxCpu ASC
+			  ORDER BY totalCo2 ASC NULLS LAST, totalCost ASC NULLS LAST, ip.type.id DESC, ip.maxCpu ASC NULLS LAST
 			""")
 	List<Object[]> findLowestDynamicCo2(List<Integer> types, List<Integer> terms, double cpu, double gpu, double ram,
 			VmOs os, int location, double rate, double globalRate, double duration, String license, double initialCost,
@@ -95,7 +95,7 @@ public interface ProvContainerPriceRepository
 	 * @return The minimum instance price or empty result.
 	 */
 	@Query(LOWEST_QUERY_OS + """
-			  ORDER BY totalCost ASC, totalCo2 ASC, ip.type.id DESC
+			  ORDER BY totalCost ASC NULLS LAST, totalCo2 ASC NULLS LAST, ip.type.id DESC
 			""")
 	List<Object[]> findLowestCost(List<Integer> types, List<Integer> terms, VmOs os, int location, double rate,
 			double duration, String license, double initialCost, Pageable pageable);
@@ -116,7 +116,7 @@ public interface ProvContainerPriceRepository
 	 * @return The minimum instance price or empty result.
 	 */
 	@Query(LOWEST_QUERY_OS + """
-			  ORDER BY totalCo2 ASC, totalCost ASC, ip.type.id DESC
+			  ORDER BY totalCo2 ASC NULLS LAST, totalCost ASC NULLS LAST, ip.type.id DESC
 			""")
 	List<Object[]> findLowestCo2(List<Integer> types, List<Integer> terms, VmOs os, int location, double rate,
 			double duration, String license, double initialCost, Pageable pageable);
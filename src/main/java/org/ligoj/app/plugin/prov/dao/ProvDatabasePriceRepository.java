@@ -86,7 +86,7 @@ public interface ProvDatabasePriceRepository
 	 * @return The cheapest database price or empty result.
 	 */
 	@Query(DYNAMIC_QUERY + """
-			  ORDER BY totalCost ASC, totalCo2 ASC, ip.type.id DESC, ip.maxCpu ASC
+			  ORDER BY totalCost ASC NULLS LAST, totalCo2 ASC NULLS LAST, ip.type.id DESC, ip.maxCpu ASC NULLS LAST
 			""")
 	List<Object[]> findLowestDynamicCost(List<Integer> types, List<Integer> terms, double cpu, double gpu, double ram,
 			String engine, String edition, int location, double rate, double globalRate, double duration,
@@ -114,7 +114,7 @@ public interface ProvDatabasePriceRepository
 	 * @return The cheapest database price or empty result.
 	 */
 	@Query(DYNAMIC_QUERY + """
-			  ORDER BY totalCo2 ASC, totalCost ASC, ip.type.id DESC, ip.maxCpu ASC
+			  ORDER BY totalCo2 ASC NULLS LAST, totalCost ASC NULLS LAST, ip.type.id DESC, ip.maxCpu ASC NULLS LAST
 			""")
 	List<Object[]> findLowestDynamicCo2(List<Integer> types, List<Integer> terms, double cpu, double gpu, double ram,
 			String engine, String edition, int location, double rate, double globalRate, double duration,
@@ -138,7 +138,7 @@ public interface ProvDatabasePriceRepository
 	 * @return The minimum instance price or empty result.
 	 */
 	@Query(LOWEST_QUERY + """
-			  ORDER BY totalCost ASC, totalCo2 ASC, ip.type.id DESC
+			  ORDER BY totalCost ASC NULLS LAST, totalCo2 ASC NULLS LAST, ip.type.id DESC
 			""")
 	List<Object[]> findLowestCost(List<Integer> types, List<Integer> terms, int location, double rate, double duration,
 			String license, String engine, String edition, double initialCost, Pageable pageable);
@@ -161,7 +161,7 @@ public interface ProvDatabasePriceRepository
 	 * @return The minimum instance price or empty result.
 	 */
 	@Query(LOWEST_QUERY + """
-			  ORDER BY totalCo2 ASC, totalCost ASC, ip.type.id DESC
+			  ORDER BY totalCo2 ASC NULLS LAST, totalCost ASC NULLS LAST, ip.type.id DESC
 			""")
 	List<Object[]> findLowestCo2(List<Integer> types, List<Integer> terms, int location, double rate, double duration,
 			String license, String engine, String edition, double initialCost, Pageable pageable);
@@ -231,7 +231,7 @@ public interface ProvFunctionPriceRepository extends BaseProvTermPriceRepository
 	 * @return The cheapest price or empty result.
 	 */
 	@Query(DYNAMIC_QUERY + """
-			 ORDER BY totalCost ASC, totalCo2 ASC, ip.type.id DESC, ip.maxCpu ASC
+			 ORDER BY totalCost ASC NULLS LAST, totalCo2 ASC NULLS LAST, ip.type.id DESC, ip.maxCpu ASC NULLS LAST
 			""")
 	List<Object[]> findLowestDynamicCost(List<Integer> types, List<Integer> terms, double cpu, double ram, int location,
 			double rate, double globalRate, double duration, double initialCost, double nbRequests,
@@ -261,7 +261,7 @@ public interface ProvFunctionPriceRepository extends BaseProvTermPriceRepository
 	 * @return The cheapest price or empty result.
 	 */
 	@Query(DYNAMIC_QUERY + """
-			 ORDER BY totalCo2 ASC, totalCost ASC, ip.type.id DESC, ip.maxCpu ASC
+			 ORDER BY totalCo2 ASC NULLS LAST, totalCost ASC NULLS LAST, ip.type.id DESC, ip.maxCpu ASC NULLS LAST
 			""")
 	List<Object[]> findLowestDynamicCo2(List<Integer> types, List<Integer> terms, double cpu, double ram, int location,
 			double rate, double globalRate, double duration, double initialCost, double nbRequests,
@@ -283,7 +283,7 @@ public interface ProvFunctionPriceRepository extends BaseProvTermPriceRepository
 	 * @return The minimum instance price or empty result.
 	 */
 	@Query(LOWEST_QUERY + """
-			  ORDER BY totalCost ASC, totalCo2 ASC, ip.type.id DESC
+			  ORDER BY totalCost ASC NULLS LAST, totalCo2 ASC NULLS LAST, ip.type.id DESC
 			""")
 	List<Object[]> findLowestCost(List<Integer> types, List<Integer> terms, int location, double rate, double duration,
 			double initialCost, double requestDuration, Pageable pageable);
@@ -303,7 +303,7 @@ public interface ProvFunctionPriceRepository extends BaseProvTermPriceRepository
 	 * @return The minimum instance price or empty result.
 	 */
 	@Query(LOWEST_QUERY + """
-			  ORDER BY totalCo2 ASC, totalCost ASC, ip.type.id DESC
+			  ORDER BY totalCo2 ASC NULLS LAST, totalCost ASC NULLS LAST, ip.type.id DESC
 			""")
 	List<Object[]> findLowestCo2(List<Integer> types, List<Integer> terms, int location, double rate, double duration,
 			double initialCost, double requestDuration, Pageable pageable);
@@ -74,7 +74,7 @@ public interface ProvInstancePriceRepository
 	 * @return The minimum instance price or empty result.
 	 */
 	@Query(DYNAMIC_QUERY + """
-			  ORDER BY totalCost ASC, totalCo2 ASC, ip.type.id DESC, ip.maxCpu ASC
+			  ORDER BY totalCost ASC NULLS LAST, totalCo2 ASC NULLS LAST, ip.type.id DESC, ip.maxCpu ASC NULLS LAST
 			""")
 	List<Object[]> findLowestDynamicCost(List<Integer> types, List<Integer> terms, double cpu, double gpu, double ram,
 			VmOs os, int location, double rate, double globalRate, double duration, String license, String software,
@@ -103,7 +103,7 @@ public interface ProvInstancePriceRepository
 	 * @return The minimum instance price or empty result.
 	 */
 	@Query(DYNAMIC_QUERY + """
-			  ORDER BY totalCo2 ASC, totalCost ASC, ip.type.id DESC, ip.maxCpu ASC
+			  ORDER BY totalCo2 ASC NULLS LAST, totalCost ASC NULLS LAST, ip.type.id DESC, ip.maxCpu ASC NULLS LAST
 			""")
 	List<Object[]> findLowestDynamicCo2(List<Integer> types, List<Integer> terms, double cpu, double gpu, double ram,
 			VmOs os, int location, double rate, double globalRate, double duration, String license, String software,
@@ -128,7 +128,7 @@ public interface ProvInstancePriceRepository
 	 * @return The minimum instance price or empty result.
 	 */
 	@Query(LOWEST_QUERY + """
-			  ORDER BY totalCost ASC, totalCo2 ASC, ip.type.id DESC, ip.maxCpu ASC
+			  ORDER BY totalCost ASC NULLS LAST, totalCo2 ASC NULLS LAST, ip.type.id DESC, ip.maxCpu ASC NULLS LAST
 			""")
 	List<Object[]> findLowestCost(List<Integer> types, List<Integer> terms, VmOs os, int location, double rate,
 			double duration, String license, String software, double initialCost, ProvTenancy tenancy,
@@ -153,7 +153,7 @@ public interface ProvInstancePriceRepository
 	 * @return The minimum instance price or empty result.
 	 */
 	@Query(LOWEST_QUERY + """
-			  ORDER BY totalCo2 ASC, totalCost ASC, ip.type.id DESC, ip.maxCpu ASC
+			  ORDER BY totalCo2 ASC NULLS LAST, totalCost ASC NULLS LAST, ip.type.id DESC, ip.maxCpu ASC NULLS LAST
 			""")
 	List<Object[]> findLowestCo2(List<Integer> types, List<Integer> terms, VmOs os, int location, double rate,
 			double duration, String license, String software, double initialCost, ProvTenancy tenancy,
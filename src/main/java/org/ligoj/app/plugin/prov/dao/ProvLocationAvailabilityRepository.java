@@ -0,0 +1,37 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.dao;
+
+import java.util.List;
+
+import org.ligoj.app.plugin.prov.model.ProvLocation;
+import org.ligoj.app.plugin.prov.model.ProvLocationAvailability;
+import org.ligoj.bootstrap.core.dao.RestRepository;
+import org.springframework.data.jpa.repository.Query;
+
+/**
+ * {@link ProvLocationAvailability} repository.
+ */
+public interface ProvLocationAvailabilityRepository extends RestRepository<ProvLocationAvailability, Integer> {
+
+	/**
+	 * Return all {@link ProvLocation} related to given node identifier and having instance prices.
+	 *
+	 * @param node The node identifier to match.
+	 * @return All available locations linked to this node. Empty when the availability of this node has not been
+	 *         computed.
+	 */
+	@Query("SELECT pl FROM #{#entityName} pa INNER JOIN pa.location pl INNER JOIN pl.node n WHERE"
+			+ " (:node = n.id OR :node LIKE CONCAT(n.id, ':%')) AND pa.nbInstancePrices > 0")
+	List<ProvLocation> findAllLocations(String node);
+
+	/**
+	 * Return the availability of all locations of a node.
+	 *
+	 * @param node The node identifier owning the locations.
+	 * @return The availability of the locations of the node.
+	 */
+	@Query("FROM #{#entityName} WHERE location.node.id = :node")
+	List<ProvLocationAvailability> findAll(String node);
+}
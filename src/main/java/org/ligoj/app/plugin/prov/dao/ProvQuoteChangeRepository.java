@@ -0,0 +1,71 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.dao;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.ligoj.app.plugin.prov.model.ProvQuote;
+import org.ligoj.app.plugin.prov.model.ProvQuoteChange;
+import org.ligoj.app.plugin.prov.model.ResourceType;
+import org.ligoj.bootstrap.core.dao.RestRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+/**
+ * {@link ProvQuoteChange} repository.
+ */
+public interface ProvQuoteChangeRepository extends RestRepository<ProvQuoteChange, Integer> {
+
+	/**
+	 * Return the changes of a quote after the given revision.
+	 *
+	 * @param quote    The quote to match.
+	 * @param revision The exclusive lower revision.
+	 * @return The changes of the quote after the given revision.
+	 */
+	@Query("FROM #{#entityName} WHERE configuration = :quote AND revision > :revision")
+	List<ProvQuoteChange> findAllSince(ProvQuote quote, long revision);
+
+	/**
+	 * Return the resource types changed after the given revision.
+	 *
+	 * @param quote    The quote identifier to match.
+	 * @param revision The exclusive lower revision.
+	 * @return The changed resource types. A <code>null</code> type stands for a change of the quote's profiles, tags or
+	 *         networks.
+	 */
+	@Query("SELECT DISTINCT type FROM #{#entityName} WHERE configuration.id = :quote AND revision > :revision")
+	List<ResourceType> findAllTypesSince(int quote, long revision);
+
+	/**
+	 * Delete the previous changes of the given resources.
+	 *
+	 * @param quote     The quote to match.
+	 * @param type      The resource type to match.
+	 * @param resources The resource identifiers to match.
+	 */
+	@Modifying
+	@Query("DELETE FROM #{#entityName} WHERE configuration = :quote AND type = :type AND resource IN :resources")
+	void deleteAll(ProvQuote quote, ResourceType type, Collection<Integer> resources);
+
+	/**
+	 * Delete the previous changes of the quote's profiles, tags or networks.
+	 *
+	 * @param quote The quote to match.
+	 */
+	@Modifying
+	@Query("DELETE FROM #{#entityName} WHERE configuration = :quote AND type IS NULL")
+	void deleteAllGlobal(ProvQuote quote);
+
+	/**
+	 * Delete the deletion changes up to the given revision.
+	 *
+	 * @param quote    The quote to match.
+	 * @param revision The inclusive upper revision.
+	 */
+	@Modifying
+	@Query("DELETE FROM #{#entityName} WHERE configuration = :quote AND deleted = true AND revision <= :revision")
+	void purge(ProvQuote quote, long revision);
+}
@@ -78,6 +78,15 @@ public interface ProvQuoteRepository extends RestRepository<ProvQuote, Integer>
 			+ " LEFT JOIN FETCH ip.type AS i LEFT JOIN FETCH ip.term LEFT JOIN FETCH q.usage WHERE q.subscription.id = :subscription")
 	ProvQuote getCompute(int subscription);
 
+	/**
+	 * Return the version stamp of the quote related to the given subscription.
+	 *
+	 * @param subscription The subscription identifier linking the quote.
+	 * @return The version stamp of the quote, or <code>null</code> when not found.
+	 */
+	@Query("SELECT revision FROM #{#entityName} WHERE subscription.id = :subscription")
+	Long getRevision(int subscription);
+
 	/**
 	 * Return the amount of quotes based on the related node.
 	 *
@@ -15,6 +15,19 @@ import org.springframework.data.jpa.repository.Query;
  */
 public interface ProvQuoteStorageRepository extends BaseProvQuoteRepository<ProvQuoteStorage> {
 
+	/**
+	 * Return the quote storages from the related quote. The optional attached resource is fetched too: the storages can
+	 * be used once the loading transaction is closed.
+	 *
+	 * @param quote The filtered quote.
+	 * @return The storage quote details with the optional attached resource.
+	 */
+	@Override
+	@Query("FROM #{#entityName} AS qs INNER JOIN FETCH qs.price qsp INNER JOIN FETCH qsp.type"
+			+ " LEFT JOIN FETCH qs.quoteInstance LEFT JOIN FETCH qs.quoteDatabase LEFT JOIN FETCH qs.quoteContainer"
+			+ " LEFT JOIN FETCH qs.quoteFunction WHERE qs.configuration = :quote")
+	List<ProvQuoteStorage> findAll(ProvQuote quote);
+
 	@Override
 	@Query("SELECT id FROM #{#entityName} WHERE configuration = :quote AND price.type.network IS NOT NULL")
 	Set<Integer> findAllNetworkId(ProvQuote quote);
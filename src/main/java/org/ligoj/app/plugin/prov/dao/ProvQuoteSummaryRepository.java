@@ -0,0 +1,33 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.dao;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.ligoj.app.plugin.prov.model.ProvQuoteSummary;
+import org.ligoj.bootstrap.core.dao.RestRepository;
+import org.springframework.data.jpa.repository.Query;
+
+/**
+ * {@link ProvQuoteSummary} repository.
+ */
+public interface ProvQuoteSummaryRepository extends RestRepository<ProvQuoteSummary, Integer> {
+
+	/**
+	 * Return the quotes of the given subscriptions with their summary when it is up to date.
+	 *
+	 * @param subscriptions The subscription identifiers linking the quotes.
+	 * @return The quotes details : subscription identifier, quote identifier, name, description, cost, maximal cost,
+	 *         initial cost, maximal initial cost, unbound cost counter, CO2, maximal CO2, location, currency, the
+	 *         summary and the revision. The summary is <code>null</code> when not computed for the current revision
+	 *         of the quote.
+	 */
+	@Query("SELECT q.subscription.id, q.id, q.name, q.description, q.cost, q.maxCost, q.initialCost, q.maxInitialCost,"
+			+ " q.unboundCostCounter, q.co2, q.maxCo2, l, c, s, q.revision FROM ProvQuote q"
+			+ " INNER JOIN q.location AS l LEFT JOIN q.currency AS c"
+			+ " LEFT JOIN ProvQuoteSummary s ON s.configuration = q AND s.revision = q.revision"
+			+ " WHERE q.subscription.id IN :subscriptions")
+	List<Object[]> findAllBySubscription(Collection<Integer> subscriptions);
+}
@@ -8,7 +8,6 @@ import java.util.List;
 import org.ligoj.app.plugin.prov.model.ProvStorageOptimized;
 import org.ligoj.app.plugin.prov.model.ProvStoragePrice;
 import org.ligoj.app.plugin.prov.model.Rate;
-import org.ligoj.bootstrap.core.dao.RestRepository;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 
@@ -16,7 +15,7 @@ import org.springframework.data.jpa.repository.Query;
  * {@link ProvStoragePrice} repository.
  */
 @SuppressWarnings("unused")
-public interface ProvStoragePriceRepository extends RestRepository<ProvStoragePrice, Integer> {
+public interface ProvStoragePriceRepository extends HashedPriceRepository<ProvStoragePrice>, LocatedPrice {
 
 	/**
 	 * Return all {@link ProvStoragePrice} related to given node and within a specific location.
@@ -119,4 +118,9 @@ public interface ProvStoragePriceRepository extends RestRepository<ProvStoragePr
 	@Query("FROM #{#entityName} e INNER JOIN FETCH e.type t INNER JOIN FETCH e.location l WHERE                      "
 			+ " t.code = :type AND t.node.id = :node             ")
 	List<ProvStoragePrice> findByTypeName(String node, String type);
+
+	@Override
+	@Query("SELECT location.id, COUNT(id) FROM #{#entityName} WHERE type.node.id = :node AND location IS NOT NULL"
+			+ " GROUP BY location.id")
+	List<Object[]> countByLocation(String node);
 }
@@ -6,13 +6,12 @@ package org.ligoj.app.plugin.prov.dao;
 import java.util.List;
 
 import org.ligoj.app.plugin.prov.model.ProvSupportPrice;
-import org.ligoj.bootstrap.core.dao.RestRepository;
 import org.springframework.data.jpa.repository.Query;
 
 /**
  * {@link ProvSupportPrice} repository.
  */
-public interface ProvSupportPriceRepository extends RestRepository<ProvSupportPrice, Integer> {
+public interface ProvSupportPriceRepository extends HashedPriceRepository<ProvSupportPrice> {
 
 	/**
 	 * Return the cheapest support configuration from the minimal requirements.
@@ -47,4 +47,11 @@ public abstract class AbstractCodedEntity extends AbstractDescribedEntity<Intege
 	@NotNull
 	private String code;
 
+	/**
+	 * The hash of the catalog content this entity has been built from. Used to skip the unchanged entities during a
+	 * catalog update. May be <code>null</code> when not computed by the provider.
+	 */
+	@JsonIgnore
+	private Long contentHash;
+
 }
@@ -3,6 +3,7 @@
  */
 package org.ligoj.app.plugin.prov.model;
 
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.MappedSuperclass;
@@ -23,6 +24,7 @@ import lombok.Setter;
  */
 @Getter
 @Setter
+@EntityListeners(ProvQuoteChangeListener.class)
 @MappedSuperclass
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public abstract class AbstractMultiScoped extends AbstractNamedEntity<Integer>
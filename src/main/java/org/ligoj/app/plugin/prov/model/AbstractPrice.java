@@ -6,7 +6,9 @@ package org.ligoj.app.plugin.prov.model;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.Transient;
 import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -54,9 +56,48 @@ public abstract class AbstractPrice<T extends AbstractCodedEntity> extends Abstr
 	@ColumnDefault("0")
 	private double co2 = 0;
 
+	/**
+	 * The hash of the catalog content this entity has been built from. Used to skip the unchanged entities during a
+	 * catalog update. May be <code>null</code> when not computed by the provider.
+	 */
+	@JsonIgnore
+	private Long contentHash;
+
 	/**
 	 * The optional monthly CO2 consumption of one requested CPU with an array of 10% workload usage, from idle to 90%.
 	 * Required for dynamic instance type. Separator is <code>;</code>.
 	 */
 	private String co210 = null;
+
+	/**
+	 * Parsed {@link #co210}, resolved on the first read.
+	 */
+	@Transient
+	@JsonIgnore
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private transient double[] co210Values;
+
+	/**
+	 * Set the CO2 profile and reset its parsed values.
+	 *
+	 * @param co210 The comma separated CO2 values.
+	 */
+	public void setCo210(final String co210) {
+		this.co210 = co210;
+		this.co210Values = null;
+	}
+
+	/**
+	 * Return the parsed values of {@link #co210}.
+	 *
+	 * @return The shared parsed values, must not be modified. Empty when there is no profile.
+	 */
+	@JsonIgnore
+	public double[] getCo210Values() {
+		if (co210Values == null) {
+			co210Values = Co2Curves.parse(co210);
+		}
+		return co210Values;
+	}
 }
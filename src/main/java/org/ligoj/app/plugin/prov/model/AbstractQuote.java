@@ -4,6 +4,7 @@
 package org.ligoj.app.plugin.prov.model;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.MappedSuperclass;
@@ -28,6 +29,7 @@ import lombok.Setter;
  */
 @Getter
 @Setter
+@EntityListeners(ProvQuoteChangeListener.class)
 @MappedSuperclass
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public abstract class AbstractQuote<P extends AbstractPrice<?>> extends AbstractDescribedEntity<Integer>
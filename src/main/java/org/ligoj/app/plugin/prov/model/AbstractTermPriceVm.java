@@ -5,7 +5,11 @@ package org.ligoj.app.plugin.prov.model;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.Transient;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -134,16 +138,111 @@ public abstract class AbstractTermPriceVm<T extends AbstractCodedEntity> extends
 	 */
 	private String co2Cpu10 = null;
 
+	/**
+	 * Parsed {@link #co2Cpu10}, resolved on the first read.
+	 */
+	@Transient
+	@JsonIgnore
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private transient double[] co2Cpu10Values;
+
 	/**
 	 * The optional monthly CO2 consumption of one requested GPU with an array of 10% workload usage, from idle to 90%.
 	 * Required for dynamic instance type.
 	 */
 	private String co2Gpu10 = null;
 
+	/**
+	 * Parsed {@link #co2Gpu10}, resolved on the first read.
+	 */
+	@Transient
+	@JsonIgnore
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private transient double[] co2Gpu10Values;
+
 	/**
 	 * The optional monthly CO2 consumption of one requested GiB memory with an array of 10% workload usage, from idle
 	 * to 90%. Required for dynamic instance type.
 	 */
 	private String co2Ram10 = null;
 
+	/**
+	 * Parsed {@link #co2Ram10}, resolved on the first read.
+	 */
+	@Transient
+	@JsonIgnore
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private transient double[] co2Ram10Values;
+
+	/**
+	 * Set the CO2 profile and reset its parsed values.
+	 *
+	 * @param co2Cpu10 The comma separated CO2 values.
+	 */
+	public void setCo2Cpu10(final String co2Cpu10) {
+		this.co2Cpu10 = co2Cpu10;
+		this.co2Cpu10Values = null;
+	}
+
+	/**
+	 * Return the parsed values of {@link #co2Cpu10}.
+	 *
+	 * @return The shared parsed values, must not be modified. Empty when there is no profile.
+	 */
+	@JsonIgnore
+	public double[] getCo2Cpu10Values() {
+		if (co2Cpu10Values == null) {
+			co2Cpu10Values = Co2Curves.parse(co2Cpu10);
+		}
+		return co2Cpu10Values;
+	}
+
+	/**
+	 * Set the CO2 profile and reset its parsed values.
+	 *
+	 * @param co2Gpu10 The comma separated CO2 values.
+	 */
+	public void setCo2Gpu10(final String co2Gpu10) {
+		this.co2Gpu10 = co2Gpu10;
+		this.co2Gpu10Values = null;
+	}
+
+	/**
+	 * Return the parsed values of {@link #co2Gpu10}.
+	 *
+	 * @return The shared parsed values, must not be modified. Empty when there is no profile.
+	 */
+	@JsonIgnore
+	public double[] getCo2Gpu10Values() {
+		if (co2Gpu10Values == null) {
+			co2Gpu10Values = Co2Curves.parse(co2Gpu10);
+		}
+		return co2Gpu10Values;
+	}
+
+	/**
+	 * Set the CO2 profile and reset its parsed values.
+	 *
+	 * @param co2Ram10 The comma separated CO2 values.
+	 */
+	public void setCo2Ram10(final String co2Ram10) {
+		this.co2Ram10 = co2Ram10;
+		this.co2Ram10Values = null;
+	}
+
+	/**
+	 * Return the parsed values of {@link #co2Ram10}.
+	 *
+	 * @return The shared parsed values, must not be modified. Empty when there is no profile.
+	 */
+	@JsonIgnore
+	public double[] getCo2Ram10Values() {
+		if (co2Ram10Values == null) {
+			co2Ram10Values = Co2Curves.parse(co2Ram10);
+		}
+		return co2Ram10Values;
+	}
 }
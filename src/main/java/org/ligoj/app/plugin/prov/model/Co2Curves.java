@@ -0,0 +1,57 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Parsed CO2 load curves. The identical raw curves share the same parsed array, so the prices of a catalog hold only
+ * one array by distinct curve. The returned arrays must not be modified.
+ */
+public final class Co2Curves {
+
+	/**
+	 * Empty curve, when there is no CO2 profile.
+	 */
+	public static final double[] EMPTY = new double[0];
+
+	/**
+	 * Maximal amount of cached curves. Beyond, the cache is cleared.
+	 */
+	private static final int MAX_CACHED = 10000;
+
+	/**
+	 * Parsed curves by raw value.
+	 */
+	private static final Map<String, double[]> CACHE = new ConcurrentHashMap<>();
+
+	private Co2Curves() {
+		// Utility class
+	}
+
+	/**
+	 * Return the parsed curve of the given raw value.
+	 *
+	 * @param rawData The comma separated CO2 values. May be <code>null</code>.
+	 * @return The shared parsed values. Never <code>null</code>, {@link #EMPTY} when there is no value.
+	 */
+	public static double[] parse(final String rawData) {
+		if (StringUtils.isEmpty(rawData)) {
+			return EMPTY;
+		}
+		final var curve = CACHE.get(rawData);
+		if (curve != null) {
+			return curve;
+		}
+		if (CACHE.size() >= MAX_CACHED) {
+			CACHE.clear();
+		}
+		return CACHE.computeIfAbsent(rawData,
+				r -> Stream.of(StringUtils.split(r, ',')).mapToDouble(Double::parseDouble).toArray());
+	}
+}
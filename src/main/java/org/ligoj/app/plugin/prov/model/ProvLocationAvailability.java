@@ -0,0 +1,85 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.validation.constraints.NotNull;
+
+import org.ligoj.bootstrap.core.model.AbstractPersistable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The amount of prices of each resource type within a location. Computed with the catalog statistics.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "LIGOJ_PROV_LOCATION_AVAILABILITY", uniqueConstraints = @UniqueConstraint(columnNames = "location"))
+public class ProvLocationAvailability extends AbstractPersistable<Integer> {
+
+	/**
+	 * SID
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The related location.
+	 */
+	@NotNull
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JsonIgnore
+	private ProvLocation location;
+
+	/**
+	 * The amount of instance prices.
+	 */
+	private int nbInstancePrices;
+
+	/**
+	 * The amount of database prices.
+	 */
+	private int nbDatabasePrices;
+
+	/**
+	 * The amount of container prices.
+	 */
+	private int nbContainerPrices;
+
+	/**
+	 * The amount of function prices.
+	 */
+	private int nbFunctionPrices;
+
+	/**
+	 * The amount of storage prices.
+	 */
+	private int nbStoragePrices;
+
+	/**
+	 * Set the amount of prices of a resource type. Resource types without location are ignored.
+	 *
+	 * @param type     The resource type.
+	 * @param nbPrices The amount of prices.
+	 */
+	public void setNbPrices(final ResourceType type, final int nbPrices) {
+		switch (type) {
+		case INSTANCE -> setNbInstancePrices(nbPrices);
+		case DATABASE -> setNbDatabasePrices(nbPrices);
+		case CONTAINER -> setNbContainerPrices(nbPrices);
+		case FUNCTION -> setNbFunctionPrices(nbPrices);
+		case STORAGE -> setNbStoragePrices(nbPrices);
+		default -> {
+			// No location
+		}
+		}
+	}
+}
@@ -4,6 +4,7 @@
 package org.ligoj.app.plugin.prov.model;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -30,6 +31,7 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
+@EntityListeners(ProvQuoteChangeListener.class)
 @Table(name = "LIGOJ_PROV_NETWORK", uniqueConstraints = @UniqueConstraint(columnNames = { "source", "source_type",
 		"target", "target_type", "port", "configuration" }))
 @JsonIgnoreProperties(value = "id")
@@ -7,6 +7,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 import org.ligoj.app.model.PluginConfiguration;
 import org.ligoj.app.model.Subscription;
 import org.ligoj.app.plugin.prov.ProvisioningService;
@@ -26,6 +27,7 @@ import java.util.List;
 @Getter
 @Setter
 @Entity
+@DynamicUpdate
 @Table(name = "LIGOJ_PROV_QUOTE")
 public class ProvQuote extends AbstractDescribedAuditedEntity<Integer>
 		implements PluginConfiguration, Costed, ResourceScope {
@@ -100,6 +102,14 @@ public class ProvQuote extends AbstractDescribedAuditedEntity<Integer>
 	@PositiveOrZero
 	private Integer unboundCostCounter = 0;
 
+	/**
+	 * Version stamp of the quote content, incremented once by each transaction editing the quote or its resources.
+	 */
+	@NotNull
+	@PositiveOrZero
+	@ColumnDefault("0")
+	private long revision = 0;
+
 	/**
 	 * The related subscription.
 	 */
@@ -178,6 +188,20 @@ public class ProvQuote extends AbstractDescribedAuditedEntity<Integer>
 	@JsonIgnore
 	private List<ProvTag> tags;
 
+	/**
+	 * Last changes of the resources.
+	 */
+	@OneToMany(mappedBy = "configuration", cascade = CascadeType.REMOVE)
+	@JsonIgnore
+	private List<ProvQuoteChange> changes;
+
+	/**
+	 * Materialized resource summary. At most one summary.
+	 */
+	@OneToMany(mappedBy = "configuration", cascade = CascadeType.REMOVE)
+	@JsonIgnore
+	private List<ProvQuoteSummary> summaries;
+
 	/**
 	 * UI settings. Properties are:
 	 * <ul>
@@ -268,13 +292,6 @@ public class ProvQuote extends AbstractDescribedAuditedEntity<Integer>
 	@JsonIgnore
 	private transient ProvisioningService service;
 
-	/**
-	 * Lock object for lean operation.
-	 */
-	@Transient
-	@JsonIgnore
-	private final Object leanLock = new Object();
-
 	/**
 	 * When <code>true</code>, the lean process is executed after each change. This option implies more computations
 	 * when there are budgets with associated initial cost.
@@ -0,0 +1,63 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+
+import org.ligoj.app.model.Configurable;
+import org.ligoj.bootstrap.core.model.AbstractPersistable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The last change of a quote resource. There is at most one change by resource, holding the revision of the quote
+ * after this change. A change without resource type stands for a change of the quote's profiles, tags or networks.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "LIGOJ_PROV_QUOTE_CHANGE", indexes = @Index(columnList = "configuration,revision"))
+public class ProvQuoteChange extends AbstractPersistable<Integer> implements Configurable<ProvQuote, Integer> {
+
+	/**
+	 * SID
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The parent quote.
+	 */
+	@NotNull
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JsonIgnore
+	private ProvQuote configuration;
+
+	/**
+	 * The revision of the quote after this change.
+	 */
+	private long revision;
+
+	/**
+	 * The changed resource type. <code>null</code> for a change of the quote's profiles, tags or networks.
+	 */
+	private ResourceType type;
+
+	/**
+	 * The changed resource identifier. <code>null</code> for a change of the quote's profiles, tags or networks.
+	 */
+	private Integer resource;
+
+	/**
+	 * When <code>true</code>, the resource has been deleted.
+	 */
+	private boolean deleted;
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.model;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+import org.ligoj.app.model.Configurable;
+
+/**
+ * Entity listener journaling the changes of the quote resources, profiles, tags and networks into the
+ * {@link ProvQuoteJournal} of the current transaction.
+ */
+public class ProvQuoteChangeListener {
+
+	/**
+	 * Journal a saved entity.
+	 *
+	 * @param entity The saved entity.
+	 */
+	@PostPersist
+	@PostUpdate
+	public void onSave(final Object entity) {
+		record(entity, false);
+	}
+
+	/**
+	 * Journal a deleted entity.
+	 *
+	 * @param entity The deleted entity.
+	 */
+	@PostRemove
+	public void onRemove(final Object entity) {
+		record(entity, true);
+	}
+
+	/**
+	 * Journal the change of an entity related to a quote.
+	 */
+	private void record(final Object entity, final boolean deleted) {
+		if (!(entity instanceof Configurable<?, ?> configurable)
+				|| !(configurable.getConfiguration() instanceof ProvQuote quote)) {
+			return;
+		}
+		final var journal = ProvQuoteJournal.get(quote.getId());
+		if (journal == null) {
+			// Outside a transaction
+			return;
+		}
+		if (entity instanceof AbstractQuote<?> qr) {
+			journal.record(qr.getResourceType(), qr.getId(), deleted);
+		} else if (entity instanceof ProvTag tag) {
+			// A tag change is an update of the tagged resource
+			journal.record(tag.getType(), tag.getResource(), false);
+		} else {
+			journal.setGlobal(true);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.model;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The changes of a quote journaled within the current transaction. Filled by the {@link ProvQuoteChangeListener} and
+ * written as {@link ProvQuoteChange} before the commit.
+ */
+@Getter
+public class ProvQuoteJournal {
+
+	/**
+	 * Transaction resource key of the journals.
+	 */
+	private static final String JOURNALS = "prov-quote-changes";
+
+	/**
+	 * The edited quote, set once its lock is held. The changes of a quote not locked by the transaction are not
+	 * written.
+	 */
+	@Setter
+	private ProvQuote quote;
+
+	/**
+	 * The changed resources by type. The value is <code>true</code> for a deleted resource.
+	 */
+	private final Map<ResourceType, Map<Integer, Boolean>> resources = new EnumMap<>(ResourceType.class);
+
+	/**
+	 * When <code>true</code>, the profiles, the tags or the networks of the quote have changed.
+	 */
+	@Setter
+	private boolean global;
+
+	/**
+	 * The journals of a transaction, by quote identifier.
+	 */
+	public static class Journals extends HashMap<Integer, ProvQuoteJournal> {
+
+		/**
+		 * SID
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * When <code>true</code>, the journals are written before the commit.
+		 */
+		@Getter
+		@Setter
+		private boolean writing;
+	}
+
+	/**
+	 * Journal the change of a resource. A deleted resource stays deleted.
+	 *
+	 * @param type     The resource type.
+	 * @param resource The resource identifier.
+	 * @param deleted  When <code>true</code>, the resource has been deleted.
+	 */
+	public void record(final ResourceType type, final Integer resource, final boolean deleted) {
+		resources.computeIfAbsent(type, t -> new LinkedHashMap<>()).merge(resource, deleted, Boolean::logicalOr);
+	}
+
+	/**
+	 * Return the journals of the current transaction. They are released at the end of the transaction.
+	 *
+	 * @return The journals, or <code>null</code> outside a transaction.
+	 */
+	public static Journals getJournals() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return null;
+		}
+		var journals = (Journals) TransactionSynchronizationManager.getResource(JOURNALS);
+		if (journals == null) {
+			journals = new Journals();
+			TransactionSynchronizationManager.bindResource(JOURNALS, journals);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(final int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(JOURNALS);
+				}
+			});
+		}
+		return journals;
+	}
+
+	/**
+	 * Return the journal of the given quote within the current transaction.
+	 *
+	 * @param quote The quote identifier.
+	 * @return The journal, or <code>null</code> outside a transaction.
+	 */
+	public static ProvQuoteJournal get(final int quote) {
+		final var journals = getJournals();
+		return journals == null ? null : journals.computeIfAbsent(quote, q -> new ProvQuoteJournal());
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.validation.constraints.NotNull;
+
+import org.ligoj.bootstrap.core.model.AbstractPersistable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The materialized resource summary of a quote. Created by the first transaction editing the quote, computed on read
+ * and valid only for the revision of the quote it has been computed with. The CPU, GPU, RAM and public access figures
+ * are kept by resource type to be updated independently.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "LIGOJ_PROV_QUOTE_SUMMARY", uniqueConstraints = @UniqueConstraint(columnNames = "configuration"))
+public class ProvQuoteSummary extends AbstractPersistable<Integer> {
+
+	/**
+	 * SID
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The summarized quote.
+	 */
+	@NotNull
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JsonIgnore
+	private ProvQuote configuration;
+
+	/**
+	 * The revision of the quote this summary has been computed with.
+	 */
+	private long revision;
+
+	/**
+	 * The amount (minimum quantity) of instances.
+	 */
+	private int nbInstances;
+
+	private double instanceCpu;
+	private double instanceGpu;
+	private int instanceRam;
+	private int instancePublicAccess;
+
+	/**
+	 * The amount (minimum quantity) of databases.
+	 */
+	private int nbDatabases;
+
+	private double databaseCpu;
+	private double databaseGpu;
+	private int databaseRam;
+	private int databasePublicAccess;
+
+	/**
+	 * The amount (minimum quantity) of containers.
+	 */
+	private int nbContainers;
+
+	private double containerCpu;
+	private double containerGpu;
+	private int containerRam;
+	private int containerPublicAccess;
+
+	/**
+	 * The amount of functions.
+	 */
+	private int nbFunctions;
+
+	/**
+	 * The amount of storages devices.
+	 */
+	private int nbStorages;
+
+	/**
+	 * The size of the global storage in Giga Bytes.
+	 */
+	private int totalStorage;
+}
@@ -4,6 +4,7 @@
 package org.ligoj.app.plugin.prov.model;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -24,6 +25,7 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
+@EntityListeners(ProvQuoteChangeListener.class)
 @Table(name = "LIGOJ_PROV_TAG", uniqueConstraints = @UniqueConstraint(columnNames = { "name", "value", "type",
 		"resource", "configuration" }))
 public class ProvTag extends AbstractProvTag implements Configurable<ProvQuote, Integer> {
@@ -4,6 +4,7 @@
 
 package org.ligoj.app.plugin.prov.quote.container;
 
+import java.util.Arrays;
 import java.util.List;
 
 import jakarta.transaction.Transactional;
@@ -21,6 +22,7 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.UriInfo;
 
 import org.ligoj.app.plugin.prov.AbstractProvQuoteInstanceOsResource;
+import org.ligoj.app.plugin.prov.PriceIndex;
 import org.ligoj.app.plugin.prov.ProvResource;
 import org.ligoj.app.plugin.prov.UpdatedCost;
 import org.ligoj.app.plugin.prov.dao.Optimizer;
@@ -30,7 +32,6 @@ import org.ligoj.app.plugin.prov.dao.ProvQuoteContainerRepository;
 import org.ligoj.app.plugin.prov.model.ProvContainerPrice;
 import org.ligoj.app.plugin.prov.model.ProvContainerType;
 import org.ligoj.app.plugin.prov.model.ProvInstancePriceTerm;
-import org.ligoj.app.plugin.prov.model.ProvQuote;
 import org.ligoj.app.plugin.prov.model.ProvQuoteContainer;
 import org.ligoj.app.plugin.prov.model.QuoteContainer;
 import org.ligoj.app.plugin.prov.model.ResourceType;
@@ -116,15 +117,49 @@ public class ProvQuoteContainerResource extends
 		return lookupInternal(subscription, query);
 	}
 
+	/**
+	 * Return the container prices matching to several criteria at once.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param queries      The criteria.
+	 * @return The best container prices matching to the criteria, in the same order. Items may be <code>null</code>.
+	 */
+	@POST
+	@Path("{subscription:\\d+}/container-lookup")
+	@Consumes(MediaType.APPLICATION_JSON)
+	public List<QuoteContainerLookup> lookupAll(@PathParam("subscription") final int subscription,
+			final List<QuoteContainerQuery> queries) {
+		return lookupAllInternal(subscription, queries);
+	}
+
 	@Override
-	protected List<Object[]> findLowestPrice(final ProvQuote configuration, final QuoteContainer query,
+	protected List<Object> toSignature(final QuoteContainer query) {
+		final var signature = super.toSignature(query);
+		signature.addAll(Arrays.asList(query.getOs()));
+		return signature;
+	}
+
+	@Override
+	protected QuoteContainer toQuery(final ProvQuoteContainer entity) {
+		final var builder = QuoteContainerQuery.builder();
+		toQuery(builder, entity);
+		return builder.os(entity.getOs()).build();
+	}
+
+	@Override
+	protected List<Object[]> findLowestPrice(final LookupContext context, final QuoteContainer query,
 			final List<Integer> types, final List<Integer> terms, final int location, final double rate,
 			final double duration, final double initialCost, final Optimizer optimizer) {
-		final var service = getService(configuration);
+		final var service = getService(context.getQuote());
 		// Resolve the right OS
 		final var os = service.getCatalogOs(query.getOs());
 		// Resolve the right license model
-		final var licenseR = normalize(getLicense(configuration, query.getLicense(), os, this::canByol));
+		final var licenseR = normalize(getLicense(context.getQuote(), query.getLicense(), os, this::canByol));
+		final var index = getPriceIndex(context.getNode());
+		if (index != null) {
+			return findLowestPrice(index, types, terms, location, rate, duration, initialCost, optimizer,
+					newFilter(os, licenseR));
+		}
 		if (optimizer == Optimizer.CO2) {
 			return ipRepository.findLowestCo2(types, terms, os, location, rate, duration, licenseR, initialCost,
 					PageRequest.of(0, 1));
@@ -134,15 +169,21 @@ public class ProvQuoteContainerResource extends
 	}
 
 	@Override
-	protected List<Object[]> findLowestDynamicPrice(final ProvQuote configuration, final QuoteContainer query,
+	protected List<Object[]> findLowestDynamicPrice(final LookupContext context, final QuoteContainer query,
 			final List<Integer> types, final List<Integer> terms, final double cpu, final double gpu, final double ram,
 			final int location, final double rate, final int duration, final double initialCost,
 			final Optimizer optimizer) {
-		final var service = getService(configuration);
+		final var service = getService(context.getQuote());
 		// Resolve the right OS
 		final var os = service.getCatalogOs(query.getOs());
 		// Resolve the right license model
-		final var licenseR = normalize(getLicense(configuration, query.getLicense(), os, this::canByol));
+		final var licenseR = normalize(getLicense(context.getQuote(), query.getLicense(), os, this::canByol));
+		final var index = getPriceIndex(context.getNode());
+		if (index != null) {
+			return findLowestDynamicPrice(index, types, terms, Math.ceil(Math.max(1, cpu)), gpu,
+					Math.ceil(round(ram / 1024)), location, rate, round(rate * duration), duration, initialCost,
+					optimizer, newFilter(os, licenseR));
+		}
 		if (optimizer == Optimizer.CO2) {
 			return ipRepository.findLowestDynamicCo2(types, terms, Math.ceil(Math.max(1, cpu)), gpu,
 					Math.ceil(round(ram / 1024)), os, location, rate, round(rate * duration), duration, licenseR,
@@ -153,6 +194,13 @@ public class ProvQuoteContainerResource extends
 				initialCost, PageRequest.of(0, 1));
 	}
 
+	/**
+	 * Return the in-memory filter matching the container specific requirements.
+	 */
+	private PriceIndex.Filter newFilter(final VmOs os, final String license) {
+		return (index, row) -> index.getOs()[row] == os && index.isLicensed(row, license);
+	}
+
 	@Override
 	@GET
 	@Path("{subscription:\\d+}/container-price-term")
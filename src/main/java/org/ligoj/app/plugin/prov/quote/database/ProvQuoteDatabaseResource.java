@@ -4,6 +4,7 @@
 
 package org.ligoj.app.plugin.prov.quote.database;
 
+import java.util.Arrays;
 import java.util.List;
 
 import jakarta.transaction.Transactional;
@@ -22,6 +23,7 @@ import jakarta.ws.rs.core.UriInfo;
 
 import org.apache.commons.lang3.StringUtils;
 import org.ligoj.app.plugin.prov.AbstractProvQuoteVmResource;
+import org.ligoj.app.plugin.prov.PriceIndex;
 import org.ligoj.app.plugin.prov.ProvResource;
 import org.ligoj.app.plugin.prov.UpdatedCost;
 import org.ligoj.app.plugin.prov.dao.Optimizer;
@@ -32,7 +34,6 @@ import org.ligoj.app.plugin.prov.model.AbstractQuoteVm;
 import org.ligoj.app.plugin.prov.model.ProvDatabasePrice;
 import org.ligoj.app.plugin.prov.model.ProvDatabaseType;
 import org.ligoj.app.plugin.prov.model.ProvInstancePriceTerm;
-import org.ligoj.app.plugin.prov.model.ProvQuote;
 import org.ligoj.app.plugin.prov.model.ProvQuoteDatabase;
 import org.ligoj.app.plugin.prov.model.QuoteDatabase;
 import org.ligoj.app.plugin.prov.model.ResourceType;
@@ -146,14 +147,48 @@ public class ProvQuoteDatabaseResource extends
 		return lookupInternal(subscription, query);
 	}
 
+	/**
+	 * Return the database prices matching to several criteria at once.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param queries      The criteria.
+	 * @return The best database prices matching to the criteria, in the same order. Items may be <code>null</code>.
+	 */
+	@POST
+	@Path("{subscription:\\d+}/database-lookup")
+	@Consumes(MediaType.APPLICATION_JSON)
+	public List<QuoteDatabaseLookup> lookupAll(@PathParam("subscription") final int subscription,
+			final List<QuoteDatabaseQuery> queries) {
+		return lookupAllInternal(subscription, queries);
+	}
+
 	@Override
-	protected List<Object[]> findLowestPrice(final ProvQuote configuration, final QuoteDatabase query,
+	protected List<Object> toSignature(final QuoteDatabase query) {
+		final var signature = super.toSignature(query);
+		signature.addAll(Arrays.asList(query.getEngine(), query.getEdition()));
+		return signature;
+	}
+
+	@Override
+	protected QuoteDatabase toQuery(final ProvQuoteDatabase entity) {
+		final var builder = QuoteDatabaseQuery.builder();
+		toQuery(builder, entity);
+		return builder.engine(entity.getEngine()).edition(entity.getEdition()).build();
+	}
+
+	@Override
+	protected List<Object[]> findLowestPrice(final LookupContext context, final QuoteDatabase query,
 			final List<Integer> types, final List<Integer> terms, final int location, final double rate,
 			final double duration, final double initialCost, final Optimizer optimizer) {
 		// Resolve the right license model
-		final var licenseR = getLicense(configuration, query.getLicense(), query.getEngine(), this::canByol);
+		final var licenseR = getLicense(context.getQuote(), query.getLicense(), query.getEngine(), this::canByol);
 		final var engineR = normalize(query.getEngine());
 		final var editionR = normalize(query.getEdition());
+		final var index = getPriceIndex(context.getNode());
+		if (index != null) {
+			return findLowestPrice(index, types, terms, location, rate, duration, initialCost, optimizer,
+					newFilter(licenseR, engineR, editionR));
+		}
 		if (optimizer == Optimizer.CO2) {
 			return ipRepository.findLowestCo2(types, terms, location, rate, duration, licenseR, engineR, editionR,
 					initialCost, PageRequest.of(0, 1));
@@ -163,13 +198,19 @@ public class ProvQuoteDatabaseResource extends
 	}
 
 	@Override
-	protected List<Object[]> findLowestDynamicPrice(final ProvQuote configuration, final QuoteDatabase query,
+	protected List<Object[]> findLowestDynamicPrice(final LookupContext context, final QuoteDatabase query,
 			final List<Integer> types, final List<Integer> terms, final double cpu, final double gpu, final double ram,
 			final int location, final double rate, final int duration, final double initialCost,
 			final Optimizer optimizer) {
-		final var licenseR = getLicense(configuration, query.getLicense(), query.getEngine(), this::canByol);
+		final var licenseR = getLicense(context.getQuote(), query.getLicense(), query.getEngine(), this::canByol);
 		final var engineR = normalize(query.getEngine());
 		final var editionR = normalize(query.getEdition());
+		final var index = getPriceIndex(context.getNode());
+		if (index != null) {
+			return findLowestDynamicPrice(index, types, terms, Math.ceil(cpu), gpu, Math.ceil(round(ram / 1024)),
+					location, rate, round(rate * duration), duration, initialCost, optimizer,
+					newFilter(licenseR, engineR, editionR));
+		}
 		if (optimizer == Optimizer.CO2) {
 			return ipRepository.findLowestDynamicCo2(types, terms, Math.ceil(cpu), gpu, Math.ceil(round(ram / 1024)),
 					engineR, editionR, location, rate, round(rate * duration), duration, licenseR, initialCost,
@@ -180,6 +221,14 @@ public class ProvQuoteDatabaseResource extends
 				PageRequest.of(0, 1));
 	}
 
+	/**
+	 * Return the in-memory filter matching the database specific requirements.
+	 */
+	private PriceIndex.Filter newFilter(final String license, final String engine, final String edition) {
+		return (index, row) -> engine.equals(index.getEngine()[row]) && index.isLicensed(row, license)
+				&& (edition.isEmpty() || edition.equals(index.getEdition()[row]));
+	}
+
 	private boolean canByol(final String engine) {
 		return ENGINE_ORACLE.equalsIgnoreCase(engine);
 	}
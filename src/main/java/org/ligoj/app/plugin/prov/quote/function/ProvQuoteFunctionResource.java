@@ -13,6 +13,7 @@ import lombok.Getter;
 import org.apache.commons.lang3.time.DateUtils;
 import org.ligoj.app.plugin.prov.AbstractProvQuoteVmResource;
 import org.ligoj.app.plugin.prov.Floating;
+import org.ligoj.app.plugin.prov.PriceIndex;
 import org.ligoj.app.plugin.prov.ProvResource;
 import org.ligoj.app.plugin.prov.UpdatedCost;
 import org.ligoj.app.plugin.prov.dao.Optimizer;
@@ -25,6 +26,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -112,10 +114,46 @@ public class ProvQuoteFunctionResource extends
 		return lookupInternal(subscription, query);
 	}
 
+	/**
+	 * Return the function prices matching to several criteria at once.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param queries      The criteria.
+	 * @return The best function prices matching to the criteria, in the same order. Items may be <code>null</code>.
+	 */
+	@POST
+	@Path("{subscription:\\d+}/function-lookup")
+	@Consumes(MediaType.APPLICATION_JSON)
+	public List<QuoteFunctionLookup> lookupAll(@PathParam("subscription") final int subscription,
+			final List<QuoteFunctionQuery> queries) {
+		return lookupAllInternal(subscription, queries);
+	}
+
 	@Override
-	protected List<Object[]> findLowestPrice(final ProvQuote configuration, final QuoteFunction query,
+	protected List<Object> toSignature(final QuoteFunction query) {
+		final var signature = super.toSignature(query);
+		signature.addAll(Arrays.asList(query.getRuntime(), query.getDuration(), query.getNbRequests(), query.getConcurrency()));
+		return signature;
+	}
+
+	@Override
+	protected QuoteFunction toQuery(final ProvQuoteFunction entity) {
+		final var builder = QuoteFunctionQuery.builder();
+		toQuery(builder, entity);
+		return builder.runtime(entity.getRuntime()).duration(entity.getDuration())
+				.nbRequests(entity.getNbRequests()).concurrency(entity.getConcurrency()).build();
+	}
+
+	@Override
+	protected List<Object[]> findLowestPrice(final LookupContext context, final QuoteFunction query,
 			final List<Integer> types, final List<Integer> terms, final int location, final double rate,
 			final double duration, final double initialCost, final Optimizer optimizer) {
+		final var index = getPriceIndex(context.getNode());
+		if (index != null) {
+			final double requestDuration = query.getDuration();
+			return findLowestPrice(index, types, terms, location, rate, duration, initialCost, optimizer,
+					(i, row) -> Double.isNaN(i.getMaxDuration()[row]) || i.getMaxDuration()[row] >= requestDuration);
+		}
 		if (optimizer == Optimizer.CO2) {
 			return ipRepository.findLowestCo2(types, terms, location, rate, duration, initialCost, query.getDuration(),
 					PageRequest.of(0, 1));
@@ -125,16 +163,26 @@ public class ProvQuoteFunctionResource extends
 	}
 
 	@Override
-	protected List<Object[]> findLowestDynamicPrice(final ProvQuote configuration, final QuoteFunction query,
+	protected List<Object[]> findLowestDynamicPrice(final LookupContext context, final QuoteFunction query,
 			final List<Integer> types, final List<Integer> terms, final double cpu, final double gpu, final double ram,
 			final int location, final double rate, final int duration, final double initialCost,
 			final Optimizer optimizer) {
-		var result1 = findLowestDynamicPrice(configuration, query, types, terms, cpu, gpu, ram, location, rate,
+		final var index = getPriceIndex(context.getNode());
+		if (index != null) {
+			// All concurrency options in a single pass
+			final var result = new double[4];
+			final var row = index.findLowestFunction(location, PriceIndex.toSorted(types), PriceIndex.toSorted(terms),
+					Math.ceil(Math.max(1, cpu)), Math.max(1, ram) / 1024d, rate, round(rate * duration), duration,
+					initialCost, optimizer == Optimizer.CO2, query.getNbRequests(), query.getDuration(),
+					query.getConcurrency(), CONCURRENCY_PER_MONTH, result);
+			return toLookup(index, row, result);
+		}
+		var result1 = findLowestDynamicPrice(context, query, types, terms, cpu, gpu, ram, location, rate,
 				duration, initialCost, optimizer, Math.floor(query.getConcurrency()),
 				Math.floor(query.getConcurrency()));
 		if (!result1.isEmpty() && query.getConcurrency() != Math.floor(query.getConcurrency())) {
 			// Try the greater concurrency level and keeping the original concurrency assumption
-			var result2 = findLowestDynamicPrice(configuration, query, types, terms, cpu, gpu, ram, location, rate,
+			var result2 = findLowestDynamicPrice(context, query, types, terms, cpu, gpu, ram, location, rate,
 					duration, initialCost, optimizer, query.getConcurrency(), Math.ceil(query.getConcurrency()));
 			if (toTotalCost(result1.get(0)) > toTotalCost(result2.get(0))) {
 				// The second concurrency configuration is cheaper
@@ -144,7 +192,7 @@ public class ProvQuoteFunctionResource extends
 		return result1;
 	}
 
-	private List<Object[]> findLowestDynamicPrice(final ProvQuote configuration, final QuoteFunction query,
+	private List<Object[]> findLowestDynamicPrice(final LookupContext context, final QuoteFunction query,
 			final List<Integer> types, final List<Integer> terms, final double cpu, final double gpu, final double ram,
 			final int location, final double rate, final int duration, final double initialCost,
 			final Optimizer optimizer, final double realConcurrency, final double reservedConcurrency) {
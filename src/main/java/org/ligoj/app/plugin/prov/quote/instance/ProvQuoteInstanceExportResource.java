@@ -13,15 +13,19 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
@@ -30,7 +34,13 @@ import org.ligoj.app.plugin.prov.Floating;
 import org.ligoj.app.plugin.prov.ProvResource;
 import org.ligoj.app.plugin.prov.TagVo;
 import org.ligoj.app.plugin.prov.model.AbstractQuote;
+import org.ligoj.app.plugin.prov.model.AbstractQuoteVm;
+import org.ligoj.app.plugin.prov.model.ProvQuoteContainer;
+import org.ligoj.app.plugin.prov.model.ProvQuoteDatabase;
+import org.ligoj.app.plugin.prov.model.ProvQuoteFunction;
+import org.ligoj.app.plugin.prov.model.ProvQuoteInstance;
 import org.ligoj.app.plugin.prov.model.ProvQuoteStorage;
+import org.ligoj.app.plugin.prov.model.ProvQuoteSupport;
 import org.ligoj.app.plugin.prov.model.ResourceType;
 import org.ligoj.app.resource.plugin.AbstractToolPluginResource;
 import org.ligoj.app.resource.subscription.SubscriptionResource;
@@ -47,113 +57,187 @@ import org.springframework.stereotype.Service;
 @Transactional
 public class ProvQuoteInstanceExportResource {
 
+	/**
+	 * Resource types of the split export, in the written order.
+	 */
+	private static final List<ResourceType> SPLIT_TYPES = List.of(ResourceType.INSTANCE, ResourceType.CONTAINER,
+			ResourceType.FUNCTION, ResourceType.DATABASE, ResourceType.STORAGE, ResourceType.SUPPORT);
+
 	@Autowired
 	protected ProvResource resource;
 
 	@Autowired
 	private SubscriptionResource subscriptionResource;
 
+	@Autowired
+	private ProvQuoteInstanceExportStream exportStream;
+
+	/**
+	 * Return the instance quotes with attached storages in CSV format. Sole storages are not included.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param file         The user file name to use in download response.
+	 * @return the stream ready to be read during the serialization.
+	 */
+	public Response exportInline(final int subscription, final String file) {
+		return exportInline(subscription, file, false, false);
+	}
+
 	/**
 	 * Return the instance quotes with attached storages in CSV format. Sole storages are not included.
 	 *
 	 * @param subscription The subscription identifier.
 	 * @param file         The user file name to use in download response.
+	 * @param stream       When <code>true</code>, the rows are read from database cursors while writing the response,
+	 *                     so the memory does not depend on the size of the quote.
+	 * @param gzip         When <code>true</code>, the response is compressed with the <code>gzip</code> content
+	 *                     encoding.
 	 * @return the stream ready to be read during the serialization.
 	 */
 	@GET
 	@Path("{subscription:\\d+}/{file:.*-instances-inline-storage-.*\\.csv}")
 	@Produces(MediaType.APPLICATION_OCTET_STREAM)
 	public Response exportInline(@PathParam("subscription") final int subscription,
-			@PathParam("file") final String file) {
+			@PathParam("file") final String file, @QueryParam("stream") final boolean stream,
+			@QueryParam("gzip") final boolean gzip) {
+		if (stream) {
+			final int quote = resource.getQuoteFromSubscription(subscription).getId();
+			return download(writer -> {
+				inlineHeader(writer, exportStream.getMaxStorages(quote, ResourceType.INSTANCE,
+						ResourceType.DATABASE, ResourceType.CONTAINER));
+				Stream.of(ResourceType.INSTANCE, ResourceType.DATABASE, ResourceType.CONTAINER, ResourceType.FUNCTION)
+						.forEach(type -> exportStream.inline(quote, type, (t, r, tags) -> inlineRow(writer, t, r, tags),
+								(t, qs, tags) -> inlineStorage(writer, qs, tags)));
+			}, file, gzip);
+		}
 		final var vo = resource.getConfiguration(subscriptionResource.checkVisible(subscription));
-		return AbstractToolPluginResource.download(output -> {
-			try (var writer = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
-				final var qsByQi = new HashMap<Integer, List<ProvQuoteStorage>>();
-				final var qsByQb = new HashMap<Integer, List<ProvQuoteStorage>>();
-				final var qsByQc = new HashMap<Integer, List<ProvQuoteStorage>>();
-				final var qsByQf = new HashMap<Integer, List<ProvQuoteStorage>>();
-				final var itags = vo.getTags().get(ResourceType.INSTANCE);
-				final var dtags = vo.getTags().get(ResourceType.DATABASE);
-				final var ctags = vo.getTags().get(ResourceType.CONTAINER);
-				final var ftags = vo.getTags().get(ResourceType.FUNCTION);
-				final var stags = vo.getTags().get(ResourceType.STORAGE);
-				vo.getStorages().stream().filter(qs -> qs.getInstance() != null)
-						.forEach(qs -> qsByQi.computeIfAbsent(qs.getInstance(), ArrayList::new).add(qs));
-				vo.getStorages().stream().filter(qs -> qs.getDatabase() != null)
-						.forEach(qs -> qsByQb.computeIfAbsent(qs.getDatabase(), ArrayList::new).add(qs));
-				vo.getStorages().stream().filter(qs -> qs.getContainer() != null)
-						.forEach(qs -> qsByQc.computeIfAbsent(qs.getContainer(), ArrayList::new).add(qs));
-				vo.getStorages().stream().filter(qs -> qs.getFunction() != null)
-						.forEach(qs -> qsByQf.computeIfAbsent(qs.getFunction(), ArrayList::new).add(qs));
-				final var max = Stream.of(qsByQi, qsByQb, qsByQc)
-						.mapToInt(qsBy -> qsBy.values().stream().mapToInt(List::size).max().orElse(0)).max().orElse(0);
+		return download(writer -> {
+			final var qsByQi = new HashMap<Integer, List<ProvQuoteStorage>>();
+			final var qsByQb = new HashMap<Integer, List<ProvQuoteStorage>>();
+			final var qsByQc = new HashMap<Integer, List<ProvQuoteStorage>>();
+			final var qsByQf = new HashMap<Integer, List<ProvQuoteStorage>>();
+			final var itags = vo.getTags().get(ResourceType.INSTANCE);
+			final var dtags = vo.getTags().get(ResourceType.DATABASE);
+			final var ctags = vo.getTags().get(ResourceType.CONTAINER);
+			final var ftags = vo.getTags().get(ResourceType.FUNCTION);
+			final var stags = vo.getTags().get(ResourceType.STORAGE);
+			vo.getStorages().stream().filter(qs -> qs.getInstance() != null)
+					.forEach(qs -> qsByQi.computeIfAbsent(qs.getInstance(), ArrayList::new).add(qs));
+			vo.getStorages().stream().filter(qs -> qs.getDatabase() != null)
+					.forEach(qs -> qsByQb.computeIfAbsent(qs.getDatabase(), ArrayList::new).add(qs));
+			vo.getStorages().stream().filter(qs -> qs.getContainer() != null)
+					.forEach(qs -> qsByQc.computeIfAbsent(qs.getContainer(), ArrayList::new).add(qs));
+			vo.getStorages().stream().filter(qs -> qs.getFunction() != null)
+					.forEach(qs -> qsByQf.computeIfAbsent(qs.getFunction(), ArrayList::new).add(qs));
+			final var max = Stream.of(qsByQi, qsByQb, qsByQc)
+					.mapToInt(qsBy -> qsBy.values().stream().mapToInt(List::size).max().orElse(0)).max().orElse(0);
+			inlineHeader(writer, max);
 
-				// Minimal headers
-				writer.format("%s" + ";%s".repeat(34), "resource-type", "name", "cpu", "cpuMax", "gpu", "gpuMax", "ram",
-						"ramMax", "os", "usage", "budget", "optimizer", "term", "location", "min", "max",
-						"maxVariableCost", "workload", "processor", "physical", "ephemeral", "type", "engine",
-						"edition", "internet", "license", "cost", "tags", "disk", "diskMax", "diskType", "diskLatency",
-						"diskOptimized", "diskCost", "diskTags");
+			// Write quote instances, databases, containers and functions
+			vo.getInstances().forEach(qi -> {
+				inlineRow(writer, ResourceType.INSTANCE, qi, toString(qi, itags));
+				writeStorage(writer, qsByQi, stags, qi.getId());
+			});
+			vo.getDatabases().forEach(qb -> {
+				inlineRow(writer, ResourceType.DATABASE, qb, toString(qb, dtags));
+				writeStorage(writer, qsByQb, stags, qb.getId());
+			});
+			vo.getContainers().forEach(qc -> {
+				inlineRow(writer, ResourceType.CONTAINER, qc, toString(qc, ctags));
+				writeStorage(writer, qsByQc, stags, qc.getId());
+			});
+			vo.getFunctions().forEach(qf -> {
+				inlineRow(writer, ResourceType.FUNCTION, qf, toString(qf, ftags));
+				writeStorage(writer, qsByQf, stags, qf.getId());
+			});
+		}, file, gzip);
+	}
 
-				// Additional headers for storages above the first one
-				IntStream.range(1, max)
-						.forEach(i -> writer.format(
-								";disk%d;disk%dMax;disk%dType;disk%dLatency;disk%dOptimized;disk%dCost;disk%dTags", i,
-								i, i, i, i, i, i));
-				vo.getInstances().forEach(qi -> {
-					// Write quote instance
-					writer.format("\n%s" + ";%s".repeat(27), ResourceType.INSTANCE, toString(qi), toString(qi.getCpu()),
-							toString(qi.getCpuMax()), toString(qi.getGpu()), toString(qi.getGpuMax()),
-							toString(qi.getRam()), toString(qi.getRamMax()), qi.getOs(), toString(qi.getUsage()),
-							toString(qi.getBudget()), toString(qi.getOptimizer()), toString(qi.getPrice().getTerm()),
-							toString(qi.getLocation()), qi.getMinQuantity(), toString(qi.getMaxQuantity()),
-							toString(qi.getMaxVariableCost()), toString(qi.getWorkload()), toString(qi.getProcessor()),
-							toString(qi.getPhysical()), qi.isEphemeral(), toType(qi), "", "", qi.getInternet(),
-							toString(qi.getLicense()), toString(qi.getCost()), toString(qi, itags));
-					writeStorage(writer, qsByQi, stags, qi.getId());
-				});
+	/**
+	 * Return the download response writing the CSV content, optionally compressed.
+	 */
+	private Response download(final Consumer<PrintWriter> content, final String file, final boolean gzip) {
+		final var response = AbstractToolPluginResource.download(output -> {
+			try (var writer = new PrintWriter(new OutputStreamWriter(gzip ? new GZIPOutputStream(output) : output,
+					StandardCharsets.UTF_8))) {
+				content.accept(writer);
+				writer.flush();
+			}
+		}, file);
+		if (gzip) {
+			response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+		return response.build();
+	}
 
-				vo.getDatabases().forEach(qi -> {
-					// Write quote database
-					writer.format("\n%s" + ";%s".repeat(27), ResourceType.DATABASE, toString(qi), toString(qi.getCpu()),
-							toString(qi.getCpuMax()), toString(qi.getGpu()), toString(qi.getGpuMax()),
-							toString(qi.getRam()), toString(qi.getRamMax()), "", toString(qi.getUsage()),
-							toString(qi.getBudget()), toString(qi.getOptimizer()), toString(qi.getPrice().getTerm()),
-							toString(qi.getLocation()), qi.getMinQuantity(), toString(qi.getMaxQuantity()), "",
-							toString(qi.getWorkload()), toString(qi.getProcessor()), toString(qi.getPhysical()), "",
-							toType(qi), qi.getEngine(), toString(qi.getEdition()), qi.getInternet(),
-							toString(qi.getLicense()), toString(qi.getCost()), toString(qi, dtags));
-					writeStorage(writer, qsByQb, stags, qi.getId());
-				});
+	/**
+	 * Write the headers of the inline export.
+	 */
+	private void inlineHeader(final PrintWriter writer, final int max) {
+		// Minimal headers
+		writer.format("%s" + ";%s".repeat(34), "resource-type", "name", "cpu", "cpuMax", "gpu", "gpuMax", "ram",
+				"ramMax", "os", "usage", "budget", "optimizer", "term", "location", "min", "max", "maxVariableCost",
+				"workload", "processor", "physical", "ephemeral", "type", "engine", "edition", "internet", "license",
+				"cost", "tags", "disk", "diskMax", "diskType", "diskLatency", "diskOptimized", "diskCost",
+				"diskTags");
 
-				vo.getContainers().forEach(qc -> {
-					// Write quote container
-					writer.format("\n%s" + ";%s".repeat(27), ResourceType.CONTAINER, toString(qc),
-							toString(qc.getCpu()), toString(qc.getCpuMax()), toString(qc.getGpu()),
-							toString(qc.getGpuMax()), toString(qc.getRam()), toString(qc.getRamMax()), qc.getOs(),
-							toString(qc.getUsage()), toString(qc.getBudget()), toString(qc.getOptimizer()),
-							toString(qc.getPrice().getTerm()), toString(qc.getLocation()), qc.getMinQuantity(),
-							toString(qc.getMaxQuantity()), toString(qc.getMaxVariableCost()),
-							toString(qc.getWorkload()), toString(qc.getProcessor()), toString(qc.getPhysical()),
-							qc.isEphemeral(), toType(qc), "", "", qc.getInternet(), toString(qc.getLicense()),
-							toString(qc.getCost()), toString(qc, ctags));
-					writeStorage(writer, qsByQc, stags, qc.getId());
-				});
+		// Additional headers for storages above the first one
+		IntStream.range(1, max)
+				.forEach(i -> writer.format(
+						";disk%d;disk%dMax;disk%dType;disk%dLatency;disk%dOptimized;disk%dCost;disk%dTags", i, i, i,
+						i, i, i, i));
+	}
 
-				vo.getFunctions().forEach(qf -> {
-					// Write quote function
-					writer.format("\n%s" + ";%s".repeat(27), ResourceType.FUNCTION, toString(qf), toString(qf.getCpu()),
-							toString(qf.getCpuMax()), toString(qf.getGpu()), toString(qf.getGpuMax()),
-							toString(qf.getRam()), toString(qf.getRamMax()), qf.getRuntime(), toString(qf.getUsage()),
-							toString(qf.getBudget()), toString(qf.getOptimizer()), toString(qf.getPrice().getTerm()),
-							toString(qf.getLocation()), qf.getNbRequests(), "", "", toString(qf.getWorkload()),
-							toString(qf.getProcessor()), toString(qf.getPhysical()), qf.isEphemeral(), toType(qf), "",
-							"", qf.getInternet(), "", toString(qf.getCost()), toString(qf, ftags));
-					writeStorage(writer, qsByQf, stags, qf.getId());
-				});
-				writer.flush();
-			}
-		}, file).build();
+	/**
+	 * Write a resource of the inline export, without its storages.
+	 */
+	private void inlineRow(final PrintWriter writer, final ResourceType type, final AbstractQuoteVm<?> resource,
+			final String tags) {
+		switch (type) {
+		case INSTANCE -> {
+			final var qi = (ProvQuoteInstance) resource;
+			writer.format("\n%s" + ";%s".repeat(27), ResourceType.INSTANCE, toString(qi), toString(qi.getCpu()),
+					toString(qi.getCpuMax()), toString(qi.getGpu()), toString(qi.getGpuMax()), toString(qi.getRam()),
+					toString(qi.getRamMax()), qi.getOs(), toString(qi.getUsage()), toString(qi.getBudget()),
+					toString(qi.getOptimizer()), toString(qi.getPrice().getTerm()), toString(qi.getLocation()),
+					qi.getMinQuantity(), toString(qi.getMaxQuantity()), toString(qi.getMaxVariableCost()),
+					toString(qi.getWorkload()), toString(qi.getProcessor()), toString(qi.getPhysical()),
+					qi.isEphemeral(), toType(qi), "", "", qi.getInternet(), toString(qi.getLicense()),
+					toString(qi.getCost()), tags);
+		}
+		case DATABASE -> {
+			final var qb = (ProvQuoteDatabase) resource;
+			writer.format("\n%s" + ";%s".repeat(27), ResourceType.DATABASE, toString(qb), toString(qb.getCpu()),
+					toString(qb.getCpuMax()), toString(qb.getGpu()), toString(qb.getGpuMax()), toString(qb.getRam()),
+					toString(qb.getRamMax()), "", toString(qb.getUsage()), toString(qb.getBudget()),
+					toString(qb.getOptimizer()), toString(qb.getPrice().getTerm()), toString(qb.getLocation()),
+					qb.getMinQuantity(), toString(qb.getMaxQuantity()), "", toString(qb.getWorkload()),
+					toString(qb.getProcessor()), toString(qb.getPhysical()), "", toType(qb), qb.getEngine(),
+					toString(qb.getEdition()), qb.getInternet(), toString(qb.getLicense()), toString(qb.getCost()),
+					tags);
+		}
+		case CONTAINER -> {
+			final var qc = (ProvQuoteContainer) resource;
+			writer.format("\n%s" + ";%s".repeat(27), ResourceType.CONTAINER, toString(qc), toString(qc.getCpu()),
+					toString(qc.getCpuMax()), toString(qc.getGpu()), toString(qc.getGpuMax()), toString(qc.getRam()),
+					toString(qc.getRamMax()), qc.getOs(), toString(qc.getUsage()), toString(qc.getBudget()),
+					toString(qc.getOptimizer()), toString(qc.getPrice().getTerm()), toString(qc.getLocation()),
+					qc.getMinQuantity(), toString(qc.getMaxQuantity()), toString(qc.getMaxVariableCost()),
+					toString(qc.getWorkload()), toString(qc.getProcessor()), toString(qc.getPhysical()),
+					qc.isEphemeral(), toType(qc), "", "", qc.getInternet(), toString(qc.getLicense()),
+					toString(qc.getCost()), tags);
+		}
+		default -> {
+			final var qf = (ProvQuoteFunction) resource;
+			writer.format("\n%s" + ";%s".repeat(27), ResourceType.FUNCTION, toString(qf), toString(qf.getCpu()),
+					toString(qf.getCpuMax()), toString(qf.getGpu()), toString(qf.getGpuMax()), toString(qf.getRam()),
+					toString(qf.getRamMax()), qf.getRuntime(), toString(qf.getUsage()), toString(qf.getBudget()),
+					toString(qf.getOptimizer()), toString(qf.getPrice().getTerm()), toString(qf.getLocation()),
+					qf.getNbRequests(), "", "", toString(qf.getWorkload()), toString(qf.getProcessor()),
+					toString(qf.getPhysical()), qf.isEphemeral(), toType(qf), "", "", qf.getInternet(), "",
+					toString(qf.getCost()), tags);
+		}
+		}
 	}
 
 	/**
@@ -161,10 +245,27 @@ public class ProvQuoteInstanceExportResource {
 	 */
 	private void writeStorage(final PrintWriter writer, final Map<Integer, List<ProvQuoteStorage>> qsByQi,
 			final Map<Integer, List<TagVo>> stags, Integer qi) {
-		qsByQi.getOrDefault(qi, Collections.emptyList())
-				.forEach(qs -> writer.format(";%s".repeat(7), qs.getSize(), toString(qs.getSizeMax()), toType(qs),
-						toString(qs.getLatency()), toString(qs.getOptimized()), toString(qs.getCost()),
-						toString(qs, stags)));
+		qsByQi.getOrDefault(qi, Collections.emptyList()).forEach(qs -> inlineStorage(writer, qs, toString(qs, stags)));
+	}
+
+	/**
+	 * Write a storage attached to the previous resource of the inline export.
+	 */
+	private void inlineStorage(final PrintWriter writer, final ProvQuoteStorage qs, final String tags) {
+		writer.format(";%s".repeat(7), qs.getSize(), toString(qs.getSizeMax()), toType(qs), toString(qs.getLatency()),
+				toString(qs.getOptimized()), toString(qs.getCost()), tags);
+	}
+
+	/**
+	 * Return the instances, databases, support and storage quotes in CSV format. Some columns may be <code>null</code>
+	 * depending on the related resource.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param file         The user file name to use in download response.
+	 * @return the stream ready to be read during the serialization.
+	 */
+	public Response exportSplit(final int subscription, final String file) {
+		return exportSplit(subscription, file, false, false);
 	}
 
 	/**
@@ -173,80 +274,112 @@ public class ProvQuoteInstanceExportResource {
 	 *
 	 * @param subscription The subscription identifier.
 	 * @param file         The user file name to use in download response.
+	 * @param stream       When <code>true</code>, the rows are read from database cursors while writing the response,
+	 *                     so the memory does not depend on the size of the quote.
+	 * @param gzip         When <code>true</code>, the response is compressed with the <code>gzip</code> content
+	 *                     encoding.
 	 * @return the stream ready to be read during the serialization.
 	 */
 	@GET
 	@Path("{subscription:\\d+}/{file:.*-split-.*\\.csv}")
 	@Produces(MediaType.APPLICATION_OCTET_STREAM)
 	public Response exportSplit(@PathParam("subscription") final int subscription,
-			@PathParam("file") final String file) {
+			@PathParam("file") final String file, @QueryParam("stream") final boolean stream,
+			@QueryParam("gzip") final boolean gzip) {
+		if (stream) {
+			final int quote = resource.getQuoteFromSubscription(subscription).getId();
+			return download(writer -> {
+				splitHeader(writer);
+				SPLIT_TYPES.forEach(
+						type -> exportStream.split(quote, type, (t, r, tags) -> splitRow(writer, t, r, tags)));
+			}, file, gzip);
+		}
 		final var vo = resource.getConfiguration(subscriptionResource.checkVisible(subscription));
-		return AbstractToolPluginResource.download(output -> {
-			try (var writer = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
-				writer.format("%s" + ";%s".repeat(33), "name", "cpu", "cpuMax", "gpu", "gpuMax", "ram", "ramMax", "os",
-						"usage", "budget", "optimizer", "term", "location", "min", "max", "maxVariableCost", "workload",
-						"processor", "physical", "ephemeral", "type", "internet", "license", "cost", "tags", "disk",
-						"diskMax", "instance", "database", "latency", "optimized", "engine", "edition", "seats");
-
-				// Write quote instances
-				final var iTags = vo.getTags().get(ResourceType.INSTANCE);
-				vo.getInstances().forEach(qi -> writer.format("\n%s" + ";%s".repeat(24), toString(qi),
-						toString(qi.getCpu()), toString(qi.getCpuMax()), toString(qi.getGpu()),
-						toString(qi.getGpuMax()), toString(qi.getRam()), toString(qi.getRamMax()), qi.getOs(),
-						toString(qi.getUsage()), toString(qi.getBudget()), toString(qi.getOptimizer()),
-						toString(qi.getPrice().getTerm()), toString(qi.getLocation()), qi.getMinQuantity(),
-						toString(qi.getMaxQuantity()), toString(qi.getMaxVariableCost()), toString(qi.getWorkload()),
-						toString(qi.getProcessor()), toString(qi.getPhysical()), qi.isEphemeral(), toType(qi),
-						qi.getInternet(), toString(qi.getLicense()), toString(qi.getCost()), toString(qi, iTags)));
-
-				// Write quote containers
-				final var cTags = vo.getTags().get(ResourceType.CONTAINER);
-				vo.getContainers().forEach(qc -> writer.format("\n%s" + ";%s".repeat(24), toString(qc),
-						toString(qc.getCpu()), toString(qc.getCpuMax()), toString(qc.getGpu()),
-						toString(qc.getGpuMax()), toString(qc.getRam()), toString(qc.getRamMax()), qc.getOs(),
-						toString(qc.getUsage()), toString(qc.getBudget()), toString(qc.getOptimizer()),
-						toString(qc.getPrice().getTerm()), toString(qc.getLocation()), qc.getMinQuantity(),
-						toString(qc.getMaxQuantity()), toString(qc.getMaxVariableCost()), toString(qc.getWorkload()),
-						toString(qc.getProcessor()), toString(qc.getPhysical()), qc.isEphemeral(), toType(qc),
-						qc.getInternet(), toString(qc.getLicense()), toString(qc.getCost()), toString(qc, cTags)));
-				// Write quote functions
-				final var fTags = vo.getTags().get(ResourceType.FUNCTION);
-				vo.getFunctions()
-						.forEach(qf -> writer.format("\n%s" + ";%s".repeat(24), toString(qf), toString(qf.getCpu()),
-								toString(qf.getCpuMax()), toString(qf.getGpu()), toString(qf.getGpuMax()),
-								toString(qf.getRam()), toString(qf.getRamMax()), qf.getRuntime(),
-								toString(qf.getUsage()), toString(qf.getBudget()), toString(qf.getOptimizer()),
-								toString(qf.getPrice().getTerm()), toString(qf.getLocation()), qf.getNbRequests(), "",
-								"", toString(qf.getWorkload()), toString(qf.getProcessor()), toString(qf.getPhysical()),
-								qf.isEphemeral(), toType(qf), qf.getInternet(), "", toString(qf.getCost()),
-								toString(qf, fTags)));
-
-				// Write quote databases
-				final var dTags = vo.getTags().get(ResourceType.DATABASE);
-				vo.getDatabases().forEach(qi -> writer.format("\n%s" + ";%s".repeat(24) + ";;;;;;%s;%s", toString(qi),
-						toString(qi.getCpu()), toString(qi.getCpuMax()), toString(qi.getGpu()),
-						toString(qi.getGpuMax()), toString(qi.getRam()), toString(qi.getRamMax()), "",
-						toString(qi.getUsage()), toString(qi.getBudget()), toString(qi.getOptimizer()),
-						toString(qi.getPrice().getTerm()), toString(qi.getLocation()), qi.getMinQuantity(),
-						toString(qi.getMaxQuantity()), "", toString(qi.getWorkload()), toString(qi.getProcessor()),
-						toString(qi.getPhysical()), "", toType(qi), "", toString(qi.getLicense()),
-						toString(qi.getCost()), toString(qi, dTags), qi.getEngine(), toString(qi.getEdition())));
+		return download(writer -> {
+			splitHeader(writer);
+			SPLIT_TYPES.forEach(type -> {
+				final var tags = vo.getTags().get(type);
+				final List<? extends AbstractQuote<?>> resources = switch (type) {
+				case INSTANCE -> vo.getInstances();
+				case CONTAINER -> vo.getContainers();
+				case FUNCTION -> vo.getFunctions();
+				case DATABASE -> vo.getDatabases();
+				case STORAGE -> vo.getStorages();
+				default -> vo.getSupports();
+				};
+				resources.forEach(r -> splitRow(writer, type, r, toString(r, tags)));
+			});
+		}, file, gzip);
+	}
 
-				// Write quote storages
-				final var sTags = vo.getTags().get(ResourceType.STORAGE);
-				vo.getStorages().forEach(qs -> writer.format("\n%s;;;;;;;;;;;;;%s;;;;;;;%s;;" + ";%s".repeat(8),
-						toString(qs), toString(qs.getLocation()), toType(qs), toString(qs.getCost()),
-						toString(qs, sTags), qs.getSize(), toString(qs.getSizeMax()), toString(qs.getQuoteInstance()),
-						toString(qs.getQuoteDatabase()), toString(qs.getLatency()), toString(qs.getOptimized())));
+	/**
+	 * Write the headers of the split export.
+	 */
+	private void splitHeader(final PrintWriter writer) {
+		writer.format("%s" + ";%s".repeat(33), "name", "cpu", "cpuMax", "gpu", "gpuMax", "ram", "ramMax", "os",
+				"usage", "budget", "optimizer", "term", "location", "min", "max", "maxVariableCost", "workload",
+				"processor", "physical", "ephemeral", "type", "internet", "license", "cost", "tags", "disk", "diskMax",
+				"instance", "database", "latency", "optimized", "engine", "edition", "seats");
+	}
 
-				// Write quote support
-				final var s2Tags = vo.getTags().get(ResourceType.SUPPORT);
-				vo.getSupports()
-						.forEach(qs -> writer.format("\n%s;;;;;;;;;;;;;;;;;;;;%s;;;%s;%s;;;;;;;;%s", toString(qs),
-								toType(qs), toString(qs.getCost()), toString(qs, s2Tags), toString(qs.getSeats())));
-				writer.flush();
-			}
-		}, file).build();
+	/**
+	 * Write a resource of the split export.
+	 */
+	private void splitRow(final PrintWriter writer, final ResourceType type, final AbstractQuote<?> resource,
+			final String tags) {
+		switch (type) {
+		case INSTANCE -> {
+			final var qi = (ProvQuoteInstance) resource;
+			writer.format("\n%s" + ";%s".repeat(24), toString(qi), toString(qi.getCpu()), toString(qi.getCpuMax()),
+					toString(qi.getGpu()), toString(qi.getGpuMax()), toString(qi.getRam()), toString(qi.getRamMax()),
+					qi.getOs(), toString(qi.getUsage()), toString(qi.getBudget()), toString(qi.getOptimizer()),
+					toString(qi.getPrice().getTerm()), toString(qi.getLocation()), qi.getMinQuantity(),
+					toString(qi.getMaxQuantity()), toString(qi.getMaxVariableCost()), toString(qi.getWorkload()),
+					toString(qi.getProcessor()), toString(qi.getPhysical()), qi.isEphemeral(), toType(qi),
+					qi.getInternet(), toString(qi.getLicense()), toString(qi.getCost()), tags);
+		}
+		case CONTAINER -> {
+			final var qc = (ProvQuoteContainer) resource;
+			writer.format("\n%s" + ";%s".repeat(24), toString(qc), toString(qc.getCpu()), toString(qc.getCpuMax()),
+					toString(qc.getGpu()), toString(qc.getGpuMax()), toString(qc.getRam()), toString(qc.getRamMax()),
+					qc.getOs(), toString(qc.getUsage()), toString(qc.getBudget()), toString(qc.getOptimizer()),
+					toString(qc.getPrice().getTerm()), toString(qc.getLocation()), qc.getMinQuantity(),
+					toString(qc.getMaxQuantity()), toString(qc.getMaxVariableCost()), toString(qc.getWorkload()),
+					toString(qc.getProcessor()), toString(qc.getPhysical()), qc.isEphemeral(), toType(qc),
+					qc.getInternet(), toString(qc.getLicense()), toString(qc.getCost()), tags);
+		}
+		case FUNCTION -> {
+			final var qf = (ProvQuoteFunction) resource;
+			writer.format("\n%s" + ";%s".repeat(24), toString(qf), toString(qf.getCpu()), toString(qf.getCpuMax()),
+					toString(qf.getGpu()), toString(qf.getGpuMax()), toString(qf.getRam()), toString(qf.getRamMax()),
+					qf.getRuntime(), toString(qf.getUsage()), toString(qf.getBudget()), toString(qf.getOptimizer()),
+					toString(qf.getPrice().getTerm()), toString(qf.getLocation()), qf.getNbRequests(), "", "",
+					toString(qf.getWorkload()), toString(qf.getProcessor()), toString(qf.getPhysical()),
+					qf.isEphemeral(), toType(qf), qf.getInternet(), "", toString(qf.getCost()), tags);
+		}
+		case DATABASE -> {
+			final var qb = (ProvQuoteDatabase) resource;
+			writer.format("\n%s" + ";%s".repeat(24) + ";;;;;;%s;%s", toString(qb), toString(qb.getCpu()),
+					toString(qb.getCpuMax()), toString(qb.getGpu()), toString(qb.getGpuMax()), toString(qb.getRam()),
+					toString(qb.getRamMax()), "", toString(qb.getUsage()), toString(qb.getBudget()),
+					toString(qb.getOptimizer()), toString(qb.getPrice().getTerm()), toString(qb.getLocation()),
+					qb.getMinQuantity(), toString(qb.getMaxQuantity()), "", toString(qb.getWorkload()),
+					toString(qb.getProcessor()), toString(qb.getPhysical()), "", toType(qb), "",
+					toString(qb.getLicense()), toString(qb.getCost()), tags, qb.getEngine(), toString(qb.getEdition()));
+		}
+		case STORAGE -> {
+			final var qs = (ProvQuoteStorage) resource;
+			writer.format("\n%s;;;;;;;;;;;;;%s;;;;;;;%s;;" + ";%s".repeat(8), toString(qs), toString(qs.getLocation()),
+					toType(qs), toString(qs.getCost()), tags, qs.getSize(), toString(qs.getSizeMax()),
+					toString(qs.getQuoteInstance()), toString(qs.getQuoteDatabase()), toString(qs.getLatency()),
+					toString(qs.getOptimized()));
+		}
+		default -> {
+			final var qs = (ProvQuoteSupport) resource;
+			writer.format("\n%s;;;;;;;;;;;;;;;;;;;;%s;;;%s;%s;;;;;;;;%s", toString(qs), toType(qs),
+					toString(qs.getCost()), tags, toString(qs.getSeats()));
+		}
+		}
 	}
 
 	/**
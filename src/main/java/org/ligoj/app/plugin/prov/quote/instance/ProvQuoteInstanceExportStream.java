@@ -0,0 +1,236 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.quote.instance;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceContextType;
+import jakarta.transaction.Transactional;
+
+import org.hibernate.jpa.AvailableHints;
+import org.ligoj.app.plugin.prov.model.AbstractQuote;
+import org.ligoj.app.plugin.prov.model.AbstractQuoteVm;
+import org.ligoj.app.plugin.prov.model.ProvQuoteStorage;
+import org.ligoj.app.plugin.prov.model.ProvTag;
+import org.ligoj.app.plugin.prov.model.ResourceType;
+import org.springframework.stereotype.Service;
+
+/**
+ * Streamed read of the quote resources for the exports. The resources, their storages and their tags are read from
+ * sorted cursors and joined in a sorted-merge order, so the memory does not depend on the size of the quote.
+ */
+@Service
+@Transactional
+public class ProvQuoteInstanceExportStream {
+
+	/**
+	 * JDBC fetch size of the cursors.
+	 */
+	private static final int FETCH_SIZE = 500;
+
+	/**
+	 * Entity name and storage relationship of each resource type attaching storages.
+	 */
+	private static final Map<ResourceType, String[]> VMS = Map.of(ResourceType.INSTANCE,
+			new String[] { "ProvQuoteInstance", "quoteInstance" }, ResourceType.DATABASE,
+			new String[] { "ProvQuoteDatabase", "quoteDatabase" }, ResourceType.CONTAINER,
+			new String[] { "ProvQuoteContainer", "quoteContainer" }, ResourceType.FUNCTION,
+			new String[] { "ProvQuoteFunction", "quoteFunction" });
+
+	private static final String VM_QUERY = "SELECT r FROM %s r INNER JOIN FETCH r.price p INNER JOIN FETCH p.term"
+			+ " INNER JOIN FETCH p.type LEFT JOIN FETCH r.location LEFT JOIN FETCH r.usage LEFT JOIN FETCH r.budget"
+			+ " LEFT JOIN FETCH r.optimizer WHERE r.configuration.id = :quote ORDER BY r.id";
+
+	@PersistenceContext(type = PersistenceContextType.TRANSACTION, unitName = "pu")
+	protected EntityManager em;
+
+	/**
+	 * Write a resource with its tags.
+	 *
+	 * @param <T> The resource type.
+	 */
+	@FunctionalInterface
+	public interface RowWriter<T> {
+
+		/**
+		 * Write a resource.
+		 *
+		 * @param type   The resource type.
+		 * @param entity The resource to write.
+		 * @param tags   The formatted tags of this resource.
+		 */
+		void write(ResourceType type, T entity, String tags);
+	}
+
+	/**
+	 * A forward only cursor over items sorted by a key, consumed along another sequence sorted by the same key.
+	 *
+	 * @param <T> The item type.
+	 */
+	private static class MergeCursor<T> {
+		private final Iterator<T> iterator;
+		private final ToLongFunction<T> key;
+		private T next;
+
+		private MergeCursor(final Stream<T> stream, final ToLongFunction<T> key) {
+			this.iterator = stream.iterator();
+			this.key = key;
+			advance();
+		}
+
+		private void advance() {
+			next = iterator.hasNext() ? iterator.next() : null;
+		}
+
+		/**
+		 * Return the items of the given key. The items having a lower key are orphans and are skipped.
+		 */
+		private List<T> take(final long id) {
+			while (next != null && key.applyAsLong(next) < id) {
+				advance();
+			}
+			final var result = new ArrayList<T>(2);
+			while (next != null && key.applyAsLong(next) == id) {
+				result.add(next);
+				advance();
+			}
+			return result;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> Stream<T> stream(final String query, final Class<?> type, final int quote) {
+		return (Stream<T>) em.createQuery(query, type).setParameter("quote", quote)
+				.setHint(AvailableHints.HINT_FETCH_SIZE, FETCH_SIZE).getResultStream();
+	}
+
+	private Stream<ProvTag> tags(final int quote, final ResourceType type) {
+		return em
+				.createQuery("FROM ProvTag t WHERE t.configuration.id = :quote AND t.type = :type"
+						+ " ORDER BY t.resource, t.id", ProvTag.class)
+				.setParameter("quote", quote).setParameter("type", type)
+				.setHint(AvailableHints.HINT_FETCH_SIZE, FETCH_SIZE).getResultStream();
+	}
+
+	/**
+	 * Return the sorted key of a storage attached to a resource.
+	 */
+	private static long toKey(final int resource, final int storage) {
+		return ((long) resource << 32) | storage;
+	}
+
+	/**
+	 * Return the formatted tags, the same way as {@link org.ligoj.app.plugin.prov.TagVo#toString()}.
+	 */
+	private String toTags(final List<ProvTag> tags) {
+		return tags.stream().map(t -> t.getName() + (t.getValue() == null ? "" : (":" + t.getValue())))
+				.collect(Collectors.joining(","));
+	}
+
+	/**
+	 * Release the written entities.
+	 */
+	private void detach(final Object entity) {
+		em.detach(entity);
+	}
+
+	/**
+	 * Return the maximal amount of storages attached to a single resource.
+	 *
+	 * @param quote The quote identifier.
+	 * @param types The resource types attaching the counted storages.
+	 * @return The maximal amount of storages attached to a single resource.
+	 */
+	public int getMaxStorages(final int quote, final ResourceType... types) {
+		return Stream.of(types).map(VMS::get)
+				.mapToInt(vm -> em
+						.createQuery("SELECT COUNT(qs.id) FROM ProvQuoteStorage qs WHERE qs.configuration.id = :quote"
+								+ " AND qs." + vm[1] + " IS NOT NULL GROUP BY qs." + vm[1] + ".id"
+								+ " ORDER BY COUNT(qs.id) DESC", Long.class)
+						.setParameter("quote", quote).setMaxResults(1).getResultList().stream().findFirst()
+						.orElse(0L).intValue())
+				.max().orElse(0);
+	}
+
+	/**
+	 * Write the resources of the given type with their attached storages.
+	 *
+	 * @param quote     The quote identifier.
+	 * @param type      The resource type attaching storages.
+	 * @param resources The resource writer.
+	 * @param storages  The storage writer.
+	 */
+	public void inline(final int quote, final ResourceType type, final RowWriter<AbstractQuoteVm<?>> resources,
+			final RowWriter<ProvQuoteStorage> storages) {
+		final var vm = VMS.get(type);
+		final var parent = "qs." + vm[1];
+		try (Stream<AbstractQuoteVm<?>> rStream = stream(VM_QUERY.formatted(vm[0]), AbstractQuoteVm.class, quote);
+				var tStream = tags(quote, type);
+				Stream<ProvQuoteStorage> qsStream = stream("SELECT qs FROM ProvQuoteStorage qs"
+						+ " INNER JOIN FETCH qs.price p INNER JOIN FETCH p.type WHERE qs.configuration.id = :quote AND " + parent
+						+ " IS NOT NULL ORDER BY " + parent + ".id, qs.id", ProvQuoteStorage.class, quote);
+				Stream<Object[]> qstStream = stream("SELECT t, " + parent + ".id FROM ProvTag t, ProvQuoteStorage qs"
+						+ " WHERE t.configuration.id = :quote AND qs.configuration.id = :quote AND t.type = "
+						+ ResourceType.class.getName() + ".STORAGE AND t.resource = qs.id AND " + parent
+						+ " IS NOT NULL ORDER BY " + parent + ".id, qs.id, t.id", Object[].class, quote)) {
+			final var tCursor = new MergeCursor<>(tStream, ProvTag::getResource);
+			final var qsCursor = new MergeCursor<>(qsStream, qs -> qs.getQuoteResource().getId());
+			final var qstCursor = new MergeCursor<>(qstStream,
+					t -> toKey((Integer) t[1], ((ProvTag) t[0]).getResource()));
+			rStream.forEach(r -> {
+				final var rTags = tCursor.take(r.getId());
+				resources.write(type, r, toTags(rTags));
+				qsCursor.take(r.getId()).forEach(qs -> {
+					final var qsTags = qstCursor.take(toKey(r.getId(), qs.getId())).stream()
+							.map(t -> (ProvTag) t[0]).toList();
+					storages.write(ResourceType.STORAGE, qs, toTags(qsTags));
+					qsTags.forEach(this::detach);
+					detach(qs);
+				});
+				rTags.forEach(this::detach);
+				detach(r);
+			});
+		}
+	}
+
+	/**
+	 * Write the resources of the given type, attaching storages or not.
+	 *
+	 * @param quote     The quote identifier.
+	 * @param type      The resource type.
+	 * @param resources The resource writer.
+	 */
+	public void split(final int quote, final ResourceType type, final RowWriter<AbstractQuote<?>> resources) {
+		final String query;
+		if (type == ResourceType.STORAGE) {
+			query = "SELECT r FROM ProvQuoteStorage r INNER JOIN FETCH r.price p INNER JOIN FETCH p.type"
+					+ " LEFT JOIN FETCH r.location LEFT JOIN FETCH r.quoteInstance LEFT JOIN FETCH r.quoteDatabase"
+					+ " LEFT JOIN FETCH r.quoteContainer LEFT JOIN FETCH r.quoteFunction"
+					+ " WHERE r.configuration.id = :quote ORDER BY r.id";
+		} else if (type == ResourceType.SUPPORT) {
+			query = "SELECT r FROM ProvQuoteSupport r INNER JOIN FETCH r.price p INNER JOIN FETCH p.type"
+					+ " WHERE r.configuration.id = :quote ORDER BY r.id";
+		} else {
+			query = VM_QUERY.formatted(VMS.get(type)[0]);
+		}
+		try (Stream<AbstractQuote<?>> rStream = stream(query, AbstractQuote.class, quote);
+				var tStream = tags(quote, type)) {
+			final var tCursor = new MergeCursor<>(tStream, ProvTag::getResource);
+			rStream.forEach(r -> {
+				final var rTags = tCursor.take(r.getId());
+				resources.write(type, r, toTags(rTags));
+				rTags.forEach(this::detach);
+				detach(r);
+			});
+		}
+	}
+}
@@ -4,6 +4,7 @@
 
 package org.ligoj.app.plugin.prov.quote.instance;
 
+import java.util.Arrays;
 import java.util.List;
 
 import jakarta.transaction.Transactional;
@@ -23,6 +24,7 @@ import jakarta.ws.rs.core.UriInfo;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.ligoj.app.plugin.prov.AbstractProvQuoteInstanceOsResource;
+import org.ligoj.app.plugin.prov.PriceIndex;
 import org.ligoj.app.plugin.prov.ProvResource;
 import org.ligoj.app.plugin.prov.UpdatedCost;
 import org.ligoj.app.plugin.prov.dao.Optimizer;
@@ -32,7 +34,6 @@ import org.ligoj.app.plugin.prov.dao.ProvQuoteInstanceRepository;
 import org.ligoj.app.plugin.prov.model.ProvInstancePrice;
 import org.ligoj.app.plugin.prov.model.ProvInstancePriceTerm;
 import org.ligoj.app.plugin.prov.model.ProvInstanceType;
-import org.ligoj.app.plugin.prov.model.ProvQuote;
 import org.ligoj.app.plugin.prov.model.ProvQuoteInstance;
 import org.ligoj.app.plugin.prov.model.ProvTenancy;
 import org.ligoj.app.plugin.prov.model.QuoteInstance;
@@ -127,17 +128,51 @@ public class ProvQuoteInstanceResource extends
 		return lookupInternal(subscription, query);
 	}
 
+	/**
+	 * Return the instance prices matching to several criteria at once.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param queries      The criteria.
+	 * @return The best instance prices matching to the criteria, in the same order. Items may be <code>null</code>.
+	 */
+	@POST
+	@Path("{subscription:\\d+}/instance-lookup")
+	@Consumes(MediaType.APPLICATION_JSON)
+	public List<QuoteInstanceLookup> lookupAll(@PathParam("subscription") final int subscription,
+			final List<QuoteInstanceQuery> queries) {
+		return lookupAllInternal(subscription, queries);
+	}
+
 	@Override
-	protected List<Object[]> findLowestPrice(final ProvQuote configuration, final QuoteInstance query,
+	protected List<Object> toSignature(final QuoteInstance query) {
+		final var signature = super.toSignature(query);
+		signature.addAll(Arrays.asList(query.getOs(), query.getSoftware(), query.getTenancy()));
+		return signature;
+	}
+
+	@Override
+	protected QuoteInstance toQuery(final ProvQuoteInstance entity) {
+		final var builder = QuoteInstanceQuery.builder();
+		toQuery(builder, entity);
+		return builder.os(entity.getOs()).software(entity.getSoftware()).tenancy(entity.getTenancy()).build();
+	}
+
+	@Override
+	protected List<Object[]> findLowestPrice(final LookupContext context, final QuoteInstance query,
 			final List<Integer> types, final List<Integer> terms, final int location, final double rate,
 			final double duration, final double initialCost, final Optimizer optimizer) {
-		final var service = getService(configuration);
+		final var service = getService(context.getQuote());
 		// Resolve the right OS
 		final var os = service.getCatalogOs(query.getOs());
 		// Resolve the right license model
-		final var licenseR = normalize(getLicense(configuration, query.getLicense(), os, this::canByol));
+		final var licenseR = normalize(getLicense(context.getQuote(), query.getLicense(), os, this::canByol));
 		final var softwareR = normalize(query.getSoftware());
 		final var tenancyR = ObjectUtils.defaultIfNull(query.getTenancy(), ProvTenancy.SHARED);
+		final var index = getPriceIndex(context.getNode());
+		if (index != null) {
+			return findLowestPrice(index, types, terms, location, rate, duration, initialCost, optimizer,
+					newFilter(os, licenseR, softwareR, tenancyR));
+		}
 		if (optimizer == Optimizer.CO2) {
 			return ipRepository.findLowestCo2(types, terms, os, location, rate, duration, licenseR, softwareR,
 					initialCost, tenancyR, PageRequest.of(0, 1));
@@ -147,17 +182,23 @@ public class ProvQuoteInstanceResource extends
 	}
 
 	@Override
-	protected List<Object[]> findLowestDynamicPrice(final ProvQuote configuration, final QuoteInstance query,
+	protected List<Object[]> findLowestDynamicPrice(final LookupContext context, final QuoteInstance query,
 			final List<Integer> types, final List<Integer> terms, final double cpu, final double gpu, final double ram,
 			final int location, final double rate, final int duration, final double initialCost,
 			final Optimizer optimizer) {
-		final var service = getService(configuration);
+		final var service = getService(context.getQuote());
 		// Resolve the right OS
 		final var os = service.getCatalogOs(query.getOs());
 		// Resolve the right license model
-		final var licenseR = normalize(getLicense(configuration, query.getLicense(), os, this::canByol));
+		final var licenseR = normalize(getLicense(context.getQuote(), query.getLicense(), os, this::canByol));
 		final var softwareR = normalize(query.getSoftware());
 		final var tenancyR = ObjectUtils.defaultIfNull(query.getTenancy(), ProvTenancy.SHARED);
+		final var index = getPriceIndex(context.getNode());
+		if (index != null) {
+			return findLowestDynamicPrice(index, types, terms, Math.ceil(Math.max(1, cpu)), gpu,
+					Math.ceil(round(ram / 1024)), location, rate, round(rate * duration), duration, initialCost,
+					optimizer, newFilter(os, licenseR, softwareR, tenancyR));
+		}
 		if (optimizer == Optimizer.CO2) {
 			return ipRepository.findLowestDynamicCo2(types, terms, Math.ceil(Math.max(1, cpu)), gpu,
 					Math.ceil(round(ram / 1024)), os, location, rate, round(rate * duration), duration, licenseR,
@@ -168,6 +209,15 @@ public class ProvQuoteInstanceResource extends
 				initialCost, tenancyR, PageRequest.of(0, 1));
 	}
 
+	/**
+	 * Return the in-memory filter matching the instance specific requirements.
+	 */
+	private PriceIndex.Filter newFilter(final VmOs os, final String license, final String software,
+			final ProvTenancy tenancy) {
+		return (index, row) -> index.getOs()[row] == os && index.getTenancy()[row] == tenancy
+				&& index.isLicensed(row, license) && (software.isEmpty() || software.equals(index.getSoftware()[row]));
+	}
+
 	@Override
 	@GET
 	@Path("{subscription:\\d+}/instance-price-term")
@@ -4,11 +4,13 @@
 
 package org.ligoj.app.plugin.prov.quote.storage;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import jakarta.transaction.Transactional;
@@ -29,7 +31,9 @@ import org.apache.commons.lang3.ObjectUtils;
 import org.ligoj.app.plugin.prov.AbstractProvQuoteResource;
 import org.ligoj.app.plugin.prov.AbstractProvQuoteVmResource;
 import org.ligoj.app.plugin.prov.Floating;
+import org.ligoj.app.plugin.prov.ProvPriceIndex;
 import org.ligoj.app.plugin.prov.ProvResource;
+import org.ligoj.app.plugin.prov.StoragePriceIndex;
 import org.ligoj.app.plugin.prov.UpdatedCost;
 import org.ligoj.app.plugin.prov.dao.BaseProvQuoteRepository;
 import org.ligoj.app.plugin.prov.dao.BaseProvTypeRepository;
@@ -73,6 +77,11 @@ import org.springframework.stereotype.Service;
 public class ProvQuoteStorageResource
 		extends AbstractProvQuoteResource<ProvStorageType, ProvStoragePrice, ProvQuoteStorage, QuoteStorageEditionVo> {
 
+	/**
+	 * Maximal amount of returned prices by a lookup.
+	 */
+	private static final int LOOKUP_LIMIT = 10;
+
 	@Autowired
 	private ProvQuoteInstanceRepository qiRepository;
 
@@ -97,6 +106,9 @@ public class ProvQuoteStorageResource
 	@Autowired
 	private ProvLocationRepository locationRepository;
 
+	@Autowired
+	private ProvPriceIndex priceIndex;
+
 	@Override
 	@POST
 	@Path("storage")
@@ -343,12 +355,38 @@ public class ProvQuoteStorageResource
 			}
 			qsLoc = getLocation(node, query, qLoc);
 		}
-		return spRepository
-				.findLowestPrice(node, query.getSize(), normalize(query.getLatency()), normalize(qi), normalize(qb),
-						qb == null ? "" : normalize(qb.getPrice().getStorageEngine()), normalize(qc), normalize(qf),
-						query.getOptimized(), qsLoc, qLoc, PageRequest.of(0, 10))
-				.stream().map(spx -> (ProvStoragePrice) spx[0])
-				.map(sp -> newPrice(sp, query.getSize(), getCost(sp, query.getSize()))).toList();
+		final var engine = qb == null ? "" : normalize(qb.getPrice().getStorageEngine());
+		final List<ProvStoragePrice> prices;
+		if (priceIndex.isEnabled()) {
+			final var tool = configuration.getSubscription().getNode().getTool().getId();
+			prices = findLowestPrice(priceIndex.getStorage(node, tool), query, qi, qb, engine, qc, qf, qsLoc, qLoc);
+		} else {
+			prices = spRepository
+					.findLowestPrice(node, query.getSize(), normalize(query.getLatency()), normalize(qi), normalize(qb),
+							engine, normalize(qc), normalize(qf), query.getOptimized(), qsLoc, qLoc,
+							PageRequest.of(0, LOOKUP_LIMIT))
+					.stream().map(spx -> (ProvStoragePrice) spx[0]).toList();
+		}
+		return prices.stream().map(sp -> newPrice(sp, query.getSize(), getCost(sp, query.getSize()))).toList();
+	}
+
+	/**
+	 * Return the cheapest prices from the in-memory index of the node, following the
+	 * {@link ProvStoragePriceRepository#findLowestPrice} model. Only the matching prices are then loaded.
+	 */
+	private List<ProvStoragePrice> findLowestPrice(final StoragePriceIndex index, final QuoteStorage query,
+			final ProvQuoteInstance qi, final ProvQuoteDatabase qb, final String engine, final ProvQuoteContainer qc,
+			final ProvQuoteFunction qf, final int location, final int qLocation) {
+		if (qLocation != 0 && qLocation != location) {
+			// Location of the attached resource and the requested one differ
+			return Collections.emptyList();
+		}
+		final var rows = index.findLowest(location, query.getSize(), normalize(query.getLatency()),
+				query.getOptimized(), normalize(qi), normalize(qb), engine, normalize(qc), normalize(qf), LOOKUP_LIMIT);
+		final var ids = Arrays.stream(rows).mapToObj(r -> index.getIds()[r]).toList();
+		final var prices = spRepository.findAllById(ids).stream()
+				.collect(Collectors.toMap(ProvStoragePrice::getId, Function.identity()));
+		return ids.stream().map(prices::get).filter(Objects::nonNull).toList();
 	}
 
 	/**
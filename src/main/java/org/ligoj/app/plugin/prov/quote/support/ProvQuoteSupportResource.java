@@ -167,6 +167,7 @@ public class ProvQuoteSupportResource
 			final double oldInitial, final double oldMaxInitial, final double oldCo2, final double oldMaxCo2) {
 		// Report the delta to the quote. Initial costs are not updated
 		final var quote = entity.getConfiguration();
+		getQuoteLock().lock(quote);
 		quote.setCost(round(quote.getCost() + entity.getCost() - old));
 		quote.setMaxCost(round(quote.getMaxCost() + entity.getMaxCost() - oldMax));
 		quote.setCo2(round(quote.getCo2() + entity.getCo2() - oldCo2));
@@ -3,7 +3,10 @@
  */
 package org.ligoj.app.plugin.prov.quote.upload;
 
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceContextType;
 import jakarta.transaction.Transactional;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.ws.rs.*;
@@ -11,24 +14,27 @@ import jakarta.ws.rs.core.MediaType;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.cxf.jaxrs.ext.multipart.Multipart;
 import org.hibernate.Hibernate;
 import org.ligoj.app.plugin.prov.*;
 import org.ligoj.app.plugin.prov.dao.*;
 import org.ligoj.app.plugin.prov.model.*;
 import org.ligoj.app.plugin.prov.quote.database.ProvQuoteDatabaseResource;
 import org.ligoj.app.plugin.prov.quote.database.QuoteDatabaseEditionVo;
+import org.ligoj.app.plugin.prov.quote.database.QuoteDatabaseLookup;
 import org.ligoj.app.plugin.prov.quote.instance.ProvQuoteInstanceResource;
 import org.ligoj.app.plugin.prov.quote.instance.QuoteInstanceEditionVo;
+import org.ligoj.app.plugin.prov.quote.instance.QuoteInstanceLookup;
 import org.ligoj.app.plugin.prov.quote.storage.ProvQuoteStorageResource;
 import org.ligoj.app.plugin.prov.quote.storage.QuoteStorageEditionVo;
 import org.ligoj.app.resource.subscription.SubscriptionResource;
 import org.ligoj.bootstrap.core.csv.CsvForBean;
 import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+import org.ligoj.bootstrap.resource.system.configuration.ConfigurationResource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -54,6 +60,16 @@ import java.util.stream.IntStream;
 public class ProvQuoteUploadResource {
 	private static final String CSV_FILE = "csv-file";
 
+	/**
+	 * Configuration key of the amount of CSV entries parsed, looked up and persisted together.
+	 */
+	public static final String CHUNK_SIZE = ProvResource.SERVICE_KEY + ":upload-chunk-size";
+
+	/**
+	 * Default amount of CSV entries parsed, looked up and persisted together.
+	 */
+	private static final int DEFAULT_CHUNK_SIZE = 500;
+
 	/**
 	 * Default CSV separator.
 	 */
@@ -122,6 +138,18 @@ public class ProvQuoteUploadResource {
 	@Autowired
 	private ProvQuoteDatabaseRepository qbRepository;
 
+	@Autowired
+	private ProvRefreshEngine refreshEngine;
+
+	@PersistenceContext(type = PersistenceContextType.TRANSACTION, unitName = "pu")
+	private EntityManager em;
+
+	@Autowired
+	private ConfigurationResource configuration;
+
+	@Autowired
+	private ProvMetrics metrics;
+
 	// Instance merger
 	private final Map<MergeMode, BiFunction<QuoteInstanceEditionVo, UploadContext, Integer>> mergersInstance = Map
 			.of(MergeMode.INSERT, this::modeInsert, MergeMode.KEEP, this::modeKeep, MergeMode.UPDATE, this::modeUpdate);
@@ -134,6 +162,40 @@ public class ProvQuoteUploadResource {
 		private Map<String, ProvQuoteInstance> previousQi;
 		private Map<String, ProvQuoteDatabase> previousQb;
 		private ProvQuote quote;
+		private int subscription;
+		private String defaultUsage;
+		private String defaultBudget;
+		private String defaultOptimizer;
+		private MergeMode mode;
+		private Integer ramMultiplier;
+		private boolean createUsage;
+		private boolean createBudget;
+		private boolean createOptimizer;
+		private boolean errorContinue;
+
+		/**
+		 * Expected amount of entries. When <code>0</code>, the amount is unknown.
+		 */
+		private int size;
+		private final AtomicInteger cursor = new AtomicInteger(0);
+
+		/**
+		 * Storage type codes resolved during this upload, by requirements.
+		 */
+		private final Map<List<Object>, String> storageTypes = new HashMap<>();
+	}
+
+	/**
+	 * A parsed CSV entry with its validated inputs, or the error raised during this validation.
+	 */
+	private static class UploadRow {
+		private final VmUpload upload;
+		private AbstractQuoteVmEditionVo vo;
+		private RuntimeException error;
+
+		private UploadRow(final VmUpload upload) {
+			this.upload = upload;
+		}
 	}
 
 	/**
@@ -194,9 +256,9 @@ public class ProvQuoteUploadResource {
 		if (qi == null) {
 			return modeInsert(vo, context);
 		}
-		// Update the previous entity
+		// Update the previous entity, reloaded when detached by a previous chunk
 		vo.setId(qi.getId());
-		qiResource.saveOrUpdate(context.quote, qi, vo);
+		qiResource.saveOrUpdate(context.quote, attach(qi, ProvQuoteInstance.class), vo);
 		return null;
 	}
 
@@ -208,12 +270,19 @@ public class ProvQuoteUploadResource {
 		if (qi == null) {
 			return modeInsert(vo, context);
 		}
-		// Update the previous entity
+		// Update the previous entity, reloaded when detached by a previous chunk
 		vo.setId(qi.getId());
-		qbResource.saveOrUpdate(context.quote, qi, vo);
+		qbResource.saveOrUpdate(context.quote, attach(qi, ProvQuoteDatabase.class), vo);
 		return null;
 	}
 
+	/**
+	 * Return the managed state of an entity loaded or created by this upload.
+	 */
+	private <E extends AbstractQuoteVm<?>> E attach(final E entity, final Class<E> type) {
+		return entity.getId() == null || em.contains(entity) ? entity : em.find(type, entity.getId());
+	}
+
 	private String cleanHeader(final String header) {
 		return StringUtils.unwrap(header, '\"').trim();
 	}
@@ -310,39 +379,93 @@ public class ProvQuoteUploadResource {
 			@FormParam(value = "createMissingBudget") final Boolean createBudget,
 			@FormParam(value = "createMissingOptimizer") final Boolean createOptimizer,
 			@FormParam(value = "separator") final String separator) throws IOException {
+		// The content is already in memory, the amount of entries is known
+		final var size = (int) uploadedFile.lines().filter(StringUtils::isNotBlank).count()
+				- (BooleanUtils.isFalse(headersIncluded) ? 0 : 1);
+		upload(subscription, new StringReader(uploadedFile), size, headers, headersIncluded, defaultUsage,
+				defaultBudget, defaultOptimizer, mode, ramMultiplier, errorContinue, createUsage, createBudget,
+				createOptimizer, separator);
+	}
+
+	/**
+	 * Upload a file of quote without loading it in memory. The entries are read, looked up and persisted by chunks of
+	 * {@value #DEFAULT_CHUNK_SIZE} entries, see {@link #CHUNK_SIZE}.
+	 *
+	 * @param subscription     The subscription identifier, will be used to filter the locations from the associated
+	 *                         provider.
+	 * @param uploadedFile     Instance entries files to import. Currently, support only CSV format.
+	 * @param headers          the CSV header names. When <code>null</code> or empty, the default headers are used.
+	 * @param headersIncluded  When <code>true</code>, the first line is the headers and the given <code>headers</code>
+	 *                         parameter is ignored. Otherwise, the <code>headers</code> parameter is used.
+	 * @param defaultUsage     The optional usage name. When not <code>null</code>, each quote instance without defined
+	 *                         usage will be associated to this usage.
+	 * @param defaultBudget    The optional budget name. When not <code>null</code>, each quote instance without defined
+	 *                         budget will be associated to this budget.
+	 * @param defaultOptimizer The optional optimizer name. When not <code>null</code>, each quote instance without
+	 *                         defined usage will be associated to this optimizer.
+	 * @param mode             The merge option indicates how the entries are inserted.
+	 * @param ramMultiplier    The multiplier for imported RAM values. Default is 1.
+	 * @param encoding         CSV encoding. Default is UTF-8.
+	 * @param errorContinue    When <code>true</code> errors do not block the upload.
+	 * @param createUsage      When <code>true</code>, missing usage are automatically created.
+	 * @param createBudget     When <code>true</code>, missing budget are automatically created.
+	 * @param createOptimizer  When <code>true</code>, missing optimizer are automatically created.
+	 * @param separator        CSV separator. Default is ";".
+	 * @throws IOException When the CSV stream cannot be read.
+	 */
+	@POST
+	@Consumes(MediaType.MULTIPART_FORM_DATA)
+	@Path("{subscription:\\d+}/upload-stream")
+	public void uploadStream(@PathParam("subscription") final int subscription,
+			@Multipart(value = CSV_FILE) final InputStream uploadedFile,
+			@FormParam(value = "headers") final String[] headers,
+			@FormParam(value = "headers-included") final Boolean headersIncluded,
+			@FormParam(value = "usage") final String defaultUsage,
+			@FormParam(value = "budget") final String defaultBudget,
+			@FormParam(value = "optimizer") final String defaultOptimizer,
+			@FormParam(value = "mergeUpload") final MergeMode mode,
+			@FormParam(value = "memoryUnit") final Integer ramMultiplier,
+			@FormParam(value = "errorContinue") final Boolean errorContinue,
+			@FormParam(value = "encoding") final String encoding,
+			@FormParam(value = "createMissingUsage") final Boolean createUsage,
+			@FormParam(value = "createMissingBudget") final Boolean createBudget,
+			@FormParam(value = "createMissingOptimizer") final Boolean createOptimizer,
+			@FormParam(value = "separator") final String separator) throws IOException {
+		final var safeEncoding = ObjectUtils.defaultIfNull(encoding, DEFAULT_ENCODING);
+		upload(subscription, new InputStreamReader(uploadedFile, safeEncoding), 0, headers, headersIncluded,
+				defaultUsage, defaultBudget, defaultOptimizer, mode, ramMultiplier, errorContinue, createUsage,
+				createBudget, createOptimizer, separator);
+	}
+
+	private void upload(final int subscription, final Reader input, final int size, final String[] headers,
+			final Boolean headersIncluded, final String defaultUsage, final String defaultBudget,
+			final String defaultOptimizer, final MergeMode mode, final Integer ramMultiplier,
+			final Boolean errorContinue, final Boolean createUsage, final Boolean createBudget,
+			final Boolean createOptimizer, final String separator) throws IOException {
 
 		log.info("Upload provisioning requested...");
+		final var start = System.nanoTime();
 		subscriptionResource.checkVisible(subscription);
 		final var quote = resource.getRepository().findBy("subscription.id", subscription);
-		final var safeEncoding = ObjectUtils.defaultIfNull(encoding, DEFAULT_ENCODING);
 
 		// Check headers validity
+		final var reader = new BufferedReader(input);
 		final String[] headersArray;
-		final InputStream fileNoHeader;
 		if (headersIncluded == null || headersIncluded) {
 			// Header at first line
-			final var br = new BufferedReader(new StringReader(uploadedFile));
-			headersArray = StringUtils.defaultString(br.readLine()).split(separator);
-			fileNoHeader = new ByteArrayInputStream(IOUtils.toByteArray(br, safeEncoding));
-
+			headersArray = StringUtils.defaultString(reader.readLine()).split(separator);
 		} else {
 			// Headers are provided separately
 			headersArray = ArrayUtils.isEmpty(headers) ? DEFAULT_HEADERS : headers;
-			fileNoHeader = new ByteArrayInputStream(uploadedFile.getBytes(safeEncoding));
 		}
 
 		final var headersArray2 = checkHeaders(headersArray);
 		final var headersString = StringUtils.chop(ArrayUtils.toString(headersArray2)).substring(1).replace(",",
 				separator) + "\n";
-		final var reader = new InputStreamReader(
-				new SequenceInputStream(new ByteArrayInputStream(headersString.getBytes(safeEncoding)), fileNoHeader),
-				safeEncoding);
 
 		// Build entries
 		log.info("Upload provisioning : reading, using header {}", headersString);
-		final var list = csvForBean.toBean(VmUpload.class, reader);
-		log.info("Upload provisioning : importing {} entries", list.size());
-		final var cursor = new AtomicInteger(0);
+		log.info("Upload provisioning : importing {} entries", size);
 		final var previousQi = qiRepository.findAll(quote).stream()
 				.collect(Collectors.toConcurrentMap(ProvQuoteInstance::getName, Function.identity()));
 		final var previousQb = qbRepository.findAll(quote).stream()
@@ -356,20 +479,137 @@ public class ProvQuoteUploadResource {
 		context.quote = quote;
 		context.previousQi = previousQi;
 		context.previousQb = previousQb;
-		list.stream().filter(Objects::nonNull).filter(i -> i.getName() != null).forEach(i -> {
+		context.subscription = subscription;
+		context.defaultUsage = defaultUsage;
+		context.defaultBudget = defaultBudget;
+		context.defaultOptimizer = defaultOptimizer;
+		context.mode = ObjectUtils.defaultIfNull(mode, MergeMode.KEEP);
+		context.ramMultiplier = ramMultiplier;
+		context.createUsage = BooleanUtils.isTrue(createUsage);
+		context.createBudget = BooleanUtils.isTrue(createBudget);
+		context.createOptimizer = BooleanUtils.isTrue(createOptimizer);
+		context.errorContinue = BooleanUtils.isTrue(errorContinue);
+		context.size = size;
+
+		// Only one chunk of entries is in memory at once
+		final var chunkSize = Math.max(1, configuration.get(CHUNK_SIZE, DEFAULT_CHUNK_SIZE));
+		for (var chunk = readChunk(reader, chunkSize); chunk != null; chunk = readChunk(reader, chunkSize)) {
+			persist(context, csvForBean.toBean(VmUpload.class, new StringReader(headersString + chunk)));
+			release(context);
+			if (size <= 0) {
+				log.info("Upload provisioning : {} entries imported", context.cursor.get());
+			}
+		}
+		log.info("Upload provisioning : flushing");
+
+		// Throughput of the parsed and persisted entries
+		final var elapsed = System.nanoTime() - start;
+		final var rows = context.cursor.get();
+		metrics.timer("prov.upload", elapsed);
+		metrics.counter("prov.upload.rows", rows);
+		metrics.summary("prov.upload.rate", rows * 1e9d / Math.max(1, elapsed));
+	}
+
+	/**
+	 * Flush and detach the entities of the persisted chunk, so the persistence context does not grow with the upload.
+	 * The quote and its profiles are then reloaded, the previous entities are reloaded on demand.
+	 */
+	private void release(final UploadContext context) {
+		em.flush();
+		em.clear();
+		context.quote = em.getReference(ProvQuote.class, context.quote.getId());
+		Hibernate.initialize(context.quote.getUsages());
+		Hibernate.initialize(context.quote.getBudgets());
+		Hibernate.initialize(context.quote.getOptimizers());
+	}
+
+	/**
+	 * Read the next raw CSV entries. A quoted value may span several lines.
+	 *
+	 * @param reader The CSV reader, positioned after the headers.
+	 * @param rows   The maximal amount of entries to read.
+	 * @return The raw entries, or <code>null</code> when the end of the stream is reached.
+	 * @throws IOException When the CSV stream cannot be read.
+	 */
+	private String readChunk(final BufferedReader reader, final int rows) throws IOException {
+		final var chunk = new StringBuilder();
+		var quotes = 0;
+		var count = 0;
+		String line;
+		while (count < rows && (line = reader.readLine()) != null) {
+			chunk.append(line).append('\n');
+			quotes += StringUtils.countMatches(line, '"');
+			if (quotes % 2 == 0) {
+				// This entry is complete
+				count++;
+			}
+		}
+		return chunk.isEmpty() ? null : chunk.toString();
+	}
+
+	/**
+	 * Validate, look up and persist a chunk of entries. The lookups are performed at once for the whole chunk, then
+	 * the entries are persisted in order.
+	 */
+	private void persist(final UploadContext context, final List<VmUpload> entries) {
+		final var rows = entries.stream().filter(Objects::nonNull).filter(i -> i.getName() != null)
+				.map(i -> newRow(context, i)).toList();
+		final var qiLookups = lookupAll(rows, QuoteInstanceEditionVo.class,
+				vos -> qiResource.lookupAll(context.quote, vos));
+		final var qbLookups = lookupAll(rows, QuoteDatabaseEditionVo.class,
+				vos -> qbResource.lookupAll(context.quote, vos));
+		refreshEngine.write(rows, row -> {
 			try {
-				persist(subscription, defaultUsage, defaultBudget, defaultOptimizer, mode, ramMultiplier, list.size(),
-						cursor, context, BooleanUtils.isTrue(createUsage), BooleanUtils.isTrue(createBudget), BooleanUtils.isTrue(createOptimizer), i);
+				persist(context, row, qiLookups, qbLookups);
 			} catch (final ValidationJsonException e) {
-				handleUploadError(BooleanUtils.isTrue(errorContinue), handleValidationError(i, e));
+				handleUploadError(context.errorContinue, handleValidationError(row.upload, e));
 			} catch (final ConstraintViolationException e) {
-				handleUploadError(BooleanUtils.isTrue(errorContinue), handleValidationError(i, new ValidationJsonException(e)));
+				handleUploadError(context.errorContinue,
+						handleValidationError(row.upload, new ValidationJsonException(e)));
 			} catch (final RuntimeException e) {
-				log.error("Unmanaged error during import of " + i.getName(), e);
-				handleUploadError(BooleanUtils.isTrue(errorContinue), e);
+				log.error("Unmanaged error during import of " + row.upload.getName(), e);
+				handleUploadError(context.errorContinue, e);
 			}
 		});
-		log.info("Upload provisioning : flushing");
+	}
+
+	/**
+	 * Validate the entry. The error is kept to be reported in the order of the entries.
+	 */
+	private UploadRow newRow(final UploadContext context, final VmUpload upload) {
+		final var row = new UploadRow(upload);
+		try {
+			if (StringUtils.isNotEmpty(upload.getEngine())) {
+				// Database case
+				row.vo = copy(context, upload, newDatabaseVo(upload));
+			} else {
+				// Instance/Container case
+				row.vo = copy(context, upload, newInstanceVo(upload));
+			}
+		} catch (final RuntimeException e) {
+			row.error = e;
+		}
+		return row;
+	}
+
+	/**
+	 * Look up the prices of the valid entries of the given type at once. When one of them is rejected, the entries of
+	 * this chunk are looked up one by one to report the error of the right entry.
+	 */
+	private <V, L> Map<UploadRow, L> lookupAll(final List<UploadRow> rows, final Class<V> type,
+			final Function<List<V>, List<L>> lookup) {
+		final var result = new IdentityHashMap<UploadRow, L>();
+		final var typed = rows.stream().filter(r -> type.isInstance(r.vo)).toList();
+		if (!typed.isEmpty()) {
+			try {
+				final var lookups = lookup.apply(typed.stream().map(r -> type.cast(r.vo)).toList());
+				IntStream.range(0, typed.size()).forEach(n -> result.put(typed.get(n), lookups.get(n)));
+			} catch (final RuntimeException e) {
+				log.info("Upload provisioning : lookup of {} entries rejected, fallback to single lookups ({})",
+						typed.size(), e.getMessage());
+			}
+		}
+		return result;
 	}
 
 	private void handleUploadError(boolean onErrorContinue, RuntimeException e) {
@@ -378,10 +618,7 @@ public class ProvQuoteUploadResource {
 		}
 	}
 
-	private <V extends AbstractQuoteVmEditionVo> V copy(final int subscription, final UploadContext context,
-			final String defaultUsage, final String defaultBudget, final String defaultOptimizer,
-			final Integer ramMultiplier, final boolean createUsage, final boolean createBudget,
-			final boolean createOptimizer, final VmUpload u, final V vo) {
+	private <V extends AbstractQuoteVmEditionVo> V copy(final UploadContext context, final VmUpload u, final V vo) {
 		// Validate the upload object
 		vo.setName(u.getName());
 		vo.setDescription(u.getDescription());
@@ -400,16 +637,17 @@ public class ProvQuoteUploadResource {
 		vo.setStorageRate(u.getStorageRate());
 		vo.setWorkload(u.getWorkload());
 		vo.setPhysical(u.getPhysical());
+		final var ramMultiplier = context.ramMultiplier;
 		vo.setRam(ObjectUtils.defaultIfNull(ramMultiplier, 1) * ObjectUtils.defaultIfNull(u.getRam(), 0).intValue());
-		vo.setSubscription(subscription);
+		vo.setSubscription(context.subscription);
 		vo.setType(u.getType());
 		vo.setCpuMax(u.getCpuMax());
 		vo.setGpuMax(u.getGpuMax());
 		vo.setRamMax(
 				u.getRamMax() == null ? null : ObjectUtils.defaultIfNull(ramMultiplier, 1) * u.getRamMax().intValue());
-		completeUsage(context, defaultUsage, createUsage, u, vo);
-		completeBudget(context, defaultBudget, createBudget, u, vo);
-		completeOptimizer(context, defaultOptimizer, createOptimizer, u, vo);
+		completeUsage(context, context.defaultUsage, context.createUsage, u, vo);
+		completeBudget(context, context.defaultBudget, context.createBudget, u, vo);
+		completeOptimizer(context, context.defaultOptimizer, context.createOptimizer, u, vo);
 		return vo;
 	}
 
@@ -442,31 +680,32 @@ public class ProvQuoteUploadResource {
 		return vo;
 	}
 
-	private void persist(final int subscription, final String defaultUsage, final String defaultBudget,
-			final String defaultOptimizer, final MergeMode mode, final Integer ramMultiplier, final int size,
-			final AtomicInteger cursor, final UploadContext context, final boolean createUsage,
-			final boolean createBudget, final boolean createOptimizer, final VmUpload i) {
+	private void persist(final UploadContext context, final UploadRow row,
+			final Map<UploadRow, QuoteInstanceLookup> qiLookups, final Map<UploadRow, QuoteDatabaseLookup> qbLookups) {
+		if (row.error != null) {
+			// Report the validation error in the order of the entries
+			throw row.error;
+		}
 
-		if (StringUtils.isNotEmpty(i.getEngine())) {
+		if (row.vo instanceof QuoteDatabaseEditionVo vo) {
 			// Database case
-			final var merger = mergersDatabase.get(ObjectUtils.defaultIfNull(mode, MergeMode.KEEP));
-			final var vo = copy(subscription, context, defaultUsage, defaultBudget, defaultOptimizer, ramMultiplier,
-					createUsage, createBudget, createOptimizer, i, newDatabaseVo(i));
-			vo.setPrice(
-					qbResource.validateLookup("database", qbResource.lookup(context.quote, vo), vo.getName()).getId());
-			persist(i, subscription, merger, context, vo, QuoteStorageEditionVo::setDatabase, ResourceType.DATABASE);
+			final var merger = mergersDatabase.get(context.mode);
+			final var lookup = qbLookups.containsKey(row) ? qbLookups.get(row) : qbResource.lookup(context.quote, vo);
+			vo.setPrice(qbResource.validateLookup("database", lookup, vo.getName()).getId());
+			persist(row.upload, merger, context, vo, context.previousQb, QuoteStorageEditionVo::setDatabase,
+					ResourceType.DATABASE);
 		} else {
 			// Instance/Container case
-			final var merger = mergersInstance.get(ObjectUtils.defaultIfNull(mode, MergeMode.KEEP));
-			final var vo = copy(subscription, context, defaultUsage, defaultBudget, defaultOptimizer, ramMultiplier,
-					createUsage, createBudget, createOptimizer, i, newInstanceVo(i));
-			vo.setPrice(
-					qiResource.validateLookup("instance", qiResource.lookup(context.quote, vo), vo.getName()).getId());
-			persist(i, subscription, merger, context, vo, QuoteStorageEditionVo::setInstance, ResourceType.INSTANCE);
+			final var vo = (QuoteInstanceEditionVo) row.vo;
+			final var merger = mergersInstance.get(context.mode);
+			final var lookup = qiLookups.containsKey(row) ? qiLookups.get(row) : qiResource.lookup(context.quote, vo);
+			vo.setPrice(qiResource.validateLookup("instance", lookup, vo.getName()).getId());
+			persist(row.upload, merger, context, vo, context.previousQi, QuoteStorageEditionVo::setInstance,
+					ResourceType.INSTANCE);
 		}
 
 		// Update the cursor
-		increment(cursor, size);
+		increment(context.cursor, context.size);
 	}
 
 	private <V extends AbstractQuoteVmEditionVo> void completeUsage(final UploadContext context,
@@ -529,6 +768,11 @@ public class ProvQuoteUploadResource {
 	 * Handle cursor and progress display.
 	 */
 	private void increment(final AtomicInteger cursor, final int size) {
+		if (size <= 0) {
+			// Unknown amount of entries, the progress is reported by chunk
+			cursor.incrementAndGet();
+			return;
+		}
 		final var percent = ((int) (cursor.incrementAndGet() * 100D / size));
 		if (cursor.get() > 1 && percent / 10 > ((int) ((cursor.get() - 1) * 100D / size)) / 10) {
 			log.info("Upload provisioning : importing {} entries, {}%", size, percent);
@@ -539,9 +783,11 @@ public class ProvQuoteUploadResource {
 	 * Validate the input object, do a lookup, then create the {@link ProvQuoteInstance} and the
 	 * {@link ProvQuoteStorage} entities.
 	 */
-	private <V extends AbstractQuoteVmEditionVo> void persist(final VmUpload upload, final int subscription,
+	private <V extends AbstractQuoteVmEditionVo> void persist(final VmUpload upload,
 			final BiFunction<V, UploadContext, Integer> merger, final UploadContext context, final V vo,
+			final Map<String, ? extends AbstractQuoteVm<?>> previous,
 			final ObjIntConsumer<QuoteStorageEditionVo> diskConsumer, final ResourceType resourceType) {
+		final var subscription = context.subscription;
 
 		// Create the quote instance from the validated inputs
 		final var id = merger.apply(vo, context);
@@ -566,35 +812,45 @@ public class ProvQuoteUploadResource {
 					svo.setLatency(getItem(upload.getLatency(), index));
 					svo.setOptimized(getItem(upload.getOptimized(), index));
 
-					// Find the nicest storage
-					svo.setType(storageResource.lookup(context.quote, svo).stream().findFirst()
-							.orElseThrow(() -> new ValidationJsonException("storage", "NotNull")).getPrice().getType()
-							.getCode());
+					// Find the nicest storage, once for the same requirements
+					final var entity = previous.get(vo.getName());
+					final var key = Arrays.<Object>asList(resourceType, entity.getPrice().getId(),
+							entity.getResolvedLocation().getId(), size, sizeMax, svo.getLatency(), svo.getOptimized());
+					svo.setType(context.storageTypes.computeIfAbsent(key,
+							k -> storageResource.lookup(context.quote, svo).stream().findFirst()
+									.orElseThrow(() -> new ValidationJsonException("storage", "NotNull")).getPrice()
+									.getType().getCode()));
 
 					// Default the storage name to the instance name
 					svo.setSubscription(subscription);
 					return storageResource.create(svo).getId();
 				}).toList();
 
-		// Tags part
+		// Tags part, the instance and its storages tags are persisted at once
+		final var tags = new ArrayList<TagEditionVo>();
 		Arrays.stream(StringUtils.split(ObjectUtils.defaultIfNull(upload.getTags(), ""), ",;"))
 				.map(StringUtils::trimToNull).filter(Objects::nonNull).forEach(t -> {
-					// Instance tags
-					final var tag = new TagEditionVo();
 					final var parts = StringUtils.splitPreserveAllTokens(t + ":", ':');
-					tag.setName(parts[0].trim());
-					tag.setValue(StringUtils.trimToNull(parts[1]));
-					tag.setResource(id);
-					tag.setType(resourceType);
-					tagResource.create(subscription, tag);
+					final var name = parts[0].trim();
+					final var value = StringUtils.trimToNull(parts[1]);
+
+					// Instance tags
+					tags.add(newTag(name, value, resourceType, id));
 
 					// Storage tags
-					tag.setType(ResourceType.STORAGE);
-					disks.forEach(d -> {
-						tag.setResource(d);
-						tagResource.create(subscription, tag);
-					});
+					disks.forEach(d -> tags.add(newTag(name, value, ResourceType.STORAGE, d)));
 				});
+		tagResource.createAll(context.quote, tags);
+	}
+
+	private TagEditionVo newTag(final String name, final String value, final ResourceType type,
+			final Integer resource) {
+		final var tag = new TagEditionVo();
+		tag.setName(name);
+		tag.setValue(value);
+		tag.setType(type);
+		tag.setResource(resource);
+		return tag;
 	}
 
 	private <T> T getItem(final List<T> items, final int index) {
@@ -4,35 +4,48 @@
 package org.ligoj.app.plugin.prov.terraform;
 
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import javax.cache.expiry.Duration;
 import javax.cache.expiry.ModifiedExpiryPolicy;
 
+import org.ligoj.app.plugin.prov.ProvMetrics;
 import org.ligoj.bootstrap.resource.system.cache.CacheManagerAware;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.hazelcast.cache.CacheStatistics;
 import com.hazelcast.cache.HazelcastCacheManager;
+import com.hazelcast.cache.ICache;
 import com.hazelcast.config.CacheConfig;
 import com.hazelcast.config.EvictionConfig;
 import com.hazelcast.config.EvictionPolicy;
 
 /**
- * Provisioning data cache configurations.
+ * Provisioning data cache configurations. The statistics of each cache are exposed by {@link ProvMetrics}.
  */
 @Component
 public class ProvCache implements CacheManagerAware {
 
+	@Autowired
+	private ProvMetrics metrics;
+
 	@Override
 	public void onCreate(final HazelcastCacheManager cacheManager, final Function<String, CacheConfig<?, ?>> provider) {
-		cacheManager.createCache("terraform-version", provider.apply("terraform-version"));
+		create(cacheManager, "terraform-version", provider.apply("terraform-version"));
 		final var cfgTVL = provider.apply("terraform-version-latest")
 				.setExpiryPolicyFactory(ModifiedExpiryPolicy.factoryOf(Duration.ONE_DAY));
-		cacheManager.createCache("terraform-version-latest", cfgTVL);
+		create(cacheManager, "terraform-version-latest", cfgTVL);
 
 		final var cfgPL = provider.apply("prov-location")
 				.setEvictionConfig(new EvictionConfig().setEvictionPolicy(EvictionPolicy.LRU).setSize(1000));
-		cacheManager.createCache("prov-location", cfgPL);
+		create(cacheManager, "prov-location", cfgPL);
+
+		// Memoized lookups
+		final var cfgPLk = provider.apply("prov-lookup")
+				.setEvictionConfig(new EvictionConfig().setEvictionPolicy(EvictionPolicy.LRU).setSize(10000));
+		create(cacheManager, "prov-lookup", cfgPLk);
 
 		// Instance cache configurations
 		createCacheEvict(cacheManager, provider, "prov-instance-type", "prov-instance-type-dyn",
@@ -42,13 +55,13 @@ public class ProvCache implements CacheManagerAware {
 				"prov-function-type", "prov-function-type-dyn", "prov-function-type-has-dyn", "prov-function-has-co2");
 		createCache(cacheManager, provider, "prov-processor", "prov-instance-software", "prov-instance-license",
 				"prov-instance-os", "prov-database-engine", "prov-database-edition", "prov-database-license",
-				"prov-container-license", "prov-container-os");
+				"prov-container-license", "prov-container-os", "prov-price-index", "prov-lookup-quote");
 
 	}
 
 	private void createCache(final HazelcastCacheManager cacheManager,
 			final Function<String, CacheConfig<?, ?>> provider, final String... names) {
-		Stream.of(names).forEach(name -> cacheManager.createCache(name, provider.apply(name)));
+		Stream.of(names).forEach(name -> create(cacheManager, name, provider.apply(name)));
 	}
 
 	private void createCacheEvict(final HazelcastCacheManager cacheManager,
@@ -56,7 +69,19 @@ public class ProvCache implements CacheManagerAware {
 		Stream.of(names).forEach(name -> {
 			final var cfgPIT = provider.apply(name)
 					.setEvictionConfig(new EvictionConfig().setEvictionPolicy(EvictionPolicy.LRU).setSize(1000));
-			cacheManager.createCache(name, cfgPIT);
+			create(cacheManager, name, cfgPIT);
 		});
 	}
+
+	/**
+	 * Create a cache with its statistics, and expose its hit ratio, hits and misses.
+	 */
+	private void create(final HazelcastCacheManager cacheManager, final String name, final CacheConfig<?, ?> config) {
+		cacheManager.createCache(name, config.setStatisticsEnabled(true));
+		final Supplier<CacheStatistics> stats = () -> cacheManager.getCache(name).unwrap(ICache.class)
+				.getLocalCacheStatistics();
+		metrics.gauge("prov.cache.hit.ratio", () -> stats.get().getCacheHitPercentage() / 100d, "cache", name);
+		metrics.gauge("prov.cache.hits", () -> stats.get().getCacheHits(), "cache", name);
+		metrics.gauge("prov.cache.misses", () -> stats.get().getCacheMisses(), "cache", name);
+	}
 }
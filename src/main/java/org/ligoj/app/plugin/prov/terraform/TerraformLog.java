@@ -0,0 +1,44 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.terraform;
+
+import java.io.Serializable;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A chunk of the Terraform log of a subscription.
+ */
+@Getter
+@Setter
+public class TerraformLog implements Serializable {
+
+	/**
+	 * SID
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The offset to request the next chunk.
+	 */
+	private long offset;
+
+	/**
+	 * The log content from the requested offset.
+	 */
+	private String content;
+
+	/**
+	 * When <code>true</code>, the requested offset is beyond the current log, likely written by a previous execution,
+	 * and the content is read from the beginning.
+	 */
+	private boolean reset;
+
+	/**
+	 * When <code>true</code>, there is no running execution and no more content is expected.
+	 */
+	private boolean finished;
+
+}
@@ -4,9 +4,12 @@
 package org.ligoj.app.plugin.prov.terraform;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -23,6 +26,7 @@ import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -63,6 +67,26 @@ public class TerraformResource {
 	 */
 	private static final Pattern TERRAFORM_VERSION = Pattern.compile(".* v([^\\s]+)\\s+.*");
 
+	/**
+	 * Separator added after each completed command log.
+	 */
+	private static final byte[] LOG_SEPARATOR = "\n".getBytes(StandardCharsets.UTF_8);
+
+	/**
+	 * Maximal amount of bytes of a log chunk.
+	 */
+	private static final int LOG_CHUNK = 1024 * 1024;
+
+	/**
+	 * Maximal wait in seconds for new log content.
+	 */
+	private static final int LOG_MAX_WAIT = 30;
+
+	/**
+	 * Interval in milliseconds between two checks of new log content.
+	 */
+	private static final long LOG_POLL = 250;
+
 	@Autowired
 	private SubscriptionResource subscriptionResource;
 
@@ -149,6 +173,128 @@ public class TerraformResource {
 		return Response.ok().entity(so).build();
 	}
 
+	/**
+	 * Get a chunk of the log of the current or last Terraform execution of a given subscription, from the given byte
+	 * offset. The log is the same as the one returned by {@link #getLog(int)}, only the new bytes are read with
+	 * positional reads. The separator of a command log is only added once this command is completed, so the offsets
+	 * are stable while the logs grow.
+	 *
+	 * @param subscription The related subscription.
+	 * @param offset       The offset of the first byte to return, usually the offset returned by the previous call.
+	 * @param wait         The maximal time in seconds to wait for new content when the execution is running. When
+	 *                     <code>0</code>, the available content is returned immediately.
+	 * @return The log chunk and the next offset.
+	 * @throws IOException          When the logs cannot be read.
+	 * @throws InterruptedException When the wait has been interrupted.
+	 */
+	@GET
+	@Path("{subscription:\\d+}/terraform-log")
+	@Transactional(TxType.NOT_SUPPORTED)
+	public TerraformLog getLog(@PathParam("subscription") final int subscription,
+			@QueryParam("offset") final long offset, @QueryParam("wait") final int wait)
+			throws IOException, InterruptedException {
+		final var entity = subscriptionResource.checkVisible(subscription);
+		final var deadline = System.currentTimeMillis() + Math.min(Math.max(wait, 0), LOG_MAX_WAIT) * 1000L;
+		var result = readLog(entity, Math.max(offset, 0));
+		while (result.getContent().isEmpty() && !result.isFinished() && System.currentTimeMillis() < deadline) {
+			// Long-poll mode, wait for new content
+			Thread.sleep(LOG_POLL);
+			result = readLog(entity, result.getOffset());
+		}
+		return result;
+	}
+
+	/**
+	 * Read the log chunk from the given offset. The log is made of the header, the content and the separator of each
+	 * existing command log.
+	 */
+	private TerraformLog readLog(final Subscription entity, final long offset) throws IOException {
+		final var task = runner.getTask(entity.getId());
+		final var finished = task == null || task.isFinished();
+		final var logs = new ArrayList<File>();
+		final var headers = new ArrayList<byte[]>();
+		for (final var command : Optional.ofNullable(task).map(s -> s.getSequence().split(","))
+				.orElse(ArrayUtils.EMPTY_STRING_ARRAY)) {
+			final var log = utils.toFile(entity, command + ".log");
+			if (log.exists()) {
+				logs.add(log);
+				headers.add(("---- " + command + " ----\n").getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		final var out = new ByteArrayOutputStream();
+		var start = 0L;
+		for (var i = 0; i < logs.size(); i++) {
+			start = append(out, offset, start, headers.get(i));
+			final var length = logs.get(i).length();
+			final var cursor = offset + out.size();
+			final var size = toAppend(out, cursor, start, start + length);
+			if (size > 0) {
+				out.writeBytes(utils.read(logs.get(i), cursor - start, size));
+			}
+			start += length;
+			if (i < logs.size() - 1 || finished) {
+				// This command is completed
+				start = append(out, offset, start, LOG_SEPARATOR);
+			}
+		}
+		if (offset > start) {
+			// Log of a previous execution, restart from the beginning
+			final var result = readLog(entity, 0);
+			result.setReset(true);
+			return result;
+		}
+		final var bytes = out.toByteArray();
+		final var length = toCompleteUtf8(bytes);
+		final var result = new TerraformLog();
+		result.setContent(new String(bytes, 0, length, StandardCharsets.UTF_8));
+		result.setOffset(offset + length);
+		result.setFinished(finished && result.getOffset() == start);
+		return result;
+	}
+
+	/**
+	 * Append the part of the given in-memory log part containing the cursor.
+	 *
+	 * @return The end offset of this part.
+	 */
+	private static long append(final ByteArrayOutputStream out, final long offset, final long start,
+			final byte[] part) {
+		final var cursor = offset + out.size();
+		final var size = toAppend(out, cursor, start, start + part.length);
+		if (size > 0) {
+			out.write(part, (int) (cursor - start), size);
+		}
+		return start + part.length;
+	}
+
+	/**
+	 * Return the amount of bytes of a log part to append to the chunk. Only the part containing the cursor is
+	 * appended, within the limit of the chunk.
+	 */
+	private static int toAppend(final ByteArrayOutputStream out, final long cursor, final long start, final long end) {
+		return cursor >= start && cursor < end ? (int) Math.min(end - cursor, LOG_CHUNK - out.size()) : 0;
+	}
+
+	/**
+	 * Return the length of the given bytes without the trailing incomplete UTF-8 sequence, being written or cut by the
+	 * chunk limit.
+	 */
+	private static int toCompleteUtf8(final byte[] bytes) {
+		for (var i = bytes.length - 1; i >= Math.max(0, bytes.length - 4); i--) {
+			final var b = bytes[i] & 0xFF;
+			if (b < 0x80) {
+				// ASCII
+				return bytes.length;
+			}
+			if (b >= 0xC0) {
+				// Leading byte of a sequence
+				final var expected = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+				return bytes.length - i >= expected ? bytes.length : i;
+			}
+		}
+		return bytes.length;
+	}
+
 	/**
 	 * Terraform creation sequence.
 	 *
@@ -3,10 +3,15 @@
  */
 package org.ligoj.app.plugin.prov.terraform;
 
-import java.nio.file.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
@@ -55,6 +60,42 @@ public class TerraformRunnerResource implements LongTaskRunnerNode<TerraformStat
 	private static final Set<String> PENDING_OPERATIONS = new HashSet<>(
 			Arrays.asList("Creating", "Modifying", "Destroying"));
 
+	/**
+	 * Maximal amount of bytes parsed at once.
+	 */
+	private static final int LOG_CHUNK = 1024 * 1024;
+
+	/**
+	 * Parsing progress of the logs, by subscription and log file.
+	 */
+	private final Map<String, LogProgress> progresses = new ConcurrentHashMap<>();
+
+	/**
+	 * The parsing progress of a log file of a task.
+	 */
+	private static class LogProgress {
+
+		/**
+		 * The start in seconds of the task writing this log, the precision of the stored dates may be lower than
+		 * milliseconds.
+		 */
+		private final long start;
+
+		/**
+		 * The offset of the next line to parse.
+		 */
+		private long offset;
+
+		/**
+		 * The progress counters of the parsed lines.
+		 */
+		private final TerraformStatus counters = new TerraformStatus();
+
+		private LogProgress(final long start) {
+			this.start = start;
+		}
+	}
+
 	@Autowired
 	@Getter
 	protected TerraformStatusRepository taskRepository;
@@ -123,24 +164,58 @@ public class TerraformRunnerResource implements LongTaskRunnerNode<TerraformStat
 	}
 
 	/**
-	 * Update the given status with the actual progress of appliance. Is based on the given log file when present.
+	 * Update the given status with the actual progress of appliance. Is based on the given log file when present. Only
+	 * the lines appended since the previous call for the same task are parsed.
 	 *
 	 * @param subscription subscription requesting the task.
 	 * @param status       The status to update.
 	 */
 	private void completeProgress(final Subscription subscription, final TerraformStatus status, final String file,
 			BiConsumer<TerraformStatus, Stream<String>> apply) {
-		// Parse each line of the log file
-		try (var stream = utils.toFile(subscription, file).exists()
-				? Files.lines(utils.toFile(subscription, file).toPath())
-				: Arrays.stream(new String[0])) {
-			// Parse the line with RegEx
-			apply.accept(status, stream);
+		final var key = subscription.getId() + "/" + file;
+		try {
+			final var logFile = utils.toFile(subscription, file);
+			if (!logFile.exists()) {
+				progresses.remove(key);
+				return;
+			}
+			final var start = Optional.ofNullable(status.getStart()).map(d -> d.getTime() / 1000).orElse(0L);
+			final var progress = progresses.compute(key,
+					(k, p) -> p == null || p.start != start || logFile.length() < p.offset ? new LogProgress(start) : p);
+			synchronized (progress) {
+				parseProgress(logFile, progress, status.isFinished(), apply);
+				status.setCompleting(status.getCompleting() + progress.counters.getCompleting());
+				status.setCompleted(status.getCompleted() + progress.counters.getCompleted());
+			}
 		} catch (final Exception e) {
 			log.warn("Unable to read log file {}", file, e);
 		}
 	}
 
+	/**
+	 * Parse the complete lines appended to the log since the last parsed offset. The last line is only parsed once
+	 * terminated, or when the task is finished.
+	 */
+	private void parseProgress(final File logFile, final LogProgress progress, final boolean finished,
+			final BiConsumer<TerraformStatus, Stream<String>> apply) throws IOException {
+		byte[] bytes;
+		do {
+			bytes = utils.read(logFile, progress.offset, LOG_CHUNK);
+			var end = bytes.length;
+			while (end > 0 && bytes[end - 1] != '\n') {
+				end--;
+			}
+			if (end == 0 && bytes.length == LOG_CHUNK || finished && bytes.length < LOG_CHUNK) {
+				// Line longer than the chunk, or last line of a finished task
+				end = bytes.length;
+			}
+			if (end > 0) {
+				apply.accept(progress.counters, new String(bytes, 0, end, StandardCharsets.UTF_8).lines());
+				progress.offset += end;
+			}
+		} while (bytes.length == LOG_CHUNK);
+	}
+
 	/**
 	 * Parse the given apply log stream and update the completing and completed cursors in the given status.
 	 *
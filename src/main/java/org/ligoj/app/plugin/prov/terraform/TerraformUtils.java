@@ -9,8 +9,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -417,4 +420,28 @@ public class TerraformUtils {
 	public File toFile(final Subscription subscription, final String... fragments) throws IOException {
 		return LigojPluginsClassLoader.getInstance().toPath(subscription, fragments).toFile();
 	}
+
+	/**
+	 * Read the bytes of a file from the given position with a positional read: the file is not read from the beginning
+	 * and the bytes appended while reading are not returned.
+	 *
+	 * @param file     The file to read.
+	 * @param position The position of the first byte to read.
+	 * @param max      The maximal amount of bytes to read.
+	 * @return The read bytes, may be empty. Never <code>null</code>.
+	 * @throws IOException When the file cannot be read.
+	 */
+	public byte[] read(final File file, final long position, final int max) throws IOException {
+		if (!file.exists()) {
+			return ArrayUtils.EMPTY_BYTE_ARRAY;
+		}
+		try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			final var buffer = ByteBuffer.allocate((int) Math.max(0, Math.min(max, channel.size() - position)));
+			int read;
+			do {
+				read = channel.read(buffer, position + buffer.position());
+			} while (read > 0 && buffer.hasRemaining());
+			return Arrays.copyOf(buffer.array(), buffer.position());
+		}
+	}
 }
@@ -1,10 +1,13 @@
 package org.ligoj.app.plugin.prov;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import lombok.AllArgsConstructor;
@@ -33,4 +36,128 @@ class BinPackerTest {
 		System.out.println(bins);
 		bins.get(0).getPieces().forEach(p -> System.out.println(piecesToItems.get(p)));
 	}
+
+	private static final double[] WEIGHTS = { 2d, 5d, 10d, 1d, 7d, 1d, 17d, 21d, 9d, 18d, 5d, 12d };
+
+	private static final double[] VALUES = { 1d, 9d, 4d, 2d, 3d, 1d, 20d, 8d, 9d, 2d, 6d, 12d };
+
+	private double weight(final int[] selected, final double[] weights) {
+		return Arrays.stream(selected).mapToDouble(i -> weights[i]).sum();
+	}
+
+	private double value(final int[] selected, final double[] values) {
+		return Arrays.stream(selected).mapToDouble(i -> values[i]).sum();
+	}
+
+	/**
+	 * Exhaustive search of the best value, for small sets only.
+	 */
+	private double bruteForce(final double[] weights, final double[] values, final double capacity) {
+		var best = 0d;
+		for (var mask = 0; mask < 1 << weights.length; mask++) {
+			var w = 0d;
+			var v = 0d;
+			for (var i = 0; i < weights.length; i++) {
+				if ((mask & 1 << i) != 0) {
+					w += weights[i];
+					v += values[i];
+				}
+			}
+			if (w <= capacity) {
+				best = Math.max(best, v);
+			}
+		}
+		return best;
+	}
+
+	@Test
+	void firstFitSameAsLinearBinPacker() {
+		final var values = new ArrayList<Double>();
+		Arrays.stream(WEIGHTS).forEach(values::add);
+		final var bins = new LinearBinPacker().packAll(values, new ArrayList<>(List.of(new LinearBin(50d))),
+				new ArrayList<>(List.of(Double.MAX_VALUE)));
+		final var selected = BudgetPacker.firstFit(WEIGHTS, VALUES, 50d);
+		Assertions.assertEquals(bins.get(0).getPieces().size(), selected.length);
+		Assertions.assertEquals(bins.get(0).getTotal(), weight(selected, WEIGHTS), 0.001);
+	}
+
+	@Test
+	void fitAll() {
+		Arrays.asList(BudgetPacker.FIRST_FIT, BudgetPacker.GREEDY, BudgetPacker.KNAPSACK,
+				BudgetPacker.BRANCH_AND_BOUND).forEach(name -> Assertions.assertEquals(WEIGHTS.length,
+						BudgetPacker.get(name, 1000).pack(WEIGHTS, VALUES, 1600d).length));
+	}
+
+	@Test
+	void firstFit() {
+		// 21 + 18 + 10 + 1
+		Assertions.assertArrayEquals(new int[] { 2, 3, 7, 9 }, BudgetPacker.firstFit(WEIGHTS, VALUES, 50d));
+		Assertions.assertEquals(0, BudgetPacker.firstFit(WEIGHTS, VALUES, 0.5d).length);
+	}
+
+	@Test
+	void greedy() {
+		final var selected = BudgetPacker.greedy(WEIGHTS, VALUES, 50d);
+		Assertions.assertTrue(weight(selected, WEIGHTS) <= 50d);
+		// 1/2, 5/9, 5/6, 17/20, 1/1, 9/9, 12/12 then nothing else fits
+		Assertions.assertArrayEquals(new int[] { 1, 3, 5, 6, 8, 10, 11 }, selected);
+	}
+
+	@Test
+	void knapsack() {
+		for (final var capacity : new double[] { 1d, 10d, 25d, 50d, 77.5d, 100d }) {
+			final var selected = BudgetPacker.knapsack(WEIGHTS, VALUES, capacity);
+			Assertions.assertTrue(weight(selected, WEIGHTS) <= capacity);
+			Assertions.assertEquals(bruteForce(WEIGHTS, VALUES, capacity), value(selected, VALUES), 0.001);
+		}
+	}
+
+	@Test
+	void knapsackScaled() {
+		// Capacity exceeding the unit limit, the weights are rounded up
+		final var weights = new double[] { 600000.5d, 400000d, 500000d };
+		final var values = new double[] { 10d, 6d, 6d };
+		final var selected = BudgetPacker.knapsack(weights, values, 950000d);
+		Assertions.assertArrayEquals(new int[] { 1, 2 }, selected);
+		Assertions.assertArrayEquals(new int[] { 0 }, BudgetPacker.knapsack(new double[] { 10.001d, 10.001d },
+				new double[] { 1d, 1d }, 10.001d));
+	}
+
+	@Test
+	void branchAndBound() {
+		for (final var capacity : new double[] { 1d, 10d, 25d, 50d, 77.5d, 100d }) {
+			final var selected = BudgetPacker.branchAndBound(1000).pack(WEIGHTS, VALUES, capacity);
+			Assertions.assertTrue(weight(selected, WEIGHTS) <= capacity);
+			Assertions.assertEquals(bruteForce(WEIGHTS, VALUES, capacity), value(selected, VALUES), 0.001);
+		}
+	}
+
+	@Test
+	void unknownStrategy() {
+		Assertions.assertArrayEquals(BudgetPacker.firstFit(WEIGHTS, VALUES, 50d),
+				BudgetPacker.get("any", 1000).pack(WEIGHTS, VALUES, 50d));
+	}
+
+	/**
+	 * Random sets: the selection fits the capacity, and the time limited strategy returns a solution at least as good
+	 * as the greedy one. The scaling is measured by <code>PackBenchmark</code> of the JMH profile.
+	 */
+	@Test
+	void randomSets() {
+		final var random = new Random(42);
+		for (final var size : new int[] { 10, 100, 1000 }) {
+			final var weights = random.doubles(size, 100, 5000).toArray();
+			final var values = random.doubles(size, 10, 500).toArray();
+			final var capacity = Arrays.stream(weights).sum() / 3;
+			final var greedy = BudgetPacker.greedy(weights, values, capacity);
+			Arrays.asList(BudgetPacker.FIRST_FIT, BudgetPacker.GREEDY, BudgetPacker.KNAPSACK,
+					BudgetPacker.BRANCH_AND_BOUND).forEach(name -> {
+						final var selected = BudgetPacker.get(name, 200).pack(weights, values, capacity);
+						Assertions.assertTrue(weight(selected, weights) <= capacity);
+						if (!BudgetPacker.FIRST_FIT.equals(name)) {
+							Assertions.assertTrue(value(selected, values) >= value(greedy, values) - 0.001);
+						}
+					});
+		}
+	}
 }
@@ -0,0 +1,239 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.plugin.prov.model.ResourceType;
+
+/**
+ * Test class of {@link PriceIndex}
+ */
+class PriceIndexTest {
+
+	private static final double DELTA = 0.001;
+
+	private static final int[] TYPES = PriceIndex.toSorted(List.of(1, 2, 3));
+
+	private static final int[] TERMS = PriceIndex.toSorted(List.of(1, 2));
+
+	/**
+	 * Build a raw row ordered as {@link PriceIndex#COLUMNS}, followed by the function specific columns.
+	 */
+	private Object[] newRow(final int id, final int type, final int term, final int location, final double period,
+			final double cost, final double costPeriod, final double co2, final String license) {
+		final var row = new Object[36];
+		row[0] = id;
+		row[1] = type;
+		row[2] = term;
+		row[3] = location;
+		row[4] = period;
+		row[5] = cost;
+		row[6] = costPeriod;
+		row[7] = co2;
+		row[8] = co2 * period;
+		row[9] = 0d;
+		row[10] = license;
+		Arrays.fill(row, 28, 36, 0d);
+		row[29] = 1d;
+		return row;
+	}
+
+	private Object[] newDynamicRow(final int id, final int type, final int location, final double cost,
+			final double costCpu, final double costRam) {
+		final var row = newRow(id, type, 1, location, 0, cost, cost, 0, null);
+		row[11] = 1d;
+		row[13] = 1d;
+		row[14] = costCpu;
+		row[16] = costRam;
+		row[17] = 0d;
+		row[18] = 0d;
+		row[19] = 0d;
+		return row;
+	}
+
+	private Object[] newFunctionRow(final int id, final int type, final double costRam,
+			final double costRamRequest, final double costRamRequestConcurrency) {
+		final var row = newDynamicRow(id, type, 1, 0, 0, costRam);
+		row[31] = costRamRequest;
+		row[32] = costRamRequestConcurrency;
+		row[34] = 2d;
+		return row;
+	}
+
+	private PriceIndex newFunctionIndex(final double maxDuration) {
+		final var index = new PriceIndex(ResourceType.FUNCTION, 1, 2);
+		final var row0 = newFunctionRow(20, 1, 0, 1, 0);
+		row0[27] = maxDuration;
+		index.set(0, row0);
+		index.set(1, newFunctionRow(21, 2, 0.2, 1, 0.5));
+		return index.seal(2);
+	}
+
+	private int findLowestFunction(final PriceIndex index, final double concurrency, final double[] result) {
+		// 1 million requests of 100ms, 1 concurrent execution per month
+		return index.findLowestFunction(1, TYPES, TERMS, 1, 1, 1, 1, 1, 1000, false, 1, 100, concurrency, 100,
+				result);
+	}
+
+	private PriceIndex newIndex() {
+		final var index = new PriceIndex(ResourceType.FUNCTION, 1, 6);
+		index.set(0, newRow(10, 1, 1, 1, 0, 10, 10, 5, null));
+		index.set(1, newRow(11, 2, 1, 1, 0, 8, 8, 9, null));
+		index.set(2, newRow(12, 2, 2, 1, 12, 7, 60, 1, "BYOL"));
+		index.set(3, newRow(13, 3, 1, 2, 0, 1, 1, 1, null));
+		index.set(4, newDynamicRow(14, 1, 2, 0.5, 1, 0.5));
+		index.set(5, newDynamicRow(15, 2, 2, 0, 2, 0.1));
+		return index.seal(6);
+	}
+
+	@Test
+	void seal() {
+		final var index = newIndex();
+		Assertions.assertEquals(6, index.getSize());
+		Assertions.assertArrayEquals(new int[] { 1, 2 }, index.getLocationIds());
+		Assertions.assertArrayEquals(new int[] { 0, 3, 6 }, index.getLocationStarts());
+	}
+
+	@Test
+	void findLowest() {
+		final var result = new double[4];
+		final var row = newIndex().findLowest(1, TYPES, TERMS, 1, 12, 1000, false, PriceIndex.ALL, result);
+		Assertions.assertEquals(2, row);
+		Assertions.assertEquals(60, result[0], DELTA);
+		Assertions.assertEquals(7, result[1], DELTA);
+		Assertions.assertEquals(12, result[2], DELTA);
+		Assertions.assertEquals(1, result[3], DELTA);
+	}
+
+	@Test
+	void findLowestRate() {
+		final var result = new double[4];
+		final var row = newIndex().findLowest(1, TYPES, TERMS, 0.5, 12, 1000, false, PriceIndex.ALL, result);
+		Assertions.assertEquals(1, row);
+		Assertions.assertEquals(48, result[0], DELTA);
+		Assertions.assertEquals(4, result[1], DELTA);
+	}
+
+	@Test
+	void findLowestCo2() {
+		final var result = new double[4];
+		final var index = newIndex();
+		Assertions.assertEquals(2, index.findLowest(1, TYPES, TERMS, 1, 12, 1000, true, PriceIndex.ALL, result));
+		Assertions.assertEquals(0, index.findLowest(1, TYPES, TERMS, 1, 12, 1000, true,
+				(i, row) -> i.isLicensed(row, null), result));
+		Assertions.assertEquals(60, result[2], DELTA);
+	}
+
+	@Test
+	void findLowestFiltered() {
+		final var result = new double[4];
+		final var index = newIndex();
+		Assertions.assertEquals(1, index.findLowest(1, TYPES, new int[] { 1 }, 1, 12, 1000, false, PriceIndex.ALL,
+				result));
+		Assertions.assertEquals(0, index.findLowest(1, new int[] { 1 }, TERMS, 1, 12, 1000, false, PriceIndex.ALL,
+				result));
+		Assertions.assertEquals(-1, index.findLowest(3, TYPES, TERMS, 1, 12, 1000, false, PriceIndex.ALL, result));
+	}
+
+	@Test
+	void findLowestDynamic() {
+		final var result = new double[4];
+		final var index = newIndex();
+		// 0.5 + 2 * 1 + 4 * 0.5 = 4.5 versus 0 + 2 * 2 + 4 * 0.1 = 4.4
+		Assertions.assertEquals(5, index.findLowestDynamic(2, TYPES, TERMS, 2, 0, 4, 1, 12, 12, 1000, false,
+				PriceIndex.ALL, result));
+		Assertions.assertEquals(4.4 * 12, result[0], DELTA);
+		Assertions.assertEquals(4.4, result[1], DELTA);
+
+		// 0.5 + 2 * 1 + 32 * 0.5 = 18.5 versus 0 + 2 * 2 + 32 * 0.1 = 7.2
+		Assertions.assertEquals(4, index.findLowestDynamic(2, new int[] { 1 }, TERMS, 2, 0, 32, 1, 12, 12, 1000,
+				false, PriceIndex.ALL, result));
+		Assertions.assertEquals(18.5, result[1], DELTA);
+		Assertions.assertEquals(-1, index.findLowestDynamic(1, TYPES, TERMS, 2, 0, 4, 1, 12, 12, 1000, false,
+				PriceIndex.ALL, result));
+	}
+
+	@Test
+	void findLowestDynamicNullCost() {
+		final var result = new double[4];
+		final var index = new PriceIndex(ResourceType.INSTANCE, 1, 2);
+		index.set(0, newDynamicRow(14, 1, 2, 0.5, Double.NaN, 0.5));
+		index.set(1, newDynamicRow(15, 2, 2, 10, 2, 0.1));
+		index.seal(2);
+
+		// As the repository lookups, a null CPU cost gives a null total cost ranked last
+		Assertions.assertEquals(1, index.findLowestDynamic(2, TYPES, TERMS, 2, 0, 4, 1, 12, 12, 1000, false,
+				PriceIndex.ALL, result));
+		Assertions.assertEquals(14.4, result[1], DELTA);
+
+		// The row with a null cost is still returned when it is the only candidate
+		Assertions.assertEquals(0, index.findLowestDynamic(2, new int[] { 1 }, TERMS, 2, 0, 4, 1, 12, 12, 1000,
+				false, PriceIndex.ALL, result));
+		Assertions.assertTrue(Double.isNaN(result[0]));
+		Assertions.assertTrue(Double.isNaN(result[1]));
+	}
+
+	@Test
+	void findLowestFunction() {
+		final var result = new double[4];
+		final var index = newFunctionIndex(1000);
+
+		// No reserved concurrency: only the price without concurrency cost
+		Assertions.assertEquals(0, findLowestFunction(index, 0, result));
+		Assertions.assertEquals(1, result[0], DELTA);
+		Assertions.assertEquals(1, result[1], DELTA);
+		Assertions.assertEquals(2, result[2], DELTA);
+
+		// Reserved concurrency: 0.2 + 1 * 0.5
+		Assertions.assertEquals(1, findLowestFunction(index, 1, result));
+		Assertions.assertEquals(0.7, result[0], DELTA);
+		Assertions.assertEquals(0.7, result[1], DELTA);
+		Assertions.assertEquals(0, result[2], DELTA);
+	}
+
+	@Test
+	void findLowestFunctionNullConcurrencyCost() {
+		final var result = new double[4];
+		final var index = new PriceIndex(ResourceType.FUNCTION, 1, 1);
+		index.set(0, newFunctionRow(22, 1, 0.2, 1, Double.NaN));
+		index.seal(1);
+
+		// As the repository lookups, a null concurrency cost matches neither the reserved nor the free concurrency
+		Assertions.assertEquals(-1, findLowestFunction(index, 0, result));
+		Assertions.assertEquals(-1, findLowestFunction(index, 1, result));
+		Assertions.assertEquals(-1, findLowestFunction(index, 0.5, result));
+	}
+
+	@Test
+	void findLowestFunctionFractional() {
+		final var result = new double[4];
+		final var index = newFunctionIndex(1000);
+
+		// The ceiling is cheaper: 0.2 + 0.5 * 0.5 + 0.5 * 1 = 0.95 versus 1
+		Assertions.assertEquals(1, findLowestFunction(index, 0.5, result));
+		Assertions.assertEquals(0.95, result[0], DELTA);
+		Assertions.assertEquals(0.95, result[1], DELTA);
+
+		// The floor is kept when cheaper: 0.2 + 0.1 * 0.5 + 0.9 * 1 = 1.15 versus 1
+		Assertions.assertEquals(0, findLowestFunction(index, 0.1, result));
+		Assertions.assertEquals(1, result[0], DELTA);
+	}
+
+	@Test
+	void findLowestFunctionDuration() {
+		final var result = new double[4];
+		final var index = newFunctionIndex(50);
+		Assertions.assertEquals(-1, findLowestFunction(index, 0, result));
+		Assertions.assertEquals(1, findLowestFunction(index, 1, result));
+
+		// As the repository lookups, the ceiling is not explored without a floor candidate
+		Assertions.assertEquals(-1, findLowestFunction(index, 0.5, result));
+		Assertions.assertEquals(-1, index.findLowestFunction(2, TYPES, TERMS, 1, 1, 1, 1, 1, 1000, false, 1, 100, 1,
+				100, result));
+	}
+}
@@ -427,12 +427,12 @@ class ProvBudgetResourceTest extends AbstractProvResourceTest {
 
 	@Test
 	void logPackSlow() {
-		bResource.logPack(0, Collections.emptyMap(), getBudget());
+		bResource.logPack(0, 0, getBudget());
 	}
 
 	@Test
 	void logPackFast() {
-		bResource.logPack(System.currentTimeMillis(), Collections.emptyMap(), getBudget());
+		bResource.logPack(System.currentTimeMillis(), 0, getBudget());
 	}
 
 	private void checkBudgetAfterDelete(final UpdatedCost cost) {
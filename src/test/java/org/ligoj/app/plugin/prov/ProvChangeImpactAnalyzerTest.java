@@ -0,0 +1,137 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.plugin.prov.ProvChangeImpactAnalyzer.Impact;
+import org.ligoj.app.plugin.prov.dao.Optimizer;
+import org.ligoj.app.plugin.prov.model.ProvBudget;
+import org.ligoj.app.plugin.prov.model.ProvFunctionPrice;
+import org.ligoj.app.plugin.prov.model.ProvInstancePrice;
+import org.ligoj.app.plugin.prov.model.ProvInstancePriceTerm;
+import org.ligoj.app.plugin.prov.model.ProvOptimizer;
+import org.ligoj.app.plugin.prov.model.ProvQuoteFunction;
+import org.ligoj.app.plugin.prov.model.ProvQuoteInstance;
+import org.ligoj.app.plugin.prov.model.ProvUsage;
+
+/**
+ * Test class of {@link ProvChangeImpactAnalyzer}
+ */
+class ProvChangeImpactAnalyzerTest {
+
+	private final ProvChangeImpactAnalyzer analyzer = new ProvChangeImpactAnalyzer();
+
+	private ProvQuoteInstance newInstance(final double period) {
+		final var term = new ProvInstancePriceTerm();
+		term.setPeriod(period);
+		final var price = new ProvInstancePrice();
+		price.setTerm(term);
+		final var qi = new ProvQuoteInstance();
+		qi.setPrice(price);
+		return qi;
+	}
+
+	private UsageEditionVo newUsage(final ProvUsage entity) {
+		final var vo = new UsageEditionVo();
+		vo.setName("new-name");
+		vo.setRate(entity.getRate());
+		vo.setDuration(entity.getDuration());
+		vo.setConvertibleOs(false);
+		return vo;
+	}
+
+	@Test
+	void usageNone() {
+		final var entity = new ProvUsage().setRate(50).setStart(0);
+		final var vo = newUsage(entity);
+		vo.setStart(6);
+		Assertions.assertEquals(Impact.NONE, analyzer.getImpact(entity, vo).apply(newInstance(0)));
+	}
+
+	@Test
+	void usageLookup() {
+		final var entity = new ProvUsage().setRate(50);
+		final var vo = newUsage(entity);
+		vo.setDuration(12);
+		Assertions.assertEquals(Impact.LOOKUP, analyzer.getImpact(entity, vo).apply(newInstance(0)));
+
+		final var vo2 = newUsage(entity);
+		vo2.setReservation(true);
+		Assertions.assertEquals(Impact.LOOKUP, analyzer.getImpact(entity, vo2).apply(newInstance(0)));
+	}
+
+	@Test
+	void usageRateDecrease() {
+		final var entity = new ProvUsage().setRate(50);
+		final var vo = newUsage(entity);
+		vo.setRate(25);
+		final var impacts = analyzer.getImpact(entity, vo);
+		Assertions.assertEquals(Impact.COST, impacts.apply(newInstance(0)));
+		Assertions.assertEquals(Impact.LOOKUP, impacts.apply(newInstance(12)));
+	}
+
+	@Test
+	void usageRateIncrease() {
+		final var entity = new ProvUsage().setRate(50);
+		final var vo = newUsage(entity);
+		vo.setRate(75);
+		final var impacts = analyzer.getImpact(entity, vo);
+		Assertions.assertEquals(Impact.LOOKUP, impacts.apply(newInstance(0)));
+		Assertions.assertEquals(Impact.NONE, impacts.apply(newInstance(12)));
+	}
+
+	@Test
+	void usageRateIncreaseNewTerm() {
+		// The 36 months terms are accepted from 24 used months
+		final var entity = new ProvUsage().setRate(40).setDuration(48);
+		final var vo = newUsage(entity);
+		vo.setRate(50);
+		final var impacts = analyzer.getImpact(entity, vo);
+		Assertions.assertEquals(Impact.LOOKUP, impacts.apply(newInstance(0)));
+		Assertions.assertEquals(Impact.LOOKUP, impacts.apply(newInstance(12)));
+	}
+
+	@Test
+	void usageRateDecreaseLostTerm() {
+		final var entity = new ProvUsage().setRate(50).setDuration(48);
+		final var vo = newUsage(entity);
+		vo.setRate(40);
+		final var impacts = analyzer.getImpact(entity, vo);
+		Assertions.assertEquals(Impact.LOOKUP, impacts.apply(newInstance(0)));
+		Assertions.assertEquals(Impact.LOOKUP, impacts.apply(newInstance(36)));
+	}
+
+	@Test
+	void usageRateFunction() {
+		final var entity = new ProvUsage().setRate(50);
+		final var vo = newUsage(entity);
+		vo.setRate(25);
+		final var qf = new ProvQuoteFunction();
+		qf.setPrice(new ProvFunctionPrice());
+		Assertions.assertEquals(Impact.LOOKUP, analyzer.getImpact(entity, vo).apply(qf));
+	}
+
+	@Test
+	void budget() {
+		final var entity = new ProvBudget().setInitialCost(100);
+		final var vo = new BudgetEditionVo();
+		vo.setName("new-name");
+		vo.setInitialCost(100);
+		Assertions.assertEquals(Impact.NONE, analyzer.getImpact(entity, vo));
+		vo.setInitialCost(200);
+		Assertions.assertEquals(Impact.LOOKUP, analyzer.getImpact(entity, vo));
+	}
+
+	@Test
+	void optimizer() {
+		final var entity = new ProvOptimizer().setMode(Optimizer.COST);
+		final var vo = new OptimizerEditionVo();
+		vo.setName("new-name");
+		vo.setMode(Optimizer.COST);
+		Assertions.assertEquals(Impact.NONE, analyzer.getImpact(entity, vo));
+		vo.setMode(Optimizer.CO2);
+		Assertions.assertEquals(Impact.LOOKUP, analyzer.getImpact(entity, vo));
+	}
+}
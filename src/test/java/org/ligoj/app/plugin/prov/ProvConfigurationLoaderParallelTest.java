@@ -0,0 +1,119 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import jakarta.transaction.Transactional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.model.Node;
+import org.ligoj.app.model.Project;
+import org.ligoj.app.model.Subscription;
+import org.ligoj.app.plugin.prov.model.AbstractQuoteVm;
+import org.ligoj.app.plugin.prov.model.ProvBudget;
+import org.ligoj.app.plugin.prov.model.ProvCurrency;
+import org.ligoj.app.plugin.prov.model.ProvInstancePrice;
+import org.ligoj.app.plugin.prov.model.ProvInstancePriceTerm;
+import org.ligoj.app.plugin.prov.model.ProvInstanceType;
+import org.ligoj.app.plugin.prov.model.ProvLocation;
+import org.ligoj.app.plugin.prov.model.ProvOptimizer;
+import org.ligoj.app.plugin.prov.model.ProvQuote;
+import org.ligoj.app.plugin.prov.model.ProvQuoteInstance;
+import org.ligoj.app.plugin.prov.model.ProvQuoteStorage;
+import org.ligoj.app.plugin.prov.model.ProvStoragePrice;
+import org.ligoj.app.plugin.prov.model.ProvStorageType;
+import org.ligoj.app.plugin.prov.model.ProvUsage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test class of the concurrent load of the configuration by {@link ProvConfigurationLoader} against the real
+ * repositories. The fragments are loaded in their own transactions and only see the committed data: the catalog and
+ * the quote are committed before each test and removed after.
+ */
+@Transactional(Transactional.TxType.NOT_SUPPORTED)
+class ProvConfigurationLoaderParallelTest extends AbstractProvResourceTest {
+
+	private static final Class<?>[] CATALOG = { Node.class, ProvLocation.class, ProvCurrency.class,
+			ProvStorageType.class, ProvStoragePrice.class, ProvInstancePriceTerm.class, ProvInstanceType.class,
+			ProvInstancePrice.class };
+
+	private static final Class<?>[] QUOTE = { Project.class, Subscription.class, ProvQuote.class, ProvUsage.class,
+			ProvBudget.class, ProvOptimizer.class, ProvQuoteInstance.class, ProvQuoteStorage.class };
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private void persist(final Class<?>[] classes) {
+		try {
+			persistEntities("csv", classes, StandardCharsets.UTF_8.name());
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	@BeforeEach
+	protected void prepareData() {
+		new TransactionTemplate(transactionManager).executeWithoutResult(s -> {
+			persist(CATALOG);
+			persist(QUOTE);
+		});
+	}
+
+	@AfterEach
+	void cleanup() {
+		final var classes = new ArrayList<>(Arrays.asList(CATALOG));
+		classes.addAll(Arrays.asList(QUOTE));
+		Collections.reverse(classes);
+		new TransactionTemplate(transactionManager).executeWithoutResult(
+				s -> classes.forEach(c -> em.createQuery("DELETE FROM " + c.getSimpleName()).executeUpdate()));
+		clearAllCache();
+	}
+
+	/**
+	 * Return the storages with their attached resource, navigating the lazy associations.
+	 */
+	private List<String> toStorages(final QuoteVo vo) {
+		return vo.getStorages().stream().map(qs -> qs.getName() + "/"
+				+ Optional.ofNullable(qs.getQuoteResource()).map(AbstractQuoteVm::getName).orElse("") + "/"
+				+ qs.isUnboundCost()).toList();
+	}
+
+	@Test
+	void getConfiguration() {
+		new TransactionTemplate(transactionManager).executeWithoutResult(s -> {
+			s.setRollbackOnly();
+			persistSystemEntities();
+			subscription = getSubscription("gStack", ProvResource.SERVICE_KEY);
+
+			// Sequential load
+			configuration.put(ProvConfigurationLoader.CONF_PARALLEL, "0");
+			final var expected = resource.getConfiguration(subscription);
+
+			// Concurrent load, the fragments are used once their transaction is closed
+			configuration.put(ProvConfigurationLoader.CONF_PARALLEL, "1");
+			final var actual = resource.getConfiguration(subscription);
+			Assertions.assertEquals(4, actual.getStorages().size());
+			Assertions.assertTrue(toStorages(actual).contains("server1-root/server1/false"));
+			Assertions.assertEquals(toStorages(expected), toStorages(actual));
+			Assertions.assertEquals(expected.getLocations().size(), actual.getLocations().size());
+			Assertions.assertEquals(expected.getUsages().size(), actual.getUsages().size());
+			Assertions.assertEquals(expected.getBudgets().size(), actual.getBudgets().size());
+			Assertions.assertEquals(expected.getOptimizers().size(), actual.getOptimizers().size());
+		});
+	}
+}
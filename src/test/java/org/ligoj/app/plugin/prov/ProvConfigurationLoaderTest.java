@@ -0,0 +1,104 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ligoj.bootstrap.core.resource.BusinessException;
+import org.ligoj.bootstrap.resource.system.configuration.ConfigurationResource;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+/**
+ * Test class of {@link ProvConfigurationLoader}
+ */
+class ProvConfigurationLoaderTest {
+
+	private ProvConfigurationLoader loader;
+
+	@BeforeEach
+	void prepare() {
+		loader = new ProvConfigurationLoader();
+		loader.configuration = Mockito.mock(ConfigurationResource.class);
+		loader.transactionManager = Mockito.mock(PlatformTransactionManager.class);
+		Mockito.when(loader.configuration.get(ProvConfigurationLoader.CONF_THREADS,
+				ProvConfigurationLoader.DEFAULT_THREADS)).thenReturn(2);
+		Mockito.when(loader.configuration.get(ProvConfigurationLoader.CONF_SLOW, ProvConfigurationLoader.DEFAULT_SLOW))
+				.thenReturn(0);
+		Mockito.when(loader.transactionManager.getTransaction(ArgumentMatchers.any()))
+				.thenReturn(new SimpleTransactionStatus());
+	}
+
+	@AfterEach
+	void shutdown() {
+		loader.shutdown();
+	}
+
+	private void parallel(final int enabled) {
+		Mockito.when(loader.configuration.get(ProvConfigurationLoader.CONF_PARALLEL, 0)).thenReturn(enabled);
+	}
+
+	@Test
+	void sequential() {
+		parallel(0);
+		final var caller = Thread.currentThread();
+		final var fragments = loader.newFragments();
+		final var list = fragments.add("list", () -> {
+			Assertions.assertSame(caller, Thread.currentThread());
+			return List.of(1, 2, 3);
+		});
+		final var map = fragments.add("map", () -> Map.of("a", List.of(1), "b", List.of(2, 3)));
+		final var none = fragments.add("none", () -> null);
+		Assertions.assertEquals(3, list.get().size());
+		Assertions.assertEquals(2, map.get().size());
+		Assertions.assertNull(none.get());
+		fragments.report(1);
+
+		final var loaded = fragments.getLoaded();
+		Assertions.assertEquals(List.of("list", "map", "none"),
+				loaded.stream().map(ProvConfigurationLoader.Fragment::name).toList());
+		Assertions.assertEquals(List.of(3, 3, 0), loaded.stream().map(ProvConfigurationLoader.Fragment::size).toList());
+		Mockito.verifyNoInteractions(loader.transactionManager);
+	}
+
+	@Test
+	void concurrent() {
+		parallel(1);
+		final var caller = Thread.currentThread();
+		final var fragments = loader.newFragments();
+		final var list = fragments.add("list", () -> {
+			Assertions.assertNotSame(caller, Thread.currentThread());
+			return List.of(1, 2);
+		});
+		final var value = fragments.add("value", () -> "value");
+		Assertions.assertEquals(2, list.get().size());
+		Assertions.assertEquals("value", value.get());
+		fragments.report(1);
+		Assertions.assertEquals(2, fragments.getLoaded().size());
+
+		// One read-only transaction per fragment
+		Mockito.verify(loader.transactionManager, Mockito.times(2))
+				.getTransaction(ArgumentMatchers.argThat(TransactionDefinition::isReadOnly));
+		Mockito.verify(loader.transactionManager, Mockito.times(2)).commit(ArgumentMatchers.any());
+	}
+
+	@Test
+	void concurrentFailed() {
+		parallel(1);
+		final var fragments = loader.newFragments();
+		final var failed = fragments.add("failed", () -> {
+			throw new BusinessException("failed");
+		});
+		Assertions.assertEquals("failed", Assertions.assertThrows(BusinessException.class, failed::get).getMessage());
+		Mockito.verify(loader.transactionManager).rollback(ArgumentMatchers.any());
+	}
+}
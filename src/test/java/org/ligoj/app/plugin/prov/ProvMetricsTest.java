@@ -0,0 +1,72 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Test class of {@link ProvMetrics}
+ */
+class ProvMetricsTest extends AbstractProvResourceTest {
+
+	@Autowired
+	private ProvMetrics metrics;
+
+	private MeterVo get(final List<MeterVo> meters, final String name, final Map<String, String> tags) {
+		return meters.stream().filter(m -> m.getName().equals(name) && m.getTags().equals(tags)).findFirst()
+				.orElse(null);
+	}
+
+	@Test
+	void registry() {
+		final var registry = new ProvSimpleMeterRegistry();
+		registry.timer("timer", TimeUnit.MILLISECONDS.toNanos(3), "k", "v");
+		registry.timer("timer", TimeUnit.MILLISECONDS.toNanos(20000), "k", "v");
+		registry.timer("timer", TimeUnit.MILLISECONDS.toNanos(1), "k", "other");
+		registry.summary("summary", 2);
+		registry.summary("summary", 4);
+		registry.counter("counter", 3);
+		registry.counter("counter", 1);
+		registry.gauge("gauge", () -> 0.5d);
+
+		final var meters = registry.snapshot();
+		Assertions.assertEquals(5, meters.size());
+
+		final var timer = get(meters, "timer", Map.of("k", "v"));
+		Assertions.assertEquals("timer", timer.getType());
+		Assertions.assertEquals(2, timer.getCount());
+		Assertions.assertEquals(20003, timer.getTotal(), DELTA);
+		Assertions.assertEquals(20000, timer.getMax(), DELTA);
+		Assertions.assertEquals(0, timer.getHistogram().get("1").longValue());
+		Assertions.assertEquals(1, timer.getHistogram().get("5").longValue());
+		Assertions.assertEquals(1, timer.getHistogram().get("10000").longValue());
+		Assertions.assertEquals(2, timer.getHistogram().get("+Inf").longValue());
+		Assertions.assertEquals(1, get(meters, "timer", Map.of("k", "other")).getHistogram().get("1").longValue());
+
+		final var summary = get(meters, "summary", Map.of());
+		Assertions.assertEquals(2, summary.getCount());
+		Assertions.assertEquals(6, summary.getTotal(), DELTA);
+		Assertions.assertEquals(4, summary.getMax(), DELTA);
+		Assertions.assertNull(summary.getHistogram());
+
+		Assertions.assertEquals(4, get(meters, "counter", Map.of()).getTotal(), DELTA);
+		Assertions.assertEquals(0.5, get(meters, "gauge", Map.of()).getValue(), DELTA);
+	}
+
+	@Test
+	void findAll() {
+		resource.refresh(subscription);
+		final var meters = metrics.findAll();
+		final var lookups = get(meters, "prov.lookup.all", Map.of("type", "INSTANCE"));
+		Assertions.assertTrue(lookups.getCount() > 0);
+		Assertions.assertTrue(get(meters, "prov.lookup.all.queries", Map.of("type", "INSTANCE")).getTotal() > 0);
+		Assertions.assertNotNull(get(meters, "prov.lean", Map.of()));
+	}
+}
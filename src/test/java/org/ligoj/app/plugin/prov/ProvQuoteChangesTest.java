@@ -0,0 +1,74 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.plugin.prov.model.ResourceType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Test class of {@link ProvQuoteChanges}
+ */
+class ProvQuoteChangesTest extends AbstractProvResourceTest {
+
+	@Autowired
+	private ProvQuoteChanges changes;
+
+	@Autowired
+	private ProvNetworkResource networkResource;
+
+	/**
+	 * Simulate the commit of the edition: the journaled changes are written.
+	 */
+	private void beforeCommit() {
+		TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.beforeCommit(false));
+	}
+
+	private long getRevision() {
+		return resource.getQuoteFromSubscription(subscription).getRevision();
+	}
+
+	@Test
+	void findChangesDeleted() {
+		final var revision = getRevision();
+		final var id = qiRepository.findByName("server1").getId();
+		qiResource.delete(id);
+		beforeCommit();
+
+		final var vo = changes.findChanges(subscription, revision);
+		Assertions.assertEquals(revision + 1, vo.getRevision());
+		Assertions.assertFalse(vo.isReload());
+		Assertions.assertNotNull(vo.getTotal());
+		Assertions.assertEquals(List.of(id), vo.getDeleted().get(ResourceType.INSTANCE));
+		Assertions.assertFalse(vo.getUpdated().containsKey(ResourceType.INSTANCE));
+	}
+
+	@Test
+	void findChangesUpToDate() {
+		final var vo = changes.findChanges(subscription, getRevision());
+		Assertions.assertFalse(vo.isReload());
+		Assertions.assertTrue(vo.getUpdated().isEmpty());
+		Assertions.assertTrue(vo.getDeleted().isEmpty());
+	}
+
+	@Test
+	void findChangesRetention() {
+		qiResource.delete(qiRepository.findByName("server1").getId());
+		beforeCommit();
+		Assertions.assertTrue(changes.findChanges(subscription, getRevision() - 1 - ProvQuoteChanges.DEFAULT_RETENTION)
+				.isReload());
+	}
+
+	@Test
+	void findChangesNetwork() {
+		final var revision = getRevision();
+		networkResource.updateAllById(subscription, List.of());
+		beforeCommit();
+		Assertions.assertTrue(changes.findChanges(subscription, revision).isReload());
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.plugin.prov.model.ProvQuote;
+import org.ligoj.bootstrap.core.resource.BusinessException;
+import org.ligoj.bootstrap.resource.system.configuration.ConfigurationResource;
+import org.mockito.Mockito;
+
+/**
+ * Test class of {@link ProvQuoteLock} with the local locks.
+ */
+class ProvQuoteLockTest {
+
+	private ProvQuoteLock quoteLock;
+
+	@BeforeEach
+	void prepare() {
+		quoteLock = new ProvQuoteLock();
+		quoteLock.configuration = Mockito.mock(ConfigurationResource.class);
+		Mockito.when(quoteLock.configuration.get(ProvQuoteLock.TIMEOUT, ProvQuoteLock.DEFAULT_TIMEOUT)).thenReturn(50);
+	}
+
+	/**
+	 * Hold the lock of the given quote from another thread until the returned latch is released.
+	 */
+	private CountDownLatch holdLock(final int quote) throws InterruptedException {
+		final var acquired = new CountDownLatch(1);
+		final var release = new CountDownLatch(1);
+		new Thread(() -> {
+			final var unlock = quoteLock.acquire(quote);
+			acquired.countDown();
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				unlock.run();
+			}
+		}).start();
+		acquired.await();
+		return release;
+	}
+
+	@Test
+	void acquire() {
+		quoteLock.acquire(1).run();
+		quoteLock.acquire(1).run();
+		final var statistics = quoteLock.getStatistics();
+		Assertions.assertEquals(2L, statistics.get("acquisitions"));
+		Assertions.assertEquals(0L, statistics.get("contentions"));
+		Assertions.assertEquals(0L, statistics.get("timeouts"));
+	}
+
+	@Test
+	void acquireTimeout() throws InterruptedException {
+		final var release = holdLock(1);
+		try {
+			Assertions.assertEquals("concurrent-edition",
+					Assertions.assertThrows(BusinessException.class, () -> quoteLock.acquire(1)).getMessage());
+		} finally {
+			release.countDown();
+		}
+		final var statistics = quoteLock.getStatistics();
+		Assertions.assertEquals(1L, statistics.get("acquisitions"));
+		Assertions.assertEquals(1L, statistics.get("contentions"));
+		Assertions.assertEquals(1L, statistics.get("timeouts"));
+	}
+
+	@Test
+	void acquireWait() throws InterruptedException {
+		final var release = holdLock(1);
+		new Thread(() -> {
+			// Release the lock once the other edition is waiting
+			while (quoteLock.getStatistics().get("contentions") == 0) {
+				Thread.onSpinWait();
+			}
+			release.countDown();
+		}).start();
+		Mockito.when(quoteLock.configuration.get(ProvQuoteLock.TIMEOUT, ProvQuoteLock.DEFAULT_TIMEOUT))
+				.thenReturn(5000);
+		quoteLock.acquire(1).run();
+		final var statistics = quoteLock.getStatistics();
+		Assertions.assertEquals(2L, statistics.get("acquisitions"));
+		Assertions.assertEquals(1L, statistics.get("contentions"));
+		Assertions.assertEquals(0L, statistics.get("timeouts"));
+	}
+
+	@Test
+	void acquireOtherQuote() throws InterruptedException {
+		final var release = holdLock(1);
+		try {
+			quoteLock.acquire(2).run();
+		} finally {
+			release.countDown();
+		}
+		Assertions.assertEquals(0L, quoteLock.getStatistics().get("contentions"));
+	}
+
+	@Test
+	void lockNoTransaction() {
+		final var quote = new ProvQuote();
+		quote.setId(1);
+		quoteLock.lock(quote);
+		quoteLock.lock(new ProvQuote());
+		Assertions.assertEquals(0L, quoteLock.getStatistics().get("acquisitions"));
+	}
+}
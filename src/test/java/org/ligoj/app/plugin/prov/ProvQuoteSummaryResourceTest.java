@@ -0,0 +1,189 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.plugin.prov.dao.ProvQuoteChangeRepository;
+import org.ligoj.app.plugin.prov.dao.ProvQuoteSummaryRepository;
+import org.ligoj.app.plugin.prov.model.ProvQuoteChange;
+import org.ligoj.app.plugin.prov.model.ProvQuoteSummary;
+import org.ligoj.app.plugin.prov.model.ResourceType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Test class of {@link ProvQuoteSummaryResource}
+ */
+class ProvQuoteSummaryResourceTest extends AbstractProvResourceTest {
+
+	@Autowired
+	private ProvQuoteSummaryResource summaries;
+
+	@Autowired
+	private ProvQuoteSummaryRepository summaryRepository;
+
+	@Autowired
+	private ProvQuoteChangeRepository changeRepository;
+
+	/**
+	 * Simulate the commit of the edition: the journaled changes are written.
+	 */
+	private void beforeCommit() {
+		TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.beforeCommit(false));
+	}
+
+	private ProvQuoteSummary getSummary() {
+		return summaryRepository.findBy("configuration", resource.getQuoteFromSubscription(subscription));
+	}
+
+	private void assertSummary(final QuoteLightVo expected, final QuoteLightVo actual) {
+		Assertions.assertEquals(expected.getId(), actual.getId());
+		Assertions.assertEquals(expected.getNbInstances(), actual.getNbInstances());
+		Assertions.assertEquals(expected.getNbDatabases(), actual.getNbDatabases());
+		Assertions.assertEquals(expected.getNbContainers(), actual.getNbContainers());
+		Assertions.assertEquals(expected.getNbFunctions(), actual.getNbFunctions());
+		Assertions.assertEquals(expected.getNbStorages(), actual.getNbStorages());
+		Assertions.assertEquals(expected.getTotalStorage(), actual.getTotalStorage());
+		Assertions.assertEquals(expected.getTotalCpu(), actual.getTotalCpu(), DELTA);
+		Assertions.assertEquals(expected.getTotalGpu(), actual.getTotalGpu(), DELTA);
+		Assertions.assertEquals(expected.getTotalRam(), actual.getTotalRam());
+		Assertions.assertEquals(expected.getNbPublicAccess(), actual.getNbPublicAccess());
+		Assertions.assertEquals(expected.getCost().getMin(), actual.getCost().getMin(), DELTA);
+	}
+
+	@Test
+	void findAll() {
+		final var result = summaries.findAll(List.of(subscription, subscription));
+		Assertions.assertEquals(1, result.size());
+
+		final var status = result.get(subscription);
+		Assertions.assertEquals("quote1", status.getName());
+		Assertions.assertEquals("quoteD1", status.getDescription());
+		checkCost(status.getCost(), 4704.758, 7154.358, false);
+		Assertions.assertEquals(7, status.getNbInstances());
+		Assertions.assertEquals(10.75, status.getTotalCpu(), 0.0001);
+		Assertions.assertEquals(45576, status.getTotalRam());
+		Assertions.assertEquals(6, status.getNbPublicAccess());
+		Assertions.assertEquals(7, status.getNbStorages());
+		Assertions.assertEquals(175, status.getTotalStorage());
+		Assertions.assertEquals("region-1", status.getLocation().getName());
+		Assertions.assertEquals("USD", status.getCurrency().getName());
+
+		// Several quotes
+		final var other = getSubscription("mda", ProvResource.SERVICE_KEY);
+		final var all = summaries.findAllInternal(List.of(subscription, other));
+		Assertions.assertEquals(2, all.size());
+		Assertions.assertEquals("quote2", all.get(other).getName());
+		Assertions.assertEquals(0, all.get(other).getNbInstances());
+
+		// Not yet materialized
+		Assertions.assertNull(getSummary());
+	}
+
+	@Test
+	void update() {
+		qiResource.delete(qiRepository.findByName("server1").getId());
+		beforeCommit();
+
+		// Created but not computed on commit
+		final var summary = getSummary();
+		Assertions.assertEquals(-1, summary.getRevision());
+
+		// Materialized on read for the current revision
+		final var status = summaries.findAllInternal(List.of(subscription)).get(subscription);
+		Assertions.assertEquals(6, status.getNbInstances());
+		Assertions.assertEquals(resource.getQuoteFromSubscription(subscription).getRevision(), summary.getRevision());
+
+		// Same result than a full computation
+		summary.setRevision(-1);
+		summaryRepository.saveAndFlush(summary);
+		assertSummary(summaries.findAllInternal(List.of(subscription)).get(subscription), status);
+	}
+
+	/**
+	 * Create a summary with a previous revision and some databases not matching the resources.
+	 */
+	private ProvQuoteSummary newSummary(final long quoteRevision, final long revision) {
+		final var quote = resource.getQuoteFromSubscription(subscription);
+		quote.setRevision(quoteRevision);
+		final var summary = new ProvQuoteSummary();
+		summary.setConfiguration(quote);
+		summary.setRevision(revision);
+		summary.setNbDatabases(99);
+		return summaryRepository.saveAndFlush(summary);
+	}
+
+	private void newChange(final ResourceType type, final Integer resource, final long revision) {
+		final var change = new ProvQuoteChange();
+		change.setConfiguration(this.resource.getQuoteFromSubscription(subscription));
+		change.setType(type);
+		change.setResource(resource);
+		change.setRevision(revision);
+		changeRepository.saveAndFlush(change);
+	}
+
+	@Test
+	void updateIncremental() {
+		final var summary = newSummary(10, 9);
+		final var server1 = qiRepository.findByName("server1").getId();
+		qiResource.delete(server1);
+		newChange(ResourceType.INSTANCE, server1, 10);
+
+		// Only the instances and the storages are computed again
+		final var status = summaries.findAllInternal(List.of(subscription)).get(subscription);
+		Assertions.assertEquals(99, status.getNbDatabases());
+		Assertions.assertEquals(6, status.getNbInstances());
+		Assertions.assertNotEquals(0, status.getNbStorages());
+		Assertions.assertEquals(10, summary.getRevision());
+
+		// Up to date, used as is
+		summary.setNbDatabases(98);
+		final var upToDate = summaries.findAllInternal(List.of(subscription)).get(subscription);
+		Assertions.assertEquals(98, upToDate.getNbDatabases());
+	}
+
+	@Test
+	void updateUnchanged() {
+		newSummary(10, 9);
+
+		// Nothing changed since the summary revision
+		Assertions.assertEquals(99, resource.getSubscriptionStatus(subscription).getNbDatabases());
+		Assertions.assertEquals(10, getSummary().getRevision());
+	}
+
+	@Test
+	void updateGlobal() {
+		newSummary(10, 9);
+		newChange(null, null, 10);
+
+		// Entirely computed again
+		Assertions.assertEquals(0, resource.getSubscriptionStatus(subscription).getNbDatabases());
+		Assertions.assertEquals(10, getSummary().getRevision());
+	}
+
+	@Test
+	void updateOutdated() {
+		newSummary(200, 99);
+		newChange(ResourceType.INSTANCE, qiRepository.findByName("server1").getId(), 200);
+
+		// No more covered by the journal, entirely computed again
+		Assertions.assertEquals(0, resource.getSubscriptionStatus(subscription).getNbDatabases());
+		Assertions.assertEquals(200, getSummary().getRevision());
+	}
+
+	@Test
+	void deleteQuote() {
+		qiResource.delete(qiRepository.findByName("server1").getId());
+		beforeCommit();
+		Assertions.assertNotNull(getSummary());
+		em.flush();
+		em.clear();
+		resource.delete(subscription, false);
+		em.flush();
+		Assertions.assertEquals(0, summaryRepository.count());
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import jakarta.transaction.Transactional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.model.Node;
+import org.ligoj.app.model.Project;
+import org.ligoj.app.model.Subscription;
+import org.ligoj.app.plugin.prov.model.ProvBudget;
+import org.ligoj.app.plugin.prov.model.ProvCurrency;
+import org.ligoj.app.plugin.prov.model.ProvInstancePrice;
+import org.ligoj.app.plugin.prov.model.ProvInstancePriceTerm;
+import org.ligoj.app.plugin.prov.model.ProvInstanceType;
+import org.ligoj.app.plugin.prov.model.ProvLocation;
+import org.ligoj.app.plugin.prov.model.ProvOptimizer;
+import org.ligoj.app.plugin.prov.model.ProvQuote;
+import org.ligoj.app.plugin.prov.model.ProvQuoteInstance;
+import org.ligoj.app.plugin.prov.model.ProvQuoteStorage;
+import org.ligoj.app.plugin.prov.model.ProvStoragePrice;
+import org.ligoj.app.plugin.prov.model.ProvStorageType;
+import org.ligoj.app.plugin.prov.model.ProvUsage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test class of the parallel refresh of {@link ProvRefreshEngine} against the real repositories. The workers only see
+ * the committed data: the catalog is committed before each test and removed after. The quote is created within the
+ * rolled back transaction of the test.
+ */
+@Transactional(Transactional.TxType.NOT_SUPPORTED)
+class ProvRefreshEngineParallelTest extends AbstractProvResourceTest {
+
+	private static final Class<?>[] CATALOG = { Node.class, ProvLocation.class, ProvCurrency.class,
+			ProvStorageType.class, ProvStoragePrice.class, ProvInstancePriceTerm.class, ProvInstanceType.class,
+			ProvInstancePrice.class };
+
+	private static final Class<?>[] QUOTE = { Project.class, Subscription.class, ProvQuote.class, ProvUsage.class,
+			ProvBudget.class, ProvOptimizer.class, ProvQuoteInstance.class, ProvQuoteStorage.class };
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private void persist(final Class<?>[] classes) {
+		try {
+			persistEntities("csv", classes, StandardCharsets.UTF_8.name());
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	@BeforeEach
+	protected void prepareData() {
+		new TransactionTemplate(transactionManager).executeWithoutResult(s -> persist(CATALOG));
+	}
+
+	@AfterEach
+	void cleanup() {
+		final var classes = new ArrayList<>(Arrays.asList(CATALOG));
+		Collections.reverse(classes);
+		new TransactionTemplate(transactionManager).executeWithoutResult(
+				s -> classes.forEach(c -> em.createQuery("DELETE FROM " + c.getSimpleName()).executeUpdate()));
+		clearAllCache();
+	}
+
+	@Test
+	void refresh() {
+		new TransactionTemplate(transactionManager).executeWithoutResult(s -> {
+			s.setRollbackOnly();
+			persistSystemEntities();
+			persist(QUOTE);
+			preparePostData();
+
+			// Sequential refresh
+			final var expected = resource.refresh(subscription);
+
+			// Parallel refresh
+			configuration.put(ProvResource.USE_PARALLEL, "1");
+			configuration.put(ProvRefreshEngine.PARALLELISM, "2");
+			final var actual = resource.refresh(subscription);
+			Assertions.assertEquals(expected.getMin(), actual.getMin(), DELTA);
+			Assertions.assertEquals(expected.getMax(), actual.getMax(), DELTA);
+			Assertions.assertEquals(expected.getInitial(), actual.getInitial(), DELTA);
+			Assertions.assertEquals(expected.isUnbound(), actual.isUnbound());
+			Assertions.assertEquals(7, qiRepository.findAllBy("configuration.subscription.id", subscription).stream()
+					.filter(qi -> qi.getPrice() != null).count());
+		});
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+import org.ligoj.bootstrap.resource.system.configuration.ConfigurationResource;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Test class of {@link ProvRefreshEngine}
+ */
+class ProvRefreshEngineTest {
+
+	private ProvRefreshEngine engine;
+
+	@BeforeEach
+	void prepare() {
+		engine = new ProvRefreshEngine();
+		engine.configuration = Mockito.mock(ConfigurationResource.class);
+		engine.transactionManager = Mockito.mock(PlatformTransactionManager.class);
+		Mockito.when(engine.configuration.get(ProvResource.USE_PARALLEL, 0)).thenReturn(1);
+		Mockito.when(engine.configuration.get(Mockito.eq(ProvRefreshEngine.PARALLELISM), Mockito.anyInt()))
+				.thenReturn(4);
+	}
+
+	@AfterEach
+	void shutdown() {
+		engine.shutdown();
+	}
+
+	@Test
+	void map() {
+		final var snapshots = IntStream.range(0, 1000).boxed().toList();
+		final var callers = Collections.synchronizedSet(new HashSet<Thread>());
+		final var results = engine.map(snapshots, i -> {
+			callers.add(Thread.currentThread());
+			return i * 2;
+		});
+		Assertions.assertEquals(IntStream.range(0, 1000).map(i -> i * 2).boxed().toList(), results);
+		Assertions.assertFalse(callers.contains(Thread.currentThread()));
+		Assertions.assertTrue(callers.size() <= 4);
+	}
+
+	@Test
+	void mapSharedExecutor() {
+		final var snapshots = IntStream.range(0, 100).boxed().toList();
+		final var callers = Collections.synchronizedSet(new HashSet<Thread>());
+		for (var i = 0; i < 5; i++) {
+			engine.map(snapshots, s -> callers.add(Thread.currentThread()));
+		}
+		Assertions.assertTrue(callers.size() <= 4);
+		Mockito.verify(engine.transactionManager, Mockito.atLeast(5)).getTransaction(Mockito.any());
+	}
+
+	@Test
+	void mapNested() {
+		final var snapshots = IntStream.range(0, 10).boxed().toList();
+		final var results = engine.map(snapshots, i -> {
+			final var worker = Thread.currentThread();
+			// The nested tasks are executed by the worker itself
+			return engine.map(List.of(1, 2), j -> Thread.currentThread() == worker);
+		});
+		results.forEach(r -> Assertions.assertEquals(List.of(true, true), r));
+	}
+
+	@Test
+	void mapSequential() {
+		Mockito.when(engine.configuration.get(ProvResource.USE_PARALLEL, 0)).thenReturn(0);
+		final var caller = Thread.currentThread();
+		Assertions.assertEquals(List.of(true, true), engine.map(List.of(1, 2), i -> Thread.currentThread() == caller));
+	}
+
+	@Test
+	void mapBusinessError() {
+		final var snapshots = IntStream.range(0, 10).boxed().toList();
+		Assertions.assertThrows(ValidationJsonException.class, () -> engine.map(snapshots, i -> {
+			throw new ValidationJsonException("instance", "no-match-instance", "resource", i);
+		}));
+	}
+}
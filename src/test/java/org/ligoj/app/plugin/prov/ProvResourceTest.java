@@ -8,6 +8,9 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -36,8 +39,10 @@ import org.ligoj.app.plugin.prov.model.ReservationMode;
 import org.ligoj.app.plugin.prov.model.VmOs;
 import org.ligoj.app.plugin.prov.quote.instance.QuoteInstanceLookup;
 import org.ligoj.app.plugin.prov.quote.storage.QuoteStorageLookup;
+import org.ligoj.app.plugin.prov.terraform.TerraformRunnerResource;
 import org.ligoj.bootstrap.core.resource.BusinessException;
 import org.ligoj.bootstrap.model.system.SystemConfiguration;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.ligoj.app.plugin.prov.catalog.ImportCatalogResource;
 
@@ -52,6 +57,12 @@ class ProvResourceTest extends AbstractProvResourceTest {
 	@Autowired
 	private ImportCatalogResource icResource;
 
+	@Autowired
+	private ProvPriceIndex priceIndex;
+
+	@Autowired
+	private TerraformRunnerResource runner;
+
 	/**
 	 * Prepare test data.
 	 *
@@ -289,6 +300,62 @@ class ProvResourceTest extends AbstractProvResourceTest {
 		Assertions.assertTrue(vo.getNetworks().isEmpty());
 	}
 
+	@Test
+	void getConfigurationRevision() {
+		final var request = Mockito.mock(Request.class);
+		var response = resource.getConfiguration(subscription, request);
+		Assertions.assertEquals(200, response.getStatus());
+		final var revision = ((QuoteVo) response.getEntity()).getRevision();
+		final var tag = new EntityTag(revision + "-" + priceIndex.getStamp("service:prov:test"));
+		Assertions.assertEquals(tag, response.getEntityTag());
+
+		// Client holds the current revision
+		Mockito.when(request.evaluatePreconditions(tag)).thenReturn(Response.notModified());
+		response = resource.getConfiguration(subscription, request);
+		Assertions.assertEquals(304, response.getStatus());
+		Assertions.assertNull(response.getEntity());
+
+		// A catalog update changes the tag
+		priceIndex.invalidate("service:prov:test");
+		response = resource.getConfiguration(subscription, request);
+		Assertions.assertEquals(200, response.getStatus());
+		Assertions.assertNotEquals(tag, response.getEntityTag());
+
+		// A Terraform task changes the tag
+		final var tagCatalog = response.getEntityTag();
+		Mockito.when(request.evaluatePreconditions(tagCatalog)).thenReturn(Response.notModified());
+		Assertions.assertEquals(304, resource.getConfiguration(subscription, request).getStatus());
+		runner.startTask("service:prov:test:account", t -> {
+			t.setSubscription(subscription);
+			t.setSequence("init");
+		});
+		response = resource.getConfiguration(subscription, request);
+		Assertions.assertEquals(200, response.getStatus());
+		Assertions.assertNotNull(((QuoteVo) response.getEntity()).getTerraformStatus());
+		final var tagTask = response.getEntityTag();
+		Assertions.assertNotEquals(tagCatalog, tagTask);
+
+		// The end of the task changes the tag
+		Mockito.when(request.evaluatePreconditions(tagTask)).thenReturn(Response.notModified());
+		Assertions.assertEquals(304, resource.getConfiguration(subscription, request).getStatus());
+		runner.endTask("service:prov:test:account", false);
+		response = resource.getConfiguration(subscription, request);
+		Assertions.assertEquals(200, response.getStatus());
+		Assertions.assertNotEquals(tagTask, response.getEntityTag());
+
+		// Any edition increments the revision once
+		final var quote = new QuoteEditionVo();
+		quote.setName("name1");
+		quote.setLocation("region-1");
+		resource.update(subscription, quote);
+		em.flush();
+		em.clear();
+		Assertions.assertEquals(revision + 1, repository.getRevision(subscription));
+		response = resource.getConfiguration(subscription, request);
+		Assertions.assertEquals(200, response.getStatus());
+		Assertions.assertEquals(revision + 1, ((QuoteVo) response.getEntity()).getRevision());
+	}
+
 	@Test
 	void getConfigurationEmpty() {
 		checkCost0(resource.updateCost(checkEmpty()));
@@ -990,6 +1057,18 @@ class ProvResourceTest extends AbstractProvResourceTest {
 				() -> resource.findConfiguredByName(qiRepository, "server1", 0)).getMessage());
 	}
 
+	@Test
+	void getLockStatistics() {
+		// The lock is held by the cost update of the preparation until the end of the transaction
+		final var before = resource.getLockStatistics();
+		Assertions.assertTrue(before.get("acquisitions") > 0);
+		resource.updateCost(subscription);
+		final var after = resource.getLockStatistics();
+		Assertions.assertEquals(before.get("acquisitions"), after.get("acquisitions"));
+		Assertions.assertEquals(before.get("contentions"), after.get("contentions"));
+		Assertions.assertTrue(after.containsKey("wait"));
+	}
+
 	@Test
 	void getInstalledEntities() {
 		Assertions.assertTrue(resource.getInstalledEntities().contains(SystemConfiguration.class));
@@ -5,6 +5,7 @@ package org.ligoj.app.plugin.prov;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
@@ -203,6 +204,90 @@ class ProvTagResourceTest extends AbstractAppTest {
 		Assertions.assertThrows(EntityNotFoundException.class, () -> tagResource.create(subscription, vo));
 	}
 
+	private TagEditionVo newTag(final String name, final String value, final ResourceType type, final int resource) {
+		final var vo = new TagEditionVo();
+		vo.setName(name);
+		vo.setValue(value);
+		vo.setResource(resource);
+		vo.setType(type);
+		return vo;
+	}
+
+	@Test
+	void createAll() {
+		final var instance = qiRepository.findByName("server1").getId();
+		final var storage = qsRepository.findByName("server1-root").getId();
+		final var ids = tagResource.createAll(subscription,
+				List.of(newTag("key", "value", ResourceType.INSTANCE, instance),
+						newTag("key", "value2", ResourceType.INSTANCE, instance),
+						newTag("key", "value", ResourceType.STORAGE, storage),
+						newTag("key", "value", ResourceType.INSTANCE, instance)));
+		Assertions.assertEquals(3, ids.size());
+
+		final var entity = tagRepository.findOne(ids.get(0));
+		Assertions.assertEquals("key", entity.getName());
+		Assertions.assertEquals("value", entity.getValue());
+		Assertions.assertEquals(instance, entity.getResource().intValue());
+		Assertions.assertEquals(ResourceType.INSTANCE, entity.getType());
+		Assertions.assertEquals(subscription, entity.getConfiguration().getSubscription().getId().intValue());
+		Assertions.assertEquals("value2", tagRepository.findOne(ids.get(1)).getValue());
+		Assertions.assertEquals(ResourceType.STORAGE, tagRepository.findOne(ids.get(2)).getType());
+
+		final var tags = resource.getConfiguration(subscription).getTags();
+		Assertions.assertEquals(2, tags.get(ResourceType.INSTANCE).get(instance).size());
+		Assertions.assertEquals(1, tags.get(ResourceType.STORAGE).get(storage).size());
+	}
+
+	@Test
+	void createAllEmpty() {
+		Assertions.assertTrue(tagResource.createAll(subscription, List.of()).isEmpty());
+	}
+
+	@Test
+	void createAllNotExistingSubscription() {
+		final var instance = qiRepository.findByName("server1").getId();
+		final var tags = List.of(newTag("key", "value", ResourceType.INSTANCE, instance));
+		Assertions.assertThrows(EntityNotFoundException.class, () -> tagResource.createAll(0, tags));
+	}
+
+	@Test
+	void createAllNotExistingResource() {
+		final var tags = List.of(newTag("key", "value", ResourceType.INSTANCE, 0));
+		Assertions.assertThrows(EntityNotFoundException.class, () -> tagResource.createAll(subscription, tags));
+	}
+
+	@Test
+	void createAllAnotherSubscription() {
+		final var instance = qiRepository.findByName("server1").getId();
+		final var other = qiRepository.findByName("serverX").getId();
+		final var tags = List.of(newTag("key", "value", ResourceType.INSTANCE, instance),
+				newTag("key", "value", ResourceType.INSTANCE, other));
+		Assertions.assertThrows(EntityNotFoundException.class, () -> tagResource.createAll(subscription, tags));
+	}
+
+	@Test
+	void replaceTags() {
+		final var entity = qiRepository.findByName("server1");
+		tagResource.create(subscription, newTag("old", null, ResourceType.INSTANCE, entity.getId()));
+		final var tag1 = new TagVo();
+		tag1.setName("key");
+		tag1.setValue("value");
+		final var tag2 = new TagVo();
+		tag2.setName("key");
+		tag2.setValue("value");
+		final var tag3 = new TagVo();
+		tag3.setName("key2");
+		tagResource.replaceTags(List.of(tag1, tag2, tag3), entity);
+
+		final var tags = resource.getConfiguration(subscription).getTags().get(ResourceType.INSTANCE)
+				.get(entity.getId());
+		// The duplicate tags are kept
+		Assertions.assertEquals(3, tags.size());
+		Assertions.assertEquals(2,
+				tags.stream().filter(t -> "key".equals(t.getName()) && "value".equals(t.getValue())).count());
+		Assertions.assertTrue(tags.stream().anyMatch(t -> "key2".equals(t.getName()) && t.getValue() == null));
+	}
+
 	@Test
 	void deleteAnotherSubscription() {
 		final var vo = new TagEditionVo();
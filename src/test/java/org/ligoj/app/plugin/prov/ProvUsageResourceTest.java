@@ -48,6 +48,9 @@ class ProvUsageResourceTest extends AbstractProvResourceTest {
 	@Autowired
 	private ProvUsageRepository usageRepository;
 
+	@Autowired
+	private ProvLookupCache lookupCache;
+
 	@BeforeEach
 	@Override
 	protected void prepareData() throws IOException {
@@ -168,6 +171,39 @@ class ProvUsageResourceTest extends AbstractProvResourceTest {
 		Assertions.assertEquals(12, entity.getDuration());
 	}
 
+	@Test
+	void updateNameOnly() {
+		attachUsageToQuote();
+		final var usage = new UsageEditionVo();
+		usage.setId(usageRepository.findByName("Dev").getId());
+		usage.setName("DevV2");
+		usage.setRate(50);
+
+		// Renaming does not require any lookup
+		final var requests = lookupCache.getStatistics().get("requests");
+		checkCost(uResource.update(subscription, usage).getTotal(), 3019.0, 4883.0, false);
+		Assertions.assertEquals(requests, lookupCache.getStatistics().get("requests"));
+		Assertions.assertEquals("DevV2", usageRepository.findOne(usage.getId()).getName());
+	}
+
+	@Test
+	void updateRateDecrease() {
+		attachUsageToQuote();
+		final var usage = new UsageEditionVo();
+		usage.setId(usageRepository.findByName("Dev").getId());
+		usage.setName("Dev");
+		usage.setRate(25);
+
+		// Only the resources having a committed term are looked up again
+		final var updated = uResource.update(subscription, usage).getTotal();
+		em.flush();
+		em.clear();
+
+		// Same costs than a full refresh
+		final var refreshed = resource.refresh(subscription);
+		checkCost(updated, refreshed.getMin(), refreshed.getMax(), false);
+	}
+
 	@Test
 	void updateAttachedInstance() {
 		attachUsageToQuote();
@@ -0,0 +1,145 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.plugin.prov.model.ProvStorageOptimized;
+import org.ligoj.app.plugin.prov.model.Rate;
+
+/**
+ * Test class of {@link StoragePriceIndex}
+ */
+class StoragePriceIndexTest {
+
+	private static final double DELTA = 0.001;
+
+	/**
+	 * Build a raw row ordered as {@link StoragePriceIndex#COLUMNS}.
+	 */
+	private Object[] newRow(final int id, final int location, final double cost, final double costGb,
+			final String code, final Rate latency, final ProvStorageOptimized optimized) {
+		final var row = new Object[19];
+		row[0] = id;
+		row[1] = location;
+		row[2] = cost;
+		row[3] = costGb;
+		row[4] = code;
+		row[5] = latency;
+		row[6] = optimized;
+		row[7] = 1d;
+		return row;
+	}
+
+	private StoragePriceIndex newIndex() {
+		final var index = new StoragePriceIndex(1, 6);
+		final var row0 = newRow(10, 1, 0, 0.21, "storage1", Rate.GOOD, ProvStorageOptimized.IOPS);
+		row0[10] = "%";
+		row0[14] = "%";
+		final var row1 = newRow(11, 1, 1, 0.15, "storage2", Rate.MEDIUM, ProvStorageOptimized.THROUGHPUT);
+		row1[7] = 512d;
+		row1[8] = 512d;
+		row1[10] = "t2._";
+		row1[11] = "t2.m";
+		final var row2 = newRow(12, 1, 2, 0.15, "storage3", Rate.LOW, ProvStorageOptimized.DURABILITY);
+		row2[9] = 1000d;
+		final var row3 = newRow(13, 1, 2, 1.4, "storage5", Rate.BEST, ProvStorageOptimized.IOPS);
+		row3[12] = "%";
+		row3[18] = "ORACLE";
+		final var row4 = newRow(14, 1, 2, 0.15, "storage0", Rate.LOW, null);
+		index.set(0, row0);
+		index.set(1, row1);
+		index.set(2, row2);
+		index.set(3, row3);
+		index.set(4, row4);
+		index.set(5, newRow(20, 2, 0, 0.22, "storage1", Rate.GOOD, null));
+		return index.seal(6);
+	}
+
+	private int[] findLowest(final StoragePriceIndex index, final int location, final double size, final Rate latency,
+			final ProvStorageOptimized optimized) {
+		return index.findLowest(location, size, latency, optimized, "", "", "", "", "", 10);
+	}
+
+	private int[] toIds(final StoragePriceIndex index, final int[] rows) {
+		final var ids = new int[rows.length];
+		for (var i = 0; i < rows.length; i++) {
+			ids[i] = index.getIds()[rows[i]];
+		}
+		return ids;
+	}
+
+	@Test
+	void seal() {
+		final var index = newIndex();
+		Assertions.assertEquals(6, index.getSize());
+		Assertions.assertArrayEquals(new int[] { 1, 2 }, index.getLocationIds());
+		Assertions.assertArrayEquals(new int[] { 0, 5, 6 }, index.getLocationStarts());
+	}
+
+	@Test
+	void getCost() {
+		final var index = newIndex();
+		// No increment
+		Assertions.assertEquals(215.04, index.getCost(0, 1024), DELTA);
+		// Minimal
+		Assertions.assertEquals(77.8, index.getCost(1, 10), DELTA);
+		// Increment
+		Assertions.assertEquals(302, index.getCost(2, 1024), DELTA);
+	}
+
+	@Test
+	void findLowest() {
+		final var index = newIndex();
+		// Ordered by cost, then latency DESC, then code
+		Assertions.assertArrayEquals(new int[] { 10, 14, 13, 11, 12 },
+				toIds(index, findLowest(index, 1, 10, Rate.WORST, null)));
+
+		// Maximal size
+		Assertions.assertArrayEquals(new int[] { 14, 10, 12, 13 },
+				toIds(index, findLowest(index, 1, 1024, Rate.WORST, null)));
+
+		// Latency and optimization
+		Assertions.assertArrayEquals(new int[] { 10, 13 }, toIds(index, findLowest(index, 1, 10, Rate.GOOD, null)));
+		Assertions.assertArrayEquals(new int[] { 10, 13 },
+				toIds(index, findLowest(index, 1, 10, Rate.WORST, ProvStorageOptimized.IOPS)));
+
+		// Limit
+		Assertions.assertArrayEquals(new int[] { 10, 14 },
+				toIds(index, index.findLowest(1, 10, Rate.WORST, null, "", "", "", "", "", 2)));
+
+		// Other location
+		Assertions.assertArrayEquals(new int[] { 20 }, toIds(index, findLowest(index, 2, 10, Rate.WORST, null)));
+		Assertions.assertEquals(0, findLowest(index, 3, 10, Rate.WORST, null).length);
+	}
+
+	@Test
+	void findLowestCompatible() {
+		final var index = newIndex();
+		// Instance patterns
+		Assertions.assertArrayEquals(new int[] { 10, 11 },
+				toIds(index, index.findLowest(1, 10, Rate.WORST, null, "t2.s", "", "", "", "", 10)));
+		Assertions.assertArrayEquals(new int[] { 10 },
+				toIds(index, index.findLowest(1, 10, Rate.WORST, null, "t2.m", "", "", "", "", 10)));
+
+		// Database and engine
+		Assertions.assertArrayEquals(new int[] { 13 },
+				toIds(index, index.findLowest(1, 10, Rate.WORST, null, "", "db1", "ORACLE", "", "", 10)));
+		Assertions.assertEquals(0, index.findLowest(1, 10, Rate.WORST, null, "", "db1", "", "", "", 10).length);
+
+		// Container and function
+		Assertions.assertArrayEquals(new int[] { 10 },
+				toIds(index, index.findLowest(1, 10, Rate.WORST, null, "", "", "", "c1", "", 10)));
+		Assertions.assertEquals(0, index.findLowest(1, 10, Rate.WORST, null, "", "", "", "", "f1", 10).length);
+	}
+
+	@Test
+	void toPattern() {
+		Assertions.assertTrue(StoragePriceIndex.toPattern("%").matcher("any").matches());
+		Assertions.assertTrue(StoragePriceIndex.toPattern("t2.%").matcher("t2.micro").matches());
+		Assertions.assertFalse(StoragePriceIndex.toPattern("t2.%").matcher("t2xmicro").matches());
+		Assertions.assertTrue(StoragePriceIndex.toPattern("_2.(a)").matcher("t2.(a)").matches());
+		Assertions.assertFalse(StoragePriceIndex.toPattern("t2").matcher("t2.micro").matches());
+	}
+}
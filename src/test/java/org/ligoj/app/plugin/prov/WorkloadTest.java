@@ -0,0 +1,46 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class of {@link Workload}
+ */
+class WorkloadTest {
+
+	@Test
+	void fromDefault() {
+		final var workload = Workload.from(null);
+		Assertions.assertEquals(5d, workload.getBaseline());
+		Assertions.assertEquals(1, workload.size());
+		Assertions.assertEquals(100d, workload.getDuration(0));
+		Assertions.assertEquals(5d, workload.getValue(0));
+	}
+
+	@Test
+	void fromBaseline() {
+		final var workload = Workload.from("30");
+		Assertions.assertEquals(30d, workload.getBaseline());
+		Assertions.assertEquals(1, workload.size());
+		Assertions.assertEquals(100d, workload.getDuration(0));
+		Assertions.assertEquals(30d, workload.getValue(0));
+		Assertions.assertSame(Workload.from("100"), Workload.from("100,50@100,50@100"));
+	}
+
+	@Test
+	void fromPeriods() {
+		final var workload = Workload.from("80,20@55,10@23,70@10");
+		Assertions.assertEquals(80d, workload.getBaseline());
+		Assertions.assertEquals(3, workload.size());
+		Assertions.assertEquals(20d, workload.getDuration(0));
+		Assertions.assertEquals(55d, workload.getValue(0));
+		Assertions.assertEquals(70d, workload.getDuration(2));
+		Assertions.assertEquals(10d, workload.getValue(2));
+
+		// Identical workloads are shared
+		Assertions.assertSame(workload, Workload.from(new String("80,20@55,10@23,70@10")));
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.catalog;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.plugin.prov.model.Rate;
+
+/**
+ * Test class of {@link ContentHash}
+ */
+class ContentHashTest {
+
+	private long hash(final String code, final double cost, final Rate rate) {
+		return new ContentHash().add(code).add(cost).add(rate).add(Boolean.TRUE).add(12L).get();
+	}
+
+	@Test
+	void stable() {
+		Assertions.assertEquals(hash("code", 1.5, Rate.GOOD), hash("code", 1.5, Rate.GOOD));
+		Assertions.assertEquals(0xcbf29ce484222325L, new ContentHash().get());
+	}
+
+	@Test
+	void changed() {
+		final var hash = hash("code", 1.5, Rate.GOOD);
+		Assertions.assertNotEquals(hash, hash("code2", 1.5, Rate.GOOD));
+		Assertions.assertNotEquals(hash, hash("code", 1.51, Rate.GOOD));
+		Assertions.assertNotEquals(hash, hash("code", 1.5, Rate.BEST));
+		Assertions.assertNotEquals(hash, hash("code", 1.5, null));
+	}
+
+	@Test
+	void shifted() {
+		Assertions.assertNotEquals(new ContentHash().add("ab").add("c").get(),
+				new ContentHash().add("a").add("bc").get());
+		Assertions.assertNotEquals(new ContentHash().add("").get(), new ContentHash().add((String) null).get());
+		Assertions.assertNotEquals(new ContentHash().add((Double) null).get(),
+				new ContentHash().add((Boolean) null).add(0L).get());
+		Assertions.assertNotEquals(new ContentHash().add(new double[] { 1, 2 }).add(3d).get(),
+				new ContentHash().add(new double[] { 1 }).add(2d).add(3d).get());
+		Assertions.assertNotEquals(new ContentHash().add(new double[0]).get(),
+				new ContentHash().add((double[]) null).get());
+	}
+}
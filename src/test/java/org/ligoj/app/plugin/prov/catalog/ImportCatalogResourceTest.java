@@ -20,6 +20,7 @@ import org.ligoj.app.model.Node;
 import org.ligoj.app.model.Project;
 import org.ligoj.app.model.Subscription;
 import org.ligoj.app.plugin.prov.dao.ImportCatalogStatusRepository;
+import org.ligoj.app.plugin.prov.dao.ProvLocationAvailabilityRepository;
 import org.ligoj.app.plugin.prov.dao.ProvLocationRepository;
 import org.ligoj.app.plugin.prov.model.ImportCatalogStatus;
 import org.ligoj.app.plugin.prov.model.ProvCurrency;
@@ -29,6 +30,7 @@ import org.ligoj.app.plugin.prov.model.ProvInstancePrice;
 import org.ligoj.app.plugin.prov.model.ProvInstancePriceTerm;
 import org.ligoj.app.plugin.prov.model.ProvInstanceType;
 import org.ligoj.app.plugin.prov.model.ProvLocation;
+import org.ligoj.app.plugin.prov.model.ProvLocationAvailability;
 import org.ligoj.app.plugin.prov.model.ProvQuote;
 import org.ligoj.app.plugin.prov.model.ProvQuoteDatabase;
 import org.ligoj.app.plugin.prov.model.ProvQuoteInstance;
@@ -59,6 +61,8 @@ class ImportCatalogResourceTest extends AbstractAppTest {
 	private NodeRepository nodeRepository;
 	@Autowired
 	private ProvLocationRepository locationRepository;
+	@Autowired
+	private ProvLocationAvailabilityRepository availabilityRepository;
 
 	@BeforeEach
 	void prepareData() throws IOException {
@@ -162,6 +166,108 @@ class ImportCatalogResourceTest extends AbstractAppTest {
 		Assertions.assertEquals(23, status.getNbTypes().intValue()); // 13 + 3 + 6 storage
 		Assertions.assertEquals(4, status.getNbLocations().intValue());
 		Mockito.verify(service).updateCatalog("service:prov:test", false);
+
+		// Location availability
+		Assertions.assertEquals(
+				locationRepository.findAll("service:prov:test").stream().map(ProvLocation::getName).sorted().toList(),
+				availabilityRepository.findAllLocations("service:prov:test:account").stream()
+						.map(ProvLocation::getName).sorted().toList());
+		final var availabilities = availabilityRepository.findAll("service:prov:test");
+		Assertions.assertEquals(
+				em.createQuery("SELECT COUNT(id) FROM ProvInstancePrice WHERE type.node.id = :node"
+						+ " AND location IS NOT NULL", Long.class).setParameter("node", "service:prov:test")
+						.getSingleResult().intValue(),
+				availabilities.stream().mapToInt(ProvLocationAvailability::getNbInstancePrices).sum());
+		Assertions.assertNotEquals(0,
+				availabilities.stream().mapToInt(ProvLocationAvailability::getNbStoragePrices).sum());
+		Assertions.assertNotEquals(0,
+				availabilities.stream().mapToInt(ProvLocationAvailability::getNbDatabasePrices).sum());
+	}
+
+	@Test
+	void updateCatalogSynchronousCollected() throws Exception {
+		initSpringSecurityContext(DEFAULT_USER);
+		final var resource = newResource();
+		final var service = Mockito.mock(ImportCatalogService.class);
+		Mockito.doAnswer(i -> {
+			final var stats = new CatalogStats();
+			stats.addLocations(1);
+			stats.addTypes(2);
+			stats.addPrices(3);
+			stats.addCo2Prices(1);
+			resource.collect("service:prov:test", stats);
+			return null;
+		}).when(service).updateCatalog("service:prov:test", false);
+		resource.updateCatalog(service, "service:prov:test");
+
+		// Added to the previous statistics, without recount
+		final var status = repository.findBy("locked.id", "service:prov:test");
+		Assertions.assertFalse(status.isFailed());
+		Assertions.assertNotEquals(0, status.getLastSuccess().getTime());
+		Assertions.assertEquals(3, status.getNbPrices().intValue());
+		Assertions.assertEquals(1, status.getNbCo2Prices().intValue());
+		Assertions.assertEquals(2, status.getNbTypes().intValue());
+		Assertions.assertEquals(1, status.getNbLocations().intValue());
+		Assertions.assertFalse(availabilityRepository.findAll("service:prov:test").isEmpty());
+
+		// Recount
+		resource.reconcileStats("service:prov:test");
+		final var reconciled = repository.findBy("locked.id", "service:prov:test");
+		Assertions.assertEquals(124, reconciled.getNbPrices().intValue());
+		Assertions.assertEquals(116, reconciled.getNbCo2Prices().intValue());
+		Assertions.assertEquals(23, reconciled.getNbTypes().intValue());
+		Assertions.assertEquals(4, reconciled.getNbLocations().intValue());
+	}
+
+	@Test
+	void updateCatalogSynchronousNotCollected() throws Exception {
+		initSpringSecurityContext(DEFAULT_USER);
+		final var resource = newResource();
+		final var service = Mockito.mock(ImportCatalogService.class);
+		Mockito.doAnswer(i -> {
+			final var stats = new CatalogStats();
+			stats.addPrices(0);
+			resource.collect("service:prov:test", stats);
+			return null;
+		}).when(service).updateCatalog("service:prov:test", false);
+		resource.updateCatalog(service, "service:prov:test");
+
+		// Nothing collected, recount
+		final var status = repository.findBy("locked.id", "service:prov:test");
+		Assertions.assertFalse(status.isFailed());
+		Assertions.assertEquals(124, status.getNbPrices().intValue());
+		Assertions.assertEquals(4, status.getNbLocations().intValue());
+	}
+
+	@Test
+	void updateCatalogSynchronousFailedCollected() throws Exception {
+		initSpringSecurityContext(DEFAULT_USER);
+		final var resource = newResource();
+		final var service = Mockito.mock(ImportCatalogService.class);
+		Mockito.doAnswer(i -> {
+			final var stats = new CatalogStats();
+			stats.addPrices(3);
+			resource.collect("service:prov:test", stats);
+			throw new IllegalStateException();
+		}).when(service).updateCatalog("service:prov:test", false);
+		resource.updateCatalog(service, "service:prov:test");
+
+		// The collected statistics are ignored, recount
+		final var status = repository.findBy("locked.id", "service:prov:test");
+		Assertions.assertTrue(status.isFailed());
+		Assertions.assertEquals(124, status.getNbPrices().intValue());
+	}
+
+	@Test
+	void reconcileRunning() {
+		final var resource = newResource();
+		final var status = repository.findBy("locked.id", "service:prov:test");
+		status.setEnd(null);
+		repository.saveAndFlush(status);
+
+		// Ignored while the import is running
+		resource.reconcileStats("service:prov:test");
+		Assertions.assertEquals(0, repository.findBy("locked.id", "service:prov:test").getNbPrices().intValue());
 	}
 
 	@Test
@@ -199,10 +305,12 @@ class ImportCatalogResourceTest extends AbstractAppTest {
 		Assertions.assertTrue(status.isFinished());
 		Assertions.assertTrue(status.isFailed());
 		Assertions.assertEquals(0, status.getLastSuccess().getTime());
-		Assertions.assertEquals(0, status.getNbPrices().intValue());
-		Assertions.assertEquals(0, status.getNbCo2Prices().intValue());
-		Assertions.assertEquals(0, status.getNbTypes().intValue());
-		Assertions.assertEquals(0, status.getNbLocations().intValue());
+
+		// Recount after a failure
+		Assertions.assertEquals(124, status.getNbPrices().intValue());
+		Assertions.assertEquals(116, status.getNbCo2Prices().intValue());
+		Assertions.assertEquals(23, status.getNbTypes().intValue());
+		Assertions.assertEquals(4, status.getNbLocations().intValue());
 		Mockito.verify(service).updateCatalog("service:prov:test", false);
 	}
 
@@ -343,4 +451,18 @@ class ImportCatalogResourceTest extends AbstractAppTest {
 		Assertions.assertEquals(0, status.getWorkload());
 	}
 
+	@Test
+	void executors() throws Exception {
+		final var resource = newResource();
+		Assertions.assertEquals(ImportCatalogResource.DEFAULT_PARALLEL, resource.getParallelism());
+		final var executor = resource.getParseExecutor();
+		Assertions.assertSame(executor, resource.getParseExecutor());
+		Assertions.assertEquals("done", executor.submit(() -> "done").get());
+
+		// The executors are released
+		resource.shutdown();
+		Assertions.assertTrue(executor.isShutdown());
+		Assertions.assertNotSame(executor, resource.getParseExecutor());
+		resource.shutdown();
+	}
 }
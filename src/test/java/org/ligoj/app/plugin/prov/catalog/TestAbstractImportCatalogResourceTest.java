@@ -4,23 +4,27 @@
 package org.ligoj.app.plugin.prov.catalog;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 import jakarta.persistence.EntityManager;
 
+import org.hibernate.Session;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.ligoj.app.dao.NodeRepository;
 import org.ligoj.app.model.Node;
+import org.ligoj.app.plugin.prov.ProvMetrics;
 import org.ligoj.app.plugin.prov.ProvResource;
 import org.ligoj.app.plugin.prov.dao.ProvInstancePriceRepository;
 import org.ligoj.app.plugin.prov.dao.ProvInstancePriceTermRepository;
@@ -29,6 +33,7 @@ import org.ligoj.app.plugin.prov.dao.ProvLocationRepository;
 import org.ligoj.app.plugin.prov.dao.ProvQuoteInstanceRepository;
 import org.ligoj.app.plugin.prov.dao.ProvSupportPriceRepository;
 import org.ligoj.app.plugin.prov.model.ImportCatalogStatus;
+import org.ligoj.app.plugin.prov.model.ProvFunctionPrice;
 import org.ligoj.app.plugin.prov.model.ProvInstancePrice;
 import org.ligoj.app.plugin.prov.model.ProvInstancePriceTerm;
 import org.ligoj.app.plugin.prov.model.ProvInstanceType;
@@ -251,6 +256,9 @@ class TestAbstractImportCatalogResourceTest extends AbstractImportCatalogResourc
 		final Consumer<ProvInstanceType> consumer3 = t -> t.setName("-not-called-");
 		copyAsNeeded(newContext, entity, consumer3, repository);
 		Assertions.assertEquals("-renew-", entity.getName());
+
+		// Not persisted by the mock, counted as new twice
+		Assertions.assertEquals(2, fold(newContext).getNbTypes().intValue());
 	}
 
 	@Test
@@ -273,6 +281,7 @@ class TestAbstractImportCatalogResourceTest extends AbstractImportCatalogResourc
 		price2.setCode("-updated-");
 		final var price3 = new ProvInstancePrice();
 		price3.setCode("-not-updated-unused-");
+		price3.setCo2Cpu(1d);
 		final var price4 = new ProvInstancePrice();
 		price4.setCode("-another-");
 		previous.put(price1.getCode(), price1);
@@ -295,6 +304,101 @@ class TestAbstractImportCatalogResourceTest extends AbstractImportCatalogResourc
 
 		// Unused and not updated price is deleted
 		Mockito.verify(pRepository, Mockito.times(1)).delete(price3);
+
+		// Statistics
+		final var status = fold(newContext);
+		Assertions.assertEquals(-1, status.getNbPrices().intValue());
+		Assertions.assertEquals(-1, status.getNbCo2Prices().intValue());
+	}
+
+	@Test
+	void isChanged() {
+		final var newContext = newContext();
+		final var stored = toContentHash(newContext, 1L);
+		final var hashes = toHashes(List.of(new Object[] { "-same-", stored }, new Object[] { "-legacy-", null },
+				new Object[] { "-raw-", 1L }));
+		Assertions.assertFalse(isChanged(newContext, hashes, "-same-", 1L));
+		Assertions.assertTrue(isChanged(newContext, hashes, "-legacy-", 1L));
+		Assertions.assertTrue(isChanged(newContext, hashes, "-new-", 1L));
+		Assertions.assertTrue(isChanged(newContext, hashes, "-raw-", 1L));
+		Assertions.assertEquals(Set.of("-same-", "-legacy-", "-new-", "-raw-"), newContext.getPrices());
+		Assertions.assertEquals(stored, newContext.getContentHashes().get("-new-"));
+
+		newContext.setForce(true);
+		Assertions.assertTrue(isChanged(newContext, hashes, "-same-", 1L));
+	}
+
+	@Test
+	void isChangedInputs() {
+		final var hashes = Map.of("-same-", toContentHash(newContext(), 1L));
+
+		// Another amount of hours per month
+		final var newContext = newContext();
+		newContext.setHoursMonth(700);
+		Assertions.assertTrue(isChanged(newContext, hashes, "-same-", 1L));
+
+		// Another CO2 data set
+		final var newContext2 = newContext();
+		final var co2 = new Co2RegionData();
+		co2.setPue(1.2);
+		newContext2.getCo2RegionDataSet().put("region", co2);
+		Assertions.assertTrue(isChanged(newContext2, hashes, "-same-", 1L));
+	}
+
+	@Test
+	void saveAsNeededContentHash() {
+		final var entity = new ProvStoragePrice();
+		entity.setId(1);
+		entity.setCode("code");
+		entity.setCostGb(1d);
+		@SuppressWarnings("unchecked") final RestRepository<ProvStoragePrice, Integer> repository = Mockito.mock(RestRepository.class);
+		final var context = newContext();
+		isChanged(context, Map.of(), "code", 1L);
+
+		// Same cost, but the hash is stored
+		saveAsNeeded(context, entity, 1, repository);
+		Assertions.assertEquals(toContentHash(context, 1L), entity.getContentHash());
+		Mockito.verify(repository).save(entity);
+
+		// Nothing to update
+		saveAsNeeded(context, entity, 1, repository);
+		Mockito.verify(repository, Mockito.times(1)).save(entity);
+	}
+
+	@Test
+	void purgeHashedPrices() {
+		final var newContext = newContext();
+		final var hashes = new HashMap<String, Long>();
+		hashes.put("-not-updated-referenced-", 1L);
+		hashes.put("-updated-", 2L);
+		hashes.put("-not-updated-unused-", 3L);
+		newContext.getPrices().add("-updated-");
+		final var pRepository = Mockito.mock(ProvInstancePriceRepository.class);
+		final var qRepository = Mockito.mock(ProvQuoteInstanceRepository.class);
+		final var price3 = new ProvInstancePrice();
+		Mockito.doReturn(List.of("-not-updated-referenced-", "-another-")).when(qRepository)
+				.findUsedPrices("service:prov:some");
+		Mockito.doReturn(List.of(price3)).when(pRepository).findAllByCode("service:prov:some",
+				List.of("-not-updated-unused-"));
+
+		purgeHashedPrices(newContext, hashes, pRepository, qRepository);
+
+		// Only the unused and not updated price is loaded and deleted
+		Mockito.verify(pRepository, Mockito.times(1)).findAllByCode(ArgumentMatchers.any(), ArgumentMatchers.any());
+		Mockito.verify(pRepository).deleteAll(List.of(price3));
+		Assertions.assertEquals(Set.of("-not-updated-referenced-", "-updated-"), hashes.keySet());
+		Assertions.assertEquals(-1, fold(newContext).getNbPrices().intValue());
+	}
+
+	@Test
+	void purgeHashedPricesNothing() {
+		final var newContext = newContext();
+		final var hashes = new HashMap<String, Long>();
+		hashes.put("-updated-", 2L);
+		newContext.getPrices().add("-updated-");
+		final var pRepository = Mockito.mock(ProvInstancePriceRepository.class);
+		purgeHashedPrices(newContext, hashes, pRepository, Mockito.mock(ProvQuoteInstanceRepository.class));
+		Mockito.verify(pRepository, Mockito.never()).findAllByCode(ArgumentMatchers.any(), ArgumentMatchers.any());
 	}
 
 	@Test
@@ -357,6 +461,7 @@ class TestAbstractImportCatalogResourceTest extends AbstractImportCatalogResourc
 			// Nothing
 		};
 		resource.objectMapper = new ObjectMapper();
+		resource.metrics = new ProvMetrics();
 
 		// Coverage only, required for inheriting provisioning plug-in
 		Assertions.assertNull(resource.getImportCatalogResource());
@@ -378,6 +483,7 @@ class TestAbstractImportCatalogResourceTest extends AbstractImportCatalogResourc
 		Assertions.assertNotNull(context.getNode());
 		Assertions.assertEquals(1, context.getHoursMonth());
 		Assertions.assertTrue(context.isForce());
+		Mockito.verify(importCatalogResource).collect("service:prov:test", context.getStats());
 	}
 
 	@BeforeEach
@@ -456,6 +562,15 @@ class TestAbstractImportCatalogResourceTest extends AbstractImportCatalogResourc
 		Assertions.assertTrue(isEnabledType(context, "abr"));
 	}
 
+	/**
+	 * Return a new status with the statistics collected by the given context.
+	 */
+	private ImportCatalogStatus fold(final AbstractUpdateContext context) {
+		final var status = new ImportCatalogStatus();
+		context.getStats().fold(status);
+		return status;
+	}
+
 	private AbstractUpdateContext newContext() {
 		final var node = new Node();
 		node.setName("newNode");
@@ -483,8 +598,14 @@ class TestAbstractImportCatalogResourceTest extends AbstractImportCatalogResourc
 			((Consumer<ImportCatalogStatus>) invocation.getArguments()[1]).accept(status);
 			return null;
 		}).when(importCatalogResource).nextStep(ArgumentMatchers.any(), ArgumentMatchers.any());
+		context.getStats().addPrices(2);
 		nextStep(context, "phase", "location", 1);
 		Assertions.assertEquals("location", status.getLocation());
+		Assertions.assertEquals(2, status.getNbPrices().intValue());
+
+		// Already folded
+		nextStep(context, "phase", "location", 1);
+		Assertions.assertEquals(2, status.getNbPrices().intValue());
 	}
 
 	@SuppressWarnings("unchecked")
@@ -564,6 +685,7 @@ class TestAbstractImportCatalogResourceTest extends AbstractImportCatalogResourc
 		Assertions.assertEquals(3, entity.getCost());
 		context.getMergedTypes().contains("code");
 		Mockito.verify(repository).save(entity);
+		Assertions.assertEquals(0, fold(context).getNbPrices().intValue());
 	}
 
 	@Test
@@ -577,6 +699,30 @@ class TestAbstractImportCatalogResourceTest extends AbstractImportCatalogResourc
 		Assertions.assertEquals(2d, entity.getCost());
 		context.getMergedTypes().contains("code");
 		Mockito.verify(repository).save(entity);
+		final var status = fold(context);
+		Assertions.assertEquals(1, status.getNbPrices().intValue());
+		Assertions.assertEquals(0, status.getNbCo2Prices().intValue());
+	}
+
+	@Test
+	void isCo2() {
+		final var price = new ProvInstancePrice();
+		Assertions.assertFalse(isCo2(price));
+		price.setCo2Cpu(1d);
+		Assertions.assertTrue(isCo2(price));
+		price.setCo2Cpu(0d);
+		price.setCo2(1d);
+		Assertions.assertTrue(isCo2(price));
+
+		final var function = new ProvFunctionPrice();
+		Assertions.assertFalse(isCo2(function));
+		function.setCo2Requests(1d);
+		Assertions.assertTrue(isCo2(function));
+
+		// Not counted for the storage prices
+		final var storage = new ProvStoragePrice();
+		storage.setCo2(1d);
+		Assertions.assertFalse(isCo2(storage));
 	}
 
 	/**
@@ -832,4 +978,55 @@ class TestAbstractImportCatalogResourceTest extends AbstractImportCatalogResourc
 
 	}
 
+	private ProvSupportPriceRepository prepareImportRegions() {
+		configuration = Mockito.mock(ConfigurationResource.class);
+		Mockito.when(configuration.get(CONF_BATCH_SIZE, DEFAULT_BATCH_SIZE)).thenReturn(2);
+		Mockito.when(em.unwrap(Session.class)).thenReturn(Mockito.mock(Session.class));
+		Mockito.when(importCatalogResource.getParallelism()).thenReturn(2);
+		Mockito.when(importCatalogResource.getParseExecutor()).thenReturn(Executors.newFixedThreadPool(2));
+		return Mockito.mock(ProvSupportPriceRepository.class);
+	}
+
+	@Test
+	void importRegions() throws IOException {
+		final var repository = prepareImportRegions();
+		final var context = newContext();
+		final var installed = new ArrayList<String>();
+		final var thread = Thread.currentThread();
+		importRegions(context, "phase", List.of("r1", "r2", "r3"), r -> r, r -> {
+			Assertions.assertNotSame(thread, Thread.currentThread());
+			return r + "-parsed";
+		}, (r, d) -> {
+			// Installation in the import thread
+			Assertions.assertSame(thread, Thread.currentThread());
+			installed.add(d);
+			final var price = new ProvSupportPrice();
+			price.setCode(r);
+			saveAsNeeded(context, price, 1d, repository);
+		});
+
+		Assertions.assertEquals(List.of("r1-parsed", "r2-parsed", "r3-parsed"), installed);
+		Assertions.assertEquals(Set.of("r1", "r2", "r3"), context.getPrices());
+		Mockito.verify(repository, Mockito.never()).save(ArgumentMatchers.any());
+		Mockito.verify(repository, Mockito.times(3)).saveAll(ArgumentMatchers.any());
+		Mockito.verify(importCatalogResource, Mockito.times(3)).nextStep(ArgumentMatchers.any(),
+				ArgumentMatchers.any());
+		final var session = em.unwrap(Session.class);
+		Mockito.verify(session).setJdbcBatchSize(2);
+
+		// Outside the import, the save is immediate
+		final var price = new ProvSupportPrice();
+		saveAsNeeded(context, price, 1d, repository);
+		Mockito.verify(repository).save(price);
+	}
+
+	@Test
+	void importRegionsFailed() {
+		prepareImportRegions();
+		final var context = newContext();
+		Assertions.assertEquals("failed", Assertions.assertThrows(IOException.class,
+				() -> importRegions(context, "phase", List.of("r1", "r2"), r -> r, r -> {
+					throw new IOException("failed");
+				}, (r, d) -> Assertions.fail())).getMessage());
+	}
 }
@@ -0,0 +1,44 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.model;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class of {@link Co2Curves}
+ */
+class Co2CurvesTest {
+
+	@Test
+	void parse() {
+		final var curve = Co2Curves.parse("1.5,2,3.25");
+		Assertions.assertArrayEquals(new double[] { 1.5, 2, 3.25 }, curve);
+
+		// Identical curves are shared
+		Assertions.assertSame(curve, Co2Curves.parse(new String("1.5,2,3.25")));
+	}
+
+	@Test
+	void parseEmpty() {
+		Assertions.assertSame(Co2Curves.EMPTY, Co2Curves.parse(null));
+		Assertions.assertSame(Co2Curves.EMPTY, Co2Curves.parse(""));
+	}
+
+	@Test
+	void priceValues() {
+		final var price = new ProvInstancePrice();
+		Assertions.assertEquals(0, price.getCo210Values().length);
+		price.setCo210("1,2");
+		price.setCo2Cpu10("3,4");
+		Assertions.assertArrayEquals(new double[] { 1, 2 }, price.getCo210Values());
+		Assertions.assertArrayEquals(new double[] { 3, 4 }, price.getCo2Cpu10Values());
+		Assertions.assertEquals(0, price.getCo2Ram10Values().length);
+
+		// The parsed values follow the raw value
+		price.setCo210("5");
+		Assertions.assertArrayEquals(new double[] { 5 }, price.getCo210Values());
+		Assertions.assertEquals("5", price.getCo210());
+	}
+}
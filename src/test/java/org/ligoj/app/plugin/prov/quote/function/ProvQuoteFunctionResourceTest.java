@@ -20,6 +20,7 @@ import org.ligoj.app.model.Project;
 import org.ligoj.app.model.Subscription;
 import org.ligoj.app.plugin.prov.AbstractProvResourceTest;
 import org.ligoj.app.plugin.prov.Floating;
+import org.ligoj.app.plugin.prov.ProvPriceIndex;
 import org.ligoj.app.plugin.prov.model.ProvBudget;
 import org.ligoj.app.plugin.prov.model.ProvCurrency;
 import org.ligoj.app.plugin.prov.model.ProvFunctionPrice;
@@ -163,6 +164,47 @@ class ProvQuoteFunctionResourceTest extends AbstractProvResourceTest {
 		Assertions.assertEquals(130.033, lookup.getCost(), DELTA);
 	}
 
+	/**
+	 * Lookups from the database give the same result as the in-memory ones.
+	 */
+	@Test
+	void lookupDynamicalOptimizedConcurrencyNoIndex() {
+		configuration.put(ProvPriceIndex.USE_INDEX, "0");
+		clearAllCache();
+		var lookup = qfResource.lookup(subscription,
+				builder().usage("Dev").nbRequests(20).duration(200).ram(2048).concurrency(1.9).build());
+		Assertions.assertEquals("FUNCTIOND1", lookup.getPrice().getCode());
+		Assertions.assertEquals(124.558, lookup.getCost(), DELTA);
+		lookup = qfResource.lookup(subscription,
+				builder().usage("Dev").nbRequests(20).duration(200).ram(2048).concurrency(1.4).build());
+		Assertions.assertEquals(130.033, lookup.getCost(), DELTA);
+	}
+
+	/**
+	 * A dynamic price having a <code>null</code> concurrency cost is excluded, from the in-memory index and from the
+	 * database.
+	 */
+	@Test
+	void lookupDynamicalNullConcurrencyCost() {
+		em.createQuery("UPDATE ProvFunctionPrice SET costRamRequestConcurrency = NULL WHERE code = 'FUNCTIOND1'")
+				.executeUpdate();
+		em.flush();
+		em.clear();
+		clearAllCache();
+		final var query = builder().usage("Dev").nbRequests(20).duration(200).ram(2048).concurrency(1).build();
+		final var indexed = qfResource.lookup(subscription, query);
+
+		configuration.put(ProvPriceIndex.USE_INDEX, "0");
+		clearAllCache();
+		final var database = qfResource.lookup(subscription, query);
+		Assertions.assertEquals(toCode(database), toCode(indexed));
+		Assertions.assertNotEquals("FUNCTIOND1", toCode(indexed));
+	}
+
+	private String toCode(final QuoteFunctionLookup lookup) {
+		return lookup == null ? null : lookup.getPrice().getCode();
+	}
+
 	/**
 	 * Lookup for an only dynamic price without concurrency
 	 */
@@ -3,6 +3,8 @@
  */
 package org.ligoj.app.plugin.prov.quote.instance;
 
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.StreamingOutput;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.ByteArrayOutputStream;
@@ -23,9 +25,11 @@ import org.springframework.core.io.ClassPathResource;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.ligoj.app.plugin.prov.quote.upload.ProvQuoteUploadResource.DEFAULT_ENCODING;
 import static org.ligoj.app.plugin.prov.quote.upload.ProvQuoteUploadResource.DEFAULT_SEPARATOR;
@@ -244,6 +248,42 @@ class ProvQuoteInstanceExportResourceTest extends AbstractProvResourceTest {
 		Assertions.assertEquals("support-name1;;;;;;;;;;;;;;;;;;;;support2;;;640,789;;;;;;;;;1", lines.get(37));
 	}
 
+	@Test
+	void exportInlineStream() throws IOException {
+		final var lines = export();
+		final var streamed = readLines(qieResource.exportInline(subscription, "test.csv", true, false), false);
+		Assertions.assertEquals(lines.get(0), streamed.get(0));
+		Assertions.assertEquals(lines.stream().sorted().toList(), streamed.stream().sorted().toList());
+	}
+
+	@Test
+	void exportSplitStream() throws IOException {
+		final var lines = readLines(qieResource.exportSplit(subscription, "test.csv"), false);
+		final var streamed = readLines(qieResource.exportSplit(subscription, "test.csv", true, false), false);
+		Assertions.assertEquals(38, streamed.size());
+		Assertions.assertEquals(lines.get(0), streamed.get(0));
+		Assertions.assertEquals(lines.stream().sorted().toList(), streamed.stream().sorted().toList());
+	}
+
+	@Test
+	void exportGzip() throws IOException {
+		final var response = qieResource.exportInline(subscription, "test.csv", false, true);
+		Assertions.assertEquals("gzip", response.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+		Assertions.assertEquals(export(), readLines(response, true));
+
+		final var streamed = qieResource.exportSplit(subscription, "test.csv", true, true);
+		Assertions.assertEquals("gzip", streamed.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+		Assertions.assertEquals(38, readLines(streamed, true).size());
+	}
+
+	private List<String> readLines(final Response response, final boolean gzip) throws IOException {
+		final var out = new ByteArrayOutputStream();
+		((StreamingOutput) response.getEntity()).write(out);
+		final InputStream input = new ByteArrayInputStream(out.toByteArray());
+		return IOUtils.readLines(new BufferedReader(
+				new InputStreamReader(gzip ? new GZIPInputStream(input) : input, StandardCharsets.UTF_8)));
+	}
+
 	private List<String> export() throws IOException {
 		final var export = (StreamingOutput) qieResource.exportInline(subscription, "test.csv").getEntity();
 		final var out = new ByteArrayOutputStream();
@@ -7,6 +7,7 @@ import static org.ligoj.app.plugin.prov.quote.instance.QuoteInstanceQuery.builde
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -16,6 +17,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.ligoj.app.plugin.prov.AbstractProvResourceTest;
 import org.ligoj.app.plugin.prov.Floating;
+import org.ligoj.app.plugin.prov.ProvPriceIndex;
 import org.ligoj.app.plugin.prov.dao.ProvQuoteRepository;
 import org.ligoj.app.plugin.prov.model.InternetAccess;
 import org.ligoj.app.plugin.prov.model.ProvQuoteStorage;
@@ -229,6 +231,35 @@ class ProvQuoteInstanceResourceTest extends AbstractProvResourceTest {
 		checkInstance(lookup);
 	}
 
+	/**
+	 * Several lookups at once, sharing the same requirements or not.
+	 */
+	@Test
+	void lookupAll() {
+		final var lookups = qiResource.lookupAll(subscription,
+				List.of(builder().ram(2000).location("region-1").usage(FULL).build(),
+						builder().cpu(3).ram(9).workload("100").os(VmOs.WINDOWS).usage(FULL).build(),
+						builder().ram(2000).location("region-1").usage(FULL).build()));
+		Assertions.assertEquals(3, lookups.size());
+		checkInstance(lookups.get(0));
+		Assertions.assertEquals("C54", lookups.get(1).getPrice().getCode());
+		Assertions.assertSame(lookups.get(0), lookups.get(2));
+	}
+
+	/**
+	 * Same lookup twice, the second one is memoized.
+	 */
+	@Test
+	void lookupCached() {
+		final var before = resource.getLookupStatistics();
+		checkInstance(qiResource.lookup(subscription, builder().ram(2000).location("region-1").usage(FULL).build()));
+		checkInstance(qiResource.lookup(subscription, builder().ram(2000).location("region-1").usage(FULL).build()));
+		final var after = resource.getLookupStatistics();
+		Assertions.assertEquals(2, after.get("requests") - before.get("requests"));
+		Assertions.assertEquals(1, after.get("misses") - before.get("misses"));
+		Assertions.assertEquals(1, after.get("hits") - before.get("hits"));
+	}
+
 	/**
 	 * Search instance type within a region where minimal instance types are not available.
 	 */
@@ -245,6 +276,7 @@ class ProvQuoteInstanceResourceTest extends AbstractProvResourceTest {
 		ipRepository.findAllBy("type.name", "dynamic").forEach(ip -> ip.setLocation(location));
 		em.flush();
 		em.clear();
+		clearAllCache();
 
 		// Instance 2 is not available in this region
 		Assertions.assertEquals("instance5",
@@ -439,6 +471,27 @@ class ProvQuoteInstanceResourceTest extends AbstractProvResourceTest {
 				145.825d, "on-demand1");
 	}
 
+	/**
+	 * A dynamic price having a <code>null</code> CPU cost has a <code>null</code> cost and is ranked last, from the
+	 * in-memory index and from the database.
+	 */
+	@Test
+	void lookupCustomNullCost() {
+		em.createQuery("UPDATE ProvInstancePrice SET costCpu = NULL WHERE code = 'C74'").executeUpdate();
+		em.flush();
+		em.clear();
+		clearAllCache();
+		final var indexed = qiResource.lookup(subscription, builder().ram(15360).usage("Dev").build());
+		Assertions.assertNotEquals("C74", indexed.getPrice().getCode());
+
+		configuration.put(ProvPriceIndex.USE_INDEX, "0");
+		clearAllCache();
+		final var database = qiResource.lookup(subscription, builder().ram(15360).usage("Dev").build());
+		Assertions.assertEquals(database.getPrice().getCode(), indexed.getPrice().getCode());
+		Assertions.assertEquals(database.getCost(), indexed.getCost(), DELTA);
+		Assertions.assertEquals(database.getCo2(), indexed.getCo2(), DELTA);
+	}
+
 	/**
 	 * Low usage rate, cheaper than 1y
 	 */
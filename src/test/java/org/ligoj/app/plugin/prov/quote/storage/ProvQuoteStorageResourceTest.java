@@ -5,6 +5,7 @@ package org.ligoj.app.plugin.prov.quote.storage;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import jakarta.persistence.EntityNotFoundException;
 
@@ -16,6 +17,7 @@ import org.ligoj.app.model.Project;
 import org.ligoj.app.model.Subscription;
 import org.ligoj.app.plugin.prov.AbstractProvResourceTest;
 import org.ligoj.app.plugin.prov.Floating;
+import org.ligoj.app.plugin.prov.ProvPriceIndex;
 import org.ligoj.app.plugin.prov.ProvResource;
 import org.ligoj.app.plugin.prov.model.ProvBudget;
 import org.ligoj.app.plugin.prov.model.ProvContainerPrice;
@@ -468,6 +470,7 @@ class ProvQuoteStorageResourceTest extends AbstractProvResourceTest {
 		final var type3 = stRepository.findByName("storage3");
 		type3.setLatency(Rate.GOOD);
 		stRepository.saveAndFlush(type3);
+		clearAllCache();
 
 		// Even if "storage2" and "storage3" have identical prices and match to
 		// the
@@ -783,6 +786,7 @@ class ProvQuoteStorageResourceTest extends AbstractProvResourceTest {
 		// Change the increment for this type
 		price.getType().setIncrement(1000d);
 		stRepository.saveAndFlush(price.getType());
+		clearAllCache();
 
 		lookup = lookups.get(1);
 		price = lookup.getPrice();
@@ -852,6 +856,22 @@ class ProvQuoteStorageResourceTest extends AbstractProvResourceTest {
 						.get(0).getPrice().getType().getName());
 	}
 
+	/**
+	 * Lookups from the database give the same result as the in-memory ones.
+	 */
+	@Test
+	void lookupStorageNoIndex() {
+		final var query = QuoteStorageQuery.builder().size(1024).build();
+		final var lookups = qsResource.lookup(subscription, query);
+		configuration.put(ProvPriceIndex.USE_INDEX, "0");
+		final var lookupsDb = qsResource.lookup(subscription, query);
+		Assertions.assertEquals(lookups.stream().map(l -> l.getPrice().getCode()).toList(),
+				lookupsDb.stream().map(l -> l.getPrice().getCode()).toList());
+		Assertions.assertEquals(lookups.get(0).getCost(), lookupsDb.get(0).getCost(), DELTA);
+		Assertions.assertEquals(List.of("S3", "S1", "S5", "S4", "S7"),
+				lookupsDb.stream().map(l -> l.getPrice().getCode()).toList());
+	}
+
 	/**
 	 * Lookup for a storage with invalid location
 	 */
@@ -119,6 +119,51 @@ class ProvQuoteUploadResourceTest extends AbstractProvResourceTest {
 		Assertions.assertEquals(27, configuration.getInstances().size());
 	}
 
+	@Test
+	void uploadStream() throws IOException {
+		qiuResource.uploadStream(subscription, new ClassPathResource("csv/upload/upload.csv").getInputStream(),
+				new String[]{"\"name\"", "cpu", "gpu", "ram", "disk", "latency", "os", "workload", "description"},
+				false, "Full Time 12 month", null, null, MergeMode.KEEP, 1, false, DEFAULT_ENCODING, false, false,
+				false, DEFAULT_SEPARATOR);
+		checkUpload();
+	}
+
+	@Test
+	void uploadChunks() throws IOException {
+		configuration.put(ProvQuoteUploadResource.CHUNK_SIZE, "2");
+		upload(subscription, new ClassPathResource("csv/upload/upload.csv").getInputStream(),
+				new String[]{"\"name\"", "cpu", "gpu", "ram", "disk", "latency", "os", "workload", "description"},
+				false, "Full Time 12 month", null, null, 1);
+		checkUpload();
+	}
+
+	@Test
+	void uploadChunksMultiline() throws IOException {
+		configuration.put(ProvQuoteUploadResource.CHUNK_SIZE, "1");
+		qiuResource.uploadStream(subscription,
+				IOUtils.toInputStream("name;cpu;ram;os;description\nA;1;1;LINUX;\"line1\nline2\"\nB;1;1;LINUX;d\n",
+						DEFAULT_ENCODING),
+				null, true, "Full Time 12 month", null, null, MergeMode.KEEP, 1, false, DEFAULT_ENCODING, false,
+				false, false, DEFAULT_SEPARATOR);
+		final var configuration = getConfiguration();
+		Assertions.assertEquals(9, configuration.getInstances().size());
+		Assertions.assertEquals("A", configuration.getInstances().get(7).getName());
+		Assertions.assertEquals("B", configuration.getInstances().get(8).getName());
+	}
+
+	@Test
+	void uploadChunksErrorContinue() throws IOException {
+		configuration.put(ProvQuoteUploadResource.CHUNK_SIZE, "2");
+		qiuResource.uploadStream(subscription,
+				IOUtils.toInputStream("A;1;1;LINUX\nB;999;6;WINDOWS\nC;1;1;LINUX\n", DEFAULT_ENCODING),
+				new String[]{"name", "cpu", "ram", "os"}, false, "Full Time 12 month", null, null, MergeMode.KEEP,
+				1, true, DEFAULT_ENCODING, false, false, false, DEFAULT_SEPARATOR);
+		final var configuration = getConfiguration();
+		Assertions.assertEquals(9, configuration.getInstances().size());
+		Assertions.assertEquals("A", configuration.getInstances().get(7).getName());
+		Assertions.assertEquals("C", configuration.getInstances().get(8).getName());
+	}
+
 	@Test
 	void uploadFixedInstanceType() throws IOException {
 		upload(subscription, "ANY;0.5;500;LINUX;instance10;true",
@@ -460,6 +505,21 @@ class ProvQuoteUploadResourceTest extends AbstractProvResourceTest {
 		Assertions.assertEquals(2D, configuration.getInstances().get(8).getCpu());
 	}
 
+	@Test
+	void uploadChunksUpdate() throws IOException {
+		configuration.put(ProvQuoteUploadResource.CHUNK_SIZE, "1");
+		qiuResource.upload(subscription, "ANY;0.5;500;LINUX\nANY 1;1;2000;LINUX\nANY;2;1000;LINUX",
+				new String[]{"name", "cpu", "ram", "os"}, false, null, null, null, MergeMode.UPDATE, 1, false,
+				DEFAULT_ENCODING, false, false, false, DEFAULT_SEPARATOR);
+		em.clear();
+		final var configuration = getConfiguration();
+		Assertions.assertEquals(9, configuration.getInstances().size());
+		Assertions.assertEquals("ANY 1", configuration.getInstances().get(7).getName());
+		Assertions.assertEquals(1D, configuration.getInstances().get(7).getCpu());
+		Assertions.assertEquals("ANY", configuration.getInstances().get(8).getName());
+		Assertions.assertEquals(2D, configuration.getInstances().get(8).getCpu());
+	}
+
 	@Test
 	void uploadNoConflictName() throws IOException {
 		upload(subscription, "ANY;0.5;500;LINUX\nANY 1;1;2000;LINUX\nANY;2;1000;LINUX",
@@ -168,6 +168,50 @@ class TerraformResourceTest extends AbstractTerraformTest {
 		}
 	}
 
+	@Test
+	void getLogChunk() throws IOException, InterruptedException {
+		writeOldFiles();
+		final var resource = newResource(newTerraforming());
+		startTask(resource, subscription, "init,plan,show");
+
+		// The separator of the running command is not yet available
+		var chunk = resource.getLog(subscription, 0, 0);
+		Assertions.assertEquals("---- init ----\nold-init.\n---- plan ----\nold-plan.\n---- show ----\nold-show.",
+				chunk.getContent());
+		Assertions.assertEquals(chunk.getContent().length(), chunk.getOffset());
+		Assertions.assertFalse(chunk.isFinished());
+		Assertions.assertFalse(chunk.isReset());
+
+		// Only the new bytes are returned
+		final var offset = chunk.getOffset();
+		Assertions.assertEquals("", resource.getLog(subscription, offset, 0).getContent());
+		FileUtils.write(new File(MOCK_PATH, "show.log"), "\nnew-show-é", StandardCharsets.UTF_8, true);
+		chunk = resource.getLog(subscription, offset, 1);
+		Assertions.assertEquals("\nnew-show-é", chunk.getContent());
+		Assertions.assertEquals(offset + 12, chunk.getOffset());
+		Assertions.assertEquals("new-show-é", resource.getLog(subscription, offset + 1, 0).getContent());
+
+		// The last separator is available once the task is finished
+		resource.runner.endTask("service:prov:test:account", false);
+		chunk = resource.getLog(subscription, offset + 12, 5);
+		Assertions.assertEquals("\n", chunk.getContent());
+		Assertions.assertTrue(chunk.isFinished());
+
+		// Offset of a previous execution
+		chunk = resource.getLog(subscription, 1000, 0);
+		Assertions.assertTrue(chunk.isReset());
+		Assertions.assertTrue(chunk.getContent().startsWith("---- init ----"));
+	}
+
+	@Test
+	void getLogChunkNoTask() throws IOException, InterruptedException {
+		writeOldFiles();
+		final var chunk = newResource(newTerraforming()).getLog(subscription, 0, 1);
+		Assertions.assertEquals("", chunk.getContent());
+		Assertions.assertEquals(0, chunk.getOffset());
+		Assertions.assertTrue(chunk.isFinished());
+	}
+
 	@Test
 	void clean() throws IOException, InterruptedException {
 		final var tf = new File(MOCK_PATH, "main.tf");
@@ -554,6 +598,24 @@ class TerraformResourceTest extends AbstractTerraformTest {
 		Assertions.assertEquals(1, task.getCompleting());
 	}
 
+	@Test
+	void getTaskIncremental() throws IOException {
+		final var resource = newResource(newTerraforming());
+		final var log = new File(MOCK_PATH, "apply.log");
+		Files.copy(TEST_LOGS.toPath().resolve("apply-not-completed.log"), log.toPath());
+		startTask(resource, subscription);
+		var task = resource.runner.getTask(getSubscription().getId());
+		Assertions.assertEquals(3, task.getCompleted());
+		Assertions.assertEquals(1, task.getCompleting());
+
+		// Only the new lines are parsed, the previous ones are counted once
+		FileUtils.write(log, "aws_instance.vm: Creation complete after 1s (ID: i-1)\n", StandardCharsets.UTF_8, true);
+		em.clear();
+		task = resource.runner.getTask(getSubscription().getId());
+		Assertions.assertEquals(4, task.getCompleted());
+		Assertions.assertEquals(0, task.getCompleting());
+	}
+
 	@Test
 	void getTaskUnfinishedStateTasks() throws IOException {
 		final var resource = newResource(newTerraforming());